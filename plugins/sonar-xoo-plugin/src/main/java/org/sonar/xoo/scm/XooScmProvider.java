@@ -19,11 +19,16 @@
  */
 package org.sonar.xoo.scm;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import javax.annotation.CheckForNull;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
 import org.sonar.api.batch.scm.BlameCommand;
 import org.sonar.api.batch.scm.ScmProvider;
 
-import java.io.File;
-
 public class XooScmProvider extends ScmProvider {
 
   private final XooBlameCommand blame;
@@ -47,4 +52,21 @@ public class XooScmProvider extends ScmProvider {
     return blame;
   }
 
+  /**
+   * The revision is the content of the file .xoo of the root directory
+   */
+  @CheckForNull
+  @Override
+  public String revisionId(Path rootBaseDir) {
+    File file = rootBaseDir.resolve(".xoo").toFile();
+    if (!file.isFile()) {
+      return null;
+    }
+    try {
+      return StringUtils.trimToNull(FileUtils.readFileToString(file, StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read " + file, e);
+    }
+  }
+
 }
@@ -23,6 +23,7 @@ import org.sonar.ce.httpd.CeHttpServer;
 import org.sonar.ce.logging.ChangeLogLevelHttpAction;
 import org.sonar.ce.systeminfo.SystemInfoHttpAction;
 import org.sonar.ce.taskprocessor.RefreshWorkerCountAction;
+import org.sonar.ce.taskprocessor.TaskSubmittedAction;
 import org.sonar.core.platform.Module;
 
 public class CeHttpModule extends Module {
@@ -32,6 +33,7 @@ public class CeHttpModule extends Module {
       CeHttpServer.class,
       SystemInfoHttpAction.class,
       ChangeLogLevelHttpAction.class,
-      RefreshWorkerCountAction.class);
+      RefreshWorkerCountAction.class,
+      TaskSubmittedAction.class);
   }
 }
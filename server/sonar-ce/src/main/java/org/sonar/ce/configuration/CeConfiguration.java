@@ -42,6 +42,12 @@ public interface CeConfiguration {
    */
   long getQueuePollingDelay();
 
+  /**
+   * The maximum delay in millisecond a {@link org.sonar.ce.taskprocessor.CeWorker} waits for the notification of
+   * a submitted task before trying to find a task to process when it's previous execution had nothing to do.
+   */
+  long getQueuePollingFallbackDelay();
+
   /**
    * Delay before running job that cleans CE tasks for the first time (in minutes).
    */
@@ -29,7 +29,8 @@ import static java.lang.String.format;
  * Immutable implementation of {@link CeConfiguration} which takes value returned by an implementation of
  * {@link WorkerCountProvider}, if any is available, or use the {@link #DEFAULT_WORKER_COUNT default worker count}.
  * In addition, it always returns {@link #DEFAULT_QUEUE_POLLING_DELAY} when
- * {@link CeConfiguration#getQueuePollingDelay()} is called.
+ * {@link CeConfiguration#getQueuePollingDelay()} is called and {@link #DEFAULT_QUEUE_POLLING_FALLBACK_DELAY}
+ * when {@link CeConfiguration#getQueuePollingFallbackDelay()} is called.
  */
 public class CeConfigurationImpl implements CeConfiguration, Startable {
   private static final int DEFAULT_WORKER_THREAD_COUNT = 1;
@@ -37,6 +38,8 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
   private static final int DEFAULT_WORKER_COUNT = 1;
   // 2 seconds
   private static final long DEFAULT_QUEUE_POLLING_DELAY = 2 * 1000L;
+  // 15 seconds
+  private static final long DEFAULT_QUEUE_POLLING_FALLBACK_DELAY = 15 * 1000L;
   // 1 minute
   private static final long CANCEL_WORN_OUTS_INITIAL_DELAY = 1;
   // 10 minutes
@@ -105,6 +108,11 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
     return DEFAULT_QUEUE_POLLING_DELAY;
   }
 
+  @Override
+  public long getQueuePollingFallbackDelay() {
+    return DEFAULT_QUEUE_POLLING_FALLBACK_DELAY;
+  }
+
   @Override
   public long getCleanCeTasksInitialDelay() {
     return CANCEL_WORN_OUTS_INITIAL_DELAY;
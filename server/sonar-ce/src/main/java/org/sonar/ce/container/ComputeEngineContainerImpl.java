@@ -56,6 +56,7 @@ import org.sonar.ce.queue.PurgeCeActivities;
 import org.sonar.ce.settings.ProjectConfigurationFactory;
 import org.sonar.ce.taskprocessor.CeProcessingScheduler;
 import org.sonar.ce.taskprocessor.CeTaskProcessorModule;
+import org.sonar.ce.taskprocessor.CeTaskSubmitTopicListener;
 import org.sonar.ce.user.CeUserSession;
 import org.sonar.core.component.DefaultResourceTypes;
 import org.sonar.core.config.ConfigurationProvider;
@@ -128,6 +129,8 @@ import org.sonar.server.platform.WebServerImpl;
 import org.sonar.server.platform.db.migration.MigrationConfigurationModule;
 import org.sonar.server.platform.db.migration.version.DatabaseVersion;
 import org.sonar.server.platform.monitoring.DbSection;
+import org.sonar.server.platform.monitoring.SettingsCacheSection;
+import org.sonar.server.platform.monitoring.WebhooksSection;
 import org.sonar.server.platform.monitoring.cluster.ProcessInfoProvider;
 import org.sonar.server.plugins.InstalledPluginReferentialFactory;
 import org.sonar.server.plugins.ServerExtensionInstaller;
@@ -141,17 +144,21 @@ import org.sonar.server.rule.DeprecatedRulesDefinitionLoader;
 import org.sonar.server.rule.RuleDefinitionsLoader;
 import org.sonar.server.rule.index.RuleIndex;
 import org.sonar.server.search.EsSearchModule;
+import org.sonar.server.setting.ClusterSettingsCacheInvalidator;
 import org.sonar.server.setting.DatabaseSettingLoader;
+import org.sonar.server.setting.GlobalSettingsCache;
 import org.sonar.server.setting.DatabaseSettingsEnabler;
 import org.sonar.server.setting.ThreadLocalSettings;
 import org.sonar.server.test.index.TestIndexer;
 import org.sonar.server.user.DefaultUserFinder;
 import org.sonar.server.user.DeprecatedUserFinder;
+import org.sonar.server.user.UserSessionCache;
 import org.sonar.server.user.index.UserIndex;
 import org.sonar.server.user.index.UserIndexer;
 import org.sonar.server.util.OkHttpClientProvider;
 import org.sonar.server.view.index.ViewIndex;
 import org.sonar.server.view.index.ViewIndexer;
+import org.sonar.server.webhook.WebhookModule;
 import org.sonarqube.ws.Rules;
 
 import static java.util.Objects.requireNonNull;
@@ -279,6 +286,7 @@ public class ComputeEngineContainerImpl implements ComputeEngineContainer {
       DatabaseVersion.class,
       DatabaseServerCompatibility.class,
 
+      GlobalSettingsCache.class,
       DatabaseSettingLoader.class,
       DatabaseSettingsEnabler.class,
       UrlSettings.class,
@@ -348,6 +356,7 @@ public class ComputeEngineContainerImpl implements ComputeEngineContainer {
       DefaultUserFinder.class,
       UserIndexer.class,
       UserIndex.class,
+      UserSessionCache.class,
 
       // permissions
       DefaultTemplatesResolverImpl.class,
@@ -399,11 +408,16 @@ public class ComputeEngineContainerImpl implements ComputeEngineContainer {
       EmailNotificationChannel.class,
       ReportAnalysisFailureNotificationModule.class,
 
+      // Webhooks
+      WebhookModule.class,
+      WebhooksSection.class,
+
       // Tests
       TestIndexer.class,
 
       // System
       ServerLogging.class,
+      SettingsCacheSection.class,
 
       // privileged plugins
       PrivilegedPluginsBootstraper.class,
@@ -428,6 +442,12 @@ public class ComputeEngineContainerImpl implements ComputeEngineContainer {
         // system health
         CeDistributedInformationImpl.class,
 
+        // queue notifications
+        CeTaskSubmitTopicListener.class,
+
+        // settings
+        ClusterSettingsCacheInvalidator.class,
+
         // system info
         DbSection.class,
         ProcessInfoProvider.class);
@@ -31,6 +31,18 @@ public interface CEQueueStatus {
    */
   long addInProgress();
 
+  /**
+   * Adds the specified time to the counter of time spent by tasks in queue, between their submission and the
+   * start of their processing.
+   *
+   * @param waitingTime duration of waiting in ms
+   *
+   * @see #getWaitingTime()
+   *
+   * @throws IllegalArgumentException if waitingTime is < 0
+   */
+  void addWaitingTime(long waitingTime);
+
   /**
    * Adds 1 to the count of batch reports which processing ended successfully and removes 1 from the count of batch
    * reports under processing. Adds the specified time to the processing time counter.
@@ -85,4 +97,10 @@ public interface CEQueueStatus {
    * Time spent processing batch reports since startup, in milliseconds.
    */
   long getProcessingTime();
+
+  /**
+   * Time spent by tasks in queue, between their submission and the start of their processing, since startup,
+   * in milliseconds.
+   */
+  long getWaitingTime();
 }
@@ -48,6 +48,12 @@ public interface CeTasksMBean {
    */
   long getProcessingTime();
 
+  /**
+   * Time spent by tasks in queue, between their submission and the start of their processing, since startup,
+   * in milliseconds.
+   */
+  long getWaitingTime();
+
   /**
    * Configured maximum number of workers.
    */
@@ -60,8 +60,8 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
   private final ComputeEngineStatus computeEngineStatus;
 
   public InternalCeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, CEQueueStatus queueStatus,
-    DefaultOrganizationProvider defaultOrganizationProvider, ComputeEngineStatus computeEngineStatus) {
-    super(dbClient, uuidFactory, defaultOrganizationProvider);
+    DefaultOrganizationProvider defaultOrganizationProvider, ComputeEngineStatus computeEngineStatus, CeTaskSubmitNotifier submitNotifier) {
+    super(dbClient, uuidFactory, defaultOrganizationProvider, submitNotifier);
     this.system2 = system2;
     this.dbClient = dbClient;
     this.queueStatus = queueStatus;
@@ -86,6 +86,7 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
       if (dto.isPresent()) {
         task = loadTask(dbSession, dto.get());
         queueStatus.addInProgress();
+        queueStatus.addWaitingTime(Math.max(0L, system2.now() - dto.get().getCreatedAt()));
       }
       return Optional.ofNullable(task);
     }
@@ -23,6 +23,7 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListenableScheduledFuture;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.CheckForNull;
@@ -34,23 +35,32 @@ import org.sonar.ce.configuration.CeConfiguration;
 import static com.google.common.util.concurrent.Futures.addCallback;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
+/**
+ * Chains the executions of each {@link CeWorker}. When a worker finds no task to process, it waits until
+ * a task is submitted (see {@link CeTaskSubmitSignal}) or, as a fallback, until the
+ * {@link CeConfiguration#getQueuePollingFallbackDelay() polling fallback delay} elapses.
+ */
 public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
   private static final Logger LOG = Loggers.get(CeProcessingSchedulerImpl.class);
   private static final long DELAY_BETWEEN_DISABLED_TASKS = 30 * 1000L; // 30 seconds
 
   private final CeProcessingSchedulerExecutorService executorService;
   private final long delayBetweenEnabledTasks;
+  private final long pollingFallbackDelay;
   private final TimeUnit timeUnit;
   private final ChainingCallback[] chainingCallbacks;
   private final EnabledCeWorkerController ceWorkerController;
+  private final CeTaskSubmitSignal taskSubmitSignal;
 
   public CeProcessingSchedulerImpl(CeConfiguration ceConfiguration,
     CeProcessingSchedulerExecutorService processingExecutorService, CeWorkerFactory ceCeWorkerFactory,
-    EnabledCeWorkerController ceWorkerController) {
+    EnabledCeWorkerController ceWorkerController, CeTaskSubmitSignal taskSubmitSignal) {
     this.executorService = processingExecutorService;
 
     this.delayBetweenEnabledTasks = ceConfiguration.getQueuePollingDelay();
+    this.pollingFallbackDelay = ceConfiguration.getQueuePollingFallbackDelay();
     this.ceWorkerController = ceWorkerController;
+    this.taskSubmitSignal = taskSubmitSignal;
     this.timeUnit = MILLISECONDS;
 
     int threadWorkerCount = ceConfiguration.getWorkerMaxCount();
@@ -79,6 +89,8 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
     for (ChainingCallback chainingCallback : chainingCallbacks) {
       chainingCallback.stop(false);
     }
+    // wake up the workers waiting for a task, they won't look for one
+    taskSubmitSignal.onSubmit();
 
     // Workers have 40s to gracefully stop processing tasks
     long until = System.currentTimeMillis() + 40_000L;
@@ -106,12 +118,14 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
   private class ChainingCallback implements FutureCallback<CeWorker.Result> {
     private final AtomicBoolean keepRunning = new AtomicBoolean(true);
     private final CeWorker worker;
+    private final WaitingCeWorker waitingWorker;
 
     @CheckForNull
     private ListenableFuture<CeWorker.Result> workerFuture;
 
     public ChainingCallback(CeWorker worker) {
       this.worker = worker;
+      this.waitingWorker = new WaitingCeWorker(worker, taskSubmitSignal, pollingFallbackDelay, timeUnit, keepRunning);
     }
 
     @Override
@@ -151,7 +165,7 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
 
     private void chainWithEnabledTaskDelay() {
       if (keepRunning()) {
-        workerFuture = executorService.schedule(worker, delayBetweenEnabledTasks, timeUnit);
+        workerFuture = executorService.submit(waitingWorker);
       }
       addCallback();
     }
@@ -180,4 +194,39 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
       }
     }
   }
+
+  /**
+   * Runs the worker once a task has been submitted or once the timeout elapsed, whichever comes first.
+   * The thread of the worker is blocked in the meantime.
+   */
+  static final class WaitingCeWorker implements Callable<CeWorker.Result> {
+    private final CeWorker worker;
+    private final CeTaskSubmitSignal taskSubmitSignal;
+    private final long timeout;
+    private final TimeUnit timeUnit;
+    private final AtomicBoolean keepRunning;
+    private long lastObservedGeneration = 0L;
+
+    WaitingCeWorker(CeWorker worker, CeTaskSubmitSignal taskSubmitSignal, long timeout, TimeUnit timeUnit, AtomicBoolean keepRunning) {
+      this.worker = worker;
+      this.taskSubmitSignal = taskSubmitSignal;
+      this.timeout = timeout;
+      this.timeUnit = timeUnit;
+      this.keepRunning = keepRunning;
+    }
+
+    CeWorker getWorker() {
+      return worker;
+    }
+
+    @Override
+    public CeWorker.Result call() throws Exception {
+      lastObservedGeneration = taskSubmitSignal.await(lastObservedGeneration, timeout, timeUnit);
+      if (!keepRunning.get()) {
+        // scheduling is being stopped, do not look for a new task
+        return CeWorker.Result.NO_TASK;
+      }
+      return worker.call();
+    }
+  }
 }
@@ -32,6 +32,7 @@ public class CeTaskProcessorModule extends Module {
       CeWorkerFactoryImpl.class,
       EnabledCeWorkerControllerImpl.class,
       CeProcessingSchedulerExecutorServiceImpl.class,
+      CeTaskSubmitSignal.class,
       CeProcessingSchedulerImpl.class);
   }
 }
@@ -0,0 +1,69 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.taskprocessor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.sonar.ce.queue.CeTaskSubmitNotifier;
+
+/**
+ * In-process signal used by {@link CeProcessingSchedulerImpl} to wake up the workers waiting for tasks
+ * as soon as a task is submitted, rather than waiting for the next polling of the queue.
+ * <p>
+ * Each signal increments a generation number. Waiters provide the last generation they observed so
+ * that a signal received while they were not waiting (ie. while they were looking for a task) is not lost.
+ * </p>
+ */
+public class CeTaskSubmitSignal implements CeTaskSubmitNotifier {
+  private final Lock lock = new ReentrantLock();
+  private final Condition submitted = lock.newCondition();
+  private long generation = 0L;
+
+  @Override
+  public void onSubmit() {
+    lock.lock();
+    try {
+      generation++;
+      submitted.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Waits until a signal more recent than {@code lastObservedGeneration} is received or until the timeout elapses.
+   *
+   * @return the current generation, to be passed to the next call to this method
+   */
+  public long await(long lastObservedGeneration, long timeout, TimeUnit unit) throws InterruptedException {
+    lock.lock();
+    try {
+      long remainingNanos = unit.toNanos(timeout);
+      while (generation == lastObservedGeneration && remainingNanos > 0L) {
+        remainingNanos = submitted.awaitNanos(remainingNanos);
+      }
+      return generation;
+    } finally {
+      lock.unlock();
+    }
+  }
+}
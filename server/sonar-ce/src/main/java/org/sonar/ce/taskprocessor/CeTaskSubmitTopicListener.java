@@ -0,0 +1,60 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.taskprocessor;
+
+import com.hazelcast.core.ITopic;
+import javax.annotation.CheckForNull;
+import org.picocontainer.Startable;
+import org.sonar.process.cluster.hz.HazelcastMember;
+
+import static org.sonar.process.cluster.hz.HazelcastObjects.CE_TASK_SUBMITTED;
+
+/**
+ * Forwards to {@link CeTaskSubmitSignal} the notifications of submitted tasks published
+ * by the Web Servers of the cluster.
+ */
+public class CeTaskSubmitTopicListener implements Startable {
+  private final HazelcastMember hazelcastMember;
+  private final CeTaskSubmitSignal taskSubmitSignal;
+  @CheckForNull
+  private String registrationId;
+
+  public CeTaskSubmitTopicListener(HazelcastMember hazelcastMember, CeTaskSubmitSignal taskSubmitSignal) {
+    this.hazelcastMember = hazelcastMember;
+    this.taskSubmitSignal = taskSubmitSignal;
+  }
+
+  @Override
+  public void start() {
+    registrationId = getTopic().addMessageListener(message -> taskSubmitSignal.onSubmit());
+  }
+
+  @Override
+  public void stop() {
+    if (registrationId != null) {
+      getTopic().removeMessageListener(registrationId);
+      registrationId = null;
+    }
+  }
+
+  private ITopic<String> getTopic() {
+    return hazelcastMember.getTopic(CE_TASK_SUBMITTED);
+  }
+}
@@ -114,6 +114,15 @@ public class CeConfigurationImplTest {
       .isEqualTo(10L);
   }
 
+  @Test
+  public void getQueuePollingFallbackDelay_returns_15_seconds() {
+    assertThat(new CeConfigurationImpl().getQueuePollingFallbackDelay())
+      .isEqualTo(15_000L);
+    workerCountProvider.set(1);
+    assertThat(new CeConfigurationImpl(workerCountProvider).getQueuePollingFallbackDelay())
+      .isEqualTo(15_000L);
+  }
+
   @Test
   public void refresh_does_not_change_any_value_when_there_is_no_WorkerCountProvider() {
     CeConfigurationImpl underTest = new CeConfigurationImpl();
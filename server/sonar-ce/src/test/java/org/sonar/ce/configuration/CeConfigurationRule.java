@@ -31,6 +31,7 @@ public class CeConfigurationRule extends ExternalResource implements CeConfigura
   private int workerThreadCount = 1;
   private int workerCount = 1;
   private long queuePollingDelay = 2 * 1000L;
+  private long queuePollingFallbackDelay = 15 * 1000L;
   private long cancelWornOutsInitialDelay = 1L;
   private long cancelWornOutsDelay = 10L;
   private Consumer<CeConfigurationRule> refreshCallHook;
@@ -77,6 +78,16 @@ public class CeConfigurationRule extends ExternalResource implements CeConfigura
     this.queuePollingDelay = queuePollingDelay;
   }
 
+  @Override
+  public long getQueuePollingFallbackDelay() {
+    return queuePollingFallbackDelay;
+  }
+
+  public void setQueuePollingFallbackDelay(long queuePollingFallbackDelay) {
+    checkArgument(queuePollingFallbackDelay > 0, "Queue polling fallback delay must be >= 0");
+    this.queuePollingFallbackDelay = queuePollingFallbackDelay;
+  }
+
   @Override
   public long getCleanCeTasksInitialDelay() {
     return cancelWornOutsInitialDelay;
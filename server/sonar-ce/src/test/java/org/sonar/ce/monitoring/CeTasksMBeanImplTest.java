@@ -36,6 +36,7 @@ public class CeTasksMBeanImplTest {
   private static final long ERROR_COUNT = 10;
   private static final long SUCCESS_COUNT = 13;
   private static final long PROCESSING_TIME = 987;
+  private static final long WAITING_TIME = 321;
   private static final int WORKER_MAX_COUNT = 666;
   private static final int WORKER_COUNT = 56;
 
@@ -59,6 +60,7 @@ public class CeTasksMBeanImplTest {
     assertThat(underTest.getErrorCount()).isEqualTo(ERROR_COUNT);
     assertThat(underTest.getSuccessCount()).isEqualTo(SUCCESS_COUNT);
     assertThat(underTest.getProcessingTime()).isEqualTo(PROCESSING_TIME);
+    assertThat(underTest.getWaitingTime()).isEqualTo(WAITING_TIME);
   }
 
   @Test
@@ -75,7 +77,7 @@ public class CeTasksMBeanImplTest {
   public void export_system_info() {
     ProtobufSystemInfo.Section section = underTest.toProtobuf();
     assertThat(section.getName()).isEqualTo("Compute Engine Tasks");
-    assertThat(section.getAttributesCount()).isEqualTo(7);
+    assertThat(section.getAttributesCount()).isEqualTo(8);
   }
 
   /**
@@ -99,6 +101,11 @@ public class CeTasksMBeanImplTest {
       return IN_PROGRESS_COUNT;
     }
 
+    @Override
+    public void addWaitingTime(long waitingTime) {
+      methodNotImplemented();
+    }
+
     @Override
     public long addError(long processingTime) {
       return methodNotImplemented();
@@ -124,6 +131,11 @@ public class CeTasksMBeanImplTest {
       return PROCESSING_TIME;
     }
 
+    @Override
+    public long getWaitingTime() {
+      return WAITING_TIME;
+    }
+
     private long methodNotImplemented() {
       throw new UnsupportedOperationException("Not Implemented");
     }
@@ -150,6 +162,11 @@ public class CeTasksMBeanImplTest {
       throw new UnsupportedOperationException("getQueuePollingDelay is not implemented");
     }
 
+    @Override
+    public long getQueuePollingFallbackDelay() {
+      throw new UnsupportedOperationException("getQueuePollingFallbackDelay is not implemented");
+    }
+
     @Override
     public long getCleanCeTasksInitialDelay() {
       throw new UnsupportedOperationException("getCleanCeTasksInitialDelay is not implemented");
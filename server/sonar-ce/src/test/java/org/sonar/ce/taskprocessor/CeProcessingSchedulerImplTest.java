@@ -40,6 +40,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 import org.junit.Rule;
@@ -56,6 +57,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -78,9 +80,17 @@ public class CeProcessingSchedulerImplTest {
   private SchedulerCall regularDelayedPoll = new SchedulerCall(ceWorker, 2000L, MILLISECONDS);
   private SchedulerCall extendedDelayedPoll = new SchedulerCall(ceWorker, 30000L, MILLISECONDS);
   private SchedulerCall notDelayedPoll = new SchedulerCall(ceWorker);
+  private SchedulerCall waitingPoll = SchedulerCall.waiting(ceWorker);
   private EnabledCeWorkerController ceWorkerController = new EnabledCeWorkerControllerImpl(ceConfiguration);
+  private CeTaskSubmitSignal taskSubmitSignal = new CeTaskSubmitSignal();
 
-  private CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerFactory, ceWorkerController);
+  private CeProcessingSchedulerImpl underTest = createUnderTest();
+
+  private CeProcessingSchedulerImpl createUnderTest() {
+    // no task is submitted during tests, do not wait long for the fallback delay
+    ceConfiguration.setQueuePollingFallbackDelay(1L);
+    return new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerFactory, ceWorkerController, taskSubmitSignal);
+  }
 
   @Test
   public void polls_without_delay_when_CeWorkerCallable_returns_TASK_PROCESSED() throws Exception {
@@ -109,7 +119,7 @@ public class CeProcessingSchedulerImplTest {
   }
 
   @Test
-  public void polls_with_regular_delay_when_CeWorkerCallable_returns_NO_TASK() throws Exception {
+  public void waits_for_task_submission_when_CeWorkerCallable_returns_NO_TASK() throws Exception {
     when(ceWorker.call())
       .thenReturn(NO_TASK)
       .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
@@ -118,7 +128,30 @@ public class CeProcessingSchedulerImplTest {
 
     assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
       regularDelayedPoll,
-      regularDelayedPoll);
+      waitingPoll);
+  }
+
+  @Test
+  public void waiting_worker_looks_for_a_task_as_soon_as_a_task_is_submitted() throws Exception {
+    when(ceWorker.call()).thenReturn(TASK_PROCESSED);
+    AtomicBoolean keepRunning = new AtomicBoolean(true);
+    CeProcessingSchedulerImpl.WaitingCeWorker waitingWorker = new CeProcessingSchedulerImpl.WaitingCeWorker(ceWorker, taskSubmitSignal, 1, TimeUnit.HOURS, keepRunning);
+
+    taskSubmitSignal.onSubmit();
+
+    assertThat(waitingWorker.call()).isEqualTo(TASK_PROCESSED);
+    verify(ceWorker).call();
+  }
+
+  @Test
+  public void waiting_worker_does_not_look_for_a_task_when_scheduling_is_stopped() throws Exception {
+    AtomicBoolean keepRunning = new AtomicBoolean(false);
+    CeProcessingSchedulerImpl.WaitingCeWorker waitingWorker = new CeProcessingSchedulerImpl.WaitingCeWorker(ceWorker, taskSubmitSignal, 1, TimeUnit.HOURS, keepRunning);
+
+    taskSubmitSignal.onSubmit();
+
+    assertThat(waitingWorker.call()).isEqualTo(NO_TASK);
+    verify(ceWorker, never()).call();
   }
 
   @Test
@@ -154,13 +187,13 @@ public class CeProcessingSchedulerImplTest {
       regularDelayedPoll,
       notDelayedPoll,
       notDelayedPoll,
-      regularDelayedPoll,
+      waitingPoll,
       notDelayedPoll,
-      regularDelayedPoll,
+      waitingPoll,
       notDelayedPoll,
-      regularDelayedPoll,
-      regularDelayedPoll,
-      regularDelayedPoll);
+      waitingPoll,
+      waitingPoll,
+      waitingPoll);
   }
 
   @Test
@@ -196,9 +229,9 @@ public class CeProcessingSchedulerImplTest {
     assertThat(cancelledTaskFutureCount).isEqualTo(1);
     assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
       regularDelayedPoll,
-      regularDelayedPoll,
+      waitingPoll,
       notDelayedPoll,
-      regularDelayedPoll);
+      waitingPoll);
   }
 
   @Test
@@ -219,7 +252,8 @@ public class CeProcessingSchedulerImplTest {
     when(processingExecutorService.schedule(any(CeWorker.class), any(Long.class), any(TimeUnit.class))).thenReturn(listenableScheduledFuture);
 
     CeWorkerFactory ceWorkerFactory = spy(new TestCeWorkerFactory(workers));
-    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerFactory, ceWorkerController);
+    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerFactory, ceWorkerController,
+      taskSubmitSignal);
     when(processingExecutorService.schedule(ceWorker, ceConfiguration.getQueuePollingDelay(), MILLISECONDS))
       .thenReturn(listenableScheduledFuture);
 
@@ -296,7 +330,7 @@ public class CeProcessingSchedulerImplTest {
 
     @Override
     public <T> ListenableFuture<T> submit(Callable<T> task) {
-      this.schedulerCalls.add(new SchedulerCall(task));
+      this.schedulerCalls.add(SchedulerCall.of(task));
       return delegate.submit(task);
     }
 
@@ -555,17 +589,35 @@ public class CeProcessingSchedulerImplTest {
     private final Callable<?> callable;
     private final long delay;
     private final TimeUnit unit;
+    private final boolean waiting;
 
     private SchedulerCall(Callable<?> callable, long delay, TimeUnit unit) {
       this.callable = callable;
       this.delay = delay;
       this.unit = unit;
+      this.waiting = false;
     }
 
     private SchedulerCall(Callable<?> callable) {
+      this(callable, false);
+    }
+
+    private SchedulerCall(Callable<?> callable, boolean waiting) {
       this.callable = callable;
       this.delay = -63366;
       this.unit = TimeUnit.NANOSECONDS;
+      this.waiting = waiting;
+    }
+
+    private static SchedulerCall waiting(Callable<?> callable) {
+      return new SchedulerCall(callable, true);
+    }
+
+    private static SchedulerCall of(Callable<?> callable) {
+      if (callable instanceof CeProcessingSchedulerImpl.WaitingCeWorker) {
+        return waiting(((CeProcessingSchedulerImpl.WaitingCeWorker) callable).getWorker());
+      }
+      return new SchedulerCall(callable);
     }
 
     @Override
@@ -577,12 +629,12 @@ public class CeProcessingSchedulerImplTest {
         return false;
       }
       SchedulerCall that = (SchedulerCall) o;
-      return delay == that.delay && callable == that.callable && unit.equals(that.unit);
+      return delay == that.delay && waiting == that.waiting && callable == that.callable && unit.equals(that.unit);
     }
 
     @Override
     public int hashCode() {
-      return Objects.hash(callable, delay, unit);
+      return Objects.hash(callable, delay, unit, waiting);
     }
 
     @Override
@@ -591,6 +643,7 @@ public class CeProcessingSchedulerImplTest {
         "callable=" + callable +
         ", delay=" + delay +
         ", unit=" + unit +
+        ", waiting=" + waiting +
         '}';
     }
   }
@@ -0,0 +1,74 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.taskprocessor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.DisableOnDebug;
+import org.junit.rules.TestRule;
+import org.junit.rules.Timeout;
+
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CeTaskSubmitSignalTest {
+  @Rule
+  public TestRule safeguardTimeout = new DisableOnDebug(Timeout.seconds(60));
+
+  private CeTaskSubmitSignal underTest = new CeTaskSubmitSignal();
+
+  @Test
+  public void await_returns_same_generation_when_timeout_elapses_without_signal() throws InterruptedException {
+    assertThat(underTest.await(0L, 1L, MILLISECONDS)).isEqualTo(0L);
+  }
+
+  @Test
+  public void await_returns_immediately_when_signal_was_received_before_waiting() throws InterruptedException {
+    underTest.onSubmit();
+    underTest.onSubmit();
+
+    assertThat(underTest.await(0L, 1L, HOURS)).isEqualTo(2L);
+  }
+
+  @Test
+  public void await_returns_when_signal_is_received() throws InterruptedException {
+    CountDownLatch started = new CountDownLatch(1);
+    AtomicLong observedGeneration = new AtomicLong(-1L);
+    Thread waiter = new Thread(() -> {
+      started.countDown();
+      try {
+        observedGeneration.set(underTest.await(0L, 1L, HOURS));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    waiter.start();
+    started.await();
+
+    underTest.onSubmit();
+    waiter.join(TimeUnit.SECONDS.toMillis(30));
+
+    assertThat(observedGeneration.get()).isEqualTo(1L);
+  }
+}
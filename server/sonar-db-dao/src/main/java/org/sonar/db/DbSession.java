@@ -23,4 +23,10 @@ import org.apache.ibatis.session.SqlSession;
 
 public interface DbSession extends SqlSession {
   SqlSession getSqlSession();
+
+  /**
+   * Executes the task after the next commit of the session. The task is dropped if the session is rolled back or
+   * closed before. A task registered several times before a commit is executed once.
+   */
+  void afterCommit(Runnable task);
 }
@@ -20,8 +20,11 @@
 package org.sonar.db;
 
 import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.session.Configuration;
@@ -32,6 +35,7 @@ import org.apache.ibatis.session.SqlSession;
 public class DbSessionImpl implements DbSession {
 
   private SqlSession session;
+  private final Set<Runnable> afterCommitTasks = new LinkedHashSet<>();
 
   public DbSessionImpl(SqlSession session) {
     this.session = session;
@@ -40,11 +44,27 @@ public class DbSessionImpl implements DbSession {
   @Override
   public void commit() {
     session.commit();
+    runAfterCommitTasks();
   }
 
   @Override
   public void commit(boolean force) {
     session.commit(force);
+    runAfterCommitTasks();
+  }
+
+  @Override
+  public void afterCommit(Runnable task) {
+    afterCommitTasks.add(task);
+  }
+
+  private void runAfterCommitTasks() {
+    if (afterCommitTasks.isEmpty()) {
+      return;
+    }
+    List<Runnable> tasks = new ArrayList<>(afterCommitTasks);
+    afterCommitTasks.clear();
+    tasks.forEach(Runnable::run);
   }
 
   /**
@@ -154,11 +174,13 @@ public class DbSessionImpl implements DbSession {
 
   @Override
   public void rollback() {
+    afterCommitTasks.clear();
     session.rollback();
   }
 
   @Override
   public void rollback(boolean force) {
+    afterCommitTasks.clear();
     session.rollback(force);
   }
 
@@ -169,6 +191,7 @@ public class DbSessionImpl implements DbSession {
 
   @Override
   public void close() {
+    afterCommitTasks.clear();
     session.close();
   }
 
@@ -207,4 +207,9 @@ abstract class DelegatingDbSession implements DbSession {
   public SqlSession getSqlSession() {
     return delegate.getSqlSession();
   }
+
+  @Override
+  public void afterCommit(Runnable task) {
+    delegate.afterCommit(task);
+  }
 }
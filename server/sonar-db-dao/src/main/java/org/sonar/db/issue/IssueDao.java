@@ -103,6 +103,13 @@ public class IssueDao implements Dao {
     mapper(dbSession).scrollNonClosedByModuleOrProject(module.projectUuid(), likeModuleUuidPath, handler);
   }
 
+  /**
+   * Non-closed issues of the files located directly in the directory, excluding sub-directories
+   */
+  public void scrollNonClosedByDirectory(DbSession dbSession, ComponentDto directory, ResultHandler<IssueDto> handler) {
+    mapper(dbSession).scrollNonClosedByDirectory(directory.projectUuid(), ComponentDto.formatUuidPathFromParent(directory), handler);
+  }
+
   public List<ShortBranchIssueDto> selectOpenByComponentUuids(DbSession dbSession, Collection<String> componentUuids) {
     return executeLargeInputs(componentUuids, mapper(dbSession)::selectOpenByComponentUuids);
   }
@@ -46,4 +46,9 @@ public interface IssueMapper {
     @Param("projectUuid") String projectUuid,
     @Param("likeModuleUuidPath") String likeModuleUuidPath,
     ResultHandler<IssueDto> handler);
+
+  void scrollNonClosedByDirectory(
+    @Param("projectUuid") String projectUuid,
+    @Param("childrenUuidPath") String childrenUuidPath,
+    ResultHandler<IssueDto> handler);
 }
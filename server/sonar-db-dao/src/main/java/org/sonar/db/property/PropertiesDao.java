@@ -28,6 +28,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.resources.Scopes;
@@ -51,12 +52,22 @@ public class PropertiesDao implements Dao {
 
   private final MyBatis mybatis;
   private final System2 system2;
+  private final List<PropertiesWriteListener> writeListeners = new CopyOnWriteArrayList<>();
+  private final Runnable notifyWriteTask = this::notifyWrite;
 
   public PropertiesDao(MyBatis mybatis, System2 system2) {
     this.mybatis = mybatis;
     this.system2 = system2;
   }
 
+  public void addWriteListener(PropertiesWriteListener listener) {
+    writeListeners.add(listener);
+  }
+
+  public void removeWriteListener(PropertiesWriteListener listener) {
+    writeListeners.remove(listener);
+  }
+
   /**
    * Returns the logins of users who have subscribed to the given notification dispatcher with the given notification channel.
    * If a resource ID is passed, the search is made on users who have specifically subscribed for the given resource.
@@ -177,6 +188,7 @@ public class PropertiesDao implements Dao {
    */
   public void saveProperty(DbSession session, PropertyDto property) {
     save(getMapper(session), property.getKey(), property.getUserId(), property.getResourceId(), property.getValue());
+    notifyWriteAfterCommit(session);
   }
 
   private void save(PropertiesMapper mapper,
@@ -222,11 +234,15 @@ public class PropertiesDao implements Dao {
    * Used by Governance.
    */
   public int deleteByQuery(DbSession dbSession, PropertyQuery query) {
-    return getMapper(dbSession).deleteByQuery(query);
+    int deleted = getMapper(dbSession).deleteByQuery(query);
+    notifyWriteAfterCommit(dbSession);
+    return deleted;
   }
 
   public int delete(DbSession dbSession, PropertyDto dto) {
-    return getMapper(dbSession).delete(dto.getKey(), dto.getUserId(), dto.getResourceId());
+    int deleted = getMapper(dbSession).delete(dto.getKey(), dto.getUserId(), dto.getResourceId());
+    notifyWriteAfterCommit(dbSession);
+    return deleted;
   }
 
   public void deleteProjectProperty(String key, Long projectId) {
@@ -238,10 +254,12 @@ public class PropertiesDao implements Dao {
 
   public void deleteProjectProperty(String key, Long projectId, DbSession session) {
     getMapper(session).deleteProjectProperty(key, projectId);
+    notifyWriteAfterCommit(session);
   }
 
   public void deleteProjectProperties(String key, String value, DbSession session) {
     getMapper(session).deleteProjectProperties(key, value);
+    notifyWriteAfterCommit(session);
   }
 
   public void deleteProjectProperties(String key, String value) {
@@ -253,6 +271,7 @@ public class PropertiesDao implements Dao {
 
   public void deleteGlobalProperty(String key, DbSession session) {
     getMapper(session).deleteGlobalProperty(key);
+    notifyWriteAfterCommit(session);
   }
 
   public void deleteGlobalProperty(String key) {
@@ -265,15 +284,18 @@ public class PropertiesDao implements Dao {
   public void deleteByOrganizationAndUser(DbSession dbSession, String organizationUuid, int userId) {
     List<Long> ids = getMapper(dbSession).selectIdsByOrganizationAndUser(organizationUuid, userId);
     executeLargeInputsWithoutOutput(ids, subList -> getMapper(dbSession).deleteByIds(subList));
+    notifyWriteAfterCommit(dbSession);
   }
 
   public void deleteByOrganizationAndMatchingLogin(DbSession dbSession, String organizationUuid, String login, List<String> propertyKeys) {
     List<Long> ids = getMapper(dbSession).selectIdsByOrganizationAndMatchingLogin(organizationUuid, login, propertyKeys);
     executeLargeInputsWithoutOutput(ids, list -> getMapper(dbSession).deleteByIds(list));
+    notifyWriteAfterCommit(dbSession);
   }
 
   public void deleteByKeyAndValue(DbSession dbSession, String key, String value) {
     getMapper(dbSession).deleteByKeyAndValue(key, value);
+    notifyWriteAfterCommit(dbSession);
   }
 
   public void saveGlobalProperties(Map<String, String> properties) {
@@ -283,6 +305,7 @@ public class PropertiesDao implements Dao {
         mapper.deleteGlobalProperty(entry.getKey());
         save(mapper, entry.getKey(), null, null, entry.getValue());
       });
+      notifyWriteAfterCommit(session);
       session.commit();
     }
   }
@@ -294,11 +317,23 @@ public class PropertiesDao implements Dao {
     if (!newKey.equals(oldKey)) {
       try (DbSession session = mybatis.openSession(false)) {
         getMapper(session).renamePropertyKey(oldKey, newKey);
+        notifyWriteAfterCommit(session);
         session.commit();
       }
     }
   }
 
+  /**
+   * Listeners are notified once the write is committed, so that they never reload the previous values
+   */
+  private void notifyWriteAfterCommit(DbSession session) {
+    session.afterCommit(notifyWriteTask);
+  }
+
+  private void notifyWrite() {
+    writeListeners.forEach(PropertiesWriteListener::onWrite);
+  }
+
   private static PropertiesMapper getMapper(DbSession session) {
     return session.getMapper(PropertiesMapper.class);
   }
@@ -19,10 +19,13 @@
  */
 package org.sonar.db.source;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -32,12 +35,29 @@ import javax.annotation.Nullable;
 import net.jpountz.lz4.LZ4BlockInputStream;
 import net.jpountz.lz4.LZ4BlockOutputStream;
 import org.apache.commons.io.IOUtils;
+import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.protobuf.DbFileSources;
 
 import static java.lang.String.format;
 
+/**
+ * Source data is split in chunks of {@link #LINES_PER_CHUNK} lines which are compressed independently, so that
+ * a range of lines can be read without decompressing the whole file (see {@link #getSourceLines(int, int)}).
+ * The column BINARY_DATA then contains:
+ * <ul>
+ *   <li>the bytes of {@link #CHUNKED_DATA_MAGIC}</li>
+ *   <li>the number of chunks (int)</li>
+ *   <li>for each chunk, the number of its first line and its size in bytes (ints)</li>
+ *   <li>the chunks, each one being a LZ4-compressed protobuf message {@link org.sonar.db.protobuf.DbFileSources.Data}</li>
+ * </ul>
+ * Data written by previous versions is a single LZ4-compressed message. It can still be read, and is replaced
+ * by chunked data when the file is analyzed again, as the data hash changes.
+ */
 public class FileSourceDto {
 
+  @VisibleForTesting
+  static final int LINES_PER_CHUNK = 200;
+  private static final byte[] CHUNKED_DATA_MAGIC = {'S', 'Q', 'S', '1'};
   private static final String SIZE_LIMIT_EXCEEDED_EXCEPTION_MESSAGE = "Protocol message was too large.  May be malicious.  " +
     "Use CodedInputStream.setSizeLimit() to increase the size limit.";
 
@@ -95,14 +115,67 @@ public class FileSourceDto {
 
   public DbFileSources.Data decodeSourceData(byte[] binaryData) {
     try {
+      if (isChunked(binaryData)) {
+        Chunks chunks = new Chunks(binaryData);
+        DbFileSources.Data.Builder builder = DbFileSources.Data.newBuilder();
+        for (int i = 0; i < chunks.size(); i++) {
+          chunks.read(i, builder);
+        }
+        return builder.build();
+      }
       return decodeRegularSourceData(binaryData);
     } catch (IOException e) {
-      throw new IllegalStateException(
-        format("Fail to decompress and deserialize source data [id=%s,fileUuid=%s,projectUuid=%s]", id, fileUuid, projectUuid),
-        e);
+      throw failToDecode(e);
+    }
+  }
+
+  /**
+   * Lines from {@code from} to {@code toInclusive}, both starting from 1. Only the chunks containing these
+   * lines are decompressed.
+   */
+  public List<DbFileSources.Line> getSourceLines(int from, int toInclusive) {
+    try {
+      List<DbFileSources.Line> lines;
+      if (isChunked(binaryData)) {
+        Chunks chunks = new Chunks(binaryData);
+        DbFileSources.Data.Builder builder = DbFileSources.Data.newBuilder();
+        for (int i = 0; i < chunks.size() && chunks.firstLine(i) <= toInclusive; i++) {
+          boolean beforeRange = i + 1 < chunks.size() && chunks.firstLine(i + 1) <= from;
+          if (!beforeRange) {
+            chunks.read(i, builder);
+          }
+        }
+        lines = builder.getLinesList();
+      } else {
+        lines = decodeRegularSourceData(binaryData).getLinesList();
+      }
+      return lines.stream()
+        .filter(line -> line.hasLine() && line.getLine() >= from)
+        .limit((toInclusive - from) + 1L)
+        .collect(MoreCollectors.toList());
+    } catch (IOException e) {
+      throw failToDecode(e);
     }
   }
 
+  private IllegalStateException failToDecode(IOException e) {
+    return new IllegalStateException(
+      format("Fail to decompress and deserialize source data [id=%s,fileUuid=%s,projectUuid=%s]", id, fileUuid, projectUuid),
+      e);
+  }
+
+  private static boolean isChunked(byte[] binaryData) {
+    if (binaryData.length < CHUNKED_DATA_MAGIC.length) {
+      return false;
+    }
+    for (int i = 0; i < CHUNKED_DATA_MAGIC.length; i++) {
+      if (binaryData[i] != CHUNKED_DATA_MAGIC[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private static DbFileSources.Data decodeRegularSourceData(byte[] binaryData) throws IOException {
     try (LZ4BlockInputStream lz4Input = new LZ4BlockInputStream(new ByteArrayInputStream(binaryData))) {
       return DbFileSources.Data.parseFrom(lz4Input);
@@ -124,9 +197,36 @@ public class FileSourceDto {
 
   /**
    * Serialize and compress protobuf message {@link org.sonar.db.protobuf.DbFileSources.Data}
-   * in the column BINARY_DATA.
+   * in the column BINARY_DATA, by chunks of {@link #LINES_PER_CHUNK} lines.
    */
   public static byte[] encodeSourceData(DbFileSources.Data data) {
+    List<DbFileSources.Line> lines = data.getLinesList();
+    List<byte[]> chunks = new ArrayList<>();
+    List<Integer> firstLines = new ArrayList<>();
+    for (int start = 0; start < lines.size(); start += LINES_PER_CHUNK) {
+      List<DbFileSources.Line> chunkLines = lines.subList(start, Math.min(start + LINES_PER_CHUNK, lines.size()));
+      firstLines.add(chunkLines.get(0).getLine());
+      chunks.add(compress(DbFileSources.Data.newBuilder().addAllLines(chunkLines).build()));
+    }
+
+    ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(byteOutput)) {
+      output.write(CHUNKED_DATA_MAGIC);
+      output.writeInt(chunks.size());
+      for (int i = 0; i < chunks.size(); i++) {
+        output.writeInt(firstLines.get(i));
+        output.writeInt(chunks.get(i).length);
+      }
+      for (byte[] chunk : chunks) {
+        output.write(chunk);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to serialize and compress source data", e);
+    }
+    return byteOutput.toByteArray();
+  }
+
+  private static byte[] compress(DbFileSources.Data data) {
     ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
     LZ4BlockOutputStream compressedOutput = new LZ4BlockOutputStream(byteOutput);
     try {
@@ -290,6 +390,57 @@ public class FileSourceDto {
     return this;
   }
 
+  /**
+   * Header of chunked source data
+   */
+  private static class Chunks {
+    private static final int HEADER_ENTRY_SIZE = 2 * Integer.BYTES;
+
+    private final byte[] binaryData;
+    private final int[] firstLines;
+    private final int[] offsets;
+    private final int[] lengths;
+
+    Chunks(byte[] binaryData) throws IOException {
+      this.binaryData = binaryData;
+      DataInputStream input = new DataInputStream(
+        new ByteArrayInputStream(binaryData, CHUNKED_DATA_MAGIC.length, binaryData.length - CHUNKED_DATA_MAGIC.length));
+      int count = input.readInt();
+      if (count < 0 || count > binaryData.length / HEADER_ENTRY_SIZE) {
+        throw new IOException("Invalid number of chunks: " + count);
+      }
+      this.firstLines = new int[count];
+      this.offsets = new int[count];
+      this.lengths = new int[count];
+      int offset = CHUNKED_DATA_MAGIC.length + Integer.BYTES + count * HEADER_ENTRY_SIZE;
+      for (int i = 0; i < count; i++) {
+        firstLines[i] = input.readInt();
+        lengths[i] = input.readInt();
+        offsets[i] = offset;
+        offset += lengths[i];
+      }
+      if (offset != binaryData.length) {
+        throw new IOException("Size of chunks does not match size of data");
+      }
+    }
+
+    int size() {
+      return firstLines.length;
+    }
+
+    int firstLine(int index) {
+      return firstLines[index];
+    }
+
+    void read(int index, DbFileSources.Data.Builder builder) throws IOException {
+      try (LZ4BlockInputStream lz4Input = new LZ4BlockInputStream(new ByteArrayInputStream(binaryData, offsets[index], lengths[index]))) {
+        CodedInputStream input = CodedInputStream.newInstance(lz4Input);
+        input.setSizeLimit(Integer.MAX_VALUE);
+        builder.mergeFrom(input);
+      }
+    }
+  }
+
   public static class Type {
     public static final String SOURCE = "SOURCE";
     public static final String TEST = "TEST";
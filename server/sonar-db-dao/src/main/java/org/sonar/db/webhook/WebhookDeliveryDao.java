@@ -44,10 +44,27 @@ public class WebhookDeliveryDao implements Dao {
     return mapper(dbSession).selectOrderedByCeTaskUuid(ceTaskUuid);
   }
 
+  /**
+   * The deliveries which must be sent again, see {@link WebhookDeliveryDto#getNextAttemptAt()}. Results are not ordered.
+   */
+  public List<WebhookDeliveryDto> selectWithNextAttempt(DbSession dbSession) {
+    return mapper(dbSession).selectWithNextAttempt();
+  }
+
   public void insert(DbSession dbSession, WebhookDeliveryDto dto) {
     mapper(dbSession).insert(dto);
   }
 
+  /**
+   * Removes the next attempt of the delivery, so that it is sent again only once when several processes
+   * compete for it.
+   *
+   * @return false if the delivery does not exist or has no next attempt anymore
+   */
+  public boolean clearNextAttempt(DbSession dbSession, String uuid) {
+    return mapper(dbSession).clearNextAttempt(uuid) == 1;
+  }
+
   public void deleteComponentBeforeDate(DbSession dbSession, String componentUuid, long beforeDate) {
     mapper(dbSession).deleteComponentBeforeDate(componentUuid, beforeDate);
   }
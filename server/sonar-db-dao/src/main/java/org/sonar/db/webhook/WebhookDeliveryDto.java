@@ -28,6 +28,8 @@ public class WebhookDeliveryDto extends WebhookDeliveryLiteDto<WebhookDeliveryDt
   private String errorStacktrace;
   /** The payload that has been sent, cannot be null */
   private String payload;
+  /** Time of the next attempt if the delivery failed and must be sent again, else null */
+  private Long nextAttemptAt;
 
   @CheckForNull
   public String getErrorStacktrace() {
@@ -49,6 +51,16 @@ public class WebhookDeliveryDto extends WebhookDeliveryLiteDto<WebhookDeliveryDt
     return this;
   }
 
+  @CheckForNull
+  public Long getNextAttemptAt() {
+    return nextAttemptAt;
+  }
+
+  public WebhookDeliveryDto setNextAttemptAt(@Nullable Long l) {
+    this.nextAttemptAt = l;
+    return this;
+  }
+
   @Override
   public String toString() {
     return new ToStringBuilder(this)
@@ -61,6 +73,7 @@ public class WebhookDeliveryDto extends WebhookDeliveryLiteDto<WebhookDeliveryDt
       .append("url", url)
       .append("errorStacktrace", errorStacktrace)
       .append("createdAt", createdAt)
+      .append("nextAttemptAt", nextAttemptAt)
       .toString();
   }
 }
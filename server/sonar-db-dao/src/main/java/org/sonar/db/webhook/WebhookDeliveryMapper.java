@@ -32,7 +32,11 @@ public interface WebhookDeliveryMapper {
 
   List<WebhookDeliveryLiteDto> selectOrderedByCeTaskUuid(@Param("ceTaskUuid") String ceTaskUuid);
 
+  List<WebhookDeliveryDto> selectWithNextAttempt();
+
   void insert(WebhookDeliveryDto dto);
 
+  int clearNextAttempt(@Param("uuid") String uuid);
+
   void deleteComponentBeforeDate(@Param("componentUuid") String componentUuid, @Param("beforeDate") long beforeDate);
 }
@@ -244,6 +244,37 @@ public class DbSessionImplTest {
     assertThat(underTest.getSqlSession()).isSameAs(sqlSessionMock);
   }
 
+  @Test
+  public void after_commit_tasks_are_executed_once_after_next_commit() {
+    List<String> executed = new ArrayList<>();
+    Runnable task = () -> executed.add("task");
+    underTest.afterCommit(task);
+    underTest.afterCommit(task);
+    underTest.afterCommit(() -> executed.add("other task"));
+    assertThat(executed).isEmpty();
+
+    underTest.commit();
+    assertThat(executed).containsExactly("task", "other task");
+
+    underTest.commit(true);
+    assertThat(executed).hasSize(2);
+  }
+
+  @Test
+  public void after_commit_tasks_are_dropped_on_rollback_and_close() {
+    List<String> executed = new ArrayList<>();
+    underTest.afterCommit(() -> executed.add("rolled back"));
+    underTest.rollback();
+    underTest.afterCommit(() -> executed.add("rolled back with force"));
+    underTest.rollback(true);
+    underTest.afterCommit(() -> executed.add("closed"));
+    underTest.close();
+
+    underTest.commit();
+
+    assertThat(executed).isEmpty();
+  }
+
   private void verifyDelegation(Consumer<DbSessionImpl> t, Consumer<SqlSession> s) {
     reset(sqlSessionMock);
     t.accept(underTest);
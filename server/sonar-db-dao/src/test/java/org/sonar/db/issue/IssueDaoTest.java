@@ -43,6 +43,7 @@ import org.sonar.db.rule.RuleTesting;
 
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.db.component.ComponentTesting.newDirectory;
 import static org.sonar.db.component.ComponentTesting.newFileDto;
 import static org.sonar.db.component.ComponentTesting.newModuleDto;
 
@@ -183,6 +184,26 @@ public class IssueDaoTest {
     assertThat(accumulator.list).isEmpty();
   }
 
+  @Test
+  public void scrollNonClosedByDirectory() {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto directory = db.components().insertComponent(newDirectory(project, "src"));
+    ComponentDto subDirectory = db.components().insertComponent(newDirectory(project, "src/sub"));
+    ComponentDto file = db.components().insertComponent(newFileDto(project, directory));
+    ComponentDto fileInSubDirectory = db.components().insertComponent(newFileDto(project, subDirectory));
+    ComponentDto fileInRoot = db.components().insertComponent(newFileDto(project));
+    IssueDto openIssueOnFile = db.issues().insert(rule, project, file, i -> i.setStatus("OPEN").setResolution(null));
+    db.issues().insert(rule, project, file, i -> i.setStatus("CLOSED").setResolution("FIXED"));
+    db.issues().insert(rule, project, fileInSubDirectory, i -> i.setStatus("OPEN").setResolution(null));
+    db.issues().insert(rule, project, fileInRoot, i -> i.setStatus("OPEN").setResolution(null));
+    db.issues().insert(rule, project, project, i -> i.setStatus("OPEN").setResolution(null));
+
+    Accumulator accumulator = new Accumulator();
+    underTest.scrollNonClosedByDirectory(db.getSession(), directory, accumulator);
+    accumulator.assertThatContainsOnly(openIssueOnFile);
+  }
+
   @Test
   public void selectOpenByComponentUuid() {
     RuleDefinitionDto rule = db.rules().insert();
@@ -52,6 +52,9 @@ import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.groups.Tuple.tuple;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.sonar.db.property.PropertyTesting.newComponentPropertyDto;
 import static org.sonar.db.property.PropertyTesting.newGlobalPropertyDto;
@@ -1005,6 +1008,50 @@ public class PropertiesDaoTest {
     underTest.renamePropertyKey(null, "foo");
   }
 
+  @Test
+  public void write_listeners_are_notified_of_writes() {
+    PropertiesWriteListener listener = mock(PropertiesWriteListener.class);
+    underTest.addWriteListener(listener);
+
+    underTest.saveProperty(newGlobalPropertyDto().setKey("foo"));
+    verify(listener).onWrite();
+
+    reset(listener);
+    underTest.deleteGlobalProperty("foo", session);
+    underTest.saveProperty(session, newGlobalPropertyDto().setKey("bar"));
+    verifyZeroInteractions(listener);
+    session.commit();
+    verify(listener).onWrite();
+
+    reset(listener);
+    underTest.removeWriteListener(listener);
+    underTest.saveGlobalProperties(ImmutableMap.of("bar", "1"));
+    verifyZeroInteractions(listener);
+  }
+
+  @Test
+  public void write_listeners_are_not_notified_of_rolled_back_writes() {
+    PropertiesWriteListener listener = mock(PropertiesWriteListener.class);
+    underTest.addWriteListener(listener);
+
+    underTest.saveProperty(session, newGlobalPropertyDto().setKey("foo"));
+    session.rollback();
+    session.commit();
+
+    verifyZeroInteractions(listener);
+  }
+
+  @Test
+  public void write_listeners_are_not_notified_of_reads() {
+    PropertiesWriteListener listener = mock(PropertiesWriteListener.class);
+    underTest.addWriteListener(listener);
+
+    underTest.selectGlobalProperties();
+    underTest.selectGlobalProperty("foo");
+
+    verifyZeroInteractions(listener);
+  }
+
   private PropertyDto findByKey(List<PropertyDto> properties, String key) {
     for (PropertyDto property : properties) {
       if (key.equals(property.getKey())) {
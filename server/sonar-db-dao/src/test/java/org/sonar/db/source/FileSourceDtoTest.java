@@ -19,13 +19,19 @@
  */
 package org.sonar.db.source;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.IntStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
+import org.apache.commons.lang.StringUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.db.protobuf.DbFileSources;
 
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class FileSourceDtoTest {
@@ -71,15 +77,118 @@ public class FileSourceDtoTest {
     underTest.getSourceData();
   }
 
+  @Test
+  public void encode_and_decode_source_data_of_several_chunks() {
+    DbFileSources.Data data = newData(2 * FileSourceDto.LINES_PER_CHUNK + 10);
+
+    FileSourceDto underTest = new FileSourceDto().setSourceData(data);
+
+    assertThat(underTest.getSourceData()).isEqualTo(data);
+  }
+
+  @Test
+  public void encode_and_decode_empty_source_data() {
+    DbFileSources.Data data = DbFileSources.Data.newBuilder().build();
+
+    FileSourceDto underTest = new FileSourceDto().setSourceData(data);
+
+    assertThat(underTest.getSourceData().getLinesCount()).isEqualTo(0);
+    assertThat(underTest.getSourceLines(1, 10)).isEmpty();
+  }
+
+  @Test
+  public void getSourceLines_reads_range_over_several_chunks() {
+    int from = FileSourceDto.LINES_PER_CHUNK - 5;
+    int to = FileSourceDto.LINES_PER_CHUNK + 5;
+    FileSourceDto underTest = new FileSourceDto().setSourceData(newData(3 * FileSourceDto.LINES_PER_CHUNK));
+
+    List<DbFileSources.Line> lines = underTest.getSourceLines(from, to);
+
+    assertThat(lines).extracting(DbFileSources.Line::getLine).containsExactlyElementsOf(IntStream.rangeClosed(from, to).boxed().collect(toList()));
+  }
+
+  @Test
+  public void getSourceLines_reads_first_and_last_lines() {
+    int lineCount = 2 * FileSourceDto.LINES_PER_CHUNK + 1;
+    FileSourceDto underTest = new FileSourceDto().setSourceData(newData(lineCount));
+
+    assertThat(underTest.getSourceLines(1, 1)).extracting(DbFileSources.Line::getSource).containsExactly("line 1");
+    assertThat(underTest.getSourceLines(lineCount, lineCount + 10)).extracting(DbFileSources.Line::getSource).containsExactly("line " + lineCount);
+    assertThat(underTest.getSourceLines(lineCount + 1, lineCount + 10)).isEmpty();
+  }
+
+  @Test
+  public void decode_source_data_stored_in_a_single_block_by_previous_versions() {
+    DbFileSources.Data data = newData(FileSourceDto.LINES_PER_CHUNK + 1);
+
+    FileSourceDto underTest = new FileSourceDto().setBinaryData(encodeAsSingleBlock(data));
+
+    assertThat(underTest.getSourceData()).isEqualTo(data);
+    assertThat(underTest.getSourceLines(3, 4)).extracting(DbFileSources.Line::getSource).containsExactly("line 3", "line 4");
+  }
+
+  @Test
+  public void getSourceLines_throws_ISE_when_chunks_are_corrupted() {
+    byte[] bytes = FileSourceDto.encodeSourceData(newData(10));
+    FileSourceDto underTest = new FileSourceDto()
+      .setBinaryData(Arrays.copyOf(bytes, bytes.length - 1))
+      .setId(12L)
+      .setFileUuid("file uuid")
+      .setProjectUuid("project uuid");
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Fail to decompress and deserialize source data [id=12,fileUuid=file uuid,projectUuid=project uuid]");
+
+    underTest.getSourceLines(1, 2);
+  }
+
   @Test
   public void getSourceData_reads_Data_object_bigger_than_default_size_limit() {
     DbFileSources.Data build = createOver64MBDataStructure();
-    byte[] bytes = FileSourceDto.encodeSourceData(build);
+    byte[] bytes = encodeAsSingleBlock(build);
 
     DbFileSources.Data data = new FileSourceDto().decodeSourceData(bytes);
     assertThat(data.getLinesCount()).isEqualTo(build.getLinesCount());
   }
 
+  @Test
+  public void decode_chunk_bigger_than_default_size_limit() {
+    DbFileSources.Data data = createSingleChunkOver64MBDataStructure();
+    int lastLine = FileSourceDto.LINES_PER_CHUNK;
+    byte[] bytes = FileSourceDto.encodeSourceData(data);
+
+    DbFileSources.Data decoded = new FileSourceDto().decodeSourceData(bytes);
+    assertThat(decoded.getLinesCount()).isEqualTo(lastLine);
+    assertThat(decoded.getLines(lastLine - 1)).isEqualTo(data.getLines(lastLine - 1));
+
+    List<DbFileSources.Line> lines = new FileSourceDto().setBinaryData(bytes).getSourceLines(lastLine, lastLine);
+    assertThat(lines).extracting(DbFileSources.Line::getLine).containsExactly(lastLine);
+  }
+
+  private static DbFileSources.Data newData(int lineCount) {
+    DbFileSources.Data.Builder dataBuilder = DbFileSources.Data.newBuilder();
+    for (int i = 1; i <= lineCount; i++) {
+      dataBuilder.addLinesBuilder()
+        .setLine(i)
+        .setSource("line " + i)
+        .setHighlighting("HIGHLIGHTING_" + i);
+    }
+    return dataBuilder.build();
+  }
+
+  /**
+   * Format of source data before it was split in chunks
+   */
+  private static byte[] encodeAsSingleBlock(DbFileSources.Data data) {
+    ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
+    try (LZ4BlockOutputStream compressedOutput = new LZ4BlockOutputStream(byteOutput)) {
+      data.writeTo(compressedOutput);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return byteOutput.toByteArray();
+  }
+
   private static DbFileSources.Data createOver64MBDataStructure() {
     DbFileSources.Data.Builder dataBuilder = DbFileSources.Data.newBuilder();
     DbFileSources.Line.Builder lineBuilder = DbFileSources.Line.newBuilder();
@@ -91,4 +200,20 @@ public class FileSourceDtoTest {
     }
     return dataBuilder.build();
   }
+
+  /**
+   * A single chunk of {@link FileSourceDto#LINES_PER_CHUNK} lines of about 400KB
+   */
+  private static DbFileSources.Data createSingleChunkOver64MBDataStructure() {
+    String source = StringUtils.repeat(LOREM_IPSUM, 750);
+    DbFileSources.Data.Builder dataBuilder = DbFileSources.Data.newBuilder();
+    for (int i = 1; i <= FileSourceDto.LINES_PER_CHUNK; i++) {
+      dataBuilder.addLinesBuilder()
+        .setLine(i)
+        .setSource(source);
+    }
+    DbFileSources.Data data = dataBuilder.build();
+    assertThat(data.getSerializedSize()).isGreaterThan(64 * 1024 * 1024);
+    return data;
+  }
 }
@@ -115,11 +115,12 @@ public class WebhookDeliveryDaoTest {
     assertThat(stored.getHttpStatus()).isNull();
     assertThat(stored.getDurationMs()).isNull();
     assertThat(stored.getErrorStacktrace()).isNull();
+    assertThat(stored.getNextAttemptAt()).isNull();
   }
 
   @Test
   public void insert_row_with_all_columns() {
-    WebhookDeliveryDto dto = newDto("DELIVERY_1", "COMPONENT_1", "TASK_1");
+    WebhookDeliveryDto dto = newDto("DELIVERY_1", "COMPONENT_1", "TASK_1").setNextAttemptAt(NOW);
 
     underTest.insert(dbSession, dto);
 
@@ -128,6 +129,34 @@ public class WebhookDeliveryDaoTest {
     assertThat(stored.getHttpStatus()).isEqualTo(dto.getHttpStatus());
     assertThat(stored.getDurationMs()).isEqualTo(dto.getDurationMs());
     assertThat(stored.getErrorStacktrace()).isEqualTo(dto.getErrorStacktrace());
+    assertThat(stored.getNextAttemptAt()).isEqualTo(NOW);
+  }
+
+  @Test
+  public void selectWithNextAttempt_returns_only_deliveries_to_send_again() {
+    WebhookDeliveryDto dto1 = newDto("D1", "COMPONENT_1", "TASK_1").setAnalysisUuid("ANALYSIS_1").setNextAttemptAt(NOW);
+    underTest.insert(dbSession, dto1);
+    underTest.insert(dbSession, newDto("D2", "COMPONENT_1", "TASK_1"));
+
+    List<WebhookDeliveryDto> deliveries = underTest.selectWithNextAttempt(dbSession);
+
+    assertThat(deliveries).extracting(WebhookDeliveryDto::getUuid).containsExactly("D1");
+    WebhookDeliveryDto delivery = deliveries.get(0);
+    verifyMandatoryFields(dto1, delivery);
+    assertThat(delivery.getAnalysisUuid()).isEqualTo("ANALYSIS_1");
+    assertThat(delivery.getNextAttemptAt()).isEqualTo(NOW);
+  }
+
+  @Test
+  public void clearNextAttempt_succeeds_only_once() {
+    underTest.insert(dbSession, newDto("D1", "COMPONENT_1", "TASK_1").setNextAttemptAt(NOW));
+
+    assertThat(underTest.clearNextAttempt(dbSession, "D1")).isTrue();
+    assertThat(underTest.clearNextAttempt(dbSession, "D1")).isFalse();
+    assertThat(underTest.clearNextAttempt(dbSession, "missing")).isFalse();
+
+    assertThat(selectByUuid("D1").getNextAttemptAt()).isNull();
+    assertThat(underTest.selectWithNextAttempt(dbSession)).isEmpty();
   }
 
   @Test
@@ -58,4 +58,16 @@ public final class HazelcastObjects {
    * THe key of the replicated map holding the health state information of all SQ nodes.
    */
   public static final String SQ_HEALTH_STATE = "sq_health_state";
+  /**
+   * The key of the topic used to notify Compute Engine workers that tasks have been submitted
+   */
+  public static final String CE_TASK_SUBMITTED = "CE_TASK_SUBMITTED";
+  /**
+   * The key of the topic used to notify the nodes that global settings have been changed
+   */
+  public static final String SETTINGS_CHANGED = "SETTINGS_CHANGED";
+  /**
+   * The key of the topic used to notify the Web Servers that users, groups or permissions have been changed
+   */
+  public static final String USER_SESSIONS_CHANGED = "USER_SESSIONS_CHANGED";
 }
@@ -29,4 +29,9 @@ public interface CeHttpClient {
   void changeLogLevel(LoggerLevel level);
 
   void refreshCeWorkerCount();
+
+  /**
+   * Wakes up the workers of the Compute Engine which are waiting for new tasks.
+   */
+  void notifyTaskSubmitted();
 }
@@ -42,6 +42,7 @@ public class CeHttpClientImpl implements CeHttpClient {
 
   private static final String PATH_CHANGE_LOG_LEVEL = "changeLogLevel";
   private static final String PATH_SYSTEM_INFO = "systemInfo";
+  private static final String PATH_TASK_SUBMITTED = "taskSubmitted";
 
   private final File ipcSharedDir;
 
@@ -161,6 +162,44 @@ public class CeHttpClientImpl implements CeHttpClient {
     }
   }
 
+  @Override
+  public void notifyTaskSubmitted() {
+    call(TaskSubmittedActionClient.INSTANCE);
+  }
+
+  private enum TaskSubmittedActionClient implements ActionClient<Void> {
+    INSTANCE;
+
+    @Override
+    public String getPath() {
+      return PATH_TASK_SUBMITTED;
+    }
+
+    @Override
+    public Void getDefault() {
+      return null;
+    }
+
+    @Override
+    public Void call(String url) throws Exception {
+      okhttp3.Request request = new okhttp3.Request.Builder()
+        .post(RequestBody.create(null, new byte[0]))
+        .url(url)
+        .build();
+      try (okhttp3.Response response = new OkHttpClient().newCall(request).execute()) {
+        if (response.code() != 200) {
+          throw new IOException(
+            String.format(
+              "Failed to notify Compute Engine of submitted task. Code was '%s' and response was '%s' for url '%s'",
+              response.code(),
+              response.body().string(),
+              url));
+        }
+        return null;
+      }
+    }
+  }
+
   private <T> T call(ActionClient<T> actionClient) {
     try (DefaultProcessCommands commands = DefaultProcessCommands.secondary(ipcSharedDir, COMPUTE_ENGINE.getIpcIndex())) {
       if (commands.isUp()) {
@@ -0,0 +1,37 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.queue;
+
+/**
+ * Wakes up the Compute Engine workers waiting for tasks, so that a task submitted to the
+ * {@link CeQueue} is processed without waiting for the next polling of the queue.
+ * <p>
+ * Notification is a best-effort optimization: workers still poll the queue periodically,
+ * so implementations must not fail when the Compute Engine can't be reached.
+ * </p>
+ */
+public interface CeTaskSubmitNotifier {
+
+  /**
+   * Called once new tasks have been committed to the queue.
+   */
+  void onSubmit();
+
+}
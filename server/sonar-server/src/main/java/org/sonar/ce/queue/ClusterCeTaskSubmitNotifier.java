@@ -0,0 +1,50 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.queue;
+
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.process.cluster.hz.HazelcastMember;
+
+import static org.sonar.process.cluster.hz.HazelcastObjects.CE_TASK_SUBMITTED;
+
+/**
+ * Notifies the Compute Engine processes of all the nodes of the cluster by publishing
+ * a message on a Hazelcast topic.
+ */
+public class ClusterCeTaskSubmitNotifier implements CeTaskSubmitNotifier {
+  private static final Logger LOGGER = Loggers.get(ClusterCeTaskSubmitNotifier.class);
+
+  private final HazelcastMember hazelcastMember;
+
+  public ClusterCeTaskSubmitNotifier(HazelcastMember hazelcastMember) {
+    this.hazelcastMember = hazelcastMember;
+  }
+
+  @Override
+  public void onSubmit() {
+    try {
+      hazelcastMember.<String>getTopic(CE_TASK_SUBMITTED).publish(hazelcastMember.getUuid());
+    } catch (Exception e) {
+      // task will be processed after next polling of the queue
+      LOGGER.debug("Fail to notify Compute Engine nodes of submitted task", e);
+    }
+  }
+}
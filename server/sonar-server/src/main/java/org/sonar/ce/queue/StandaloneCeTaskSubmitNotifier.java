@@ -17,38 +17,31 @@
  * along with this program; if not, write to the Free Software Foundation,
  * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
  */
-package org.sonar.server.util;
+package org.sonar.ce.queue;
 
-import com.google.common.base.Throwables;
-import org.apache.commons.io.IOUtils;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.ce.http.CeHttpClient;
 
-import java.io.EOFException;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
-import org.sonar.core.util.CloseableIterator;
-
-public class ObjectInputStreamIterator<E> extends CloseableIterator<E> {
+/**
+ * Notifies the Compute Engine process of the same node through its HTTP server.
+ */
+public class StandaloneCeTaskSubmitNotifier implements CeTaskSubmitNotifier {
+  private static final Logger LOGGER = Loggers.get(StandaloneCeTaskSubmitNotifier.class);
 
-  private ObjectInputStream stream;
+  private final CeHttpClient ceHttpClient;
 
-  public ObjectInputStreamIterator(InputStream stream) throws IOException {
-    this.stream = new ObjectInputStream(stream);
+  public StandaloneCeTaskSubmitNotifier(CeHttpClient ceHttpClient) {
+    this.ceHttpClient = ceHttpClient;
   }
 
   @Override
-  protected E doNext() {
+  public void onSubmit() {
     try {
-      return (E) stream.readObject();
-    } catch (EOFException e) {
-      return null;
+      ceHttpClient.notifyTaskSubmitted();
     } catch (Exception e) {
-      throw Throwables.propagate(e);
+      // task will be processed after next polling of the queue
+      LOGGER.debug("Fail to notify Compute Engine of submitted task", e);
     }
   }
-
-  @Override
-  protected void doClose() {
-    IOUtils.closeQuietly(stream);
-  }
 }
@@ -22,11 +22,10 @@ package org.sonar.server.authentication;
 import java.util.Base64;
 import java.util.Optional;
 import javax.servlet.http.HttpServletRequest;
-import org.sonar.db.DbClient;
-import org.sonar.db.DbSession;
 import org.sonar.db.user.UserDto;
 import org.sonar.server.authentication.event.AuthenticationEvent;
 import org.sonar.server.authentication.event.AuthenticationException;
+import org.sonar.server.user.UserSessionCache;
 import org.sonar.server.usertoken.UserTokenAuthenticator;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -42,14 +41,14 @@ public class BasicAuthenticator {
   private static final String AUTHORIZATION_HEADER = "Authorization";
   private static final String BASIC_AUTHORIZATION = "BASIC";
 
-  private final DbClient dbClient;
+  private final UserSessionCache userSessionCache;
   private final CredentialsAuthenticator credentialsAuthenticator;
   private final UserTokenAuthenticator userTokenAuthenticator;
   private final AuthenticationEvent authenticationEvent;
 
-  public BasicAuthenticator(DbClient dbClient, CredentialsAuthenticator credentialsAuthenticator,
+  public BasicAuthenticator(UserSessionCache userSessionCache, CredentialsAuthenticator credentialsAuthenticator,
     UserTokenAuthenticator userTokenAuthenticator, AuthenticationEvent authenticationEvent) {
-    this.dbClient = dbClient;
+    this.userSessionCache = userSessionCache;
     this.credentialsAuthenticator = credentialsAuthenticator;
     this.userTokenAuthenticator = userTokenAuthenticator;
     this.authenticationEvent = authenticationEvent;
@@ -113,16 +112,14 @@ public class BasicAuthenticator {
         .setMessage("Token doesn't exist")
         .build();
     }
-    try (DbSession dbSession = dbClient.openSession(false)) {
-      UserDto userDto = dbClient.userDao().selectActiveUserByLogin(dbSession, authenticatedLogin.get());
-      if (userDto == null) {
-        throw AuthenticationException.newBuilder()
-          .setSource(Source.local(Method.BASIC_TOKEN))
-          .setMessage("User doesn't exist")
-          .build();
-      }
-      return userDto;
+    UserDto userDto = userSessionCache.getActiveUser(authenticatedLogin.get());
+    if (userDto == null) {
+      throw AuthenticationException.newBuilder()
+        .setSource(Source.local(Method.BASIC_TOKEN))
+        .setMessage("User doesn't exist")
+        .build();
     }
+    return userDto;
   }
 
 }
@@ -32,9 +32,8 @@ import javax.servlet.http.HttpServletResponse;
 import org.sonar.api.config.Configuration;
 import org.sonar.api.server.ServerSide;
 import org.sonar.api.utils.System2;
-import org.sonar.db.DbClient;
-import org.sonar.db.DbSession;
 import org.sonar.db.user.UserDto;
+import org.sonar.server.user.UserSessionCache;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
@@ -63,16 +62,17 @@ public class JwtHttpHandler {
   private static final int SESSION_REFRESH_IN_SECONDS = 5 * 60;
 
   private final System2 system2;
-  private final DbClient dbClient;
+  private final UserSessionCache userSessionCache;
   private final JwtSerializer jwtSerializer;
 
   // This timeout is used to disconnect the user we he has not browse any page for a while
   private final int sessionTimeoutInSeconds;
   private final JwtCsrfVerifier jwtCsrfVerifier;
 
-  public JwtHttpHandler(System2 system2, DbClient dbClient, Configuration config, JwtSerializer jwtSerializer, JwtCsrfVerifier jwtCsrfVerifier) {
+  public JwtHttpHandler(System2 system2, UserSessionCache userSessionCache, Configuration config, JwtSerializer jwtSerializer,
+    JwtCsrfVerifier jwtCsrfVerifier) {
     this.jwtSerializer = jwtSerializer;
-    this.dbClient = dbClient;
+    this.userSessionCache = userSessionCache;
     this.system2 = system2;
     this.sessionTimeoutInSeconds = getSessionTimeoutInSeconds(config);
     this.jwtCsrfVerifier = jwtCsrfVerifier;
@@ -171,9 +171,7 @@ public class JwtHttpHandler {
   }
 
   private Optional<UserDto> selectUserFromDb(String userLogin) {
-    try (DbSession dbSession = dbClient.openSession(false)) {
-      return Optional.ofNullable(dbClient.userDao().selectActiveUserByLogin(dbSession, userLogin));
-    }
+    return Optional.ofNullable(userSessionCache.getActiveUser(userLogin));
   }
 
   private static int getSessionTimeoutInSeconds(Configuration config) {
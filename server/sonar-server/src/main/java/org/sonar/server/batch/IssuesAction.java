@@ -27,6 +27,7 @@ import java.util.Map;
 import org.apache.ibatis.session.ResultHandler;
 import org.sonar.api.resources.Scopes;
 import org.sonar.api.rules.RuleType;
+import org.sonar.api.server.ws.Change;
 import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
@@ -69,13 +70,14 @@ public class IssuesAction implements BatchWsAction {
       .setDescription("Return open issues")
       .setResponseExample(getClass().getResource("issues-example.proto"))
       .setSince("5.1")
+      .setChangelog(new Change("7.0", "Directory keys are accepted"))
       .setInternal(true)
       .setHandler(this);
 
     action
       .createParam(PARAM_KEY)
       .setRequired(true)
-      .setDescription("Project, module or file key")
+      .setDescription("Project, module, directory or file key. Issues of a directory are the issues of the files located directly in the directory.")
       .setExampleValue(KEY_PROJECT_EXAMPLE_001);
 
     action
@@ -104,11 +106,14 @@ public class IssuesAction implements BatchWsAction {
         case Scopes.PROJECT:
           dbClient.issueDao().scrollNonClosedByModuleOrProject(dbSession, component, handler);
           break;
+        case Scopes.DIRECTORY:
+          dbClient.issueDao().scrollNonClosedByDirectory(dbSession, component, handler);
+          break;
         case Scopes.FILE:
           dbClient.issueDao().scrollNonClosedByComponentUuid(dbSession, component.uuid(), handler);
           break;
         default:
-          // only projects, modules and files are supported. Other types of components are not allowed.
+          // only projects, modules, directories and files are supported. Other types of components are not allowed.
           throw new IllegalArgumentException(format("Component of scope '%s' is not allowed", component.scope()));
       }
     }
@@ -20,6 +20,7 @@
 package org.sonar.server.computation.task.projectanalysis.batch;
 
 import java.io.File;
+import java.util.Optional;
 import org.sonar.ce.queue.CeTask;
 
 public interface BatchReportDirectoryHolder {
@@ -30,4 +31,10 @@ public interface BatchReportDirectoryHolder {
    */
   File getDirectory();
 
+  /**
+   * The zip file of the Batch report for the current {@link CeTask}, when the report is read directly from it rather
+   * than from a directory where it has been extracted.
+   */
+  Optional<File> getZipFile();
+
 }
@@ -21,14 +21,26 @@ package org.sonar.server.computation.task.projectanalysis.batch;
 
 import java.io.File;
 import java.util.Objects;
+import java.util.Optional;
+import javax.annotation.CheckForNull;
 
 public class BatchReportDirectoryHolderImpl implements MutableBatchReportDirectoryHolder {
 
+  @CheckForNull
   private File directory;
+  @CheckForNull
+  private File zipFile;
 
   @Override
   public void setDirectory(File newDirectory) {
     this.directory = Objects.requireNonNull(newDirectory);
+    this.zipFile = null;
+  }
+
+  @Override
+  public void setZipFile(File newZipFile) {
+    this.zipFile = Objects.requireNonNull(newZipFile);
+    this.directory = null;
   }
 
   @Override
@@ -38,4 +50,9 @@ public class BatchReportDirectoryHolderImpl implements MutableBatchReportDirecto
     }
     return this.directory;
   }
+
+  @Override
+  public Optional<File> getZipFile() {
+    return Optional.ofNullable(zipFile);
+  }
 }
@@ -21,26 +21,41 @@ package org.sonar.server.computation.task.projectanalysis.batch;
 
 import com.google.common.base.Throwables;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
 import com.google.protobuf.Parser;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import javax.annotation.CheckForNull;
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
+import org.picocontainer.Startable;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.core.util.LineReaderIterator;
+import org.sonar.core.util.Protobuf;
+import org.sonar.scanner.protocol.output.ContainerReader;
+import org.sonar.scanner.protocol.output.FileStructure;
 import org.sonar.scanner.protocol.output.ScannerReport;
 
-public class BatchReportReaderImpl implements BatchReportReader {
+import static org.sonar.core.util.CloseableIterator.emptyCloseableIterator;
+import static org.sonar.scanner.protocol.output.FileStructure.fileNameFor;
+
+/**
+ * Reads the Batch report either from the directory where it has been extracted or, when set in the
+ * {@link BatchReportDirectoryHolder}, directly from its zip file.
+ * <p>
+ * Both formats of report are supported: one file per component and domain, or the container
+ * of indexed domains (see {@link FileStructure.Domain#isIndexed()}) written by recent scanners.
+ * </p>
+ */
+public class BatchReportReaderImpl implements BatchReportReader, Startable {
 
   private final BatchReportDirectoryHolder batchReportDirectoryHolder;
-  private org.sonar.scanner.protocol.output.ScannerReportReader delegate;
+  private ReportEntries entries;
+  @CheckForNull
+  private ContainerReader container;
   // caching of metadata which are read often
   private ScannerReport.Metadata metadata;
 
@@ -48,9 +63,33 @@ public class BatchReportReaderImpl implements BatchReportReader {
     this.batchReportDirectoryHolder = batchReportDirectoryHolder;
   }
 
-  private void ensureInitialized() {
-    if (this.delegate == null) {
-      this.delegate = new org.sonar.scanner.protocol.output.ScannerReportReader(batchReportDirectoryHolder.getDirectory());
+  @Override
+  public void start() {
+    // report is opened lazily, as it is extracted by a computation step after the container is started
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (this.entries != null) {
+      this.entries.close();
+      this.entries = null;
+      this.container = null;
+    }
+  }
+
+  private synchronized void ensureInitialized() {
+    if (this.entries == null) {
+      Optional<File> zipFile = batchReportDirectoryHolder.getZipFile();
+      if (zipFile.isPresent()) {
+        this.entries = new ZipReportEntries(zipFile.get());
+      } else {
+        this.entries = new DirectoryReportEntries(batchReportDirectoryHolder.getDirectory());
+      }
+      if (entries.exists(FileStructure.CONTAINER_INDEX_FILE_NAME)) {
+        this.container = new ContainerReader(
+          entries.toFile(FileStructure.CONTAINER_DATA_FILE_NAME),
+          entries.toFile(FileStructure.CONTAINER_INDEX_FILE_NAME));
+      }
     }
   }
 
@@ -58,7 +97,10 @@ public class BatchReportReaderImpl implements BatchReportReader {
   public ScannerReport.Metadata readMetadata() {
     ensureInitialized();
     if (this.metadata == null) {
-      this.metadata = delegate.readMetadata();
+      if (!entries.exists(FileStructure.METADATA_FILE_NAME)) {
+        throw new IllegalStateException("Metadata file is missing in analysis report: " + entries.locationOf(FileStructure.METADATA_FILE_NAME));
+      }
+      this.metadata = Protobuf.read(entries.open(FileStructure.METADATA_FILE_NAME), ScannerReport.Metadata.parser());
     }
     return this.metadata;
   }
@@ -66,92 +108,113 @@ public class BatchReportReaderImpl implements BatchReportReader {
   @Override
   public CloseableIterator<String> readScannerLogs() {
     ensureInitialized();
-    File file = delegate.getFileStructure().analysisLog();
-    if (!file.exists()) {
-      return CloseableIterator.emptyCloseableIterator();
-    }
-    try {
-      InputStreamReader reader = new InputStreamReader(FileUtils.openInputStream(file), StandardCharsets.UTF_8);
-      return new LineReaderIterator(reader);
-    } catch (IOException e) {
-      throw new IllegalStateException("Fail to open file " + file, e);
+    if (!entries.exists(FileStructure.ANALYSIS_LOG_FILE_NAME)) {
+      return emptyCloseableIterator();
     }
+    InputStreamReader reader = new InputStreamReader(entries.open(FileStructure.ANALYSIS_LOG_FILE_NAME), StandardCharsets.UTF_8);
+    return new LineReaderIterator(reader);
   }
 
   @Override
   public CloseableIterator<ScannerReport.ActiveRule> readActiveRules() {
-    ensureInitialized();
-    return delegate.readActiveRules();
+    return readStream(FileStructure.ACTIVE_RULES_FILE_NAME, ScannerReport.ActiveRule.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.Measure> readComponentMeasures(int componentRef) {
-    ensureInitialized();
-    return delegate.readComponentMeasures(componentRef);
+    return readStream(FileStructure.Domain.MEASURES, componentRef, ScannerReport.Measure.parser());
   }
 
   @Override
   @CheckForNull
   public ScannerReport.Changesets readChangesets(int componentRef) {
     ensureInitialized();
-    return delegate.readChangesets(componentRef);
+    if (container != null) {
+      InputStream input = container.open(FileStructure.Domain.CHANGESETS, componentRef);
+      return input == null ? null : Protobuf.read(input, ScannerReport.Changesets.parser());
+    }
+    String name = fileNameFor(FileStructure.Domain.CHANGESETS, componentRef);
+    if (entries.exists(name)) {
+      return Protobuf.read(entries.open(name), ScannerReport.Changesets.parser());
+    }
+    return null;
   }
 
   @Override
   public ScannerReport.Component readComponent(int componentRef) {
     ensureInitialized();
-    return delegate.readComponent(componentRef);
+    if (container != null) {
+      InputStream input = container.open(FileStructure.Domain.COMPONENT, componentRef);
+      if (input == null) {
+        throw new IllegalStateException("Unable to find report for component #" + componentRef + " in container: "
+          + entries.locationOf(FileStructure.CONTAINER_INDEX_FILE_NAME));
+      }
+      return Protobuf.read(input, ScannerReport.Component.parser());
+    }
+    String name = fileNameFor(FileStructure.Domain.COMPONENT, componentRef);
+    if (!entries.exists(name)) {
+      throw new IllegalStateException("Unable to find report for component #" + componentRef + ". File does not exist: " + entries.locationOf(name));
+    }
+    return Protobuf.read(entries.open(name), ScannerReport.Component.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.Issue> readComponentIssues(int componentRef) {
-    ensureInitialized();
-    return delegate.readComponentIssues(componentRef);
+    return readStream(FileStructure.Domain.ISSUES, componentRef, ScannerReport.Issue.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.Duplication> readComponentDuplications(int componentRef) {
-    ensureInitialized();
-    return delegate.readComponentDuplications(componentRef);
+    return readStream(FileStructure.Domain.DUPLICATIONS, componentRef, ScannerReport.Duplication.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.CpdTextBlock> readCpdTextBlocks(int componentRef) {
-    ensureInitialized();
-    return delegate.readCpdTextBlocks(componentRef);
+    return readStream(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef, ScannerReport.CpdTextBlock.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.Symbol> readComponentSymbols(int componentRef) {
-    ensureInitialized();
-    return delegate.readComponentSymbols(componentRef);
+    return readStream(FileStructure.Domain.SYMBOLS, componentRef, ScannerReport.Symbol.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.SyntaxHighlightingRule> readComponentSyntaxHighlighting(int fileRef) {
-    ensureInitialized();
-    return delegate.readComponentSyntaxHighlighting(fileRef);
+    return readStream(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, fileRef, ScannerReport.SyntaxHighlightingRule.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.LineCoverage> readComponentCoverage(int fileRef) {
+    return readStream(FileStructure.Domain.COVERAGES, fileRef, ScannerReport.LineCoverage.parser());
+  }
+
+  private <T extends Message> CloseableIterator<T> readStream(FileStructure.Domain domain, int componentRef, Parser<T> parser) {
     ensureInitialized();
-    return delegate.readComponentCoverage(fileRef);
+    if (container != null) {
+      InputStream input = container.open(domain, componentRef);
+      return input == null ? emptyCloseableIterator() : Protobuf.readStream(input, parser);
+    }
+    return readStream(fileNameFor(domain, componentRef), parser);
+  }
+
+  private <T extends Message> CloseableIterator<T> readStream(String name, Parser<T> parser) {
+    ensureInitialized();
+    if (!entries.exists(name)) {
+      return emptyCloseableIterator();
+    }
+    return Protobuf.readStream(entries.open(name), parser);
   }
 
   @Override
   public Optional<CloseableIterator<String>> readFileSource(int fileRef) {
     ensureInitialized();
-    File file = delegate.readFileSource(fileRef);
-    if (file == null) {
+    String name = fileNameFor(FileStructure.Domain.SOURCE, fileRef);
+    if (!entries.exists(name)) {
       return Optional.empty();
     }
 
-    try {
-      return Optional.of(new CloseableLineIterator(IOUtils.lineIterator(FileUtils.openInputStream(file), StandardCharsets.UTF_8)));
-    } catch (IOException e) {
-      throw new IllegalStateException("Fail to traverse file: " + file, e);
-    }
+    InputStream input = entries.open(name);
+    return Optional.of(new CloseableLineIterator(new LineIterator(new InputStreamReader(input, StandardCharsets.UTF_8))));
   }
 
   private static class CloseableLineIterator extends CloseableIterator<String> {
@@ -185,57 +248,40 @@ public class BatchReportReaderImpl implements BatchReportReader {
 
   @Override
   public CloseableIterator<ScannerReport.Test> readTests(int testFileRef) {
-    ensureInitialized();
-    File file = delegate.readTests(testFileRef);
-    if (file == null) {
-      return CloseableIterator.emptyCloseableIterator();
-    }
-
-    try {
-      return new ParserCloseableIterator<>(ScannerReport.Test.parser(), FileUtils.openInputStream(file));
-    } catch (IOException e) {
-      Throwables.propagate(e);
-      // actually never reached
-      return CloseableIterator.emptyCloseableIterator();
-    }
+    return readDelimited(fileNameFor(FileStructure.Domain.TESTS, testFileRef), ScannerReport.Test.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.CoverageDetail> readCoverageDetails(int testFileRef) {
-    ensureInitialized();
-    File file = delegate.readCoverageDetails(testFileRef);
-    if (file == null) {
-      return CloseableIterator.emptyCloseableIterator();
-    }
+    return readDelimited(fileNameFor(FileStructure.Domain.COVERAGE_DETAILS, testFileRef), ScannerReport.CoverageDetail.parser());
+  }
 
-    try {
-      return new ParserCloseableIterator<>(ScannerReport.CoverageDetail.parser(), FileUtils.openInputStream(file));
-    } catch (IOException e) {
-      Throwables.propagate(e);
-      // actually never reached
-      return CloseableIterator.emptyCloseableIterator();
+  private <T> CloseableIterator<T> readDelimited(String name, Parser<T> parser) {
+    ensureInitialized();
+    if (!entries.exists(name)) {
+      return emptyCloseableIterator();
     }
+    return new ParserCloseableIterator<>(parser, entries.open(name));
   }
 
   @Override
   public CloseableIterator<ScannerReport.ContextProperty> readContextProperties() {
-    ensureInitialized();
-    return delegate.readContextProperties();
+    return readStream(FileStructure.CONTEXT_PROPERTIES_FILE_NAME, ScannerReport.ContextProperty.parser());
   }
 
   private static class ParserCloseableIterator<T> extends CloseableIterator<T> {
     private final Parser<T> parser;
-    private final FileInputStream fileInputStream;
+    private final InputStream inputStream;
 
-    public ParserCloseableIterator(Parser<T> parser, FileInputStream fileInputStream) {
+    public ParserCloseableIterator(Parser<T> parser, InputStream inputStream) {
       this.parser = parser;
-      this.fileInputStream = fileInputStream;
+      this.inputStream = inputStream;
     }
 
     @Override
     protected T doNext() {
       try {
-        return parser.parseDelimitedFrom(fileInputStream);
+        return parser.parseDelimitedFrom(inputStream);
       } catch (InvalidProtocolBufferException e) {
         Throwables.propagate(e);
         // actually never reached
@@ -245,7 +291,7 @@ public class BatchReportReaderImpl implements BatchReportReader {
 
     @Override
     protected void doClose() throws Exception {
-      fileInputStream.close();
+      inputStream.close();
     }
   }
 }
@@ -0,0 +1,71 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.batch;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Entries of a Batch report which has been extracted to a directory.
+ */
+class DirectoryReportEntries implements ReportEntries {
+  private final File dir;
+
+  DirectoryReportEntries(File dir) {
+    if (!dir.exists() || !dir.isDirectory()) {
+      throw new IllegalArgumentException("Directory of analysis report does not exist: " + dir);
+    }
+    this.dir = dir;
+  }
+
+  @Override
+  public boolean exists(String name) {
+    File file = new File(dir, name);
+    return file.exists() && file.isFile();
+  }
+
+  @Override
+  public InputStream open(String name) {
+    File file = new File(dir, name);
+    try {
+      return new BufferedInputStream(FileUtils.openInputStream(file));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to open file " + file, e);
+    }
+  }
+
+  @Override
+  public File toFile(String name) {
+    return new File(dir, name);
+  }
+
+  @Override
+  public String locationOf(String name) {
+    return new File(dir, name).getAbsolutePath();
+  }
+
+  @Override
+  public void close() {
+    // nothing to do, files are deleted along with the temp directory of the task
+  }
+}
@@ -31,4 +31,14 @@ public interface MutableBatchReportDirectoryHolder extends BatchReportDirectoryH
    * @throws NullPointerException if {@code newDirectory} is {@code null}
    */
   void setDirectory(File newDirectory);
+
+  /**
+   * Sets the zip file of the Batch report, which is then read directly from it rather than from a directory. Setting
+   * the zip file replaces the directory set by {@link #setDirectory(File)}, and the other way around.
+   *
+   * @param newZipFile a {@link File}, can not be {@code null}
+   *
+   * @throws NullPointerException if {@code newZipFile} is {@code null}
+   */
+  void setZipFile(File newZipFile);
 }
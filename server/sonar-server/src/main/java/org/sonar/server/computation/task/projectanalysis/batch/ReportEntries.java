@@ -0,0 +1,55 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.batch;
+
+import java.io.File;
+import java.io.InputStream;
+
+/**
+ * The files of a Batch report, identified by their path relative to the root of the report (see
+ * {@link org.sonar.scanner.protocol.output.FileStructure}).
+ */
+interface ReportEntries extends AutoCloseable {
+
+  boolean exists(String name);
+
+  /**
+   * Opens a buffered stream on the content of the specified entry. The stream must be closed by the caller.
+   *
+   * @throws IllegalStateException if the entry does not exist or can not be read
+   */
+  InputStream open(String name);
+
+  /**
+   * Local file with the content of the specified entry, for the entries which require random access. The file
+   * must not be deleted by the caller.
+   *
+   * @throws IllegalStateException if the entry does not exist or can not be read
+   */
+  File toFile(String name);
+
+  /**
+   * Human readable location of the specified entry, to be used in error messages.
+   */
+  String locationOf(String name);
+
+  @Override
+  void close();
+}
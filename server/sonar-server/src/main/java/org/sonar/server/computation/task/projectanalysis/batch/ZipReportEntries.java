@@ -0,0 +1,114 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.batch;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.annotation.CheckForNull;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Entries of a Batch report which are read directly from the zip file of the report. Entries are located with the
+ * central directory of the zip file and are uncompressed only when they are read, so that no file has to be
+ * extracted.
+ */
+class ZipReportEntries implements ReportEntries {
+  private final File file;
+  private final ZipFile zipFile;
+  private final Map<String, File> extractedFiles = new HashMap<>();
+
+  ZipReportEntries(File file) {
+    this.file = file;
+    try {
+      this.zipFile = new ZipFile(file);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to open zip file of analysis report " + file, e);
+    }
+  }
+
+  @Override
+  public boolean exists(String name) {
+    return getEntry(name) != null;
+  }
+
+  @Override
+  public InputStream open(String name) {
+    ZipEntry entry = getEntry(name);
+    if (entry == null) {
+      throw new IllegalStateException("Entry does not exist: " + locationOf(name));
+    }
+    try {
+      return new BufferedInputStream(zipFile.getInputStream(entry));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to open entry " + locationOf(name), e);
+    }
+  }
+
+  /**
+   * The entry is extracted once, next to the zip file, and deleted when entries are closed.
+   */
+  @Override
+  public synchronized File toFile(String name) {
+    File extracted = extractedFiles.get(name);
+    if (extracted == null) {
+      try (InputStream input = open(name)) {
+        extracted = File.createTempFile("report-entry", null, file.getParentFile());
+        Files.copy(input, extracted.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to extract entry " + locationOf(name), e);
+      }
+      extractedFiles.put(name, extracted);
+    }
+    return extracted;
+  }
+
+  @CheckForNull
+  private ZipEntry getEntry(String name) {
+    ZipEntry entry = zipFile.getEntry(name);
+    if (entry == null || entry.isDirectory()) {
+      return null;
+    }
+    return entry;
+  }
+
+  @Override
+  public String locationOf(String name) {
+    return file.getAbsolutePath() + "!/" + name;
+  }
+
+  @Override
+  public synchronized void close() {
+    extractedFiles.values().forEach(FileUtils::deleteQuietly);
+    extractedFiles.clear();
+    try {
+      zipFile.close();
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to close zip file of analysis report " + file, e);
+    }
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.component;
+
+/**
+ * A {@link ComponentVisitor} part of which work on a {@link Component.Type#FILE file} depends only on this file and
+ * can therefore be done before the file is visited, concurrently with the preparation of other files.
+ * <p>
+ * When {@link VisitorsCrawler} is given a pool of threads, it calls {@link #prepareFile(Component)} from one of these
+ * threads before the file is visited. The visitor keeps the result of the preparation until the file is visited,
+ * which is still done sequentially, in the order of the tree. Aggregations on directories, modules and project are
+ * therefore not impacted.
+ * </p>
+ * <p>
+ * Implementations must be thread-safe and the preparation of a file must not depend on the state changed by the visit
+ * of other components. The visit of a file must not rely on its preparation: the file is not prepared when the
+ * crawler has no pool of threads.
+ * </p>
+ */
+public interface FileLocalVisitor extends ComponentVisitor {
+
+  void prepareFile(Component file);
+}
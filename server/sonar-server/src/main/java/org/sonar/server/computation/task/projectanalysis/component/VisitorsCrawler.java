@@ -23,11 +23,20 @@ import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import org.slf4j.MDC;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.logs.Profiler;
 
@@ -37,22 +46,42 @@ import static java.util.Objects.requireNonNull;
 
 /**
  * This crawler make any number of {@link TypeAwareVisitor} or {@link PathAwareVisitor} defined in a list visit a component tree, component per component, in the order of the list
+ * <p>
+ * When a pool of threads is provided, files are prepared by the {@link FileLocalVisitor}s on this pool, ahead of
+ * their visit. The visit itself is still sequential.
+ * </p>
  */
 public class VisitorsCrawler implements ComponentCrawler {
+  private static final int PREPARED_FILES_PER_THREAD = 4;
 
   private final boolean computeDuration;
   private final Map<ComponentVisitor, VisitorDuration> visitorCumulativeDurations;
   private final List<VisitorWrapper> preOrderVisitorWrappers;
   private final List<VisitorWrapper> postOrderVisitorWrappers;
+  private final List<VisitorWrapper> fileLocalVisitorWrappers;
+  @CheckForNull
+  private final ForkJoinPool filePreparationPool;
+  @CheckForNull
+  private FilePreparation filePreparation;
 
   public VisitorsCrawler(Iterable<ComponentVisitor> visitors) {
     this(visitors, false);
   }
 
   public VisitorsCrawler(Iterable<ComponentVisitor> visitors, boolean computeDuration) {
+    this(visitors, computeDuration, null);
+  }
+
+  /**
+   * @param filePreparationPool pool of threads used by the {@link FileLocalVisitor}s to prepare files before their visit,
+   *                            files are not prepared if {@code null}
+   */
+  public VisitorsCrawler(Iterable<ComponentVisitor> visitors, boolean computeDuration, @Nullable ForkJoinPool filePreparationPool) {
     List<VisitorWrapper> visitorWrappers = from(visitors).transform(ToVisitorWrapper.INSTANCE).toList();
     this.preOrderVisitorWrappers = from(visitorWrappers).filter(MathPreOrderVisitor.INSTANCE).toList();
     this.postOrderVisitorWrappers = from(visitorWrappers).filter(MatchPostOrderVisitor.INSTANCE).toList();
+    this.fileLocalVisitorWrappers = from(visitorWrappers).filter(MatchFileLocalVisitor.INSTANCE).toList();
+    this.filePreparationPool = filePreparationPool;
     this.computeDuration = computeDuration;
     this.visitorCumulativeDurations = computeDuration ? from(visitors).toMap(VisitorWrapperToInitialDuration.INSTANCE) : Collections.emptyMap();
   }
@@ -68,6 +97,21 @@ public class VisitorsCrawler implements ComponentCrawler {
 
   @Override
   public void visit(final Component component) {
+    if (filePreparationPool == null || fileLocalVisitorWrappers.isEmpty() || filePreparation != null) {
+      visitComponent(component);
+      return;
+    }
+
+    filePreparation = new FilePreparation(component, filePreparationPool);
+    try {
+      visitComponent(component);
+    } finally {
+      filePreparation.cancel();
+      filePreparation = null;
+    }
+  }
+
+  private void visitComponent(Component component) {
     try {
       visitImpl(component);
     } catch (RuntimeException e) {
@@ -86,6 +130,10 @@ public class VisitorsCrawler implements ComponentCrawler {
       return;
     }
 
+    if (filePreparation != null && component.getType() == Component.Type.FILE) {
+      filePreparation.awaitPrepared(component);
+    }
+
     for (VisitorWrapper visitorWrapper : concat(preOrderVisitorWrappers, postOrderVisitorWrappers)) {
       visitorWrapper.beforeComponent(component);
     }
@@ -107,7 +155,7 @@ public class VisitorsCrawler implements ComponentCrawler {
 
   private void visitChildren(Component component) {
     for (Component child : component.getChildren()) {
-      visit(child);
+      visitComponent(child);
     }
   }
 
@@ -150,6 +198,84 @@ public class VisitorsCrawler implements ComponentCrawler {
     }
   }
 
+  /**
+   * Prepares the files of the tree, in the order they will be visited, on a pool of threads. The number of files
+   * prepared ahead of their visit is bounded.
+   */
+  private final class FilePreparation {
+    private final ForkJoinPool pool;
+    private final Iterator<Component> files;
+    private final Map<Component, CompletableFuture<Void>> preparedFiles = new HashMap<>();
+    @CheckForNull
+    private final Map<String, String> mdcContext = MDC.getCopyOfContextMap();
+
+    private FilePreparation(Component root, ForkJoinPool pool) {
+      this.pool = pool;
+      List<Component> fileList = new ArrayList<>();
+      collectFiles(root, fileList);
+      this.files = fileList.iterator();
+      int maxPreparedFiles = pool.getParallelism() * PREPARED_FILES_PER_THREAD;
+      while (preparedFiles.size() < maxPreparedFiles && files.hasNext()) {
+        prepareNext();
+      }
+    }
+
+    private void collectFiles(Component component, List<Component> fileList) {
+      if (component.getType() == Component.Type.FILE) {
+        fileList.add(component);
+        return;
+      }
+      for (Component child : component.getChildren()) {
+        collectFiles(child, fileList);
+      }
+    }
+
+    private void prepareNext() {
+      Component file = files.next();
+      preparedFiles.put(file, CompletableFuture.runAsync(() -> prepare(file), pool));
+    }
+
+    private void prepare(Component file) {
+      if (mdcContext != null) {
+        MDC.setContextMap(mdcContext);
+      }
+      try {
+        for (VisitorWrapper visitorWrapper : fileLocalVisitorWrappers) {
+          Profiler profiler = Profiler.create(Loggers.get(visitorWrapper.getWrappedVisitor().getClass()))
+            .startTrace("Preparing component {}", file.getKey());
+          ((FileLocalVisitor) visitorWrapper.getWrappedVisitor()).prepareFile(file);
+          incrementDuration(visitorWrapper, profiler.stopTrace());
+        }
+      } finally {
+        MDC.clear();
+      }
+    }
+
+    private void awaitPrepared(Component file) {
+      CompletableFuture<Void> preparation = preparedFiles.remove(file);
+      if (preparation == null) {
+        return;
+      }
+      if (files.hasNext()) {
+        prepareNext();
+      }
+      try {
+        preparation.join();
+      } catch (CompletionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw (RuntimeException) cause;
+      }
+    }
+
+    private void cancel() {
+      preparedFiles.values().forEach(preparation -> preparation.cancel(false));
+      preparedFiles.clear();
+    }
+  }
+
   private enum ToVisitorWrapper implements Function<ComponentVisitor, VisitorWrapper> {
     INSTANCE;
 
@@ -201,6 +327,19 @@ public class VisitorsCrawler implements ComponentCrawler {
     }
   }
 
+  private enum MatchFileLocalVisitor implements Predicate<VisitorWrapper> {
+    INSTANCE;
+
+    @Override
+    public boolean apply(@Nonnull VisitorWrapper visitorWrapper) {
+      if (!(visitorWrapper.getWrappedVisitor() instanceof FileLocalVisitor)) {
+        return false;
+      }
+      CrawlerDepthLimit maxDepth = visitorWrapper.getMaxDepth();
+      return maxDepth.isSameAs(Component.Type.FILE) || maxDepth.isDeeperThan(Component.Type.FILE);
+    }
+  }
+
   private enum MatchPostOrderVisitor implements Predicate<VisitorWrapper> {
     INSTANCE;
 
@@ -211,14 +350,15 @@ public class VisitorsCrawler implements ComponentCrawler {
   }
 
   private static final class VisitorDuration {
-    private long duration = 0;
+    // files are prepared concurrently
+    private final AtomicLong duration = new AtomicLong(0);
 
     public void increment(long duration) {
-      this.duration += duration;
+      this.duration.addAndGet(duration);
     }
 
     public long getDuration() {
-      return duration;
+      return duration.get();
     }
   }
 
@@ -194,31 +194,35 @@ public class FileMoveDetectionStep implements ComputationStep {
     return builder.build();
   }
 
+  /**
+   * Only the pairs of files returned by {@link LineHashesIndex} are scored, the other ones can not have a score of at least
+   * {@link #MIN_REQUIRED_SCORE} and are given a score of 0.
+   */
   private ScoreMatrix computeScoreMatrix(Map<String, DbComponent> dtosByKey, Set<String> dbFileKeys, Map<String, File> reportFileSourcesByKey) {
     int[][] scoreMatrix = new int[dbFileKeys.size()][reportFileSourcesByKey.size()];
     int maxScore = 0;
+    List<File> reportFiles = new ArrayList<>(reportFileSourcesByKey.values());
+    LineHashesIndex reportFilesIndex = new LineHashesIndex(reportFiles, MIN_REQUIRED_SCORE);
+    int scoredPairs = 0;
 
     try (DbSession dbSession = dbClient.openSession(false)) {
       int dbFileIndex = 0;
       for (String removedFileKey : dbFileKeys) {
         File fileInDb = getFile(dbSession, dtosByKey.get(removedFileKey));
-        if (fileInDb == null) {
-          continue;
-        }
-
-        int reportFileIndex = 0;
-        for (Map.Entry<String, File> reportFileSourceAndKey : reportFileSourcesByKey.entrySet()) {
-          File unmatchedFile = reportFileSourceAndKey.getValue();
-          int score = fileSimilarity.score(fileInDb, unmatchedFile);
-          scoreMatrix[dbFileIndex][reportFileIndex] = score;
-          if (score > maxScore) {
-            maxScore = score;
+        if (fileInDb != null) {
+          for (int reportFileIndex : reportFilesIndex.candidatesOf(fileInDb)) {
+            int score = fileSimilarity.score(fileInDb, reportFiles.get(reportFileIndex), MIN_REQUIRED_SCORE);
+            scoreMatrix[dbFileIndex][reportFileIndex] = score;
+            if (score > maxScore) {
+              maxScore = score;
+            }
+            scoredPairs++;
           }
-          reportFileIndex++;
         }
         dbFileIndex++;
       }
     }
+    LOG.debug("{} pairs of files scored out of {}", scoredPairs, (long) dbFileKeys.size() * reportFiles.size());
 
     return new ScoreMatrix(dbFileKeys, reportFileSourcesByKey, scoreMatrix, maxScore);
   }
@@ -48,4 +48,12 @@ public interface FileSimilarity {
   }
 
   int score(File file1, File file2);
+
+  /**
+   * Same as {@link #score(File, File)}, except that the returned value can be any value lower than
+   * {@code minScore} when the files are not similar enough.
+   */
+  default int score(File file1, File file2, int minScore) {
+    return score(file1, file2);
+  }
 }
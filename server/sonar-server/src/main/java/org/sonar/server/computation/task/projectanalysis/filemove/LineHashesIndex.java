@@ -0,0 +1,195 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.filemove;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.sonar.server.computation.task.projectanalysis.filemove.FileSimilarity.File;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Inverted index of the line hashes of a list of files, used to find the files which may have a score
+ * of at least {@code minScore} with another file, without scoring all pairs of files.
+ * <p>
+ * The n-th occurrence of a line hash in a file is considered as a token, different from the other
+ * occurrences. Two files with a score of at least {@code minScore} have a low Levenshtein distance, so they
+ * share a minimum number of tokens. When the tokens of each file are sorted by increasing frequency, such
+ * files necessarily share a token in the beginning of their lists (prefix filtering): only these prefixes
+ * are indexed and looked up. The number of tokens shared with the candidates is then verified.
+ * </p>
+ */
+final class LineHashesIndex {
+
+  private final int minScore;
+  private final Map<Token, Integer> tokenIds = new HashMap<>();
+  private int[] frequencies = new int[16];
+  private final Map<Integer, List<Integer>> fileIndexesByTokenId = new HashMap<>();
+  /**
+   * Ids of the tokens of each file, sorted by id
+   */
+  private final List<int[]> tokenIdsOfFiles;
+
+  LineHashesIndex(List<File> files, int minScore) {
+    this.minScore = minScore;
+    this.tokenIdsOfFiles = new ArrayList<>(files.size());
+    for (File file : files) {
+      int[] ids = Arrays.stream(tokensOf(file)).mapToInt(this::idOf).sorted().toArray();
+      for (int id : ids) {
+        frequencies[id]++;
+      }
+      tokenIdsOfFiles.add(ids);
+    }
+    for (int fileIndex = 0; fileIndex < tokenIdsOfFiles.size(); fileIndex++) {
+      int[] ids = tokenIdsOfFiles.get(fileIndex);
+      for (int id : prefix(ids, ids.length)) {
+        fileIndexesByTokenId.computeIfAbsent(id, i -> new ArrayList<>(1)).add(fileIndex);
+      }
+    }
+  }
+
+  /**
+   * Indexes, in the list of files of this index, of the files which may have a score of at least {@code minScore}
+   * with the specified file. Indexes are sorted.
+   */
+  int[] candidatesOf(File file) {
+    Token[] tokens = tokensOf(file);
+    int size = tokens.length;
+    // tokens which are not in the index can't be shared with any file
+    int[] ids = Arrays.stream(tokens)
+      .map(tokenIds::get)
+      .filter(Objects::nonNull)
+      .mapToInt(Integer::intValue)
+      .sorted()
+      .toArray();
+    return Arrays.stream(prefix(ids, size))
+      .mapToObj(fileIndexesByTokenId::get)
+      .filter(Objects::nonNull)
+      .flatMap(List::stream)
+      .mapToInt(Integer::intValue)
+      .distinct()
+      .filter(fileIndex -> mayReachMinScore(size, ids, tokenIdsOfFiles.get(fileIndex)))
+      .sorted()
+      .toArray();
+  }
+
+  /**
+   * The Levenshtein distance of two lists is at least the difference of their sizes, and at least
+   * the greatest size minus the number of tokens they share.
+   */
+  private boolean mayReachMinScore(int size1, int[] sortedIds1, int[] sortedIds2) {
+    int size2 = sortedIds2.length;
+    int maxSize = max(size1, size2);
+    int maxDistance = SourceSimilarityImpl.maxDistance(maxSize, minScore);
+    return abs(size1 - size2) <= maxDistance && maxSize - countShared(sortedIds1, sortedIds2) <= maxDistance;
+  }
+
+  private static int countShared(int[] sortedIds1, int[] sortedIds2) {
+    int shared = 0;
+    int i = 0;
+    int j = 0;
+    while (i < sortedIds1.length && j < sortedIds2.length) {
+      if (sortedIds1[i] == sortedIds2[j]) {
+        shared++;
+        i++;
+        j++;
+      } else if (sortedIds1[i] < sortedIds2[j]) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+    return shared;
+  }
+
+  /**
+   * Two files which have a score of at least {@code minScore} share at least {@code size - maxDistance(size)}
+   * tokens, {@code size} being the number of tokens of any of them, so the {@code maxDistance(size) + 1}
+   * least frequent tokens of each of them have at least one token in common.
+   *
+   * @param ids ids of the tokens of the file which are in the index
+   * @param size number of tokens of the file
+   */
+  private int[] prefix(int[] ids, int size) {
+    int prefixLength = min(ids.length, SourceSimilarityImpl.maxDistance(size, minScore) + 1);
+    return Arrays.stream(ids)
+      .boxed()
+      .sorted((id1, id2) -> frequencies[id1] == frequencies[id2] ? Integer.compare(id1, id2) : Integer.compare(frequencies[id1], frequencies[id2]))
+      .limit(max(0, prefixLength))
+      .mapToInt(Integer::intValue)
+      .toArray();
+  }
+
+  private int idOf(Token token) {
+    Integer id = tokenIds.get(token);
+    if (id == null) {
+      id = tokenIds.size();
+      tokenIds.put(token, id);
+      if (id == frequencies.length) {
+        frequencies = Arrays.copyOf(frequencies, frequencies.length * 2);
+      }
+    }
+    return id;
+  }
+
+  private static Token[] tokensOf(File file) {
+    List<String> lineHashes = file.getLineHashes();
+    Token[] tokens = new Token[lineHashes.size()];
+    Map<String, Integer> occurrences = new HashMap<>();
+    for (int i = 0; i < tokens.length; i++) {
+      String lineHash = lineHashes.get(i);
+      tokens[i] = new Token(lineHash, occurrences.merge(lineHash, 1, Integer::sum));
+    }
+    return tokens;
+  }
+
+  private static final class Token {
+    private final String lineHash;
+    private final int occurrence;
+
+    private Token(String lineHash, int occurrence) {
+      this.lineHash = lineHash;
+      this.occurrence = occurrence;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Token token = (Token) o;
+      return occurrence == token.occurrence && lineHash.equals(token.lineHash);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * lineHash.hashCode() + occurrence;
+    }
+  }
+}
@@ -28,4 +28,13 @@ public interface SourceSimilarity {
    * Range: between 0 and 100
    */
   <T extends Object> int score(List<T> left, List<T> right);
+
+  /**
+   * Same as {@link #score(List, List)}, except that the computation can be stopped as soon as the score
+   * is known to be lower than {@code minScore}. In this case, the returned value is any value lower
+   * than {@code minScore}.
+   */
+  default <T extends Object> int score(List<T> left, List<T> right, int minScore) {
+    return score(left, right);
+  }
 }
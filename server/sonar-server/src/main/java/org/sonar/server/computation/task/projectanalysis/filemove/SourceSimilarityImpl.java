@@ -21,6 +21,7 @@ package org.sonar.server.computation.task.projectanalysis.filemove;
 
 import java.util.List;
 
+import static java.lang.Math.abs;
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 
@@ -32,7 +33,94 @@ public class SourceSimilarityImpl implements SourceSimilarity {
       return 0;
     }
     int distance = levenshteinDistance(left, right);
-    return (int) (100 * (1.0 - ((double) distance) / (max(left.size(), right.size()))));
+    return scoreOf(distance, max(left.size(), right.size()));
+  }
+
+  /**
+   * Only the cells of the Levenshtein matrix which are at a distance of the diagonal lower than the greatest
+   * distance allowed by {@code minScore} are computed, and the computation stops as soon as this distance is
+   * exceeded.
+   */
+  @Override
+  public <T> int score(List<T> left, List<T> right, int minScore) {
+    if (left.isEmpty() && right.isEmpty()) {
+      return 0;
+    }
+    int maxSize = max(left.size(), right.size());
+    int maxDistance = maxDistance(maxSize, minScore);
+    if (maxDistance < 0 || abs(left.size() - right.size()) > maxDistance) {
+      return 0;
+    }
+    int distance = boundedLevenshteinDistance(left, right, maxDistance);
+    if (distance > maxDistance) {
+      return 0;
+    }
+    return scoreOf(distance, maxSize);
+  }
+
+  private static int scoreOf(int distance, int maxSize) {
+    return (int) (100 * (1.0 - ((double) distance) / maxSize));
+  }
+
+  /**
+   * Greatest Levenshtein distance between two lists, the greatest of them having {@code maxSize} elements, for
+   * their score to be at least {@code minScore}. Returns -1 if no distance is low enough.
+   */
+  static int maxDistance(int maxSize, int minScore) {
+    if (maxSize == 0) {
+      return -1;
+    }
+    int distance = min(maxSize, max(0, (int) ((long) maxSize * (100 - minScore) / 100)));
+    while (distance < maxSize && scoreOf(distance + 1, maxSize) >= minScore) {
+      distance++;
+    }
+    while (distance >= 0 && scoreOf(distance, maxSize) < minScore) {
+      distance--;
+    }
+    return distance;
+  }
+
+  /**
+   * Levenshtein distance, or {@code maxDistance + 1} if it is greater than {@code maxDistance}
+   */
+  private static <T> int boundedLevenshteinDistance(List<T> left, List<T> right, int maxDistance) {
+    int len0 = left.size() + 1;
+    int len1 = right.size() + 1;
+    int exceeded = maxDistance + 1;
+
+    int[] cost = new int[len0];
+    int[] newcost = new int[len0];
+    for (int i = 0; i < len0; i++) {
+      cost[i] = i <= maxDistance ? i : exceeded;
+    }
+
+    for (int j = 1; j < len1; j++) {
+      // only cells such as |i - j| <= maxDistance can lead to a distance lower than maxDistance
+      int from = max(1, j - maxDistance);
+      int to = min(len0 - 1, j + maxDistance);
+      newcost[0] = j <= maxDistance ? j : exceeded;
+      newcost[from - 1] = from == 1 ? newcost[0] : exceeded;
+      int rowMin = newcost[from - 1];
+      T rightElement = right.get(j - 1);
+      for (int i = from; i <= to; i++) {
+        int match = left.get(i - 1).equals(rightElement) ? 0 : 1;
+        int value = min(min(cost[i] + 1, newcost[i - 1] + 1), cost[i - 1] + match);
+        newcost[i] = min(value, exceeded);
+        rowMin = min(rowMin, newcost[i]);
+      }
+      if (to + 1 < len0) {
+        newcost[to + 1] = exceeded;
+      }
+      // values of a row are never lower than the lowest value of the previous row
+      if (rowMin > maxDistance) {
+        return exceeded;
+      }
+
+      int[] swap = cost;
+      cost = newcost;
+      newcost = swap;
+    }
+    return cost[len0 - 1];
   }
 
   private static <T> int levenshteinDistance(List<T> left, List<T> right) {
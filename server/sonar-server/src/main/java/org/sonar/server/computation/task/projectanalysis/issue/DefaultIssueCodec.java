@@ -0,0 +1,447 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.issue.IssueComment;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.DefaultIssueComment;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.db.protobuf.DbIssues;
+import org.sonar.server.util.cache.RecordCodec;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compact binary encoding of {@link DefaultIssue} used by {@link IssueCache}. It is
+ * an order of magnitude faster than Java serialization and does not write class descriptors
+ * for each issue.
+ * <p>
+ * Fields are written in a fixed order, so any change of this class must be done
+ * in both {@link #write(DefaultIssue, DataOutputStream)} and {@link #read(DataInputStream)}.
+ * The format is not persisted beyond the processing of a Compute Engine task.
+ */
+public class DefaultIssueCodec implements RecordCodec<DefaultIssue> {
+
+  private static final int NULL_LENGTH = -1;
+
+  private static final byte DIFF_NULL = 0;
+  private static final byte DIFF_STRING = 1;
+  private static final byte DIFF_LONG = 2;
+  private static final byte DIFF_INTEGER = 3;
+  private static final byte DIFF_DOUBLE = 4;
+  private static final byte DIFF_SERIALIZED = 5;
+
+  @Override
+  public void write(DefaultIssue issue, DataOutputStream output) throws IOException {
+    writeString(output, issue.key());
+    RuleType type = issue.type();
+    output.writeInt(type == null ? NULL_LENGTH : type.getDbConstant());
+    writeString(output, issue.componentUuid());
+    writeString(output, issue.componentKey());
+    writeString(output, issue.moduleUuid());
+    writeString(output, issue.moduleUuidPath());
+    writeString(output, issue.projectUuid());
+    writeString(output, issue.projectKey());
+    RuleKey ruleKey = issue.ruleKey();
+    output.writeBoolean(ruleKey != null);
+    if (ruleKey != null) {
+      writeString(output, ruleKey.repository());
+      writeString(output, ruleKey.rule());
+    }
+    writeString(output, issue.language());
+    writeString(output, issue.severity());
+    output.writeBoolean(issue.manualSeverity());
+    writeString(output, issue.message());
+    writeNullableInt(output, issue.line());
+    Double gap = issue.gap();
+    output.writeBoolean(gap != null);
+    if (gap != null) {
+      output.writeDouble(gap);
+    }
+    writeNullableLong(output, issue.effortInMinutes());
+    writeString(output, issue.status());
+    writeString(output, issue.resolution());
+    writeString(output, issue.assignee());
+    writeString(output, issue.checksum());
+    writeAttributes(output, issue.attributes());
+    writeString(output, issue.authorLogin());
+    writeComments(output, issue.comments());
+    writeTags(output, issue.tags());
+    writeLocations(output, issue.getLocations());
+    writeDate(output, issue.creationDate());
+    writeDate(output, issue.updateDate());
+    writeDate(output, issue.closeDate());
+    writeChanges(output, issue.changes(), issue.currentChange());
+    output.writeBoolean(issue.isNew());
+    output.writeBoolean(issue.isCopied());
+    output.writeBoolean(issue.isBeingClosed());
+    output.writeBoolean(issue.isOnDisabledRule());
+    output.writeBoolean(issue.isChanged());
+    output.writeBoolean(issue.mustSendNotifications());
+    writeNullableLong(output, issue.selectedAt());
+  }
+
+  @Override
+  public DefaultIssue read(DataInputStream input) throws IOException {
+    DefaultIssue issue = new DefaultIssue();
+    issue.setKey(readString(input));
+    int type = input.readInt();
+    issue.setType(type == NULL_LENGTH ? null : RuleType.valueOf(type));
+    issue.setComponentUuid(readString(input));
+    issue.setComponentKey(readString(input));
+    issue.setModuleUuid(readString(input));
+    issue.setModuleUuidPath(readString(input));
+    issue.setProjectUuid(readString(input));
+    issue.setProjectKey(readString(input));
+    if (input.readBoolean()) {
+      issue.setRuleKey(RuleKey.of(readString(input), readString(input)));
+    }
+    issue.setLanguage(readString(input));
+    issue.setSeverity(readString(input));
+    issue.setManualSeverity(input.readBoolean());
+    issue.setMessage(readString(input));
+    issue.setLine(readNullableInt(input));
+    issue.setGap(input.readBoolean() ? input.readDouble() : null);
+    Long effort = readNullableLong(input);
+    issue.setEffort(effort == null ? null : Duration.create(effort));
+    String status = readString(input);
+    if (status != null) {
+      issue.setStatus(status);
+    }
+    issue.setResolution(readString(input));
+    issue.setAssignee(readString(input));
+    issue.setChecksum(readString(input));
+    issue.setAttributes(readAttributes(input));
+    issue.setAuthorLogin(readString(input));
+    readComments(input, issue);
+    readTags(input, issue);
+    issue.setLocations(readLocations(input));
+    issue.setCreationDate(readDate(input));
+    issue.setUpdateDate(readDate(input));
+    issue.setCloseDate(readDate(input));
+    readChanges(input, issue);
+    issue.setNew(input.readBoolean());
+    issue.setCopied(input.readBoolean());
+    issue.setBeingClosed(input.readBoolean());
+    issue.setOnDisabledRule(input.readBoolean());
+    issue.setChanged(input.readBoolean());
+    issue.setSendNotifications(input.readBoolean());
+    issue.setSelectedAt(readNullableLong(input));
+    return issue;
+  }
+
+  private static void writeAttributes(DataOutputStream output, Map<String, String> attributes) throws IOException {
+    output.writeInt(attributes.size());
+    for (Map.Entry<String, String> entry : attributes.entrySet()) {
+      writeString(output, entry.getKey());
+      writeString(output, entry.getValue());
+    }
+  }
+
+  @CheckForNull
+  private static Map<String, String> readAttributes(DataInputStream input) throws IOException {
+    int size = input.readInt();
+    if (size == 0) {
+      return null;
+    }
+    Map<String, String> attributes = new HashMap<>(size);
+    for (int i = 0; i < size; i++) {
+      attributes.put(readString(input), readString(input));
+    }
+    return attributes;
+  }
+
+  private static void writeComments(DataOutputStream output, List<IssueComment> comments) throws IOException {
+    output.writeInt(comments.size());
+    for (IssueComment comment : comments) {
+      DefaultIssueComment defaultComment = (DefaultIssueComment) comment;
+      writeString(output, defaultComment.issueKey());
+      writeString(output, defaultComment.userLogin());
+      writeDate(output, defaultComment.createdAt());
+      writeDate(output, defaultComment.updatedAt());
+      writeString(output, defaultComment.key());
+      writeString(output, defaultComment.markdownText());
+      output.writeBoolean(defaultComment.isNew());
+    }
+  }
+
+  private static void readComments(DataInputStream input, DefaultIssue issue) throws IOException {
+    int size = input.readInt();
+    for (int i = 0; i < size; i++) {
+      DefaultIssueComment comment = new DefaultIssueComment()
+        .setIssueKey(readString(input))
+        .setUserLogin(readString(input))
+        .setCreatedAt(readDate(input))
+        .setUpdatedAt(readDate(input))
+        .setKey(readString(input))
+        .setMarkdownText(readString(input))
+        .setNew(input.readBoolean());
+      issue.addComment(comment);
+    }
+  }
+
+  private static void writeTags(DataOutputStream output, Set<String> tags) throws IOException {
+    output.writeInt(tags.size());
+    for (String tag : tags) {
+      writeString(output, tag);
+    }
+  }
+
+  private static void readTags(DataInputStream input, DefaultIssue issue) throws IOException {
+    int size = input.readInt();
+    if (size > 0) {
+      Set<String> tags = new LinkedHashSet<>(size);
+      for (int i = 0; i < size; i++) {
+        tags.add(readString(input));
+      }
+      issue.setTags(tags);
+    }
+  }
+
+  private static void writeLocations(DataOutputStream output, @Nullable Object locations) throws IOException {
+    if (locations == null) {
+      output.writeInt(NULL_LENGTH);
+      return;
+    }
+    if (!(locations instanceof DbIssues.Locations)) {
+      throw new IllegalStateException("Unsupported type of issue locations: " + locations.getClass());
+    }
+    writeBytes(output, ((DbIssues.Locations) locations).toByteArray());
+  }
+
+  @CheckForNull
+  private static DbIssues.Locations readLocations(DataInputStream input) throws IOException {
+    byte[] bytes = readBytes(input);
+    return bytes == null ? null : DbIssues.Locations.parseFrom(bytes);
+  }
+
+  /**
+   * The current change is usually also referenced (possibly several times) in the list of changes, so
+   * instances are written once and referenced by index in order to keep identity after decoding.
+   */
+  private static void writeChanges(DataOutputStream output, List<FieldDiffs> changes, @Nullable FieldDiffs currentChange) throws IOException {
+    Map<FieldDiffs, Integer> indexes = new IdentityHashMap<>();
+    List<FieldDiffs> distinct = new ArrayList<>();
+    for (FieldDiffs change : changes) {
+      indexOf(change, indexes, distinct);
+    }
+    int currentChangeIndex = currentChange == null ? NULL_LENGTH : indexOf(currentChange, indexes, distinct);
+
+    output.writeInt(distinct.size());
+    for (FieldDiffs diffs : distinct) {
+      writeFieldDiffs(output, diffs);
+    }
+    output.writeInt(currentChangeIndex);
+    output.writeInt(changes.size());
+    for (FieldDiffs change : changes) {
+      output.writeInt(indexes.get(change));
+    }
+  }
+
+  private static int indexOf(FieldDiffs change, Map<FieldDiffs, Integer> indexes, List<FieldDiffs> distinct) {
+    Integer index = indexes.get(change);
+    if (index == null) {
+      index = distinct.size();
+      indexes.put(change, index);
+      distinct.add(change);
+    }
+    return index;
+  }
+
+  private static void readChanges(DataInputStream input, DefaultIssue issue) throws IOException {
+    int distinctSize = input.readInt();
+    List<FieldDiffs> distinct = new ArrayList<>(distinctSize);
+    for (int i = 0; i < distinctSize; i++) {
+      distinct.add(readFieldDiffs(input));
+    }
+    int currentChangeIndex = input.readInt();
+    if (currentChangeIndex != NULL_LENGTH) {
+      issue.setCurrentChange(distinct.get(currentChangeIndex));
+    }
+    int size = input.readInt();
+    if (size > 0 || currentChangeIndex != NULL_LENGTH) {
+      List<FieldDiffs> changes = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        changes.add(distinct.get(input.readInt()));
+      }
+      // overrides the list initialized by setCurrentChange()
+      issue.setChanges(changes);
+    }
+  }
+
+  private static void writeFieldDiffs(DataOutputStream output, FieldDiffs diffs) throws IOException {
+    writeString(output, diffs.issueKey());
+    writeString(output, diffs.userLogin());
+    writeDate(output, diffs.creationDate());
+    output.writeInt(diffs.diffs().size());
+    for (Map.Entry<String, FieldDiffs.Diff> entry : diffs.diffs().entrySet()) {
+      writeString(output, entry.getKey());
+      writeDiffValue(output, entry.getValue().oldValue());
+      writeDiffValue(output, entry.getValue().newValue());
+    }
+  }
+
+  private static FieldDiffs readFieldDiffs(DataInputStream input) throws IOException {
+    FieldDiffs diffs = new FieldDiffs()
+      .setIssueKey(readString(input))
+      .setUserLogin(readString(input))
+      .setCreationDate(readDate(input));
+    int size = input.readInt();
+    for (int i = 0; i < size; i++) {
+      diffs.setDiff(readString(input), readDiffValue(input), readDiffValue(input));
+    }
+    return diffs;
+  }
+
+  private static void writeDiffValue(DataOutputStream output, @Nullable Serializable value) throws IOException {
+    if (value == null) {
+      output.writeByte(DIFF_NULL);
+    } else if (value instanceof String) {
+      output.writeByte(DIFF_STRING);
+      writeString(output, (String) value);
+    } else if (value instanceof Long) {
+      output.writeByte(DIFF_LONG);
+      output.writeLong((Long) value);
+    } else if (value instanceof Integer) {
+      output.writeByte(DIFF_INTEGER);
+      output.writeInt((Integer) value);
+    } else if (value instanceof Double) {
+      output.writeByte(DIFF_DOUBLE);
+      output.writeDouble((Double) value);
+    } else {
+      output.writeByte(DIFF_SERIALIZED);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream objectOutput = new ObjectOutputStream(bytes)) {
+        objectOutput.writeObject(value);
+      }
+      writeBytes(output, bytes.toByteArray());
+    }
+  }
+
+  @CheckForNull
+  private static Serializable readDiffValue(DataInputStream input) throws IOException {
+    byte kind = input.readByte();
+    switch (kind) {
+      case DIFF_NULL:
+        return null;
+      case DIFF_STRING:
+        return readString(input);
+      case DIFF_LONG:
+        return input.readLong();
+      case DIFF_INTEGER:
+        return input.readInt();
+      case DIFF_DOUBLE:
+        return input.readDouble();
+      case DIFF_SERIALIZED:
+        try (ObjectInputStream objectInput = new ObjectInputStream(new ByteArrayInputStream(readBytes(input)))) {
+          return (Serializable) objectInput.readObject();
+        } catch (ClassNotFoundException e) {
+          throw new IOException("Fail to deserialize value of issue change", e);
+        }
+      default:
+        throw new IllegalStateException("Unsupported type of issue change value: " + kind);
+    }
+  }
+
+  private static void writeString(DataOutputStream output, @Nullable String s) throws IOException {
+    writeBytes(output, s == null ? null : s.getBytes(UTF_8));
+  }
+
+  @CheckForNull
+  private static String readString(DataInputStream input) throws IOException {
+    byte[] bytes = readBytes(input);
+    return bytes == null ? null : new String(bytes, UTF_8);
+  }
+
+  private static void writeBytes(DataOutputStream output, @Nullable byte[] bytes) throws IOException {
+    if (bytes == null) {
+      output.writeInt(NULL_LENGTH);
+    } else {
+      output.writeInt(bytes.length);
+      output.write(bytes);
+    }
+  }
+
+  @CheckForNull
+  private static byte[] readBytes(DataInputStream input) throws IOException {
+    int length = input.readInt();
+    if (length == NULL_LENGTH) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    input.readFully(bytes);
+    return bytes;
+  }
+
+  private static void writeNullableInt(DataOutputStream output, @Nullable Integer i) throws IOException {
+    output.writeBoolean(i != null);
+    if (i != null) {
+      output.writeInt(i);
+    }
+  }
+
+  @CheckForNull
+  private static Integer readNullableInt(DataInputStream input) throws IOException {
+    return input.readBoolean() ? input.readInt() : null;
+  }
+
+  private static void writeNullableLong(DataOutputStream output, @Nullable Long l) throws IOException {
+    output.writeBoolean(l != null);
+    if (l != null) {
+      output.writeLong(l);
+    }
+  }
+
+  @CheckForNull
+  private static Long readNullableLong(DataInputStream input) throws IOException {
+    return input.readBoolean() ? input.readLong() : null;
+  }
+
+  private static void writeDate(DataOutputStream output, @Nullable Date date) throws IOException {
+    writeNullableLong(output, date == null ? null : date.getTime());
+  }
+
+  @CheckForNull
+  private static Date readDate(DataInputStream input) throws IOException {
+    Long time = readNullableLong(input);
+    return time == null ? null : new Date(time);
+  }
+}
@@ -22,17 +22,19 @@ package org.sonar.server.computation.task.projectanalysis.issue;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetadataHolder;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
+import org.sonar.server.computation.task.projectanalysis.component.FileLocalVisitor;
 import org.sonar.server.computation.task.projectanalysis.component.MergeBranchComponentUuids;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.util.cache.DiskCache;
 
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.POST_ORDER;
 
-public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
+public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter implements FileLocalVisitor {
 
   private final IssueCache issueCache;
   private final IssueLifecycle issueLifecycle;
@@ -41,6 +43,7 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
   private final ShortBranchIssueMerger issueStatusCopier;
   private final AnalysisMetadataHolder analysisMetadataHolder;
   private final MergeBranchComponentUuids mergeBranchComponentUuids;
+  private final Map<Component, TrackingResult> preparedTrackings = new ConcurrentHashMap<>();
 
   public IntegrateIssuesVisitor(IssueCache issueCache, IssueLifecycle issueLifecycle, IssueVisitors issueVisitors,
     AnalysisMetadataHolder analysisMetadataHolder, IssueTrackingDelegator issueTracking, ShortBranchIssueMerger issueStatusCopier,
@@ -55,12 +58,20 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
     this.mergeBranchComponentUuids = mergeBranchComponentUuids;
   }
 
+  /**
+   * Tracking of the issues of a file, which loads raw and base issues, is done ahead of the visit of the file.
+   */
+  @Override
+  public void prepareFile(Component file) {
+    preparedTrackings.put(file, issueTracking.track(file));
+  }
+
   @Override
   public void visitAny(Component component) {
     try (DiskCache<DefaultIssue>.DiskAppender cacheAppender = issueCache.newAppender()) {
       issueVisitors.beforeComponent(component);
 
-      TrackingResult tracking = issueTracking.track(component);
+      TrackingResult tracking = track(component);
       fillNewOpenIssues(component, tracking.newIssues(), cacheAppender);
       fillExistingOpenIssues(component, tracking.issuesToMerge(), cacheAppender);
       closeIssues(component, tracking.issuesToClose(), cacheAppender);
@@ -71,6 +82,14 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
     }
   }
 
+  private TrackingResult track(Component component) {
+    TrackingResult preparedTracking = preparedTrackings.remove(component);
+    if (preparedTracking != null) {
+      return preparedTracking;
+    }
+    return issueTracking.track(component);
+  }
+
   private void fillNewOpenIssues(Component component, Iterable<DefaultIssue> newIssues, DiskCache<DefaultIssue>.DiskAppender cacheAppender) {
     List<DefaultIssue> list = new ArrayList<>();
 
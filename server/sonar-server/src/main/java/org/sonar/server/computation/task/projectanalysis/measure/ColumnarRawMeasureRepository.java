@@ -0,0 +1,340 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.measure;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+import javax.annotation.CheckForNull;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.measure.MapBasedRawMeasureRepository.OverridePolicy;
+import org.sonar.server.computation.task.projectanalysis.metric.Metric;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Implementation of MeasureRepository which supports only raw measures and stores them column by column: for each
+ * metric, the values of the measures are stored in primitive arrays indexed by the index of the component (usually its
+ * ref in the scanner report). Data, variations and QualityGate statuses are stored in side tables which are allocated
+ * only when needed.
+ *
+ * Unlike {@link MapBasedRawMeasureRepository}, no object is retained per measure, which makes a huge difference on
+ * projects with hundreds of thousands of files. On the other hand, {@link Measure} objects are created each time they
+ * are read, hence measures must not be compared by identity.
+ *
+ * Measures associated to a {@link org.sonar.server.computation.task.projectanalysis.component.Developer} are rare and
+ * are stored in a {@link MapBasedRawMeasureRepository}.
+ *
+ * Intended to be used as a delegate of other MeasureRepository implementations (hence the final keyword).
+ *
+ * Measures can be read and written concurrently.
+ */
+public final class ColumnarRawMeasureRepository implements MeasureRepository {
+  private final ToIntFunction<Component> componentToIndex;
+  private final Map<String, Column> columnsByMetricKey = new ConcurrentHashMap<>();
+  private final MapBasedRawMeasureRepository<Integer> developerMeasures;
+
+  /**
+   * @param componentToIndex returns a positive index for each component. Indexes should be dense as the arrays of each
+   *                         metric are as large as the greatest index of the components having a measure of this metric.
+   */
+  public ColumnarRawMeasureRepository(ToIntFunction<Component> componentToIndex) {
+    this.componentToIndex = requireNonNull(componentToIndex);
+    this.developerMeasures = new MapBasedRawMeasureRepository<>(componentToIndex::applyAsInt);
+  }
+
+  /**
+   * @throws UnsupportedOperationException all the time, not supported
+   */
+  @Override
+  public Optional<Measure> getBaseMeasure(Component component, Metric metric) {
+    throw new UnsupportedOperationException("This implementation of MeasureRepository supports only raw measures");
+  }
+
+  @Override
+  public int loadAsRawMeasures(Collection<Component> components, Collection<Metric> metrics) {
+    throw new UnsupportedOperationException("This implementation of MeasureRepository supports only raw measures");
+  }
+
+  @Override
+  public Optional<Measure> getRawMeasure(Component component, Metric metric) {
+    // fail fast
+    requireNonNull(component);
+    requireNonNull(metric);
+
+    Column column = columnsByMetricKey.get(metric.getKey());
+    if (column == null) {
+      return Optional.absent();
+    }
+    return Optional.fromNullable(column.get(toIndex(component)));
+  }
+
+  @Override
+  public void add(Component component, Metric metric, Measure measure) {
+    requireNonNull(component);
+    checkValueTypeConsistency(metric, measure);
+
+    if (measure.getDeveloper() != null) {
+      developerMeasures.add(component, metric, measure);
+      return;
+    }
+    if (!put(component, metric, measure, OverridePolicy.DO_NOT_OVERRIDE)) {
+      throw new UnsupportedOperationException(
+        format(
+          "a measure can be set only once for a specific Component (key=%s), Metric (key=%s). Use update method",
+          component.getKey(),
+          metric.getKey()));
+    }
+  }
+
+  @Override
+  public void update(Component component, Metric metric, Measure measure) {
+    requireNonNull(component);
+    checkValueTypeConsistency(metric, measure);
+
+    if (measure.getDeveloper() != null) {
+      developerMeasures.update(component, metric, measure);
+      return;
+    }
+    if (!getRawMeasure(component, metric).isPresent()) {
+      throw new UnsupportedOperationException(
+        format(
+          "a measure can be updated only if one already exists for a specific Component (key=%s), Metric (key=%s). Use add method",
+          component.getKey(),
+          metric.getKey()));
+    }
+    put(component, metric, measure, OverridePolicy.OVERRIDE);
+  }
+
+  private static void checkValueTypeConsistency(Metric metric, Measure measure) {
+    checkArgument(
+      measure.getValueType() == Measure.ValueType.NO_VALUE || measure.getValueType() == metric.getType().getValueType(),
+      "Measure's ValueType (%s) is not consistent with the Metric's ValueType (%s)",
+      measure.getValueType(), metric.getType().getValueType());
+  }
+
+  public void add(Component component, Metric metric, Measure measure, OverridePolicy overridePolicy) {
+    requireNonNull(component);
+    requireNonNull(measure);
+    requireNonNull(overridePolicy);
+
+    if (measure.getDeveloper() != null) {
+      developerMeasures.add(component, metric, measure, overridePolicy);
+    } else {
+      put(component, metric, measure, overridePolicy);
+    }
+  }
+
+  private boolean put(Component component, Metric metric, Measure measure, OverridePolicy overridePolicy) {
+    int index = toIndex(component);
+    Column column = columnsByMetricKey.computeIfAbsent(metric.getKey(), k -> new Column());
+    return column.put(index, measure, overridePolicy);
+  }
+
+  @Override
+  public Set<Measure> getRawMeasures(Component component, Metric metric) {
+    requireNonNull(metric);
+    requireNonNull(component);
+
+    Set<Measure> measuresOfDevelopers = developerMeasures.getRawMeasures(component, metric);
+    Optional<Measure> measure = getRawMeasure(component, metric);
+    if (!measure.isPresent()) {
+      return measuresOfDevelopers;
+    }
+    return ImmutableSet.<Measure>builder().add(measure.get()).addAll(measuresOfDevelopers).build();
+  }
+
+  @Override
+  public SetMultimap<String, Measure> getRawMeasures(Component component) {
+    int index = toIndex(component);
+
+    ImmutableSetMultimap.Builder<String, Measure> builder = ImmutableSetMultimap.builder();
+    for (Map.Entry<String, Column> entry : columnsByMetricKey.entrySet()) {
+      Measure measure = entry.getValue().get(index);
+      if (measure != null) {
+        builder.put(entry.getKey(), measure);
+      }
+    }
+    builder.putAll(developerMeasures.getRawMeasures(component));
+    return builder.build();
+  }
+
+  /**
+   * Number of components which can have a measure of the metric without growing its arrays, {@code 0} if the
+   * metric has no measures.
+   */
+  @VisibleForTesting
+  int capacity(Metric metric) {
+    Column column = columnsByMetricKey.get(metric.getKey());
+    return column == null ? 0 : column.capacity();
+  }
+
+  /**
+   * Whether the side tables of variations, data or QualityGate statuses are allocated for the metric
+   */
+  @VisibleForTesting
+  boolean hasSideTables(Metric metric) {
+    Column column = columnsByMetricKey.get(metric.getKey());
+    return column != null && column.hasSideTables();
+  }
+
+  private int toIndex(Component component) {
+    int index = componentToIndex.applyAsInt(component);
+    checkArgument(index >= 0, "Index of component %s must be positive: %s", component.getKey(), index);
+    return index;
+  }
+
+  /**
+   * Measures of a single metric. The value type of each measure is stored along with flags in {@link #headers}, value
+   * {@code 0} meaning that there is no measure for the component.
+   */
+  private static final class Column {
+    private static final byte VALUE_TYPE_MASK = 0x0F;
+    private static final byte HAS_VARIATION = 0x10;
+    private static final int MIN_CAPACITY = 16;
+    private static final Measure.ValueType[] VALUE_TYPES = Measure.ValueType.values();
+    private static final Measure.Level[] LEVELS = Measure.Level.values();
+
+    private byte[] headers = new byte[0];
+    private double[] values = new double[0];
+    @CheckForNull
+    private double[] variations;
+    @CheckForNull
+    private String[] data;
+    @CheckForNull
+    private Map<Integer, QualityGateStatus> qualityGateStatuses;
+
+    synchronized boolean put(int index, Measure measure, OverridePolicy overridePolicy) {
+      if (index < headers.length && headers[index] != 0 && overridePolicy == OverridePolicy.DO_NOT_OVERRIDE) {
+        return false;
+      }
+      ensureCapacity(index);
+
+      byte header = (byte) (measure.getValueType().ordinal() + 1);
+      values[index] = toDouble(measure);
+      if (measure.hasVariation()) {
+        header |= HAS_VARIATION;
+        if (variations == null) {
+          variations = new double[headers.length];
+        }
+        variations[index] = measure.getVariation();
+      }
+      headers[index] = header;
+      putData(index, measure.getData());
+      putQualityGateStatus(index, measure);
+      return true;
+    }
+
+    @CheckForNull
+    synchronized Measure get(int index) {
+      if (index >= headers.length || headers[index] == 0) {
+        return null;
+      }
+      byte header = headers[index];
+      Measure.ValueType valueType = VALUE_TYPES[(header & VALUE_TYPE_MASK) - 1];
+      double value = values[index];
+      Double variation = (header & HAS_VARIATION) == 0 ? null : variations[index];
+      QualityGateStatus qualityGateStatus = qualityGateStatuses == null ? null : qualityGateStatuses.get(index);
+      String measureData = data == null ? null : data[index];
+      switch (valueType) {
+        case BOOLEAN:
+        case INT:
+        case LONG:
+        case DOUBLE:
+          return Measure.restore(valueType, value, measureData, null, qualityGateStatus, variation);
+        case LEVEL:
+          return Measure.restore(valueType, null, measureData, LEVELS[(int) value], qualityGateStatus, variation);
+        default:
+          return Measure.restore(valueType, null, measureData, null, qualityGateStatus, variation);
+      }
+    }
+
+    synchronized int capacity() {
+      return headers.length;
+    }
+
+    synchronized boolean hasSideTables() {
+      return variations != null || data != null || qualityGateStatuses != null;
+    }
+
+    private static double toDouble(Measure measure) {
+      switch (measure.getValueType()) {
+        case BOOLEAN:
+          return measure.getBooleanValue() ? 1.0d : 0.0d;
+        case INT:
+          return measure.getIntValue();
+        case LONG:
+          return measure.getLongValue();
+        case DOUBLE:
+          return measure.getDoubleValue();
+        case LEVEL:
+          return measure.getLevelValue().ordinal();
+        default:
+          return 0.0d;
+      }
+    }
+
+    private void putData(int index, @CheckForNull String measureData) {
+      if (measureData != null && data == null) {
+        data = new String[headers.length];
+      }
+      if (data != null) {
+        data[index] = measureData;
+      }
+    }
+
+    private void putQualityGateStatus(int index, Measure measure) {
+      if (measure.hasQualityGateStatus()) {
+        if (qualityGateStatuses == null) {
+          qualityGateStatuses = new HashMap<>();
+        }
+        qualityGateStatuses.put(index, measure.getQualityGateStatus());
+      } else if (qualityGateStatuses != null) {
+        qualityGateStatuses.remove(index);
+      }
+    }
+
+    private void ensureCapacity(int index) {
+      if (index < headers.length) {
+        return;
+      }
+      int capacity = Math.max(Math.max(index + 1, MIN_CAPACITY), headers.length + (headers.length >> 1));
+      headers = Arrays.copyOf(headers, capacity);
+      values = Arrays.copyOf(values, capacity);
+      if (variations != null) {
+        variations = Arrays.copyOf(variations, capacity);
+      }
+      if (data != null) {
+        data = Arrays.copyOf(data, capacity);
+      }
+    }
+  }
+}
@@ -92,6 +92,15 @@ public final class Measure {
     this.variation = variation;
   }
 
+  /**
+   * Creates a Measure from values which have already been validated and scaled when the Measure was first created,
+   * for instance when reading it back from a compact storage.
+   */
+  static Measure restore(ValueType valueType, @Nullable Double value, @Nullable String data, @Nullable Level dataLevel,
+    @Nullable QualityGateStatus qualityGateStatus, @Nullable Double variation) {
+    return new Measure(valueType, null, value, data, dataLevel, qualityGateStatus, variation);
+  }
+
   public static NewMeasureBuilder newMeasureBuilder() {
     return new NewMeasureBuilder();
   }
@@ -20,13 +20,12 @@
 package org.sonar.server.computation.task.projectanalysis.measure;
 
 import static java.util.Objects.requireNonNull;
-import static org.sonar.server.computation.task.projectanalysis.component.ComponentFunctions.toReportRef;
 
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.sonar.core.util.CloseableIterator;
@@ -46,7 +45,7 @@ import com.google.common.base.Optional;
 import com.google.common.collect.SetMultimap;
 
 public class MeasureRepositoryImpl implements MeasureRepository {
-  private final MapBasedRawMeasureRepository<Integer> delegate = new MapBasedRawMeasureRepository<>(toReportRef());
+  private final ColumnarRawMeasureRepository delegate = new ColumnarRawMeasureRepository(component -> component.getReportAttributes().getRef());
   private final DbClient dbClient;
   private final BatchReportReader reportReader;
   private final BatchMeasureToMeasure batchMeasureToMeasure;
@@ -54,7 +53,7 @@ public class MeasureRepositoryImpl implements MeasureRepository {
   private final ReportMetricValidator reportMetricValidator;
 
   private MeasureDtoToMeasure measureTransformer = new MeasureDtoToMeasure();
-  private final Set<Integer> loadedComponents = new HashSet<>();
+  private final Set<Integer> loadedComponents = ConcurrentHashMap.newKeySet();
 
   public MeasureRepositoryImpl(DbClient dbClient, BatchReportReader reportReader, MetricRepository metricRepository,
     ReportMetricValidator reportMetricValidator) {
@@ -145,7 +144,15 @@ public class MeasureRepositoryImpl implements MeasureRepository {
     if (loadedComponents.contains(component.getReportAttributes().getRef())) {
       return;
     }
+    // measures can be read concurrently (see FileLocalVisitor), make sure those of the component are loaded only once
+    synchronized (this) {
+      if (!loadedComponents.contains(component.getReportAttributes().getRef())) {
+        loadBatchMeasures(component);
+      }
+    }
+  }
 
+  private void loadBatchMeasures(Component component) {
     try (CloseableIterator<ScannerReport.Measure> readIt = reportReader.readComponentMeasures(component.getReportAttributes().getRef())) {
       while (readIt.hasNext()) {
         ScannerReport.Measure batchMeasure = readIt.next();
@@ -23,6 +23,7 @@ import com.google.common.base.Optional;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
+import org.sonar.server.computation.task.projectanalysis.component.FileLocalVisitor;
 import org.sonar.server.computation.task.projectanalysis.component.PathAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.measure.Measure;
 import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepository;
@@ -33,7 +34,7 @@ import org.sonar.server.computation.task.projectanalysis.scm.ScmInfoRepository;
 
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.POST_ORDER;
 
-public class LastCommitVisitor extends PathAwareVisitorAdapter<LastCommitVisitor.LastCommit> {
+public class LastCommitVisitor extends PathAwareVisitorAdapter<LastCommitVisitor.LastCommit> implements FileLocalVisitor {
 
   private final MeasureRepository measureRepository;
   private final ScmInfoRepository scmInfoRepository;
@@ -72,6 +73,14 @@ public class LastCommitVisitor extends PathAwareVisitorAdapter<LastCommitVisitor
     saveAndAggregate(module, path);
   }
 
+  /**
+   * Loads SCM information of the file, which is kept by {@link ScmInfoRepository}, ahead of the visit of the file.
+   */
+  @Override
+  public void prepareFile(Component file) {
+    scmInfoRepository.getScmInfo(file);
+  }
+
   @Override
   public void visitFile(Component file, Path<LastCommit> path) {
     // load SCM blame information from report. It can be absent when the file was not touched
@@ -21,9 +21,11 @@ package org.sonar.server.computation.task.projectanalysis.step;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor;
+import org.sonar.server.computation.task.projectanalysis.component.FileLocalVisitor;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.VisitorsCrawler;
 import org.sonar.server.computation.task.step.ComputationStep;
@@ -31,6 +33,7 @@ import org.sonar.server.computation.task.step.ComputationStep;
 public class ExecuteVisitorsStep implements ComputationStep {
 
   private static final Logger LOGGER = Loggers.get(ExecuteVisitorsStep.class);
+  private static final int MAX_FILE_PREPARATION_THREADS = 4;
 
   private final TreeRootHolder treeRootHolder;
   private final List<ComponentVisitor> visitors;
@@ -45,11 +48,19 @@ public class ExecuteVisitorsStep implements ComputationStep {
     return "Execute component visitors";
   }
 
+  /**
+   * Files are prepared by the {@link FileLocalVisitor}s on a dedicated pool of threads.
+   */
   @Override
   public void execute() {
-    VisitorsCrawler visitorsCrawler = new VisitorsCrawler(visitors, LOGGER.isDebugEnabled());
-    visitorsCrawler.visit(treeRootHolder.getRoot());
-    logVisitorExecutionDurations(visitors, visitorsCrawler);
+    ForkJoinPool filePreparationPool = new ForkJoinPool(Math.min(MAX_FILE_PREPARATION_THREADS, Runtime.getRuntime().availableProcessors()));
+    try {
+      VisitorsCrawler visitorsCrawler = new VisitorsCrawler(visitors, LOGGER.isDebugEnabled(), filePreparationPool);
+      visitorsCrawler.visit(treeRootHolder.getRoot());
+      logVisitorExecutionDurations(visitors, visitorsCrawler);
+    } finally {
+      filePreparationPool.shutdownNow();
+    }
   }
 
   private static void logVisitorExecutionDurations(List<ComponentVisitor> visitors, VisitorsCrawler visitorsCrawler) {
@@ -24,9 +24,13 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Optional;
+import java.util.zip.ZipFile;
+import org.apache.commons.io.FileUtils;
 import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.TempFolder;
 import org.sonar.api.utils.ZipUtils;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.ce.queue.CeTask;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -35,11 +39,17 @@ import org.sonar.server.computation.task.projectanalysis.batch.MutableBatchRepor
 import org.sonar.server.computation.task.step.ComputationStep;
 
 /**
- * Extracts the content zip file of the {@link CeTask} to a temp directory and adds a {@link File}
- * representing that temp directory to the {@link MutableBatchReportDirectoryHolder}.
+ * Copies the content zip file of the {@link CeTask} to a temp file, without uncompressing it, and adds this zip file
+ * to the {@link MutableBatchReportDirectoryHolder}. Files of the report are then read directly from the zip file.
+ * <p>
+ * If the zip file can not be read with random access (for instance if its central directory is corrupted), it is
+ * extracted to a temp directory which is added to the {@link MutableBatchReportDirectoryHolder} instead.
+ * </p>
  */
 public class ExtractReportStep implements ComputationStep {
 
+  private static final Logger LOGGER = Loggers.get(ExtractReportStep.class);
+
   private final DbClient dbClient;
   private final CeTask task;
   private final TempFolder tempFolder;
@@ -58,20 +68,42 @@ public class ExtractReportStep implements ComputationStep {
     try (DbSession dbSession = dbClient.openSession(false)) {
       Optional<CeTaskInputDao.DataStream> opt = dbClient.ceTaskInputDao().selectData(dbSession, task.getUuid());
       if (opt.isPresent()) {
-        File unzippedDir = tempFolder.newDir();
+        File zipFile = tempFolder.newFile("report", ".zip");
         try (CeTaskInputDao.DataStream reportStream = opt.get();
-             InputStream zipStream = new BufferedInputStream(reportStream.getInputStream())) {
-          ZipUtils.unzip(zipStream, unzippedDir);
+          InputStream zipStream = new BufferedInputStream(reportStream.getInputStream())) {
+          FileUtils.copyInputStreamToFile(zipStream, zipFile);
+          if (isReadableZip(zipFile)) {
+            reportDirectoryHolder.setZipFile(zipFile);
+          } else {
+            reportDirectoryHolder.setDirectory(unzip(zipFile));
+          }
         } catch (IOException e) {
           throw new IllegalStateException("Fail to extract report " + task.getUuid() + " from database", e);
         }
-        reportDirectoryHolder.setDirectory(unzippedDir);
       } else {
         throw MessageException.of("Analysis report " + task.getUuid() + " is missing in database");
       }
     }
   }
 
+  private boolean isReadableZip(File zipFile) {
+    try (ZipFile zip = new ZipFile(zipFile)) {
+      return true;
+    } catch (IOException e) {
+      LOGGER.warn("Report " + task.getUuid() + " can not be read as a zip file, it will be extracted", e);
+      return false;
+    }
+  }
+
+  private File unzip(File zipFile) throws IOException {
+    File unzippedDir = tempFolder.newDir();
+    try (InputStream zipStream = new BufferedInputStream(FileUtils.openInputStream(zipFile))) {
+      ZipUtils.unzip(zipStream, unzippedDir);
+    }
+    FileUtils.deleteQuietly(zipFile);
+    return unzippedDir;
+  }
+
   @Override
   public String getDescription() {
     return "Extract report";
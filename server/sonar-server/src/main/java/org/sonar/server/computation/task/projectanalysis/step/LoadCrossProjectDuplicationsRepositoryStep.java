@@ -19,9 +19,20 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.SetMultimap;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
@@ -44,6 +55,7 @@ import org.sonar.server.computation.task.projectanalysis.duplication.IntegrateCr
 import org.sonar.server.computation.task.projectanalysis.analysis.Analysis;
 import org.sonar.server.computation.task.step.ComputationStep;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.FluentIterable.from;
 import static com.google.common.collect.Lists.newArrayList;
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
@@ -54,10 +66,14 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
  * Blocks can be empty if :
  * - The file is excluded from the analysis using {@link org.sonar.api.CoreProperties#CPD_EXCLUSIONS}
  * - On Java, if the number of statements of the file is too small, nothing will be sent.
+ *
+ * Files are processed by batches, in order to load the candidate blocks of many files with a few queries.
  */
 public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationStep {
 
   private static final Logger LOGGER = Loggers.get(LoadCrossProjectDuplicationsRepositoryStep.class);
+  // maximum number of hashes of the files of a batch
+  private static final int DEFAULT_BATCH_SIZE = 5_000;
 
   private final TreeRootHolder treeRootHolder;
   private final BatchReportReader reportReader;
@@ -65,22 +81,36 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
   private final IntegrateCrossProjectDuplications integrateCrossProjectDuplications;
   private final CrossProjectDuplicationStatusHolder crossProjectDuplicationStatusHolder;
   private final DbClient dbClient;
+  private final int batchSize;
 
   public LoadCrossProjectDuplicationsRepositoryStep(TreeRootHolder treeRootHolder, BatchReportReader reportReader,
     AnalysisMetadataHolder analysisMetadataHolder, CrossProjectDuplicationStatusHolder crossProjectDuplicationStatusHolder,
     IntegrateCrossProjectDuplications integrateCrossProjectDuplications, DbClient dbClient) {
+    this(treeRootHolder, reportReader, analysisMetadataHolder, crossProjectDuplicationStatusHolder, integrateCrossProjectDuplications, dbClient, DEFAULT_BATCH_SIZE);
+  }
+
+  @VisibleForTesting
+  LoadCrossProjectDuplicationsRepositoryStep(TreeRootHolder treeRootHolder, BatchReportReader reportReader,
+    AnalysisMetadataHolder analysisMetadataHolder, CrossProjectDuplicationStatusHolder crossProjectDuplicationStatusHolder,
+    IntegrateCrossProjectDuplications integrateCrossProjectDuplications, DbClient dbClient, int batchSize) {
+    checkArgument(batchSize > 0, "Batch size must be positive: %s", batchSize);
     this.treeRootHolder = treeRootHolder;
     this.reportReader = reportReader;
     this.analysisMetadataHolder = analysisMetadataHolder;
     this.integrateCrossProjectDuplications = integrateCrossProjectDuplications;
     this.crossProjectDuplicationStatusHolder = crossProjectDuplicationStatusHolder;
     this.dbClient = dbClient;
+    this.batchSize = batchSize;
   }
 
   @Override
   public void execute() {
     if (crossProjectDuplicationStatusHolder.isEnabled()) {
-      new DepthTraversalTypeAwareCrawler(new CrossProjectDuplicationVisitor()).visit(treeRootHolder.getRoot());
+      try (DbSession dbSession = dbClient.openSession(false)) {
+        CrossProjectDuplicationVisitor visitor = new CrossProjectDuplicationVisitor(dbSession);
+        new DepthTraversalTypeAwareCrawler(visitor).visit(treeRootHolder.getRoot());
+        visitor.flush();
+      }
     }
   }
 
@@ -90,9 +120,17 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
   }
 
   private class CrossProjectDuplicationVisitor extends TypeAwareVisitorAdapter {
+    private final DbSession dbSession;
+    @CheckForNull
+    private final String analysisUuid;
+    private final List<FileBlocks> batch = new ArrayList<>();
+    private int batchHashes = 0;
 
-    private CrossProjectDuplicationVisitor() {
+    private CrossProjectDuplicationVisitor(DbSession dbSession) {
       super(CrawlerDepthLimit.FILE, PRE_ORDER);
+      this.dbSession = dbSession;
+      Analysis projectAnalysis = analysisMetadataHolder.getBaseAnalysis();
+      this.analysisUuid = projectAnalysis == null ? null : projectAnalysis.getUuid();
     }
 
     @Override
@@ -106,25 +144,71 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
         }
       }
 
-      Collection<String> hashes = from(cpdTextBlocks).transform(CpdTextBlockToHash.INSTANCE).toList();
-      List<DuplicationUnitDto> dtos = selectDuplicates(file, hashes);
+      batch.add(new FileBlocks(file, cpdTextBlocks));
+      batchHashes += cpdTextBlocks.size();
+      if (batchHashes >= batchSize) {
+        flush();
+      }
+    }
+
+    /**
+     * Loads the candidate blocks of all the files of the batch, with one query per language (partitioned
+     * by {@link org.sonar.db.DatabaseUtils#executeLargeInputs}), then computes duplications of each file.
+     */
+    private void flush() {
+      if (batch.isEmpty()) {
+        return;
+      }
+      SetMultimap<String, String> hashesByLanguage = HashMultimap.create();
+      for (FileBlocks fileBlocks : batch) {
+        String language = fileBlocks.file.getFileAttributes().getLanguageKey();
+        if (language != null) {
+          hashesByLanguage.putAll(language, from(fileBlocks.cpdTextBlocks).transform(CpdTextBlockToHash.INSTANCE));
+        }
+      }
+      Map<String, ListMultimap<String, DuplicationUnitDto>> candidatesByHashByLanguage = new HashMap<>();
+      for (Map.Entry<String, Collection<String>> hashes : hashesByLanguage.asMap().entrySet()) {
+        List<DuplicationUnitDto> candidates = dbClient.duplicationDao().selectCandidates(dbSession, analysisUuid, hashes.getKey(), hashes.getValue());
+        candidatesByHashByLanguage.put(hashes.getKey(), Multimaps.index(candidates, DuplicationUnitDto::getHash));
+      }
+      LOGGER.debug("Loaded cross project duplication candidates of {} hashes for {} files", hashesByLanguage.size(), batch.size());
+
+      for (FileBlocks fileBlocks : batch) {
+        ListMultimap<String, DuplicationUnitDto> candidatesByHash = candidatesByHashByLanguage.get(fileBlocks.file.getFileAttributes().getLanguageKey());
+        if (candidatesByHash != null) {
+          computeCpd(fileBlocks, candidatesByHash);
+        }
+      }
+      batch.clear();
+      batchHashes = 0;
+    }
+
+    private void computeCpd(FileBlocks fileBlocks, ListMultimap<String, DuplicationUnitDto> candidatesByHash) {
+      Component file = fileBlocks.file;
+      Set<String> hashes = new LinkedHashSet<>(from(fileBlocks.cpdTextBlocks).transform(CpdTextBlockToHash.INSTANCE).toList());
+      List<DuplicationUnitDto> dtos = new ArrayList<>();
+      for (String hash : hashes) {
+        dtos.addAll(candidatesByHash.get(hash));
+      }
       if (dtos.isEmpty()) {
         return;
       }
 
       Collection<Block> duplicatedBlocks = from(dtos).transform(DtoToBlock.INSTANCE).toList();
-      Collection<Block> originBlocks = from(cpdTextBlocks).transform(new CpdTextBlockToBlock(file.getKey())).toList();
+      Collection<Block> originBlocks = from(fileBlocks.cpdTextBlocks).transform(new CpdTextBlockToBlock(file.getKey())).toList();
       LOGGER.trace("Found {} duplicated cpd blocks on file {}", duplicatedBlocks.size(), file.getKey());
 
       integrateCrossProjectDuplications.computeCpd(file, originBlocks, duplicatedBlocks);
     }
+  }
 
-    private List<DuplicationUnitDto> selectDuplicates(Component file, Collection<String> hashes) {
-      try (DbSession dbSession = dbClient.openSession(false)) {
-        Analysis projectAnalysis = analysisMetadataHolder.getBaseAnalysis();
-        String analysisUuid = projectAnalysis == null ? null : projectAnalysis.getUuid();
-        return dbClient.duplicationDao().selectCandidates(dbSession, analysisUuid, file.getFileAttributes().getLanguageKey(), hashes);
-      }
+  private static class FileBlocks {
+    private final Component file;
+    private final List<CpdTextBlock> cpdTextBlocks;
+
+    private FileBlocks(Component file, List<CpdTextBlock> cpdTextBlocks) {
+      this.file = file;
+      this.cpdTextBlocks = cpdTextBlocks;
     }
   }
 
@@ -19,6 +19,9 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.collect.ImmutableSet;
+import java.util.Collections;
+import java.util.Set;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -32,14 +35,14 @@ import org.sonar.server.computation.task.projectanalysis.component.DepthTraversa
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.duplication.CrossProjectDuplicationStatusHolder;
-import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ConcurrentComputationStep;
 
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
 
 /**
  * Persist cross project duplications text blocks into DUPLICATIONS_INDEX table
  */
-public class PersistCrossProjectDuplicationIndexStep implements ComputationStep {
+public class PersistCrossProjectDuplicationIndexStep implements ConcurrentComputationStep {
 
   private final DbClient dbClient;
   private final TreeRootHolder treeRootHolder;
@@ -111,6 +114,16 @@ public class PersistCrossProjectDuplicationIndexStep implements ComputationStep
 
   }
 
+  @Override
+  public Set<Class<?>> getReadDependencies() {
+    return ImmutableSet.of(TreeRootHolder.class, AnalysisMetadataHolder.class, BatchReportReader.class, CrossProjectDuplicationStatusHolder.class);
+  }
+
+  @Override
+  public Set<Class<?>> getWriteDependencies() {
+    return Collections.emptySet();
+  }
+
   @Override
   public String getDescription() {
     return "Persist cross project duplications index";
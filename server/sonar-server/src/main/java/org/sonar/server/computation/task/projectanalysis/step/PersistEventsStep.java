@@ -19,7 +19,10 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.collect.ImmutableSet;
+import java.util.Collections;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -36,9 +39,9 @@ import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolde
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.event.Event;
 import org.sonar.server.computation.task.projectanalysis.event.EventRepository;
-import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ConcurrentComputationStep;
 
-public class PersistEventsStep implements ComputationStep {
+public class PersistEventsStep implements ConcurrentComputationStep {
 
   private final DbClient dbClient;
   private final System2 system2;
@@ -67,6 +70,16 @@ public class PersistEventsStep implements ComputationStep {
     }
   }
 
+  @Override
+  public Set<Class<?>> getReadDependencies() {
+    return ImmutableSet.of(TreeRootHolder.class, AnalysisMetadataHolder.class, EventRepository.class);
+  }
+
+  @Override
+  public Set<Class<?>> getWriteDependencies() {
+    return Collections.emptySet();
+  }
+
   @Override
   public String getDescription() {
     return "Persist events";
@@ -19,9 +19,18 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.ibatis.executor.BatchResult;
 import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.util.CloseableIterator;
+import org.sonar.db.BatchSession;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.issue.IssueChangeMapper;
@@ -33,69 +42,160 @@ import org.sonar.server.computation.task.projectanalysis.issue.UpdateConflictRes
 import org.sonar.server.computation.task.step.ComputationStep;
 import org.sonar.server.issue.IssueStorage;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Issues are persisted by batches. Within a batch, statements of the same type are sent together, so that
+ * the JDBC driver actually batches them, and the update counts of the optimistic updates are used to
+ * detect the conflicts with the changes made by users, which are then resolved at once.
+ */
 public class PersistIssuesStep implements ComputationStep {
 
+  private static final Logger LOG = Loggers.get(PersistIssuesStep.class);
+
+  /**
+   * Must be lower than {@link BatchSession#MAX_BATCH_SIZE}, otherwise the session commits while updates are
+   * pending and their counts are lost.
+   */
+  @VisibleForTesting
+  static final int DEFAULT_BATCH_SIZE = 200;
+  private static final String UPDATE_IF_BEFORE_SELECTED_DATE_STATEMENT = IssueMapper.class.getName() + ".updateIfBeforeSelectedDate";
+
   private final DbClient dbClient;
   private final System2 system2;
   private final UpdateConflictResolver conflictResolver;
   private final RuleRepository ruleRepository;
   private final IssueCache issueCache;
+  private final int batchSize;
 
   public PersistIssuesStep(DbClient dbClient, System2 system2, UpdateConflictResolver conflictResolver,
     RuleRepository ruleRepository, IssueCache issueCache) {
+    this(dbClient, system2, conflictResolver, ruleRepository, issueCache, DEFAULT_BATCH_SIZE);
+  }
+
+  @VisibleForTesting
+  PersistIssuesStep(DbClient dbClient, System2 system2, UpdateConflictResolver conflictResolver,
+    RuleRepository ruleRepository, IssueCache issueCache, int batchSize) {
+    checkArgument(batchSize > 0 && batchSize < BatchSession.MAX_BATCH_SIZE, "Batch size must be between 1 and %s: %s", BatchSession.MAX_BATCH_SIZE - 1, batchSize);
     this.dbClient = dbClient;
     this.system2 = system2;
     this.conflictResolver = conflictResolver;
     this.ruleRepository = ruleRepository;
     this.issueCache = issueCache;
+    this.batchSize = batchSize;
   }
 
   @Override
   public void execute() {
+    long start = System.nanoTime();
     try (DbSession dbSession = dbClient.openSession(true);
       CloseableIterator<DefaultIssue> issues = issueCache.traverse()) {
 
-      IssueMapper mapper = dbSession.getMapper(IssueMapper.class);
-      IssueChangeMapper changeMapper = dbSession.getMapper(IssueChangeMapper.class);
+      IssueBatch batch = new IssueBatch(dbSession);
       while (issues.hasNext()) {
-        DefaultIssue issue = issues.next();
-        boolean saved = persistIssueIfRequired(mapper, issue);
-        if (saved) {
-          IssueStorage.insertChanges(changeMapper, issue);
-        }
+        batch.add(issues.next());
       }
-      dbSession.flushStatements();
+      batch.flush();
       dbSession.commit();
+      batch.logStatistics(System.nanoTime() - start);
     }
   }
 
-  private boolean persistIssueIfRequired(IssueMapper mapper, DefaultIssue issue) {
-    if (issue.isNew() || issue.isCopied()) {
-      persistNewIssue(mapper, issue);
-      return true;
+  private class IssueBatch {
+    private final DbSession dbSession;
+    private final IssueMapper mapper;
+    private final IssueChangeMapper changeMapper;
+    private final List<IssueDto> inserts = new ArrayList<>();
+    private final Map<String, DefaultIssue> updatesByKey = new LinkedHashMap<>();
+    private final List<DefaultIssue> saved = new ArrayList<>();
+    private int insertCount = 0;
+    private int updateCount = 0;
+    private int conflictCount = 0;
+
+    private IssueBatch(DbSession dbSession) {
+      this.dbSession = dbSession;
+      this.mapper = dbSession.getMapper(IssueMapper.class);
+      this.changeMapper = dbSession.getMapper(IssueChangeMapper.class);
     }
 
-    if (issue.isChanged()) {
-      persistChangedIssue(mapper, issue);
-      return true;
+    void add(DefaultIssue issue) {
+      if (issue.isNew() || issue.isCopied()) {
+        Integer ruleId = ruleRepository.getByKey(issue.ruleKey()).getId();
+        inserts.add(IssueDto.toDtoForComputationInsert(issue, ruleId, system2.now()));
+        saved.add(issue);
+      } else if (issue.isChanged()) {
+        updatesByKey.put(issue.key(), issue);
+        saved.add(issue);
+      }
+      if (saved.size() >= batchSize) {
+        flush();
+      }
     }
-    return false;
-  }
 
-  private void persistNewIssue(IssueMapper mapper, DefaultIssue issue) {
-    Integer ruleId = ruleRepository.getByKey(issue.ruleKey()).getId();
-    IssueDto dto = IssueDto.toDtoForComputationInsert(issue, ruleId, system2.now());
-    mapper.insert(dto);
-  }
+    void flush() {
+      if (saved.isEmpty()) {
+        return;
+      }
+      inserts.forEach(mapper::insert);
+      dbSession.flushStatements();
+      insertCount += inserts.size();
 
-  private void persistChangedIssue(IssueMapper mapper, DefaultIssue issue) {
-    IssueDto dto = IssueDto.toDtoForUpdate(issue, system2.now());
-    int updateCount = mapper.updateIfBeforeSelectedDate(dto);
-    if (updateCount == 0) {
-      // End-user and scan changed the issue at the same time.
+      if (!updatesByKey.isEmpty()) {
+        long now = system2.now();
+        updatesByKey.values().forEach(issue -> mapper.updateIfBeforeSelectedDate(IssueDto.toDtoForUpdate(issue, now)));
+        List<String> conflictingKeys = conflictingKeys(dbSession.flushStatements());
+        updateCount += updatesByKey.size();
+        resolveConflicts(conflictingKeys);
+      }
+
+      saved.forEach(issue -> IssueStorage.insertChanges(changeMapper, issue));
+      dbSession.flushStatements();
+
+      inserts.clear();
+      updatesByKey.clear();
+      saved.clear();
+    }
+
+    private void resolveConflicts(List<String> conflictingKeys) {
+      if (conflictingKeys.isEmpty()) {
+        return;
+      }
+      // End-user and scan changed the issues at the same time.
       // See https://jira.sonarsource.com/browse/SONAR-4309
-      conflictResolver.resolve(issue, mapper);
+      for (IssueDto dbIssue : dbClient.issueDao().selectByKeys(dbSession, conflictingKeys)) {
+        conflictResolver.resolve(updatesByKey.get(dbIssue.getKey()), dbIssue, mapper);
+      }
+      conflictCount += conflictingKeys.size();
+    }
+
+    void logStatistics(long durationInNanos) {
+      int total = insertCount + updateCount;
+      long durationInMs = durationInNanos / 1_000_000L;
+      LOG.debug("{} issues persisted in {}ms ({} issues/s) | inserts={} | updates={} | conflicts={}",
+        total, durationInMs, durationInMs == 0L ? total : (total * 1_000L / durationInMs), insertCount, updateCount, conflictCount);
+    }
+  }
+
+  /**
+   * Keys of the issues which have not been updated because they have been changed since
+   * the analysis loaded them. Drivers which do not return the update counts of batches
+   * ({@link java.sql.Statement#SUCCESS_NO_INFO}) can not report conflicts.
+   */
+  private static List<String> conflictingKeys(List<BatchResult> batchResults) {
+    List<String> keys = new ArrayList<>();
+    for (BatchResult batchResult : batchResults) {
+      if (!UPDATE_IF_BEFORE_SELECTED_DATE_STATEMENT.equals(batchResult.getMappedStatement().getId())) {
+        continue;
+      }
+      int[] updateCounts = batchResult.getUpdateCounts();
+      List<Object> parameters = batchResult.getParameterObjects();
+      for (int i = 0; i < updateCounts.length; i++) {
+        if (updateCounts[i] == 0) {
+          keys.add(((IssueDto) parameters.get(i)).getKey());
+        }
+      }
     }
+    return keys;
   }
 
   @Override
@@ -19,14 +19,35 @@
  */
 package org.sonar.server.computation.task.step;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.slf4j.MDC;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.logs.Profiler;
 
+import static java.util.Collections.disjoint;
+
+/**
+ * Executes the {@link ComputationStep}s in the order returned by {@link ComputationSteps#instances()}.
+ * <p>
+ * Adjacent {@link ConcurrentComputationStep}s are executed concurrently on a bounded pool of threads, each of them
+ * waiting only for the previous steps it conflicts with. Any other step waits for all the previous steps to be
+ * executed.
+ * </p>
+ */
 public final class ComputationStepExecutor {
   private static final Logger LOGGER = Loggers.get(ComputationStepExecutor.class);
+  private static final int MAX_CONCURRENT_STEPS = 4;
 
   private final ComputationSteps steps;
   @CheckForNull
@@ -59,11 +80,34 @@ public final class ComputationStepExecutor {
   }
 
   private void executeSteps(Profiler stepProfiler) {
+    List<ConcurrentComputationStep> concurrentSteps = new ArrayList<>();
     for (ComputationStep step : steps.instances()) {
-      stepProfiler.start();
-      step.execute();
-      stepProfiler.stopDebug(step.getDescription());
+      if (step instanceof ConcurrentComputationStep) {
+        concurrentSteps.add((ConcurrentComputationStep) step);
+      } else {
+        executeConcurrently(concurrentSteps, stepProfiler);
+        concurrentSteps.clear();
+        executeStep(step, stepProfiler);
+      }
     }
+    executeConcurrently(concurrentSteps, stepProfiler);
+  }
+
+  private static void executeStep(ComputationStep step, Profiler stepProfiler) {
+    stepProfiler.start();
+    step.execute();
+    stepProfiler.stopDebug(step.getDescription());
+  }
+
+  private static void executeConcurrently(List<ConcurrentComputationStep> concurrentSteps, Profiler stepProfiler) {
+    if (concurrentSteps.isEmpty()) {
+      return;
+    }
+    if (concurrentSteps.size() == 1) {
+      executeStep(concurrentSteps.get(0), stepProfiler);
+      return;
+    }
+    new ConcurrentStepsExecution(concurrentSteps).execute();
   }
 
   private void executeListener(boolean allStepsExecuted) {
@@ -76,6 +120,87 @@ public final class ComputationStepExecutor {
     }
   }
 
+  /**
+   * Executes a group of adjacent {@link ConcurrentComputationStep}s. Each step is started once the previous steps
+   * it conflicts with are executed. No new step is started once a step failed and the first failure is thrown once
+   * all the started steps are over.
+   */
+  private static final class ConcurrentStepsExecution {
+    private final List<ConcurrentComputationStep> concurrentSteps;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    @CheckForNull
+    private final Map<String, String> mdcContext = MDC.getCopyOfContextMap();
+
+    private ConcurrentStepsExecution(List<ConcurrentComputationStep> concurrentSteps) {
+      this.concurrentSteps = concurrentSteps;
+    }
+
+    private void execute() {
+      ExecutorService executorService = Executors.newFixedThreadPool(
+        Math.min(MAX_CONCURRENT_STEPS, concurrentSteps.size()),
+        new ThreadFactoryBuilder()
+          .setNameFormat("CE_Step-%d")
+          .setDaemon(true)
+          .build());
+      try {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(concurrentSteps.size());
+        for (int i = 0; i < concurrentSteps.size(); i++) {
+          ConcurrentComputationStep step = concurrentSteps.get(i);
+          List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+          for (int j = 0; j < i; j++) {
+            if (conflict(concurrentSteps.get(j), step)) {
+              dependencies.add(futures.get(j));
+            }
+          }
+          futures.add(CompletableFuture.allOf(dependencies.toArray(new CompletableFuture[dependencies.size()]))
+            .thenRunAsync(() -> executeInCurrentThread(step), executorService));
+        }
+        awaitTermination(futures);
+      } finally {
+        executorService.shutdown();
+      }
+    }
+
+    private static boolean conflict(ConcurrentComputationStep previous, ConcurrentComputationStep step) {
+      return !disjoint(previous.getWriteDependencies(), step.getReadDependencies())
+        || !disjoint(previous.getWriteDependencies(), step.getWriteDependencies())
+        || !disjoint(previous.getReadDependencies(), step.getWriteDependencies());
+    }
+
+    private void executeInCurrentThread(ConcurrentComputationStep step) {
+      if (failure.get() != null) {
+        // a step failed, the analysis will fail anyway
+        return;
+      }
+      if (mdcContext != null) {
+        MDC.setContextMap(mdcContext);
+      }
+      try {
+        executeStep(step, Profiler.create(LOGGER));
+      } catch (RuntimeException | Error e) {
+        failure.compareAndSet(null, e);
+        throw e;
+      } finally {
+        MDC.clear();
+      }
+    }
+
+    private void awaitTermination(List<CompletableFuture<Void>> futures) {
+      try {
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).join();
+      } catch (CompletionException e) {
+        // the failure of the step itself is thrown below
+      }
+      Throwable t = failure.get();
+      if (t instanceof RuntimeException) {
+        throw (RuntimeException) t;
+      }
+      if (t instanceof Error) {
+        throw (Error) t;
+      }
+    }
+  }
+
   @FunctionalInterface
   public interface Listener {
     void finished(boolean allStepsExecuted);
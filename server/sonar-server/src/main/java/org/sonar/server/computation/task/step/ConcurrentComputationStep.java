@@ -0,0 +1,48 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.step;
+
+import java.util.Set;
+
+/**
+ * A {@link ComputationStep} which declares the components (holders, repositories, ...) it reads and writes, so that
+ * {@link ComputationStepExecutor} can execute it concurrently with the adjacent steps it does not conflict with.
+ * <p>
+ * Two steps conflict when one of them writes a component read or written by the other. Components which cache data
+ * lazily must be declared as written. Database tables are not dependencies: each step persists its own data in its
+ * own transaction.
+ * </p>
+ * <p>
+ * Concurrent steps are executed in a dedicated thread, therefore they must not rely on state bound to the thread
+ * of the task (for example {@link org.sonar.server.setting.ThreadLocalSettings}).
+ * </p>
+ */
+public interface ConcurrentComputationStep extends ComputationStep {
+
+  /**
+   * Types of the components read by this step.
+   */
+  Set<Class<?>> getReadDependencies();
+
+  /**
+   * Types of the components written by this step.
+   */
+  Set<Class<?>> getWriteDependencies();
+}
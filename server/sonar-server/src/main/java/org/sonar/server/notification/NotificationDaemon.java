@@ -20,10 +20,18 @@
 package org.sonar.server.notification;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
 import org.picocontainer.Startable;
 import org.sonar.api.Properties;
 import org.sonar.api.Property;
@@ -33,6 +41,8 @@ import org.sonar.api.server.ServerSide;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 @Properties({
   @Property(
     key = NotificationDaemon.PROPERTY_DELAY,
@@ -43,28 +53,56 @@ import org.sonar.api.utils.log.Loggers;
     key = NotificationDaemon.PROPERTY_DELAY_BEFORE_REPORTING_STATUS,
     defaultValue = "600",
     name = "Delay before reporting notification status, in seconds",
+    global = false),
+  @Property(
+    key = NotificationDaemon.PROPERTY_BATCH_SIZE,
+    defaultValue = "100",
+    name = "Number of notifications dequeued at once",
+    global = false),
+  @Property(
+    key = NotificationDaemon.PROPERTY_THREADS,
+    defaultValue = "2",
+    name = "Number of threads delivering notifications",
     global = false)
 })
 @ServerSide
 public class NotificationDaemon implements Startable {
   private static final String THREAD_NAME_PREFIX = "sq-notification-service-";
+  private static final String DELIVERY_THREAD_NAME_PREFIX = "sq-notification-delivery-";
 
   private static final Logger LOG = Loggers.get(NotificationDaemon.class);
 
   public static final String PROPERTY_DELAY = "sonar.notifications.delay";
   public static final String PROPERTY_DELAY_BEFORE_REPORTING_STATUS = "sonar.notifications.runningDelayBeforeReportingStatus";
+  public static final String PROPERTY_BATCH_SIZE = "sonar.notifications.batchSize";
+  public static final String PROPERTY_THREADS = "sonar.notifications.threads";
 
   private final long delayInSeconds;
   private final long delayBeforeReportingStatusInSeconds;
+  private final int batchSize;
+  private final int threads;
   private final DefaultNotificationManager manager;
   private final NotificationService service;
+  private final AtomicLong deliveredCount = new AtomicLong();
+  private final AtomicLong deliveryTimeInMs = new AtomicLong();
+  private final AtomicLong queueSize = new AtomicLong();
 
   private ScheduledExecutorService executorService;
-  private boolean stopping = false;
+  /**
+   * Delivers the slices of a batch in parallel. Not used when a single thread is configured,
+   * batches are then delivered by the thread of {@link #executorService}.
+   */
+  @CheckForNull
+  private ExecutorService deliveryExecutorService;
+  private volatile boolean stopping = false;
 
   public NotificationDaemon(Configuration config, DefaultNotificationManager manager, NotificationService service) {
     this.delayInSeconds = config.getLong(PROPERTY_DELAY).get();
     this.delayBeforeReportingStatusInSeconds = config.getLong(PROPERTY_DELAY_BEFORE_REPORTING_STATUS).get();
+    this.batchSize = config.getInt(PROPERTY_BATCH_SIZE).get();
+    checkArgument(batchSize > 0, "Property %s must be strictly positive. Got %s", PROPERTY_BATCH_SIZE, batchSize);
+    this.threads = config.getInt(PROPERTY_THREADS).get();
+    checkArgument(threads > 0, "Property %s must be strictly positive. Got %s", PROPERTY_THREADS, threads);
     this.manager = manager;
     this.service = service;
   }
@@ -76,6 +114,13 @@ public class NotificationDaemon implements Startable {
         .setNameFormat(THREAD_NAME_PREFIX + "%d")
         .setPriority(Thread.MIN_PRIORITY)
         .build());
+    if (threads > 1) {
+      deliveryExecutorService = Executors.newFixedThreadPool(threads,
+        new ThreadFactoryBuilder()
+          .setNameFormat(DELIVERY_THREAD_NAME_PREFIX + "%d")
+          .setPriority(Thread.MIN_PRIORITY)
+          .build());
+    }
     executorService.scheduleWithFixedDelay(() -> {
       try {
         processQueue();
@@ -83,7 +128,7 @@ public class NotificationDaemon implements Startable {
         LOG.error("Error in NotificationService", e);
       }
     }, 0, delayInSeconds, TimeUnit.SECONDS);
-    LOG.info("Notification service started (delay {} sec.)", delayInSeconds);
+    LOG.info("Notification service started (delay {} sec., {} threads)", delayInSeconds, threads);
   }
 
   @Override
@@ -92,6 +137,10 @@ public class NotificationDaemon implements Startable {
       stopping = true;
       executorService.shutdown();
       executorService.awaitTermination(5, TimeUnit.SECONDS);
+      if (deliveryExecutorService != null) {
+        deliveryExecutorService.shutdown();
+        deliveryExecutorService.awaitTermination(5, TimeUnit.SECONDS);
+      }
     } catch (InterruptedException e) {
       LOG.error("Error during stop of notification service", e);
       Thread.currentThread().interrupt();
@@ -102,24 +151,81 @@ public class NotificationDaemon implements Startable {
   private synchronized void processQueue() {
     long start = now();
     long lastLog = start;
+    long lastDelivery = start;
     long notifSentCount = 0;
 
-    Notification notifToSend = manager.getFromQueue();
-    while (notifToSend != null) {
-      service.deliver(notifToSend);
-      notifSentCount++;
+    List<Notification> notifsToSend = manager.getFromQueue(batchSize);
+    while (!notifsToSend.isEmpty()) {
+      deliver(notifsToSend);
+      notifSentCount += notifsToSend.size();
+      long now = now();
+      deliveredCount.addAndGet(notifsToSend.size());
+      deliveryTimeInMs.addAndGet(now - lastDelivery);
+      lastDelivery = now;
       if (stopping) {
         break;
       }
-      long now = now();
       if (now - lastLog > delayBeforeReportingStatusInSeconds * 1000) {
         long remainingNotifCount = manager.count();
+        queueSize.set(remainingNotifCount);
         lastLog = now;
         long spentTimeInMinutes = (now - start) / (60 * 1000);
         log(notifSentCount, remainingNotifCount, spentTimeInMinutes);
       }
-      notifToSend = manager.getFromQueue();
+      notifsToSend = manager.getFromQueue(batchSize);
     }
+    if (notifsToSend.isEmpty()) {
+      queueSize.set(0L);
+    }
+  }
+
+  /**
+   * The batch is split in as many slices as threads. Each slice is delivered by {@link NotificationService#deliver(java.util.Collection)},
+   * so that the deliveries of a slice share the same SMTP connection.
+   */
+  private void deliver(List<Notification> notifications) {
+    if (deliveryExecutorService == null || notifications.size() == 1) {
+      service.deliver(notifications);
+      return;
+    }
+    int sliceSize = (notifications.size() + threads - 1) / threads;
+    List<Future<?>> futures = new ArrayList<>(threads);
+    for (List<Notification> slice : Lists.partition(notifications, sliceSize)) {
+      futures.add(deliveryExecutorService.submit(() -> service.deliver(slice)));
+    }
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        LOG.error("Fail to deliver notifications", e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  /**
+   * Number of notifications waiting to be sent, as counted by the last status report while processing the queue,
+   * or zero once the queue is empty. Does not request the database.
+   */
+  public long getQueueSize() {
+    return queueSize.get();
+  }
+
+  /**
+   * Number of notifications delivered since startup
+   */
+  public long getDeliveredCount() {
+    return deliveredCount.get();
+  }
+
+  /**
+   * Average number of notifications delivered per minute while the queue was being processed
+   */
+  public long getThroughputPerMinute() {
+    long timeInMs = deliveryTimeInMs.get();
+    return timeInMs == 0 ? 0 : (deliveredCount.get() * 60 * 1000 / timeInMs);
   }
 
   @VisibleForTesting
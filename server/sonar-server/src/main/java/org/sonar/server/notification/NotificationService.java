@@ -22,10 +22,13 @@ package org.sonar.server.notification;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.MultimapBuilder;
 import com.google.common.collect.SetMultimap;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -60,6 +63,28 @@ public class NotificationService {
   }
 
   public void deliver(Notification notification) {
+    dispatch(notification, resolveRecipients(notification));
+  }
+
+  /**
+   * Delivers several notifications at once. The recipients of all the notifications are resolved first, then
+   * the deliveries are grouped by channel and by user and given to {@link NotificationChannel#deliverAll(Map)},
+   * so that for example the email channel loads each user only once and sends all the emails over a single
+   * SMTP connection.
+   */
+  public void deliver(Collection<Notification> notifications) {
+    Map<NotificationChannel, ListMultimap<String, Notification>> notificationsByChannel = new LinkedHashMap<>();
+    for (Notification notification : notifications) {
+      for (Map.Entry<String, NotificationChannel> recipient : resolveRecipients(notification).entries()) {
+        notificationsByChannel
+          .computeIfAbsent(recipient.getValue(), c -> MultimapBuilder.linkedHashKeys().arrayListValues().build())
+          .put(recipient.getKey(), notification);
+      }
+    }
+    notificationsByChannel.forEach(NotificationService::dispatch);
+  }
+
+  private SetMultimap<String, NotificationChannel> resolveRecipients(Notification notification) {
     SetMultimap<String, NotificationChannel> recipients = HashMultimap.create();
     for (NotificationDispatcher dispatcher : dispatchers) {
       NotificationDispatcher.Context context = new ContextImpl(recipients);
@@ -70,7 +95,7 @@ public class NotificationService {
         LOG.warn(String.format("Unable to dispatch notification %s using %s", notification, dispatcher), e);
       }
     }
-    dispatch(notification, recipients);
+    return recipients;
   }
 
   private static void dispatch(Notification notification, SetMultimap<String, NotificationChannel> recipients) {
@@ -79,16 +104,29 @@ public class NotificationService {
       Collection<NotificationChannel> userChannels = entry.getValue();
       LOG.debug("For user {} via {}", username, userChannels);
       for (NotificationChannel channel : userChannels) {
-        try {
-          channel.deliver(notification, username);
-        } catch (Exception e) {
-          // catch all exceptions in order to deliver via other channels
-          LOG.warn("Unable to deliver notification " + notification + " for user " + username + " via " + channel, e);
-        }
+        deliver(channel, notification, username);
       }
     }
   }
 
+  private static void dispatch(NotificationChannel channel, ListMultimap<String, Notification> notificationsByUsername) {
+    try {
+      channel.deliverAll(notificationsByUsername.asMap());
+    } catch (Exception e) {
+      // catch all exceptions in order to deliver via other channels
+      LOG.warn("Unable to deliver " + notificationsByUsername.size() + " notifications via " + channel, e);
+    }
+  }
+
+  private static void deliver(NotificationChannel channel, Notification notification, String username) {
+    try {
+      channel.deliver(notification, username);
+    } catch (Exception e) {
+      // catch all exceptions in order to deliver via other channels
+      LOG.warn("Unable to deliver notification " + notification + " for user " + username + " via " + channel, e);
+    }
+  }
+
   @VisibleForTesting
   List<NotificationDispatcher> getDispatchers() {
     return dispatchers;
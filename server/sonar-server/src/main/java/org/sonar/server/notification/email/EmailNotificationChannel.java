@@ -21,6 +21,14 @@ package org.sonar.server.notification.email;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.mail.EmailException;
 import org.apache.commons.mail.SimpleEmail;
@@ -105,6 +113,41 @@ public class EmailNotificationChannel extends NotificationChannel {
     }
   }
 
+  /**
+   * Delivers the notifications of several users at once. Each user is loaded only once and all the emails
+   * are sent over a single SMTP connection.
+   */
+  @Override
+  public void deliverAll(Map<String, ? extends Collection<Notification>> notificationsByUsername) {
+    if (StringUtils.isBlank(configuration.getSmtpHost())) {
+      LOG.debug("SMTP host was not configured - email will not be sent");
+      return;
+    }
+    List<EmailMessage> emailMessages = new ArrayList<>();
+    for (Map.Entry<String, ? extends Collection<Notification>> entry : notificationsByUsername.entrySet()) {
+      String username = entry.getKey();
+      User user = userFinder.findByLogin(username);
+      if (user == null || StringUtils.isBlank(user.email())) {
+        LOG.debug("User does not exist or has no email: {}", username);
+        continue;
+      }
+      for (Notification notification : entry.getValue()) {
+        EmailMessage emailMessage = format(notification);
+        if (emailMessage != null) {
+          emailMessage.setTo(user.email());
+          emailMessages.add(emailMessage);
+        }
+      }
+    }
+    if (!emailMessages.isEmpty()) {
+      try {
+        send(emailMessages);
+      } catch (EmailException e) {
+        LOG.error("Unable to send emails", e);
+      }
+    }
+  }
+
   private EmailMessage format(Notification notification) {
     for (EmailTemplate template : templates) {
       EmailMessage email = template.format(notification);
@@ -138,53 +181,128 @@ public class EmailNotificationChannel extends NotificationChannel {
 
     try {
       LOG.debug("Sending email: {}", emailMessage);
-      String host = null;
-      try {
-        host = new URL(configuration.getServerBaseURL()).getHost();
-      } catch (MalformedURLException e) {
-        // ignore
-      }
+      newEmail(emailMessage).send();
+    } finally {
+      Thread.currentThread().setContextClassLoader(classloader);
+    }
+  }
+
+  /**
+   * The SMTP connection is opened when sending the first email, then reused for the next ones. It's opened
+   * again if the server closed it. Emails which can't be built or sent are logged and ignored.
+   *
+   * @throws EmailException if the connection to the SMTP server can't be opened
+   */
+  private void send(List<EmailMessage> emailMessages) throws EmailException {
+    // Trick to correctly initialize javax.mail library
+    ClassLoader classloader = Thread.currentThread().getContextClassLoader();
+    Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
 
-      SimpleEmail email = new SimpleEmail();
-      if (StringUtils.isNotBlank(host)) {
-        /*
-         * Set headers for proper threading: GMail will not group messages, even if they have same subject, but don't have "In-Reply-To" and
-         * "References" headers. TODO investigate threading in other clients like KMail, Thunderbird, Outlook
-         */
-        if (StringUtils.isNotEmpty(emailMessage.getMessageId())) {
-          String messageId = "<" + emailMessage.getMessageId() + "@" + host + ">";
-          email.addHeader(IN_REPLY_TO_HEADER, messageId);
-          email.addHeader(REFERENCES_HEADER, messageId);
+    Transport transport = null;
+    try {
+      for (EmailMessage emailMessage : emailMessages) {
+        LOG.debug("Sending email: {}", emailMessage);
+        SimpleEmail email;
+        MimeMessage message;
+        try {
+          email = newEmail(emailMessage);
+          email.buildMimeMessage();
+          message = email.getMimeMessage();
+          message.saveChanges();
+        } catch (EmailException | MessagingException e) {
+          LOG.error("Unable to send email", e);
+          continue;
+        }
+        if (transport == null) {
+          transport = connect(email);
+        } else if (!transport.isConnected()) {
+          reconnect(transport);
+        }
+        try {
+          transport.sendMessage(message, message.getAllRecipients());
+        } catch (MessagingException e) {
+          LOG.error("Unable to send email", e);
         }
-        // Set headers for proper filtering
-        email.addHeader(LIST_ID_HEADER, "SonarQube <sonar." + host + ">");
-        email.addHeader(LIST_ARCHIVE_HEADER, configuration.getServerBaseURL());
-      }
-      // Set general information
-      email.setCharset("UTF-8");
-      String fromName = configuration.getFromName();
-      String from = StringUtils.isBlank(emailMessage.getFrom()) ? fromName : (emailMessage.getFrom() + " (" + fromName + ")");
-      email.setFrom(configuration.getFrom(), from);
-      email.addTo(emailMessage.getTo(), " ");
-      String subject = StringUtils.defaultIfBlank(StringUtils.trimToEmpty(configuration.getPrefix()) + " ", "")
-        + StringUtils.defaultString(emailMessage.getSubject(), SUBJECT_DEFAULT);
-      email.setSubject(subject);
-      email.setMsg(emailMessage.getMessage());
-      // Send
-      email.setHostName(configuration.getSmtpHost());
-      configureSecureConnection(email);
-      if (StringUtils.isNotBlank(configuration.getSmtpUsername()) || StringUtils.isNotBlank(configuration.getSmtpPassword())) {
-        email.setAuthentication(configuration.getSmtpUsername(), configuration.getSmtpPassword());
       }
-      email.setSocketConnectionTimeout(SOCKET_TIMEOUT);
-      email.setSocketTimeout(SOCKET_TIMEOUT);
-      email.send();
-
     } finally {
+      closeQuietly(transport);
       Thread.currentThread().setContextClassLoader(classloader);
     }
   }
 
+  private static Transport connect(SimpleEmail email) throws EmailException {
+    try {
+      Transport transport = email.getMailSession().getTransport();
+      transport.connect();
+      return transport;
+    } catch (MessagingException e) {
+      throw new EmailException("Unable to connect to SMTP server", e);
+    }
+  }
+
+  private static void reconnect(Transport transport) throws EmailException {
+    try {
+      transport.connect();
+    } catch (MessagingException e) {
+      throw new EmailException("Unable to connect to SMTP server", e);
+    }
+  }
+
+  private static void closeQuietly(@Nullable Transport transport) {
+    if (transport == null) {
+      return;
+    }
+    try {
+      transport.close();
+    } catch (MessagingException e) {
+      LOG.debug("Unable to close connection to SMTP server", e);
+    }
+  }
+
+  private SimpleEmail newEmail(EmailMessage emailMessage) throws EmailException {
+    String host = null;
+    try {
+      host = new URL(configuration.getServerBaseURL()).getHost();
+    } catch (MalformedURLException e) {
+      // ignore
+    }
+
+    SimpleEmail email = new SimpleEmail();
+    if (StringUtils.isNotBlank(host)) {
+      /*
+       * Set headers for proper threading: GMail will not group messages, even if they have same subject, but don't have "In-Reply-To" and
+       * "References" headers. TODO investigate threading in other clients like KMail, Thunderbird, Outlook
+       */
+      if (StringUtils.isNotEmpty(emailMessage.getMessageId())) {
+        String messageId = "<" + emailMessage.getMessageId() + "@" + host + ">";
+        email.addHeader(IN_REPLY_TO_HEADER, messageId);
+        email.addHeader(REFERENCES_HEADER, messageId);
+      }
+      // Set headers for proper filtering
+      email.addHeader(LIST_ID_HEADER, "SonarQube <sonar." + host + ">");
+      email.addHeader(LIST_ARCHIVE_HEADER, configuration.getServerBaseURL());
+    }
+    // Set general information
+    email.setCharset("UTF-8");
+    String fromName = configuration.getFromName();
+    String from = StringUtils.isBlank(emailMessage.getFrom()) ? fromName : (emailMessage.getFrom() + " (" + fromName + ")");
+    email.setFrom(configuration.getFrom(), from);
+    email.addTo(emailMessage.getTo(), " ");
+    String subject = StringUtils.defaultIfBlank(StringUtils.trimToEmpty(configuration.getPrefix()) + " ", "")
+      + StringUtils.defaultString(emailMessage.getSubject(), SUBJECT_DEFAULT);
+    email.setSubject(subject);
+    email.setMsg(emailMessage.getMessage());
+    // Send
+    email.setHostName(configuration.getSmtpHost());
+    configureSecureConnection(email);
+    if (StringUtils.isNotBlank(configuration.getSmtpUsername()) || StringUtils.isNotBlank(configuration.getSmtpPassword())) {
+      email.setAuthentication(configuration.getSmtpUsername(), configuration.getSmtpPassword());
+    }
+    email.setSocketConnectionTimeout(SOCKET_TIMEOUT);
+    email.setSocketTimeout(SOCKET_TIMEOUT);
+    return email;
+  }
+
   private void configureSecureConnection(SimpleEmail email) {
     if (StringUtils.equalsIgnoreCase(configuration.getSecureConnection(), "ssl")) {
       email.setSSLOnConnect(true);
@@ -51,6 +51,9 @@ public class WebSystemInfoModule {
       LoggingSection.class,
       PluginsSection.class,
       SettingsSection.class,
+      SettingsCacheSection.class,
+      WebhooksSection.class,
+      NotificationsSection.class,
       StandaloneSystemSection.class,
 
       OfficialDistribution.class,
@@ -73,6 +76,9 @@ public class WebSystemInfoModule {
       NodeSystemSection.class,
       PluginsSection.class,
       SettingsSection.class,
+      SettingsCacheSection.class,
+      WebhooksSection.class,
+      NotificationsSection.class,
 
       OfficialDistribution.class,
 
@@ -0,0 +1,59 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import org.sonar.api.SonarQubeSide;
+import org.sonar.api.SonarRuntime;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.server.ServerSide;
+import org.sonar.process.systeminfo.SystemInfoSection;
+import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
+import org.sonar.server.webhook.WebhookDispatcher;
+
+import static org.sonar.process.systeminfo.SystemInfoUtils.setAttribute;
+
+/**
+ * Webhook deliveries of the node
+ */
+@ComputeEngineSide
+@ServerSide
+public class WebhooksSection implements SystemInfoSection {
+  private final WebhookDispatcher dispatcher;
+  private final SonarRuntime runtime;
+
+  public WebhooksSection(WebhookDispatcher dispatcher, SonarRuntime runtime) {
+    this.dispatcher = dispatcher;
+    this.runtime = runtime;
+  }
+
+  @Override
+  public ProtobufSystemInfo.Section toProtobuf() {
+    ProtobufSystemInfo.Section.Builder protobuf = ProtobufSystemInfo.Section.newBuilder();
+    String side = runtime.getSonarQubeSide() == SonarQubeSide.COMPUTE_ENGINE ? "Compute Engine" : "Web";
+    protobuf.setName(side + " Webhooks");
+    setAttribute(protobuf, "Pending Deliveries", dispatcher.getPending());
+    setAttribute(protobuf, "Deliveries", dispatcher.getDeliveries());
+    setAttribute(protobuf, "Failed Deliveries", dispatcher.getFailures());
+    setAttribute(protobuf, "Retries", dispatcher.getRetries());
+    setAttribute(protobuf, "Average Delivery Time (ms)", dispatcher.getAverageLatencyMs());
+    setAttribute(protobuf, "Max Delivery Time (ms)", dispatcher.getMaxLatencyMs());
+    return protobuf.build();
+  }
+}
@@ -28,6 +28,7 @@ import org.sonar.server.platform.ServerImpl;
 import org.sonar.server.platform.StartupMetadataPersister;
 import org.sonar.server.platform.db.migration.NoopDatabaseMigrationImpl;
 import org.sonar.server.setting.DatabaseSettingLoader;
+import org.sonar.server.setting.GlobalSettingsCache;
 import org.sonar.server.setting.DatabaseSettingsEnabler;
 
 public class PlatformLevel3 extends PlatformLevel {
@@ -42,6 +43,7 @@ public class PlatformLevel3 extends PlatformLevel {
       NoopDatabaseMigrationImpl.class,
       ServerIdManager.class,
       ServerImpl.class,
+      GlobalSettingsCache.class,
       DatabaseSettingLoader.class,
       DatabaseSettingsEnabler.class,
       UriReader.class,
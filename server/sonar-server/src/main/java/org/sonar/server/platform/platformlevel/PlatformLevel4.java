@@ -31,6 +31,8 @@ import org.sonar.api.rules.XMLRuleParser;
 import org.sonar.api.server.rule.RulesDefinitionXmlLoader;
 import org.sonar.ce.CeModule;
 import org.sonar.ce.notification.ReportAnalysisFailureNotificationModule;
+import org.sonar.ce.queue.ClusterCeTaskSubmitNotifier;
+import org.sonar.ce.queue.StandaloneCeTaskSubmitNotifier;
 import org.sonar.ce.settings.ProjectConfigurationFactory;
 import org.sonar.core.component.DefaultResourceTypes;
 import org.sonar.core.timemachine.Periods;
@@ -185,6 +187,7 @@ import org.sonar.server.rule.ws.RuleQueryFactory;
 import org.sonar.server.rule.ws.RuleWsSupport;
 import org.sonar.server.rule.ws.RulesWs;
 import org.sonar.server.rule.ws.TagsAction;
+import org.sonar.server.setting.ClusterSettingsCacheInvalidator;
 import org.sonar.server.setting.ws.SettingsWsModule;
 import org.sonar.server.source.HtmlSourceDecorator;
 import org.sonar.server.source.SourceService;
@@ -209,10 +212,12 @@ import org.sonar.server.ui.PageDecorations;
 import org.sonar.server.ui.PageRepository;
 import org.sonar.server.ui.ws.NavigationWsModule;
 import org.sonar.server.updatecenter.UpdateCenterModule;
+import org.sonar.server.user.ClusterUserSessionCacheInvalidator;
 import org.sonar.server.user.DefaultUserFinder;
 import org.sonar.server.user.DeprecatedUserFinder;
 import org.sonar.server.user.NewUserNotifier;
 import org.sonar.server.user.SecurityRealmFactory;
+import org.sonar.server.user.UserSessionCache;
 import org.sonar.server.user.UserSessionFactoryImpl;
 import org.sonar.server.user.UserUpdater;
 import org.sonar.server.user.index.UserIndex;
@@ -254,9 +259,13 @@ public class PlatformLevel4 extends PlatformLevel {
 
     addIfCluster(
       NodeHealthModule.class,
-      ChangeLogLevelClusterService.class);
+      ChangeLogLevelClusterService.class,
+      ClusterCeTaskSubmitNotifier.class,
+      ClusterSettingsCacheInvalidator.class,
+      ClusterUserSessionCacheInvalidator.class);
     addIfStandalone(
-      ChangeLogLevelStandaloneService.class);
+      ChangeLogLevelStandaloneService.class,
+      StandaloneCeTaskSubmitNotifier.class);
 
     add(
       ClusterVerification.class,
@@ -370,6 +379,7 @@ public class PlatformLevel4 extends PlatformLevel {
 
       // users
       UserSessionFactoryImpl.class,
+      UserSessionCache.class,
       SecurityRealmFactory.class,
       DeprecatedUserFinder.class,
       NewUserNotifier.class,
@@ -27,6 +27,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.user.UserDto;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.user.UserSession;
+import org.sonar.server.user.UserSessionCache;
 
 import static java.lang.String.format;
 import static org.sonar.server.ws.WsUtils.checkRequest;
@@ -36,10 +37,12 @@ public class UnsetRootAction implements RootsWsAction {
 
   private final UserSession userSession;
   private final DbClient dbClient;
+  private final UserSessionCache userSessionCache;
 
-  public UnsetRootAction(UserSession userSession, DbClient dbClient) {
+  public UnsetRootAction(UserSession userSession, DbClient dbClient, UserSessionCache userSessionCache) {
     this.userSession = userSession;
     this.dbClient = dbClient;
+    this.userSessionCache = userSessionCache;
   }
 
   @Override
@@ -73,6 +76,7 @@ public class UnsetRootAction implements RootsWsAction {
       if (userDto.isRoot()) {
         dbClient.userDao().setRoot(dbSession, login, false);
         dbSession.commit();
+        userSessionCache.invalidate(login);
       }
     }
     response.noContent();
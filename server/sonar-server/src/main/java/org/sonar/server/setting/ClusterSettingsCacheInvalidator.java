@@ -0,0 +1,90 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.setting;
+
+import com.hazelcast.core.ITopic;
+import javax.annotation.CheckForNull;
+import org.sonar.api.Startable;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.DbClient;
+import org.sonar.db.property.PropertiesWriteListener;
+import org.sonar.process.cluster.hz.HazelcastMember;
+
+import static org.sonar.process.cluster.hz.HazelcastObjects.SETTINGS_CHANGED;
+
+/**
+ * Propagates the invalidation of {@link GlobalSettingsCache} to the other Web Servers and Compute Engines of
+ * the cluster, by publishing a message on a Hazelcast topic when properties are written by this process.
+ */
+@ComputeEngineSide
+@ServerSide
+public class ClusterSettingsCacheInvalidator implements Startable {
+  private static final Logger LOGGER = Loggers.get(ClusterSettingsCacheInvalidator.class);
+
+  private final HazelcastMember hazelcastMember;
+  private final DbClient dbClient;
+  private final GlobalSettingsCache cache;
+  private final PropertiesWriteListener writeListener = this::publish;
+  @CheckForNull
+  private String registrationId;
+
+  public ClusterSettingsCacheInvalidator(HazelcastMember hazelcastMember, DbClient dbClient, GlobalSettingsCache cache) {
+    this.hazelcastMember = hazelcastMember;
+    this.dbClient = dbClient;
+    this.cache = cache;
+  }
+
+  @Override
+  public void start() {
+    String localUuid = hazelcastMember.getUuid();
+    registrationId = getTopic().addMessageListener(message -> {
+      // the local cache is already invalidated by the write
+      if (!localUuid.equals(message.getMessageObject())) {
+        cache.invalidate();
+      }
+    });
+    dbClient.propertiesDao().addWriteListener(writeListener);
+  }
+
+  @Override
+  public void stop() {
+    dbClient.propertiesDao().removeWriteListener(writeListener);
+    if (registrationId != null) {
+      getTopic().removeMessageListener(registrationId);
+      registrationId = null;
+    }
+  }
+
+  private void publish() {
+    try {
+      getTopic().publish(hazelcastMember.getUuid());
+    } catch (Exception e) {
+      // caches of other nodes expire anyway
+      LOGGER.debug("Fail to notify nodes of the cluster of changed settings", e);
+    }
+  }
+
+  private ITopic<String> getTopic() {
+    return hazelcastMember.getTopic(SETTINGS_CHANGED);
+  }
+}
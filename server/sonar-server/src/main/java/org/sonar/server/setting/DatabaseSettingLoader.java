@@ -20,35 +20,26 @@
 package org.sonar.server.setting;
 
 import com.google.common.collect.ImmutableMap;
-import org.sonar.db.DbClient;
-import org.sonar.db.DbSession;
-import org.sonar.db.property.PropertyDto;
-
-import static org.apache.commons.lang.StringUtils.defaultString;
 
+/**
+ * Loads the global properties from {@link GlobalSettingsCache}, which is shared by all the threads of the process.
+ */
 public class DatabaseSettingLoader implements SettingLoader {
 
-  private final DbClient dbClient;
+  private final GlobalSettingsCache cache;
 
-  public DatabaseSettingLoader(DbClient dbClient) {
-    this.dbClient = dbClient;
+  public DatabaseSettingLoader(GlobalSettingsCache cache) {
+    this.cache = cache;
   }
 
   @Override
   public String load(String key) {
-    PropertyDto dto = dbClient.propertiesDao().selectGlobalProperty(key);
-    if (dto != null) {
-      return defaultString(dto.getValue());
-    }
-    return null;
+    return cache.get(key);
   }
 
   @Override
   public void loadAll(ImmutableMap.Builder<String, String> appendTo) {
-    try (DbSession dbSession = dbClient.openSession(false)) {
-      dbClient.propertiesDao().selectGlobalProperties(dbSession)
-        .forEach(p -> appendTo.put(p.getKey(), defaultString(p.getValue())));
-    }
+    appendTo.putAll(cache.getAll());
   }
 
 }
@@ -0,0 +1,163 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.setting;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.Startable;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.property.PropertiesWriteListener;
+
+import static java.util.Collections.unmodifiableMap;
+import static org.apache.commons.lang.StringUtils.defaultString;
+
+/**
+ * Process-wide cache of the global properties stored in the db table "properties". All the properties
+ * are loaded at once, then shared by all the threads until a property is written through
+ * {@link org.sonar.db.property.PropertiesDao} by the same process (see {@link #invalidate()}) or until
+ * the cache expires.
+ * <p>
+ * The cache is versioned: a snapshot loaded concurrently to an invalidation is never used.
+ * </p>
+ * <p>
+ * Writes done by other processes are notified only in cluster mode. On a standalone instance the web server
+ * and the Compute Engine share nothing but the db, so a write done by one of them is visible to the other
+ * at most {@link #TTL_MS} milliseconds after its commit. Expiration gives the same bound in cluster mode
+ * when a notification is lost.
+ * </p>
+ */
+@ComputeEngineSide
+@ServerSide
+public class GlobalSettingsCache implements Startable {
+
+  @VisibleForTesting
+  static final long TTL_MS = 10_000L;
+
+  private final DbClient dbClient;
+  private final System2 system2;
+  private final PropertiesWriteListener writeListener = this::invalidate;
+  private final AtomicLong version = new AtomicLong();
+  private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder invalidations = new LongAdder();
+
+  public GlobalSettingsCache(DbClient dbClient, System2 system2) {
+    this.dbClient = dbClient;
+    this.system2 = system2;
+  }
+
+  @Override
+  public void start() {
+    dbClient.propertiesDao().addWriteListener(writeListener);
+  }
+
+  @Override
+  public void stop() {
+    dbClient.propertiesDao().removeWriteListener(writeListener);
+  }
+
+  /**
+   * @return the value of the global property, {@code null} if it does not exist. A property with a {@code null}
+   * value in db is considered as an empty string.
+   */
+  @CheckForNull
+  public String get(String key) {
+    return getAll().get(key);
+  }
+
+  public Map<String, String> getAll() {
+    Snapshot current = snapshot.get();
+    if (isValid(current)) {
+      hits.increment();
+      return current.properties;
+    }
+    // a single thread loads from db, the others use its snapshot
+    synchronized (this) {
+      current = snapshot.get();
+      if (isValid(current)) {
+        hits.increment();
+        return current.properties;
+      }
+      misses.increment();
+      // version is read before loading, so that a snapshot loaded concurrently to an invalidation is not used afterwards
+      long loadedVersion = version.get();
+      Snapshot loaded = new Snapshot(loadedVersion, load(), system2.now() + TTL_MS);
+      snapshot.set(loaded);
+      return loaded.properties;
+    }
+  }
+
+  private boolean isValid(@Nullable Snapshot s) {
+    return s != null && s.version == version.get() && system2.now() < s.expiresAt;
+  }
+
+  /**
+   * Forces the next access to reload properties from db
+   */
+  public void invalidate() {
+    version.incrementAndGet();
+    snapshot.set(null);
+    invalidations.increment();
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public long getInvalidations() {
+    return invalidations.sum();
+  }
+
+  private Map<String, String> load() {
+    Map<String, String> properties = new HashMap<>();
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      dbClient.propertiesDao().selectGlobalProperties(dbSession)
+        .forEach(p -> properties.put(p.getKey(), defaultString(p.getValue())));
+    }
+    return unmodifiableMap(properties);
+  }
+
+  private static class Snapshot {
+    private final long version;
+    private final Map<String, String> properties;
+    private final long expiresAt;
+
+    private Snapshot(long version, Map<String, String> properties, long expiresAt) {
+      this.version = version;
+      this.properties = properties;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
@@ -67,9 +67,7 @@ public class SourceService {
     if (dto == null) {
       return Optional.empty();
     }
-    return Optional.of(dto.getSourceData().getLinesList().stream()
-      .filter(line -> line.hasLine() && line.getLine() >= from)
-      .limit((toInclusive - from) + 1L)
+    return Optional.of(dto.getSourceLines(from, toInclusive).stream()
       .map(function)
       .collect(MoreCollectors.toList()));
   }
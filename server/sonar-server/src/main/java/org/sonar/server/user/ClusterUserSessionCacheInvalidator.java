@@ -0,0 +1,95 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import com.hazelcast.core.ITopic;
+import com.hazelcast.core.Message;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.Startable;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.process.cluster.hz.HazelcastMember;
+
+import static org.sonar.process.cluster.hz.HazelcastObjects.USER_SESSIONS_CHANGED;
+
+/**
+ * Propagates the invalidations of {@link UserSessionCache} to the other Web Servers of the cluster. The message
+ * is the login of the invalidated user, or an empty string when all the users are invalidated.
+ */
+@ServerSide
+public class ClusterUserSessionCacheInvalidator implements Startable {
+  private static final Logger LOGGER = Loggers.get(ClusterUserSessionCacheInvalidator.class);
+  private static final String ALL_USERS = "";
+
+  private final HazelcastMember hazelcastMember;
+  private final UserSessionCache cache;
+  private final UserSessionCache.InvalidationListener invalidationListener = this::publish;
+  @CheckForNull
+  private String registrationId;
+
+  public ClusterUserSessionCacheInvalidator(HazelcastMember hazelcastMember, UserSessionCache cache) {
+    this.hazelcastMember = hazelcastMember;
+    this.cache = cache;
+  }
+
+  @Override
+  public void start() {
+    if (!cache.isEnabled()) {
+      return;
+    }
+    String localUuid = hazelcastMember.getUuid();
+    registrationId = getTopic().addMessageListener(message -> {
+      // the local cache is already invalidated
+      if (!localUuid.equals(message.getPublishingMember().getUuid())) {
+        onMessage(message);
+      }
+    });
+    cache.addInvalidationListener(invalidationListener);
+  }
+
+  private void onMessage(Message<String> message) {
+    String login = message.getMessageObject();
+    cache.invalidateLocally(ALL_USERS.equals(login) ? null : login);
+  }
+
+  @Override
+  public void stop() {
+    cache.removeInvalidationListener(invalidationListener);
+    if (registrationId != null) {
+      getTopic().removeMessageListener(registrationId);
+      registrationId = null;
+    }
+  }
+
+  private void publish(@Nullable String login) {
+    try {
+      getTopic().publish(login == null ? ALL_USERS : login);
+    } catch (Exception e) {
+      // caches of other nodes expire anyway
+      LOGGER.debug("Fail to notify nodes of the cluster of changed users or permissions", e);
+    }
+  }
+
+  private ITopic<String> getTopic() {
+    return hazelcastMember.getTopic(USER_SESSIONS_CHANGED);
+  }
+}
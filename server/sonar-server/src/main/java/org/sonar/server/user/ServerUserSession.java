@@ -24,7 +24,6 @@ import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableSet;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -54,18 +53,25 @@ public class ServerUserSession extends AbstractUserSession {
   private final DbClient dbClient;
   private final OrganizationFlags organizationFlags;
   private final DefaultOrganizationProvider defaultOrganizationProvider;
-  private final Supplier<Collection<GroupDto>> groups = Suppliers.memoize(this::loadGroups);
+  private final SessionPermissions permissions;
   private final Supplier<Boolean> isSystemAdministratorSupplier = Suppliers.memoize(this::loadIsSystemAdministrator);
   private final Map<String, String> projectUuidByComponentUuid = newHashMap();
-  private Map<String, Set<OrganizationPermission>> permissionsByOrganizationUuid;
-  private Map<String, Set<String>> permissionsByProjectUuid;
 
   ServerUserSession(DbClient dbClient, OrganizationFlags organizationFlags,
     DefaultOrganizationProvider defaultOrganizationProvider, @Nullable UserDto userDto) {
+    this(dbClient, organizationFlags, defaultOrganizationProvider, userDto, new SessionPermissions());
+  }
+
+  /**
+   * @param permissions groups and permissions of the user, possibly shared with its other sessions
+   */
+  ServerUserSession(DbClient dbClient, OrganizationFlags organizationFlags,
+    DefaultOrganizationProvider defaultOrganizationProvider, @Nullable UserDto userDto, SessionPermissions permissions) {
     this.dbClient = dbClient;
     this.organizationFlags = organizationFlags;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
     this.userDto = userDto;
+    this.permissions = permissions;
   }
 
   private Collection<GroupDto> loadGroups() {
@@ -97,7 +103,7 @@ public class ServerUserSession extends AbstractUserSession {
 
   @Override
   public Collection<GroupDto> getGroups() {
-    return groups.get();
+    return permissions.groups(this::loadGroups);
   }
 
   @Override
@@ -112,11 +118,7 @@ public class ServerUserSession extends AbstractUserSession {
 
   @Override
   protected boolean hasPermissionImpl(OrganizationPermission permission, String organizationUuid) {
-    if (permissionsByOrganizationUuid == null) {
-      permissionsByOrganizationUuid = new HashMap<>();
-    }
-    Set<OrganizationPermission> permissions = permissionsByOrganizationUuid.computeIfAbsent(organizationUuid, this::loadOrganizationPermissions);
-    return permissions.contains(permission);
+    return permissions.organizationPermissions(organizationUuid, this::loadOrganizationPermissions).contains(permission);
   }
 
   private Set<OrganizationPermission> loadOrganizationPermissions(String organizationUuid) {
@@ -154,11 +156,7 @@ public class ServerUserSession extends AbstractUserSession {
 
   @Override
   protected boolean hasProjectUuidPermission(String permission, String projectUuid) {
-    if (permissionsByProjectUuid == null) {
-      permissionsByProjectUuid = new HashMap<>();
-    }
-    Set<String> permissions = permissionsByProjectUuid.computeIfAbsent(projectUuid, this::loadProjectPermissions);
-    return permissions.contains(permission);
+    return permissions.projectPermissions(projectUuid, this::loadProjectPermissions).contains(permission);
   }
 
   private Set<String> loadProjectPermissions(String projectUuid) {
@@ -0,0 +1,69 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.sonar.db.permission.OrganizationPermission;
+import org.sonar.db.user.GroupDto;
+
+/**
+ * Groups and permissions of a user (or of anonymous), loaded lazily by {@link ServerUserSession}. They are
+ * specific to a session, or shared by the sessions of the user when {@link UserSessionCache} is enabled.
+ */
+class SessionPermissions {
+
+  private volatile Collection<GroupDto> groups;
+  private final Map<String, Set<OrganizationPermission>> permissionsByOrganizationUuid = new ConcurrentHashMap<>();
+  private final Map<String, Set<String>> permissionsByProjectUuid = new ConcurrentHashMap<>();
+
+  Collection<GroupDto> groups(Supplier<Collection<GroupDto>> loader) {
+    Collection<GroupDto> result = groups;
+    if (result == null) {
+      result = loader.get();
+      groups = result;
+    }
+    return result;
+  }
+
+  Set<OrganizationPermission> organizationPermissions(String organizationUuid, Function<String, Set<OrganizationPermission>> loader) {
+    return get(permissionsByOrganizationUuid, organizationUuid, loader);
+  }
+
+  Set<String> projectPermissions(String projectUuid, Function<String, Set<String>> loader) {
+    return get(permissionsByProjectUuid, projectUuid, loader);
+  }
+
+  /**
+   * Unlike {@link ConcurrentHashMap#computeIfAbsent(Object, Function)}, db is not requested while holding a lock
+   */
+  private static <T> T get(Map<String, T> map, String key, Function<String, T> loader) {
+    T result = map.get(key);
+    if (result == null) {
+      result = loader.apply(key);
+      map.put(key, result);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.server.ServerSide;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.user.UserDto;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Cache of the active users, of the logins of tokens and of the groups and permissions of users, which are loaded
+ * to authenticate and authorize each request. It is shared by all the requests of the Web Server.
+ * <p>
+ * The cache is disabled by default, see {@link #TTL_IN_SECONDS_PROPERTY}. When enabled, the data of a user
+ * is invalidated by the changes of the user, of its groups, of permissions and of the visibility of projects
+ * (see {@link #invalidate(String)} and {@link #invalidateAll()}), on all the nodes of the cluster. Other changes,
+ * for example the deletion of an organization, are taken into account when the data expires.
+ * </p>
+ */
+@ComputeEngineSide
+@ServerSide
+public class UserSessionCache {
+
+  public static final String TTL_IN_SECONDS_PROPERTY = "sonar.web.userSessionCache.ttlInSeconds";
+  @VisibleForTesting
+  static final int MAX_USERS = 10_000;
+  private static final String ANONYMOUS = "";
+
+  private final DbClient dbClient;
+  private final boolean enabled;
+  private final AtomicLong generation = new AtomicLong();
+  private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+  private final Cache<String, UserDto> activeUsersByLogin;
+  private final Cache<String, String> loginsByTokenHash;
+  private final Cache<String, SessionPermissions> permissionsByLogin;
+
+  public UserSessionCache(DbClient dbClient, Configuration config) {
+    this(dbClient, config, Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  UserSessionCache(DbClient dbClient, Configuration config, Ticker ticker) {
+    this.dbClient = dbClient;
+    int ttl = config.getInt(TTL_IN_SECONDS_PROPERTY).orElse(0);
+    checkArgument(ttl >= 0, "Property %s must be positive. Got %s", TTL_IN_SECONDS_PROPERTY, ttl);
+    this.enabled = ttl > 0;
+    this.activeUsersByLogin = newCache(ttl, ticker);
+    this.loginsByTokenHash = newCache(ttl, ticker);
+    this.permissionsByLogin = newCache(ttl, ticker);
+  }
+
+  private static <V> Cache<String, V> newCache(int ttlInSeconds, Ticker ticker) {
+    return CacheBuilder.newBuilder()
+      .maximumSize(MAX_USERS)
+      .expireAfterWrite(ttlInSeconds, TimeUnit.SECONDS)
+      .ticker(ticker)
+      .build();
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  @CheckForNull
+  public UserDto getActiveUser(String login) {
+    if (!enabled) {
+      return selectActiveUser(login);
+    }
+    UserDto user = activeUsersByLogin.getIfPresent(login);
+    if (user == null) {
+      long loadedGeneration = generation.get();
+      user = selectActiveUser(login);
+      // users loaded concurrently to an invalidation may be stale
+      if (user != null && loadedGeneration == generation.get()) {
+        activeUsersByLogin.put(login, user);
+      }
+    }
+    return user;
+  }
+
+  /**
+   * Only the tokens which exist are cached
+   */
+  public Optional<String> getLoginOfToken(String tokenHash, Supplier<Optional<String>> loader) {
+    if (!enabled) {
+      return loader.get();
+    }
+    String login = loginsByTokenHash.getIfPresent(tokenHash);
+    if (login == null) {
+      long loadedGeneration = generation.get();
+      Optional<String> loaded = loader.get();
+      if (loaded.isPresent() && loadedGeneration == generation.get()) {
+        loginsByTokenHash.put(tokenHash, loaded.get());
+      }
+      return loaded;
+    }
+    return Optional.of(login);
+  }
+
+  /**
+   * @param login login of the user, {@code null} for anonymous
+   */
+  SessionPermissions getPermissions(@Nullable String login) {
+    if (!enabled) {
+      return new SessionPermissions();
+    }
+    try {
+      return permissionsByLogin.get(login == null ? ANONYMOUS : login, SessionPermissions::new);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Invalidates the user, its tokens, groups and permissions on all the nodes. Must be called
+   * once the changes are committed.
+   */
+  public void invalidate(String login) {
+    invalidateLocally(login);
+    listeners.forEach(l -> l.onInvalidate(login));
+  }
+
+  /**
+   * Invalidates all the users on all the nodes. Must be called once the changes are committed.
+   */
+  public void invalidateAll() {
+    invalidateLocally(null);
+    listeners.forEach(l -> l.onInvalidate(null));
+  }
+
+  /**
+   * @param login the user to invalidate, {@code null} for all the users
+   */
+  void invalidateLocally(@Nullable String login) {
+    generation.incrementAndGet();
+    if (login == null) {
+      activeUsersByLogin.invalidateAll();
+      loginsByTokenHash.invalidateAll();
+      permissionsByLogin.invalidateAll();
+    } else {
+      activeUsersByLogin.invalidate(login);
+      loginsByTokenHash.asMap().values().removeIf(login::equals);
+      permissionsByLogin.invalidate(login);
+    }
+  }
+
+  void addInvalidationListener(InvalidationListener listener) {
+    listeners.add(listener);
+  }
+
+  void removeInvalidationListener(InvalidationListener listener) {
+    listeners.remove(listener);
+  }
+
+  private UserDto selectActiveUser(String login) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      return dbClient.userDao().selectActiveUserByLogin(dbSession, login);
+    }
+  }
+
+  @FunctionalInterface
+  interface InvalidationListener {
+    /**
+     * @param login the invalidated user, {@code null} if all the users are invalidated
+     */
+    void onInvalidate(@Nullable String login);
+  }
+}
@@ -80,9 +80,11 @@ public class UserUpdater {
   private final OrganizationCreation organizationCreation;
   private final DefaultGroupFinder defaultGroupFinder;
   private final Configuration config;
+  private final UserSessionCache userSessionCache;
 
   public UserUpdater(NewUserNotifier newUserNotifier, DbClient dbClient, UserIndexer userIndexer, OrganizationFlags organizationFlags,
-    DefaultOrganizationProvider defaultOrganizationProvider, OrganizationCreation organizationCreation, DefaultGroupFinder defaultGroupFinder, Configuration config) {
+    DefaultOrganizationProvider defaultOrganizationProvider, OrganizationCreation organizationCreation, DefaultGroupFinder defaultGroupFinder, Configuration config,
+    UserSessionCache userSessionCache) {
     this.newUserNotifier = newUserNotifier;
     this.dbClient = dbClient;
     this.userIndexer = userIndexer;
@@ -91,6 +93,7 @@ public class UserUpdater {
     this.organizationCreation = organizationCreation;
     this.defaultGroupFinder = defaultGroupFinder;
     this.config = config;
+    this.userSessionCache = userSessionCache;
   }
 
   public UserDto createAndCommit(DbSession dbSession, NewUser newUser, Consumer<UserDto> beforeCommit) {
@@ -103,6 +106,7 @@ public class UserUpdater {
     }
     beforeCommit.accept(userDto);
     userIndexer.commitAndIndex(dbSession, userDto);
+    userSessionCache.invalidate(userDto.getLogin());
 
     notifyNewUser(userDto.getLogin(), userDto.getName(), newUser.email());
     return userDto;
@@ -139,6 +143,7 @@ public class UserUpdater {
       beforeCommit.accept(dto);
       dbSession.commit();
     }
+    userSessionCache.invalidate(dto.getLogin());
   }
 
   private UserDto createDto(DbSession dbSession, NewUser newUser) {
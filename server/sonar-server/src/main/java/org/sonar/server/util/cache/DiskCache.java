@@ -19,35 +19,50 @@
  */
 package org.sonar.server.util.cache;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.sonar.api.utils.System2;
 import org.sonar.core.util.CloseableIterator;
-import org.sonar.server.util.ObjectInputStreamIterator;
 
 /**
  * Serialize and deserialize objects on disk. No search capabilities, only traversal (full scan).
+ * <p>
+ * Objects are stored as length-prefixed records encoded by a {@link RecordCodec}. Default codec
+ * relies on Java serialization, but callers storing a lot of objects should provide a dedicated
+ * binary codec. Records are read back through a memory-mapped view of the file.
  */
 public class DiskCache<O extends Serializable> {
 
+  private static final int BUFFER_SIZE = 64 * 1024;
+
   private final File file;
   private final System2 system2;
+  private final RecordCodec<O> codec;
 
   public DiskCache(File file, System2 system2) {
+    this(file, system2, new JavaSerializationCodec<>());
+  }
+
+  public DiskCache(File file, System2 system2, RecordCodec<O> codec) {
     this.system2 = system2;
     this.file = file;
+    this.codec = codec;
     OutputStream output = null;
     boolean threw = true;
     try {
-      // writes the serialization stream header required when calling "traverse()"
-      // on empty stream. Moreover it allows to call multiple times "newAppender()"
-      output = new ObjectOutputStream(new FileOutputStream(file));
+      // creates or truncates the file, so that "traverse()" can be called on empty cache
+      // and "newAppender()" can be called multiple times
+      output = new FileOutputStream(file);
       output.flush();
       threw = false;
     } catch (IOException e) {
@@ -69,23 +84,20 @@ public class DiskCache<O extends Serializable> {
 
   public CloseableIterator<O> traverse() {
     try {
-      return new ObjectInputStreamIterator<>(FileUtils.openInputStream(file));
+      return new MappedRecordIterator<>(file, codec);
     } catch (IOException e) {
       throw new IllegalStateException("Fail to traverse file: " + file, e);
     }
   }
 
   public class DiskAppender implements AutoCloseable {
-    private final ObjectOutputStream output;
+    private final DataOutputStream output;
+    private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream();
+    private final DataOutputStream recordOutput = new DataOutputStream(recordBuffer);
 
     private DiskAppender() {
       try {
-        this.output = new ObjectOutputStream(new FileOutputStream(file, true)) {
-          @Override
-          protected void writeStreamHeader() throws IOException {
-            // do not write stream headers as it's already done in constructor of DiskCache
-          }
-        };
+        this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true), BUFFER_SIZE));
       } catch (IOException e) {
         throw new IllegalStateException("Fail to open file " + file, e);
       }
@@ -93,8 +105,11 @@ public class DiskCache<O extends Serializable> {
 
     public DiskAppender append(O object) {
       try {
-        output.writeObject(object);
-        output.reset();
+        recordBuffer.reset();
+        codec.write(object, recordOutput);
+        recordOutput.flush();
+        output.writeInt(recordBuffer.size());
+        recordBuffer.writeTo(output);
         return this;
       } catch (IOException e) {
         throw new IllegalStateException("Fail to write into file " + file, e);
@@ -106,4 +121,23 @@ public class DiskCache<O extends Serializable> {
       system2.close(output);
     }
   }
+
+  private static class JavaSerializationCodec<O extends Serializable> implements RecordCodec<O> {
+    @Override
+    public void write(O object, DataOutputStream output) throws IOException {
+      ObjectOutputStream objectOutput = new ObjectOutputStream(output);
+      objectOutput.writeObject(object);
+      objectOutput.flush();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public O read(DataInputStream input) throws IOException {
+      try {
+        return (O) new ObjectInputStream(input).readObject();
+      } catch (ClassNotFoundException e) {
+        throw new IOException("Fail to deserialize object", e);
+      }
+    }
+  }
 }
@@ -0,0 +1,137 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.util.cache;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import javax.annotation.CheckForNull;
+import org.sonar.core.util.CloseableIterator;
+
+/**
+ * Reads the length-prefixed records written by {@link DiskCache.DiskAppender}. The file is
+ * mapped in memory by windows, so that files larger than 2Gb are supported.
+ */
+class MappedRecordIterator<O> extends CloseableIterator<O> {
+
+  static final long DEFAULT_WINDOW_SIZE = 64L * 1024 * 1024;
+  private static final int LENGTH_PREFIX_SIZE = 4;
+
+  private final File file;
+  private final RecordCodec<O> codec;
+  private final long windowSize;
+  private final RandomAccessFile randomAccessFile;
+  private final FileChannel channel;
+  private final long fileSize;
+  private MappedByteBuffer window;
+  private long windowStart;
+  private long position = 0L;
+
+  MappedRecordIterator(File file, RecordCodec<O> codec) throws IOException {
+    this(file, codec, DEFAULT_WINDOW_SIZE);
+  }
+
+  MappedRecordIterator(File file, RecordCodec<O> codec, long windowSize) throws IOException {
+    this.file = file;
+    this.codec = codec;
+    this.windowSize = windowSize;
+    this.randomAccessFile = new RandomAccessFile(file, "r");
+    this.channel = randomAccessFile.getChannel();
+    this.fileSize = channel.size();
+  }
+
+  @Override
+  @CheckForNull
+  protected O doNext() {
+    if (position >= fileSize) {
+      return null;
+    }
+    try {
+      int length = mapRegion(position, LENGTH_PREFIX_SIZE).getInt();
+      if (length < 0 || position + LENGTH_PREFIX_SIZE + length > fileSize) {
+        throw new IllegalStateException("Corrupted record at offset " + position + " of file " + file);
+      }
+      ByteBuffer record = mapRegion(position + LENGTH_PREFIX_SIZE, length);
+      position += LENGTH_PREFIX_SIZE + length;
+      return codec.read(new DataInputStream(new ByteBufferInputStream(record)));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read file " + file, e);
+    }
+  }
+
+  /**
+   * Returns a view of {@code length} bytes starting at absolute offset {@code start}, remapping
+   * the current window if needed.
+   */
+  private ByteBuffer mapRegion(long start, int length) throws IOException {
+    if (window == null || start < windowStart || start + length > windowStart + window.capacity()) {
+      long size = Math.min(Math.max(windowSize, length), fileSize - start);
+      window = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+      windowStart = start;
+    }
+    ByteBuffer region = window.duplicate();
+    int offset = (int) (start - windowStart);
+    region.position(offset);
+    region.limit(offset + length);
+    return region.slice();
+  }
+
+  @Override
+  protected void doClose() throws Exception {
+    window = null;
+    randomAccessFile.close();
+  }
+
+  private static class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    private ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(len, buffer.remaining());
+      buffer.get(bytes, off, count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
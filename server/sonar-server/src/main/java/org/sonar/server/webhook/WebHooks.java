@@ -39,7 +39,8 @@ public interface WebHooks {
 
   /**
    * Calls all WebHooks configured in the specified {@link Configuration} for the specified analysis with the
-   * {@link WebhookPayload} provided by the specified Supplier.
+   * {@link WebhookPayload} provided by the specified Supplier. Calls may be executed asynchronously,
+   * see {@link WebhookDispatcher}.
    */
   void sendProjectAnalysisUpdate(Configuration configuration, Analysis analysis, Supplier<WebhookPayload> payloadSupplier);
 
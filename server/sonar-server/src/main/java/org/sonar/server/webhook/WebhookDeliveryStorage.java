@@ -20,14 +20,23 @@
 package org.sonar.server.webhook;
 
 import com.google.common.base.Throwables;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
 import org.sonar.api.ce.ComputeEngineSide;
 import org.sonar.api.utils.System2;
 import org.sonar.core.util.UuidFactory;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.component.ComponentDto;
 import org.sonar.db.webhook.WebhookDeliveryDao;
 import org.sonar.db.webhook.WebhookDeliveryDto;
 
+import static org.sonar.core.util.stream.MoreCollectors.toSet;
+import static org.sonar.core.util.stream.MoreCollectors.uniqueIndex;
+
 /**
  * Persist and purge {@link WebhookDelivery} into database
  */
@@ -47,10 +56,64 @@ public class WebhookDeliveryStorage {
   }
 
   public void persist(WebhookDelivery delivery) {
+    insert(delivery, null);
+  }
+
+  /**
+   * Persists a failed delivery which is sent again at {@code nextAttemptAt}. If the process stops before,
+   * the delivery is sent again by the next process which loads it with {@link #loadRetries()}.
+   *
+   * @return the uuid of the delivery, to be claimed with {@link #claimRetry(String)} before sending it again
+   */
+  public String persistWithRetry(WebhookDelivery delivery, long nextAttemptAt) {
+    return insert(delivery, nextAttemptAt);
+  }
+
+  private String insert(WebhookDelivery delivery, @Nullable Long nextAttemptAt) {
     WebhookDeliveryDao dao = dbClient.webhookDeliveryDao();
     try (DbSession dbSession = dbClient.openSession(false)) {
-      dao.insert(dbSession, toDto(delivery));
+      WebhookDeliveryDto dto = toDto(delivery).setNextAttemptAt(nextAttemptAt);
+      dao.insert(dbSession, dto);
+      dbSession.commit();
+      return dto.getUuid();
+    }
+  }
+
+  /**
+   * @return false if the retry of the delivery has already been claimed, for example by another process
+   */
+  public boolean claimRetry(String deliveryUuid) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      boolean claimed = dbClient.webhookDeliveryDao().clearNextAttempt(dbSession, deliveryUuid);
+      dbSession.commit();
+      return claimed;
+    }
+  }
+
+  /**
+   * The retries persisted by {@link #persistWithRetry(WebhookDelivery, long)} and not claimed yet. Retries
+   * of the components which do not exist anymore are dropped.
+   */
+  public List<Retry> loadRetries() {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      List<WebhookDeliveryDto> dtos = dbClient.webhookDeliveryDao().selectWithNextAttempt(dbSession);
+      Set<String> componentUuids = dtos.stream().map(WebhookDeliveryDto::getComponentUuid).collect(toSet());
+      Map<String, ComponentDto> componentsByUuid = dbClient.componentDao().selectByUuids(dbSession, componentUuids)
+        .stream()
+        .collect(uniqueIndex(ComponentDto::uuid));
+
+      List<Retry> retries = new ArrayList<>();
+      for (WebhookDeliveryDto dto : dtos) {
+        ComponentDto component = componentsByUuid.get(dto.getComponentUuid());
+        if (component == null) {
+          dbClient.webhookDeliveryDao().clearNextAttempt(dbSession, dto.getUuid());
+        } else {
+          Webhook webhook = new Webhook(dto.getComponentUuid(), dto.getCeTaskUuid(), dto.getAnalysisUuid(), dto.getName(), dto.getUrl());
+          retries.add(new Retry(dto.getUuid(), webhook, new WebhookPayload(component.getKey(), dto.getPayload()), dto.getNextAttemptAt()));
+        }
+      }
       dbSession.commit();
+      return retries;
     }
   }
 
@@ -78,4 +141,34 @@ public class WebhookDeliveryStorage {
     dto.setCreatedAt(delivery.getAt());
     return dto;
   }
+
+  public static final class Retry {
+    private final String deliveryUuid;
+    private final Webhook webhook;
+    private final WebhookPayload payload;
+    private final long nextAttemptAt;
+
+    Retry(String deliveryUuid, Webhook webhook, WebhookPayload payload, long nextAttemptAt) {
+      this.deliveryUuid = deliveryUuid;
+      this.webhook = webhook;
+      this.payload = payload;
+      this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public String getDeliveryUuid() {
+      return deliveryUuid;
+    }
+
+    public Webhook getWebhook() {
+      return webhook;
+    }
+
+    public WebhookPayload getPayload() {
+      return payload;
+    }
+
+    public long getNextAttemptAt() {
+      return nextAttemptAt;
+    }
+  }
 }
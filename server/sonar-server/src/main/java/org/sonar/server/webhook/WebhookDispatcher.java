@@ -0,0 +1,395 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.webhook;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import okhttp3.HttpUrl;
+import org.sonar.api.Startable;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Delivers webhooks in background threads, so that the callers (Compute Engine workers, web services) don't wait
+ * for the remote endpoints.
+ * <ul>
+ *   <li>at most {@link #THREADS_PROPERTY} deliveries are executed at the same time, and at most
+ *   {@link #MAX_CALLS_PER_HOST_PROPERTY} for the same host, so that a slow endpoint does not delay
+ *   the others</li>
+ *   <li>deliveries which fail because of a network error or a server error (HTTP 5xx or 429) are attempted again,
+ *   up to {@link #MAX_ATTEMPTS_PROPERTY} times, after a delay doubled for each attempt</li>
+ *   <li>each attempt is persisted by {@link WebhookDeliveryStorage}, with the time of the next attempt if any.
+ *   The retries which are not done when the process stops are resumed by the next started process. As the number of
+ *   previous attempts is not persisted, they are attempted only once more.</li>
+ * </ul>
+ * Deliveries are executed synchronously if {@link #THREADS_PROPERTY} is zero, or if more than
+ * {@link #MAX_PENDING_PROPERTY} deliveries are pending. First attempts which are still pending are lost when
+ * the process stops.
+ */
+@ComputeEngineSide
+@ServerSide
+public class WebhookDispatcher implements Startable {
+
+  public static final String THREADS_PROPERTY = "sonar.webhooks.dispatcher.threads";
+  public static final String MAX_CALLS_PER_HOST_PROPERTY = "sonar.webhooks.dispatcher.maxCallsPerHost";
+  public static final String MAX_PENDING_PROPERTY = "sonar.webhooks.dispatcher.maxPending";
+  public static final String MAX_ATTEMPTS_PROPERTY = "sonar.webhooks.dispatcher.maxAttempts";
+  public static final String RETRY_DELAY_PROPERTY = "sonar.webhooks.dispatcher.retryDelayInMs";
+
+  private static final Logger LOGGER = Loggers.get(WebhookDispatcher.class);
+  private static final long STOP_TIMEOUT_MS = 5_000L;
+
+  private final WebhookCaller caller;
+  private final WebhookDeliveryStorage deliveryStorage;
+  private final System2 system2;
+  private final int threads;
+  private final int maxCallsPerHost;
+  private final int maxPending;
+  private final int maxAttempts;
+  private final long retryDelayMs;
+
+  // guarded by "this"
+  private final Map<String, HostQueue> queuesByHost = new HashMap<>();
+  private int pending = 0;
+
+  private final AtomicLong deliveries = new AtomicLong();
+  private final AtomicLong failures = new AtomicLong();
+  private final AtomicLong retries = new AtomicLong();
+  private final AtomicLong totalLatencyMs = new AtomicLong();
+  private final AtomicLong maxLatencyMs = new AtomicLong();
+
+  @CheckForNull
+  private volatile ExecutorService executor;
+  @CheckForNull
+  private volatile ScheduledExecutorService retryScheduler;
+
+  public WebhookDispatcher(WebhookCaller caller, WebhookDeliveryStorage deliveryStorage, Configuration config, System2 system2) {
+    this.caller = caller;
+    this.deliveryStorage = deliveryStorage;
+    this.system2 = system2;
+    this.threads = readPositive(config, THREADS_PROPERTY, 5);
+    this.maxCallsPerHost = Math.max(1, readPositive(config, MAX_CALLS_PER_HOST_PROPERTY, 2));
+    this.maxPending = readPositive(config, MAX_PENDING_PROPERTY, 1_000);
+    this.maxAttempts = Math.max(1, readPositive(config, MAX_ATTEMPTS_PROPERTY, 3));
+    this.retryDelayMs = readPositive(config, RETRY_DELAY_PROPERTY, 10_000);
+  }
+
+  private static int readPositive(Configuration config, String key, int defaultValue) {
+    int value = config.getInt(key).orElse(defaultValue);
+    checkArgument(value >= 0, "Property %s must be positive. Got %s", key, value);
+    return value;
+  }
+
+  @Override
+  public void start() {
+    if (threads > 0) {
+      executor = Executors.newFixedThreadPool(threads,
+        new ThreadFactoryBuilder().setNameFormat("Webhooks-%d").setDaemon(true).build());
+      retryScheduler = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("Webhooks-retry-%d").setDaemon(true).build());
+      resumeRetries();
+    }
+  }
+
+  private void resumeRetries() {
+    List<WebhookDeliveryStorage.Retry> persistedRetries;
+    try {
+      persistedRetries = deliveryStorage.loadRetries();
+    } catch (Exception e) {
+      LOGGER.warn("Fail to load the webhook deliveries to send again", e);
+      return;
+    }
+    long now = system2.now();
+    for (WebhookDeliveryStorage.Retry retry : persistedRetries) {
+      Attempt attempt = new Attempt(retry.getWebhook(), retry.getPayload(), maxAttempts, now, retry.getDeliveryUuid());
+      scheduleRetry(attempt, Math.max(0L, retry.getNextAttemptAt() - now));
+    }
+    if (!persistedRetries.isEmpty()) {
+      LOGGER.info("{} webhook deliveries are sent again", persistedRetries.size());
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (retryScheduler != null) {
+      retryScheduler.shutdownNow();
+      retryScheduler = null;
+    }
+    ExecutorService pool;
+    synchronized (this) {
+      // new deliveries are executed synchronously from now on
+      pool = executor;
+      executor = null;
+    }
+    if (pool != null) {
+      pool.shutdown();
+      try {
+        if (!pool.awaitTermination(STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+          pool.shutdownNow();
+        }
+      } catch (InterruptedException e) {
+        pool.shutdownNow();
+        Thread.currentThread().interrupt();
+      }
+      int lost = getPending();
+      if (lost > 0) {
+        LOGGER.warn("{} webhook deliveries are not sent", lost);
+      }
+    }
+  }
+
+  /**
+   * Sends the payload to the webhook, in background if enabled.
+   */
+  public void dispatch(Webhook webhook, WebhookPayload payload) {
+    Attempt attempt = new Attempt(webhook, payload, 1, system2.now(), null);
+    if (!enqueue(attempt)) {
+      deliver(attempt);
+    }
+  }
+
+  /**
+   * @return false if the attempt must be executed by the caller thread
+   */
+  private synchronized boolean enqueue(Attempt attempt) {
+    ExecutorService pool = executor;
+    if (pool == null || pending >= maxPending) {
+      return false;
+    }
+    String host = hostOf(attempt.webhook);
+    HostQueue queue = queuesByHost.computeIfAbsent(host, h -> new HostQueue());
+    queue.attempts.add(attempt);
+    pending++;
+    if (queue.running < maxCallsPerHost) {
+      queue.running++;
+      pool.execute(() -> drain(host));
+    }
+    return true;
+  }
+
+  private void drain(String host) {
+    Attempt attempt;
+    while ((attempt = poll(host)) != null) {
+      deliver(attempt);
+    }
+  }
+
+  @CheckForNull
+  private synchronized Attempt poll(String host) {
+    HostQueue queue = queuesByHost.get(host);
+    Attempt attempt = queue.attempts.poll();
+    if (attempt == null) {
+      queue.running--;
+      if (queue.running == 0) {
+        queuesByHost.remove(host);
+      }
+    } else {
+      pending--;
+    }
+    return attempt;
+  }
+
+  private void deliver(Attempt attempt) {
+    if (attempt.retriedDeliveryUuid != null && !claimRetry(attempt.retriedDeliveryUuid)) {
+      LOGGER.debug("Webhook '{}' is already sent again by another process", attempt.webhook.getName());
+      return;
+    }
+    WebhookDelivery delivery = caller.call(attempt.webhook, attempt.payload);
+    log(delivery);
+
+    if (!delivery.isSuccess() && isRetryable(delivery) && attempt.number < maxAttempts && retryScheduler != null) {
+      // 1, 2, 4... times the initial delay
+      long delay = retryDelayMs << Math.min(attempt.number - 1, 10);
+      String deliveryUuid = persist(delivery, system2.now() + delay);
+      retries.incrementAndGet();
+      scheduleRetry(new Attempt(attempt.webhook, attempt.payload, attempt.number + 1, attempt.dispatchedAt, deliveryUuid), delay);
+      return;
+    }
+    persist(delivery, null);
+    long latency = Math.max(0L, system2.now() - attempt.dispatchedAt);
+    deliveries.incrementAndGet();
+    if (!delivery.isSuccess()) {
+      failures.incrementAndGet();
+    }
+    totalLatencyMs.addAndGet(latency);
+    maxLatencyMs.accumulateAndGet(latency, Math::max);
+  }
+
+  /**
+   * @param nextAttemptAt time of the next attempt, {@code null} if the delivery is not sent again
+   * @return the uuid of the persisted delivery if it is sent again, {@code null} if it could not be persisted
+   */
+  @CheckForNull
+  private String persist(WebhookDelivery delivery, @Nullable Long nextAttemptAt) {
+    try {
+      if (nextAttemptAt == null) {
+        deliveryStorage.persist(delivery);
+        return null;
+      }
+      return deliveryStorage.persistWithRetry(delivery, nextAttemptAt);
+    } catch (Exception e) {
+      LOGGER.warn("Fail to persist delivery of webhook '{}'", delivery.getWebhook().getName(), e);
+      return null;
+    }
+  }
+
+  private boolean claimRetry(String deliveryUuid) {
+    try {
+      return deliveryStorage.claimRetry(deliveryUuid);
+    } catch (Exception e) {
+      // better to send the webhook twice than never
+      LOGGER.warn("Fail to claim the retry of webhook delivery '{}'", deliveryUuid, e);
+      return true;
+    }
+  }
+
+  private void scheduleRetry(Attempt attempt, long delayMs) {
+    ScheduledExecutorService scheduler = retryScheduler;
+    if (scheduler == null) {
+      // process is stopping, the persisted retry is resumed by the next process
+      return;
+    }
+    try {
+      scheduler.schedule(() -> {
+        if (!enqueue(attempt) && executor != null) {
+          LOGGER.debug("Webhook '{}' is not sent again, too many pending deliveries", attempt.webhook.getName());
+          if (attempt.retriedDeliveryUuid != null) {
+            claimRetry(attempt.retriedDeliveryUuid);
+          }
+        }
+      }, delayMs, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      // scheduler is stopped, the persisted retry is resumed by the next process
+    }
+  }
+
+  private static boolean isRetryable(WebhookDelivery delivery) {
+    Optional<Integer> status = delivery.getHttpStatus();
+    if (status.isPresent()) {
+      return status.get() >= 500 || status.get() == 429;
+    }
+    return delivery.getError().filter(IOException.class::isInstance).isPresent();
+  }
+
+  private static String hostOf(Webhook webhook) {
+    HttpUrl url = HttpUrl.parse(webhook.getUrl());
+    return url == null ? "" : (url.host() + ":" + url.port());
+  }
+
+  private static void log(WebhookDelivery delivery) {
+    Optional<String> error = delivery.getErrorMessage();
+    if (error.isPresent()) {
+      LOGGER.debug("Failed to send webhook '{}' | url={} | message={}",
+        delivery.getWebhook().getName(), delivery.getWebhook().getUrl(), error.get());
+    } else {
+      LOGGER.debug("Sent webhook '{}' | url={} | time={}ms | status={}",
+        delivery.getWebhook().getName(), delivery.getWebhook().getUrl(), delivery.getDurationInMs().orElse(-1), delivery.getHttpStatus().orElse(-1));
+    }
+  }
+
+  /**
+   * Number of deliveries waiting for a thread. Deliveries waiting for a retry are not included.
+   */
+  public synchronized int getPending() {
+    return pending;
+  }
+
+  /**
+   * Number of completed deliveries, successful or not, since startup
+   */
+  public long getDeliveries() {
+    return deliveries.get();
+  }
+
+  /**
+   * Number of deliveries which failed after all the attempts, since startup
+   */
+  public long getFailures() {
+    return failures.get();
+  }
+
+  public long getRetries() {
+    return retries.get();
+  }
+
+  /**
+   * Average time between the dispatch of a webhook and the end of its last attempt
+   */
+  public long getAverageLatencyMs() {
+    long count = deliveries.get();
+    return count == 0 ? 0 : (totalLatencyMs.get() / count);
+  }
+
+  public long getMaxLatencyMs() {
+    return maxLatencyMs.get();
+  }
+
+  @VisibleForTesting
+  boolean isAsync() {
+    return executor != null;
+  }
+
+  private static final class HostQueue {
+    private final Queue<Attempt> attempts = new ArrayDeque<>();
+    private int running = 0;
+  }
+
+  private static final class Attempt {
+    private final Webhook webhook;
+    private final WebhookPayload payload;
+    private final int number;
+    private final long dispatchedAt;
+    /**
+     * uuid of the persisted delivery which is attempted again, {@code null} on the first attempt or if the
+     * previous attempt could not be persisted
+     */
+    @CheckForNull
+    private final String retriedDeliveryUuid;
+
+    private Attempt(Webhook webhook, WebhookPayload payload, int number, long dispatchedAt, @Nullable String retriedDeliveryUuid) {
+      this.webhook = webhook;
+      this.payload = payload;
+      this.number = number;
+      this.dispatchedAt = dispatchedAt;
+      this.retriedDeliveryUuid = retriedDeliveryUuid;
+    }
+  }
+}
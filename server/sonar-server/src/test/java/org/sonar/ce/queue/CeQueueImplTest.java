@@ -22,7 +22,12 @@ package org.sonar.ce.queue;
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -62,7 +67,9 @@ public class CeQueueImplTest {
   private UuidFactory uuidFactory = UuidFactoryImpl.INSTANCE;
   private DefaultOrganizationProvider defaultOrganizationProvider = TestDefaultOrganizationProvider.from(db);
 
-  private CeQueue underTest = new CeQueueImpl(db.getDbClient(), uuidFactory, defaultOrganizationProvider);
+  private CeTaskSubmitNotifier submitNotifier = mock(CeTaskSubmitNotifier.class);
+
+  private CeQueue underTest = new CeQueueImpl(db.getDbClient(), uuidFactory, defaultOrganizationProvider, submitNotifier);
 
   @Test
   public void submit_returns_task_populated_from_CeTaskSubmit_and_creates_CeQueue_row() {
@@ -74,6 +81,27 @@ public class CeQueueImplTest {
     verifyCeQueueDtoForTaskSubmit(taskSubmit);
   }
 
+  @Test
+  public void submit_notifies_workers() {
+    underTest.submit(createTaskSubmit(CeTaskTypes.REPORT, "PROJECT_1", "rob"));
+
+    verify(submitNotifier).onSubmit();
+  }
+
+  @Test
+  public void massSubmit_notifies_workers_once() {
+    underTest.massSubmit(asList(createTaskSubmit(CeTaskTypes.REPORT, "PROJECT_1", "rob"), createTaskSubmit("some type")));
+
+    verify(submitNotifier, times(1)).onSubmit();
+  }
+
+  @Test
+  public void massSubmit_does_not_notify_workers_when_there_is_no_task() {
+    underTest.massSubmit(Collections.emptyList());
+
+    verifyZeroInteractions(submitNotifier);
+  }
+
   @Test
   public void submit_populates_component_name_and_key_of_CeTask_if_component_exists() {
     ComponentDto componentDto = insertComponent(ComponentTesting.newPrivateProjectDto(db.organizations().insert(), "PROJECT_1"));
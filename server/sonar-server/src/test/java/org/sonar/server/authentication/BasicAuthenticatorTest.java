@@ -25,6 +25,7 @@ import javax.servlet.http.HttpServletRequest;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -32,6 +33,7 @@ import org.sonar.db.DbTester;
 import org.sonar.db.user.UserDto;
 import org.sonar.db.user.UserTesting;
 import org.sonar.server.authentication.event.AuthenticationEvent;
+import org.sonar.server.user.UserSessionCache;
 import org.sonar.server.usertoken.UserTokenAuthenticator;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -75,7 +77,7 @@ public class BasicAuthenticatorTest {
 
   private AuthenticationEvent authenticationEvent = mock(AuthenticationEvent.class);
 
-  private BasicAuthenticator underTest = new BasicAuthenticator(dbClient, credentialsAuthenticator, userTokenAuthenticator, authenticationEvent);
+  private BasicAuthenticator underTest = new BasicAuthenticator(new UserSessionCache(dbClient, new MapSettings().asConfig()), credentialsAuthenticator, userTokenAuthenticator, authenticationEvent);
 
   @Test
   public void authenticate_from_basic_http_header() throws Exception {
@@ -234,15 +234,24 @@ public class IssuesActionTest {
   }
 
   @Test
-  public void fail_if_requested_component_is_a_directory() throws IOException {
+  public void return_issues_of_directory() {
+    RuleDefinitionDto rule = db.rules().insert();
     ComponentDto project = db.components().insertPrivateProject();
     ComponentDto directory = db.components().insertComponent(newDirectory(project, "src/main/java"));
-    addPermissionTo(project);
-
-    expectedException.expect(IllegalArgumentException.class);
-    expectedException.expectMessage("Component of scope 'DIR' is not allowed");
+    ComponentDto subDirectory = db.components().insertComponent(newDirectory(project, "src/main/java/sub"));
+    ComponentDto file = db.components().insertComponent(newFileDto(project, directory));
+    ComponentDto fileInSubDirectory = db.components().insertComponent(newFileDto(project, subDirectory));
+    IssueDto issueOnFile = db.issues().insert(rule, project, file);
+    db.issues().insert(rule, project, fileInSubDirectory);
+    db.issues().insert(rule, project, project);
 
-    call(directory.getKey());
+    addPermissionTo(project);
+    try (CloseableIterator<ServerIssue> result = callStream(directory.getKey(), null)) {
+      assertThat(result)
+        .extracting(ServerIssue::getKey, ServerIssue::getModuleKey, ServerIssue::getPath)
+        .containsExactlyInAnyOrder(
+          tuple(issueOnFile.getKey(), project.getKey(), file.path()));
+    }
   }
 
   @Test
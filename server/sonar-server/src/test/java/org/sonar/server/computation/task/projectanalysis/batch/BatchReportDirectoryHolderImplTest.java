@@ -39,4 +39,25 @@ public class BatchReportDirectoryHolderImplTest {
 
     assertThat(holder.getDirectory()).isSameAs(file);
   }
+
+  @Test
+  public void getZipFile_is_empty_if_holder_is_empty() {
+    assertThat(new BatchReportDirectoryHolderImpl().getZipFile()).isEmpty();
+  }
+
+  @Test
+  public void setZipFile_replaces_directory() {
+    File dir = new File("");
+    File zipFile = new File("report.zip");
+    BatchReportDirectoryHolderImpl holder = new BatchReportDirectoryHolderImpl();
+    holder.setDirectory(dir);
+    holder.setZipFile(zipFile);
+
+    assertThat(holder.getZipFile()).contains(zipFile);
+
+    holder.setDirectory(dir);
+
+    assertThat(holder.getZipFile()).isEmpty();
+    assertThat(holder.getDirectory()).isSameAs(dir);
+  }
 }
@@ -25,6 +25,8 @@ import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.utils.ZipUtils;
 import org.sonar.api.utils.internal.JUnitTempFolder;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.scanner.protocol.output.ScannerReport;
@@ -53,6 +55,8 @@ public class BatchReportReaderImplTest {
 
   @Rule
   public JUnitTempFolder tempFolder = new JUnitTempFolder();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
 
   private ScannerReportWriter writer;
   private BatchReportReaderImpl underTest;
@@ -314,4 +318,116 @@ public class BatchReportReaderImplTest {
     assertThat(res).containsExactly(COVERAGE_DETAIL_1, COVERAGE_DETAIL_2);
     res.close();
   }
+
+  @Test
+  public void read_report_directly_from_zip_file() throws IOException {
+    ScannerReport.Metadata metadata = ScannerReport.Metadata.newBuilder().setProjectKey("P1").build();
+    writer.writeMetadata(metadata);
+    writer.writeComponent(COMPONENT);
+    writer.writeComponentMeasures(COMPONENT_REF, of(MEASURE));
+    writer.writeComponentChangesets(CHANGESETS);
+    writer.writeTests(COMPONENT_REF, of(TEST_1, TEST_2));
+    FileUtils.writeLines(writer.getSourceFile(COMPONENT_REF), of("1", "2", "3"));
+    FileUtils.write(writer.getFileStructure().analysisLog(), "log1\nlog2");
+    BatchReportReaderImpl zipReader = new BatchReportReaderImpl(zipHolderOf(writer.getFileStructure().root()));
+
+    assertThat(zipReader.readMetadata()).isEqualTo(metadata);
+    assertThat(zipReader.readComponent(COMPONENT_REF)).isEqualTo(COMPONENT);
+    assertThat(zipReader.readChangesets(COMPONENT_REF)).isEqualTo(CHANGESETS);
+    assertThat(zipReader.readScannerLogs()).containsExactly("log1", "log2");
+    try (CloseableIterator<ScannerReport.Measure> measures = zipReader.readComponentMeasures(COMPONENT_REF)) {
+      assertThat(measures).containsExactly(MEASURE);
+    }
+    try (CloseableIterator<ScannerReport.Test> tests = zipReader.readTests(COMPONENT_REF)) {
+      assertThat(tests).containsExactly(TEST_1, TEST_2);
+    }
+    try (CloseableIterator<String> lines = zipReader.readFileSource(COMPONENT_REF).get()) {
+      assertThat(lines).containsExactly("1", "2", "3");
+    }
+    zipReader.stop();
+  }
+
+  @Test
+  public void entries_which_are_not_in_zip_file_are_considered_empty() throws IOException {
+    writer.writeMetadata(ScannerReport.Metadata.newBuilder().build());
+    BatchReportReaderImpl zipReader = new BatchReportReaderImpl(zipHolderOf(writer.getFileStructure().root()));
+
+    assertThat(zipReader.readComponentIssues(COMPONENT_REF)).isEmpty();
+    assertThat(zipReader.readComponentCoverage(COMPONENT_REF)).isEmpty();
+    assertThat(zipReader.readCoverageDetails(COMPONENT_REF)).isEmpty();
+    assertThat(zipReader.readScannerLogs().hasNext()).isFalse();
+    assertThat(zipReader.readChangesets(COMPONENT_REF)).isNull();
+    assertThat(zipReader.readFileSource(COMPONENT_REF)).isEmpty();
+    zipReader.stop();
+  }
+
+  @Test
+  public void readComponent_from_zip_file_throws_ISE_if_component_is_missing() throws IOException {
+    writer.writeMetadata(ScannerReport.Metadata.newBuilder().build());
+    BatchReportReaderImpl zipReader = new BatchReportReaderImpl(zipHolderOf(writer.getFileStructure().root()));
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Unable to find report for component #1. File does not exist: ");
+    expectedException.expectMessage("!/component-1.pb");
+
+    zipReader.readComponent(COMPONENT_REF);
+  }
+
+  @Test
+  public void read_report_container_from_directory() {
+    File dir = tempFolder.newDir();
+    ScannerReportWriter containerWriter = new ScannerReportWriter(dir, true);
+    containerWriter.writeComponent(COMPONENT);
+    containerWriter.appendComponentIssue(COMPONENT_REF, ISSUE);
+    containerWriter.appendComponentIssue(COMPONENT_REF, ISSUE);
+    containerWriter.writeComponentChangesets(CHANGESETS);
+    BatchReportReaderImpl containerReader = new BatchReportReaderImpl(new ImmutableBatchReportDirectoryHolder(dir));
+
+    assertThat(containerReader.readComponent(COMPONENT_REF)).isEqualTo(COMPONENT);
+    assertThat(containerReader.readComponentIssues(COMPONENT_REF)).containsExactly(ISSUE, ISSUE);
+    assertThat(containerReader.readChangesets(COMPONENT_REF)).isEqualTo(CHANGESETS);
+    assertThat(containerReader.readComponentMeasures(COMPONENT_REF)).isEmpty();
+    assertThat(containerReader.readChangesets(2)).isNull();
+  }
+
+  @Test
+  public void read_report_container_from_zip_file() throws IOException {
+    File dir = tempFolder.newDir();
+    ScannerReportWriter containerWriter = new ScannerReportWriter(dir, true);
+    containerWriter.writeComponent(COMPONENT);
+    containerWriter.writeComponentMeasures(COMPONENT_REF, of(MEASURE));
+    containerWriter.writeTests(COMPONENT_REF, of(TEST_1));
+    containerWriter.close();
+    BatchReportDirectoryHolder holder = zipHolderOf(dir);
+    File zipDir = holder.getZipFile().get().getParentFile();
+    int filesBeforeRead = zipDir.list().length;
+    BatchReportReaderImpl zipReader = new BatchReportReaderImpl(holder);
+
+    assertThat(zipReader.readComponent(COMPONENT_REF)).isEqualTo(COMPONENT);
+    assertThat(zipReader.readComponentMeasures(COMPONENT_REF)).containsExactly(MEASURE);
+    assertThat(zipReader.readTests(COMPONENT_REF)).containsExactly(TEST_1);
+
+    zipReader.stop();
+    assertThat(zipDir.list()).hasSize(filesBeforeRead);
+  }
+
+  @Test
+  public void readComponent_from_container_throws_ISE_if_component_is_missing() {
+    File dir = tempFolder.newDir();
+    new ScannerReportWriter(dir, true).writeComponent(COMPONENT);
+    BatchReportReaderImpl containerReader = new BatchReportReaderImpl(new ImmutableBatchReportDirectoryHolder(dir));
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Unable to find report for component #2 in container: ");
+
+    containerReader.readComponent(2);
+  }
+
+  private BatchReportDirectoryHolder zipHolderOf(File reportDir) throws IOException {
+    File zip = tempFolder.newFile();
+    ZipUtils.zipDir(reportDir, zip);
+    BatchReportDirectoryHolderImpl holder = new BatchReportDirectoryHolderImpl();
+    holder.setZipFile(zip);
+    return holder;
+  }
 }
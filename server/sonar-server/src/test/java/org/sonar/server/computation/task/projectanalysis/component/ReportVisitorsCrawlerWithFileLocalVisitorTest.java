@@ -0,0 +1,150 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.DIRECTORY;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.FILE;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.MODULE;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.PROJECT;
+import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.POST_ORDER;
+
+public class ReportVisitorsCrawlerWithFileLocalVisitorTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  private static final Component FILE_4 = component(FILE, 4);
+  private static final Component FILE_5 = component(FILE, 5);
+  private static final Component DIRECTORY_3 = component(DIRECTORY, 3, FILE_4, FILE_5);
+  private static final Component FILE_7 = component(FILE, 7);
+  private static final Component DIRECTORY_6 = component(DIRECTORY, 6, FILE_7);
+  private static final Component MODULE_2 = component(MODULE, 2, DIRECTORY_3, DIRECTORY_6);
+  private static final Component COMPONENT_TREE = component(PROJECT, 1, MODULE_2);
+
+  private ForkJoinPool pool = new ForkJoinPool(2);
+
+  @After
+  public void tearDown() {
+    pool.shutdownNow();
+  }
+
+  @Test
+  public void files_are_prepared_before_being_visited_in_order() {
+    TestFileLocalVisitor visitor = new TestFileLocalVisitor(CrawlerDepthLimit.FILE);
+
+    new VisitorsCrawler(singletonList(visitor), false, pool).visit(COMPONENT_TREE);
+
+    assertThat(visitor.preparedFiles).containsOnly(FILE_4, FILE_5, FILE_7);
+    assertThat(visitor.visitedComponents).containsExactly(FILE_4, FILE_5, DIRECTORY_3, FILE_7, DIRECTORY_6, MODULE_2, COMPONENT_TREE);
+    assertThat(visitor.filesVisitedWithoutPreparation).isEmpty();
+  }
+
+  @Test
+  public void files_are_not_prepared_when_there_is_no_pool() {
+    TestFileLocalVisitor visitor = new TestFileLocalVisitor(CrawlerDepthLimit.FILE);
+
+    new VisitorsCrawler(singletonList(visitor), false).visit(COMPONENT_TREE);
+
+    assertThat(visitor.preparedFiles).isEmpty();
+    assertThat(visitor.filesVisitedWithoutPreparation).containsExactly(FILE_4, FILE_5, FILE_7);
+  }
+
+  @Test
+  public void files_are_not_prepared_when_visitor_does_not_visit_files() {
+    TestFileLocalVisitor visitor = new TestFileLocalVisitor(CrawlerDepthLimit.DIRECTORY);
+
+    new VisitorsCrawler(singletonList(visitor), false, pool).visit(COMPONENT_TREE);
+
+    assertThat(visitor.preparedFiles).isEmpty();
+    assertThat(visitor.visitedComponents).containsExactly(DIRECTORY_3, DIRECTORY_6, MODULE_2, COMPONENT_TREE);
+  }
+
+  @Test
+  public void getCumulativeDurations_includes_preparation_of_files() {
+    TestFileLocalVisitor visitor = new TestFileLocalVisitor(CrawlerDepthLimit.FILE);
+    VisitorsCrawler underTest = new VisitorsCrawler(singletonList(visitor), true, pool);
+
+    underTest.visit(COMPONENT_TREE);
+
+    assertThat(underTest.getCumulativeDurations()).containsOnlyKeys(visitor);
+  }
+
+  @Test
+  public void failure_of_preparation_is_thrown_when_file_is_visited() {
+    TestFileLocalVisitor visitor = new TestFileLocalVisitor(CrawlerDepthLimit.FILE) {
+      @Override
+      public void prepareFile(Component file) {
+        if (file == FILE_5) {
+          throw new IllegalStateException("Simulating failure of preparation");
+        }
+        super.prepareFile(file);
+      }
+    };
+
+    thrown.expect(VisitException.class);
+    thrown.expectMessage("Visit of Component {key=key_5,type=FILE} failed");
+
+    new VisitorsCrawler(singletonList(visitor), false, pool).visit(COMPONENT_TREE);
+  }
+
+  private static Component component(final Component.Type type, final int ref, final Component... children) {
+    return ReportComponent.builder(type, ref).addChildren(children).build();
+  }
+
+  private static class TestFileLocalVisitor extends TypeAwareVisitorAdapter implements FileLocalVisitor {
+    private final Set<Component> preparedFiles = ConcurrentHashMap.newKeySet();
+    private final List<Component> visitedComponents = new ArrayList<>();
+    private final List<Component> filesVisitedWithoutPreparation = Collections.synchronizedList(new ArrayList<>());
+
+    private TestFileLocalVisitor(CrawlerDepthLimit maxDepth) {
+      super(maxDepth, POST_ORDER);
+    }
+
+    @Override
+    public void prepareFile(Component file) {
+      preparedFiles.add(file);
+    }
+
+    @Override
+    public void visitAny(Component component) {
+      visitedComponents.add(component);
+    }
+
+    @Override
+    public void visitFile(Component file) {
+      if (!preparedFiles.contains(file)) {
+        filesVisitedWithoutPreparation.add(file);
+      }
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.filemove;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.server.computation.task.projectanalysis.filemove.FileSimilarity.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.computation.task.projectanalysis.filemove.FileMoveDetectionStep.MIN_REQUIRED_SCORE;
+
+/**
+ * Synthetic mass rename: every file of the project is moved and a few of its lines are modified.
+ * Not executed by unit tests, run it with {@code mvn test -Dbenchmark}.
+ */
+public class FileMoveDetectionBenchmark {
+
+  private static final Logger LOGGER = Loggers.get(FileMoveDetectionBenchmark.class);
+
+  private static final int FILES = 5_000;
+  private static final int LINES = 150;
+  private static final int MODIFIED_LINES = 5;
+  // lines such as "}" or "import ..." are shared by many files
+  private static final int COMMON_LINES = 50;
+
+  private final Random random = new Random(42);
+  private final FileSimilarity fileSimilarity = new FileSimilarityImpl(new SourceSimilarityImpl());
+
+  @Test
+  public void score_files_of_a_mass_rename() {
+    List<File> removedFiles = new ArrayList<>(FILES);
+    List<File> addedFiles = new ArrayList<>(FILES);
+    for (int i = 0; i < FILES; i++) {
+      List<String> lineHashes = newLineHashes(i);
+      removedFiles.add(new File("old/File" + i + ".java", lineHashes));
+      addedFiles.add(new File("new/File" + i + ".java", modify(lineHashes)));
+    }
+
+    long start = System.currentTimeMillis();
+    LineHashesIndex index = new LineHashesIndex(addedFiles, MIN_REQUIRED_SCORE);
+    long scoredPairs = 0;
+    int matches = 0;
+    for (int i = 0; i < FILES; i++) {
+      File removedFile = removedFiles.get(i);
+      for (int candidate : index.candidatesOf(removedFile)) {
+        scoredPairs++;
+        if (fileSimilarity.score(removedFile, addedFiles.get(candidate), MIN_REQUIRED_SCORE) >= MIN_REQUIRED_SCORE) {
+          assertThat(candidate).isEqualTo(i);
+          matches++;
+        }
+      }
+    }
+    long duration = System.currentTimeMillis() - start;
+
+    LOGGER.info("{} files renamed: {} pairs scored out of {} in {} ms", FILES, scoredPairs, (long) FILES * FILES, duration);
+    assertThat(matches).isEqualTo(FILES);
+  }
+
+  private List<String> newLineHashes(int fileIndex) {
+    List<String> lineHashes = new ArrayList<>(LINES);
+    for (int line = 0; line < LINES; line++) {
+      if (random.nextInt(4) == 0) {
+        lineHashes.add("common" + random.nextInt(COMMON_LINES));
+      } else {
+        lineHashes.add("file" + fileIndex + "_line" + line);
+      }
+    }
+    return lineHashes;
+  }
+
+  private List<String> modify(List<String> lineHashes) {
+    List<String> modified = new ArrayList<>(lineHashes);
+    for (int i = 0; i < MODIFIED_LINES; i++) {
+      modified.set(random.nextInt(LINES), "modified" + random.nextLong());
+    }
+    return modified;
+  }
+}
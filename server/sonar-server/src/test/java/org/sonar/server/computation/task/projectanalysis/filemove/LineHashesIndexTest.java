@@ -0,0 +1,77 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.filemove;
+
+import java.util.List;
+import org.junit.Test;
+import org.sonar.server.computation.task.projectanalysis.filemove.FileSimilarity.File;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.computation.task.projectanalysis.filemove.FileMoveDetectionStep.MIN_REQUIRED_SCORE;
+
+public class LineHashesIndexTest {
+
+  private static final List<String> CONTENT = asList("a", "b", "c", "d", "e", "f", "g", "h", "i", "j");
+
+  @Test
+  public void candidates_are_files_which_may_reach_min_score() {
+    LineHashesIndex underTest = new LineHashesIndex(asList(
+      file(CONTENT),
+      file(asList("a", "b", "c", "d", "e", "f", "g", "h", "i", "x")),
+      file(asList("a", "b", "c", "d", "e", "x", "y", "z", "i", "j")),
+      file(asList("k", "l", "m")),
+      file(emptyList())), MIN_REQUIRED_SCORE);
+
+    assertThat(underTest.candidatesOf(file(CONTENT))).containsExactly(0, 1);
+    assertThat(underTest.candidatesOf(file(asList("k", "l", "m")))).containsExactly(3);
+    assertThat(underTest.candidatesOf(file(asList("n", "o")))).isEmpty();
+    assertThat(underTest.candidatesOf(file(emptyList()))).isEmpty();
+  }
+
+  @Test
+  public void files_of_too_different_sizes_are_not_candidates() {
+    LineHashesIndex underTest = new LineHashesIndex(asList(file(CONTENT), file(CONTENT.subList(0, 8))), MIN_REQUIRED_SCORE);
+
+    assertThat(underTest.candidatesOf(file(CONTENT))).containsExactly(0);
+  }
+
+  @Test
+  public void repeated_lines_are_shared_only_as_many_times_as_they_appear_in_both_files() {
+    List<String> closingBraces = asList("}", "}", "}", "}", "}", "}", "}", "}", "}", "}");
+    LineHashesIndex underTest = new LineHashesIndex(asList(file(closingBraces), file(asList("}", "}", "a", "b", "c", "d", "e", "f", "g", "h"))),
+      MIN_REQUIRED_SCORE);
+
+    assertThat(underTest.candidatesOf(file(closingBraces))).containsExactly(0);
+  }
+
+  @Test
+  public void files_sharing_no_line_are_not_candidates_even_when_min_score_is_zero() {
+    LineHashesIndex underTest = new LineHashesIndex(asList(file(CONTENT), file(asList("k", "l", "m"))), 0);
+
+    assertThat(underTest.candidatesOf(file(asList("x")))).isEmpty();
+    assertThat(underTest.candidatesOf(file(asList("a")))).containsExactly(0);
+  }
+
+  private static File file(List<String> lineHashes) {
+    return new File("path", lineHashes);
+  }
+}
@@ -59,4 +59,36 @@ public class SourceSimilarityImplTest {
   public void two_empty_lists_are_not_considered_as_equal() {
     assertThat(underTest.score(emptyList(), emptyList())).isEqualTo(0);
   }
+
+  @Test
+  public void score_with_min_score_is_the_same_when_min_score_is_reached() {
+    List<String> left = asList("a", "b", "c", "d", "e", "f", "g", "h", "i", "j");
+    List<String> right = asList("a", "b", "c", "x", "e", "f", "g", "h", "i", "j", "k");
+
+    assertThat(underTest.score(left, right)).isEqualTo(81);
+    assertThat(underTest.score(left, right, 81)).isEqualTo(81);
+    assertThat(underTest.score(left, right, 0)).isEqualTo(81);
+    assertThat(underTest.score(left, left, 100)).isEqualTo(100);
+  }
+
+  @Test
+  public void score_with_min_score_is_lower_than_min_score_when_not_reached() {
+    List<String> left = asList("a", "b", "c", "d", "e", "f", "g", "h", "i", "j");
+
+    assertThat(underTest.score(left, asList("a", "b", "c", "x", "e", "f", "g", "h", "i", "j", "k"), 82)).isLessThan(82);
+    // too different sizes
+    assertThat(underTest.score(left, asList("a", "b", "c"), 85)).isLessThan(85);
+    // distance exceeded in the middle of the lists
+    assertThat(underTest.score(left, asList("a", "x", "y", "z", "e", "f", "g", "h", "i", "j"), 85)).isLessThan(85);
+    assertThat(underTest.score(emptyList(), emptyList(), 0)).isEqualTo(0);
+  }
+
+  @Test
+  public void maxDistance_is_the_greatest_distance_reaching_min_score() {
+    assertThat(SourceSimilarityImpl.maxDistance(150, 85)).isEqualTo(22);
+    assertThat(SourceSimilarityImpl.maxDistance(10, 85)).isEqualTo(1);
+    assertThat(SourceSimilarityImpl.maxDistance(10, 100)).isEqualTo(0);
+    assertThat(SourceSimilarityImpl.maxDistance(10, 0)).isEqualTo(10);
+    assertThat(SourceSimilarityImpl.maxDistance(0, 85)).isEqualTo(-1);
+  }
 }
@@ -0,0 +1,185 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import org.junit.Test;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.DefaultIssueComment;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.core.issue.IssueChangeContext;
+import org.sonar.db.protobuf.DbCommons;
+import org.sonar.db.protobuf.DbIssues;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class DefaultIssueCodecTest {
+
+  private DefaultIssueCodec underTest = new DefaultIssueCodec();
+
+  @Test
+  public void encode_and_decode_all_fields() throws IOException {
+    DbIssues.Locations locations = DbIssues.Locations.newBuilder()
+      .setTextRange(DbCommons.TextRange.newBuilder().setStartLine(10).setEndLine(12).build())
+      .build();
+    DefaultIssue issue = new DefaultIssue()
+      .setKey("ISSUE_KEY")
+      .setType(RuleType.VULNERABILITY)
+      .setComponentUuid("FILE_UUID")
+      .setComponentKey("FILE_KEY")
+      .setModuleUuid("MODULE_UUID")
+      .setModuleUuidPath(".MODULE_UUID.")
+      .setProjectUuid("PROJECT_UUID")
+      .setProjectKey("PROJECT_KEY")
+      .setRuleKey(RuleKey.of("xoo", "S001"))
+      .setLanguage("xoo")
+      .setSeverity(Severity.CRITICAL)
+      .setManualSeverity(true)
+      .setMessage("the message with non-ASCII chars éà")
+      .setLine(42)
+      .setGap(2.5)
+      .setEffort(Duration.create(15L))
+      .setStatus("CONFIRMED")
+      .setResolution("FIXED")
+      .setAssignee("john")
+      .setChecksum("CHECKSUM")
+      .setAttribute("JIRA", "FOO-123")
+      .setAuthorLogin("jane")
+      .setTags(asList("tag1", "tag2"))
+      .setLocations(locations)
+      .setCreationDate(new Date(1_000L))
+      .setUpdateDate(new Date(2_000L))
+      .setCloseDate(new Date(3_000L))
+      .setNew(false)
+      .setCopied(true)
+      .setBeingClosed(true)
+      .setOnDisabledRule(true)
+      .setChanged(true)
+      .setSendNotifications(true)
+      .setSelectedAt(4_000L);
+    issue.addComment(DefaultIssueComment.create("ISSUE_KEY", "john", "the comment"));
+
+    DefaultIssue decoded = encodeAndDecode(issue);
+
+    assertThat(decoded.key()).isEqualTo("ISSUE_KEY");
+    assertThat(decoded.type()).isEqualTo(RuleType.VULNERABILITY);
+    assertThat(decoded.componentUuid()).isEqualTo("FILE_UUID");
+    assertThat(decoded.componentKey()).isEqualTo("FILE_KEY");
+    assertThat(decoded.moduleUuid()).isEqualTo("MODULE_UUID");
+    assertThat(decoded.moduleUuidPath()).isEqualTo(".MODULE_UUID.");
+    assertThat(decoded.projectUuid()).isEqualTo("PROJECT_UUID");
+    assertThat(decoded.projectKey()).isEqualTo("PROJECT_KEY");
+    assertThat(decoded.ruleKey()).isEqualTo(RuleKey.of("xoo", "S001"));
+    assertThat(decoded.language()).isEqualTo("xoo");
+    assertThat(decoded.severity()).isEqualTo(Severity.CRITICAL);
+    assertThat(decoded.manualSeverity()).isTrue();
+    assertThat(decoded.message()).isEqualTo("the message with non-ASCII chars éà");
+    assertThat(decoded.line()).isEqualTo(42);
+    assertThat(decoded.gap()).isEqualTo(2.5);
+    assertThat(decoded.effortInMinutes()).isEqualTo(15L);
+    assertThat(decoded.status()).isEqualTo("CONFIRMED");
+    assertThat(decoded.resolution()).isEqualTo("FIXED");
+    assertThat(decoded.assignee()).isEqualTo("john");
+    assertThat(decoded.checksum()).isEqualTo("CHECKSUM");
+    assertThat(decoded.attributes()).containsOnly(entry("JIRA", "FOO-123"));
+    assertThat(decoded.authorLogin()).isEqualTo("jane");
+    assertThat(decoded.tags()).containsExactly("tag1", "tag2");
+    assertThat((DbIssues.Locations) decoded.getLocations()).isEqualTo(locations);
+    assertThat(decoded.creationDate()).isEqualTo(new Date(1_000L));
+    assertThat(decoded.updateDate()).isEqualTo(new Date(2_000L));
+    assertThat(decoded.closeDate()).isEqualTo(new Date(3_000L));
+    assertThat(decoded.isNew()).isFalse();
+    assertThat(decoded.isCopied()).isTrue();
+    assertThat(decoded.isBeingClosed()).isTrue();
+    assertThat(decoded.isOnDisabledRule()).isTrue();
+    assertThat(decoded.isChanged()).isTrue();
+    assertThat(decoded.mustSendNotifications()).isTrue();
+    assertThat(decoded.selectedAt()).isEqualTo(4_000L);
+    assertThat(decoded.comments()).hasSize(1);
+    DefaultIssueComment comment = (DefaultIssueComment) decoded.comments().get(0);
+    assertThat(comment.issueKey()).isEqualTo("ISSUE_KEY");
+    assertThat(comment.userLogin()).isEqualTo("john");
+    assertThat(comment.markdownText()).isEqualTo("the comment");
+    assertThat(comment.isNew()).isTrue();
+  }
+
+  @Test
+  public void encode_and_decode_issue_with_null_fields() throws IOException {
+    DefaultIssue decoded = encodeAndDecode(new DefaultIssue().setKey("ISSUE_KEY"));
+
+    assertThat(decoded.key()).isEqualTo("ISSUE_KEY");
+    assertThat(decoded.type()).isNull();
+    assertThat(decoded.ruleKey()).isNull();
+    assertThat(decoded.line()).isNull();
+    assertThat(decoded.gap()).isNull();
+    assertThat(decoded.effort()).isNull();
+    assertThat(decoded.status()).isNull();
+    assertThat(decoded.creationDate()).isNull();
+    assertThat(decoded.selectedAt()).isNull();
+    assertThat((Object) decoded.getLocations()).isNull();
+    assertThat(decoded.attributes()).isEmpty();
+    assertThat(decoded.tags()).isEmpty();
+    assertThat(decoded.comments()).isEmpty();
+    assertThat(decoded.changes()).isEmpty();
+    assertThat(decoded.currentChange()).isNull();
+    assertThat(decoded.isNew()).isTrue();
+  }
+
+  @Test
+  public void keep_identity_of_current_change_in_list_of_changes() throws IOException {
+    IssueChangeContext context = IssueChangeContext.createUser(new Date(5_000L), "john");
+    FieldDiffs previousChange = new FieldDiffs().setIssueKey("ISSUE_KEY").setCreationDate(new Date(1_000L)).setDiff("status", "OPEN", "CONFIRMED");
+    DefaultIssue issue = new DefaultIssue().setKey("ISSUE_KEY").addChange(previousChange);
+    issue.setFieldChange(context, "severity", Severity.MINOR, Severity.MAJOR);
+    issue.setFieldChange(context, "effort", 10L, 20L);
+
+    DefaultIssue decoded = encodeAndDecode(issue);
+
+    assertThat(decoded.changes()).hasSize(3);
+    assertThat(decoded.changes().get(0).issueKey()).isEqualTo("ISSUE_KEY");
+    assertThat(decoded.changes().get(0).get("status").newValue()).isEqualTo("CONFIRMED");
+    assertThat(decoded.changes().get(1)).isSameAs(decoded.currentChange());
+    assertThat(decoded.changes().get(2)).isSameAs(decoded.currentChange());
+    FieldDiffs currentChange = decoded.currentChange();
+    assertThat(currentChange.userLogin()).isEqualTo("john");
+    assertThat(currentChange.creationDate()).isEqualTo(new Date(5_000L));
+    assertThat(currentChange.get("severity").oldValue()).isEqualTo(Severity.MINOR);
+    assertThat(currentChange.get("severity").newValue()).isEqualTo(Severity.MAJOR);
+    assertThat(currentChange.get("effort").oldValue()).isEqualTo(10L);
+    assertThat(currentChange.get("effort").newValue()).isEqualTo(20L);
+  }
+
+  private DefaultIssue encodeAndDecode(DefaultIssue issue) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    underTest.write(issue, new DataOutputStream(bytes));
+    return underTest.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+  }
+}
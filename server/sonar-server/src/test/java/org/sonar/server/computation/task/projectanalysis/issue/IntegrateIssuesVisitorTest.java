@@ -49,6 +49,7 @@ import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetada
 import org.sonar.server.computation.task.projectanalysis.analysis.Branch;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderRule;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.FileLocalVisitor;
 import org.sonar.server.computation.task.projectanalysis.component.MergeBranchComponentUuids;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitor;
@@ -232,6 +233,27 @@ public class IntegrateIssuesVisitorTest {
     assertThat(defaultIssueCaptor.getValue().ruleKey().rule()).isEqualTo("S001");
   }
 
+  @Test
+  public void use_tracking_done_when_file_was_prepared() throws Exception {
+    ScannerReport.Issue reportIssue = ScannerReport.Issue.newBuilder()
+      .setMsg("the message")
+      .setRuleRepository("xoo")
+      .setRuleKey("S001")
+      .setSeverity(Constants.Severity.BLOCKER)
+      .build();
+    reportReader.putIssues(FILE_REF, asList(reportIssue));
+    fileSourceRepository.addLine(FILE_REF, "line1");
+
+    ((FileLocalVisitor) underTest).prepareFile(FILE);
+    // issues are not read again from the report when the file is visited
+    reportReader.putIssues(FILE_REF, Collections.emptyList());
+    underTest.visitAny(FILE);
+
+    verify(issueLifecycle).initNewOpenIssue(defaultIssueCaptor.capture());
+    assertThat(defaultIssueCaptor.getValue().ruleKey().rule()).isEqualTo("S001");
+    assertThat(newArrayList(issueCache.traverse())).hasSize(1);
+  }
+
   @Test
   public void close_unmatched_base_issue() throws Exception {
     RuleKey ruleKey = RuleTesting.XOO_X1;
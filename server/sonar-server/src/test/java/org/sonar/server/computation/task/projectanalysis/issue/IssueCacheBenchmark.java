@@ -0,0 +1,132 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import java.io.File;
+import java.util.Date;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.core.issue.IssueChangeContext;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.db.protobuf.DbCommons;
+import org.sonar.db.protobuf.DbIssues;
+import org.sonar.server.util.cache.DiskCache;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares {@link IssueCache}, which encodes issues with {@link DefaultIssueCodec}, with a {@link DiskCache} relying
+ * on Java serialization: duration of appending and traversing all the issues, and size of the file.
+ * Not executed by unit tests, run it with {@code mvn test -Dbenchmark}.
+ */
+public class IssueCacheBenchmark {
+
+  private static final Logger LOGGER = Loggers.get(IssueCacheBenchmark.class);
+  private static final int ISSUES = 200_000;
+  private static final int ISSUES_PER_FILE = 20;
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void compare_with_java_serialization() throws Exception {
+    // warm-up of both implementations
+    run(new DiskCache<>(temp.newFile(), System2.INSTANCE));
+    run(new IssueCache(temp.newFile(), System2.INSTANCE));
+
+    File serializationFile = temp.newFile();
+    long[] serializationTimes = run(new DiskCache<>(serializationFile, System2.INSTANCE));
+    File codecFile = temp.newFile();
+    long[] codecTimes = run(new IssueCache(codecFile, System2.INSTANCE));
+
+    LOGGER.info("{} issues - Java serialization: append {} ms, traverse {} ms, {} bytes - DefaultIssueCodec: append {} ms, traverse {} ms, {} bytes",
+      ISSUES, serializationTimes[0], serializationTimes[1], serializationFile.length(), codecTimes[0], codecTimes[1], codecFile.length());
+    assertThat(codecFile.length()).isLessThan(serializationFile.length());
+  }
+
+  private static long[] run(DiskCache<DefaultIssue> cache) {
+    long start = System.currentTimeMillis();
+    try (DiskCache<DefaultIssue>.DiskAppender appender = cache.newAppender()) {
+      for (int i = 0; i < ISSUES; i++) {
+        appender.append(newIssue(i));
+      }
+    }
+    long appendTime = System.currentTimeMillis() - start;
+
+    start = System.currentTimeMillis();
+    int count = 0;
+    try (CloseableIterator<DefaultIssue> it = cache.traverse()) {
+      while (it.hasNext()) {
+        assertThat(it.next().key()).isNotNull();
+        count++;
+      }
+    }
+    long traverseTime = System.currentTimeMillis() - start;
+    assertThat(count).isEqualTo(ISSUES);
+    return new long[] {appendTime, traverseTime};
+  }
+
+  private static DefaultIssue newIssue(int index) {
+    int file = index / ISSUES_PER_FILE;
+    int line = index % ISSUES_PER_FILE * 10 + 1;
+    DefaultIssue issue = new DefaultIssue()
+      .setKey("AV-issue-" + index)
+      .setType(RuleType.CODE_SMELL)
+      .setComponentUuid("AV-file-" + file)
+      .setComponentKey("org.foo:bar:src/main/java/org/foo/File" + file + ".java")
+      .setModuleUuid("AV-module")
+      .setModuleUuidPath(".AV-module.")
+      .setProjectUuid("AV-project")
+      .setProjectKey("org.foo:bar")
+      .setRuleKey(RuleKey.of("squid", "S" + (index % 300)))
+      .setLanguage("java")
+      .setSeverity(Severity.MAJOR)
+      .setMessage("Remove this unused private field " + index)
+      .setLine(line)
+      .setGap(2.0)
+      .setEffort(Duration.create(5L))
+      .setStatus("OPEN")
+      .setChecksum("c0a1bd5d7d8d8b5b0ae8c14d8e4a5c1d")
+      .setLocations(DbIssues.Locations.newBuilder()
+        .setTextRange(DbCommons.TextRange.newBuilder().setStartLine(line).setEndLine(line).setStartOffset(4).setEndOffset(20))
+        .build())
+      .setTags(asList("unused", "pitfall"))
+      .setCreationDate(new Date(1_500_000_000_000L))
+      .setUpdateDate(new Date(1_500_000_000_000L))
+      .setNew(index % 10 == 0)
+      .setChanged(true);
+    if (index % 5 == 0) {
+      issue.setFieldChange(IssueChangeContext.createScan(new Date(1_500_000_000_000L)), "severity", Severity.MINOR, Severity.MAJOR);
+      issue.addChange(new FieldDiffs().setDiff("status", "CONFIRMED", "OPEN"));
+    }
+    return issue;
+  }
+}
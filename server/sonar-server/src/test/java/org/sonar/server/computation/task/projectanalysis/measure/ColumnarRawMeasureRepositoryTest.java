@@ -0,0 +1,245 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.measure;
+
+import com.google.common.collect.SetMultimap;
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+import com.tngtech.java.junit.dataprovider.UseDataProvider;
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.Developer;
+import org.sonar.server.computation.task.projectanalysis.component.DumbDeveloper;
+import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.measure.MapBasedRawMeasureRepository.OverridePolicy;
+import org.sonar.server.computation.task.projectanalysis.metric.Metric;
+import org.sonar.server.computation.task.projectanalysis.metric.MetricImpl;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.guava.api.Assertions.assertThat;
+import static org.sonar.server.computation.task.projectanalysis.measure.Measure.newMeasureBuilder;
+
+@RunWith(DataProviderRunner.class)
+public class ColumnarRawMeasureRepositoryTest {
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private static final ReportComponent FILE_COMPONENT = ReportComponent.builder(Component.Type.FILE, 1).setKey("file cpt key").build();
+  private static final ReportComponent OTHER_COMPONENT = ReportComponent.builder(Component.Type.FILE, 2).setKey("some other key").build();
+  private static final ReportComponent FAR_COMPONENT = ReportComponent.builder(Component.Type.FILE, 100_000).setKey("far key").build();
+  private static final Developer SOME_DEVELOPER = new DumbDeveloper("DEV1");
+
+  private final Metric intMetric = new MetricImpl(1, "int metric", "int metric", Metric.MetricType.INT);
+  private final Metric stringMetric = new MetricImpl(2, "string metric", "string metric", Metric.MetricType.STRING);
+
+  private ColumnarRawMeasureRepository underTest = new ColumnarRawMeasureRepository(component -> component.getReportAttributes().getRef());
+
+  @DataProvider
+  public static Object[][] measuresOfAllValueTypes() {
+    return new Object[][] {
+      {Metric.MetricType.BOOL, newMeasureBuilder().create(true)},
+      {Metric.MetricType.BOOL, newMeasureBuilder().setVariation(-1d).create(false, "some data")},
+      {Metric.MetricType.INT, newMeasureBuilder().create(12)},
+      {Metric.MetricType.INT, newMeasureBuilder().setVariation(3d).create(-5, "some data")},
+      {Metric.MetricType.WORK_DUR, newMeasureBuilder().create(123_456_789L)},
+      {Metric.MetricType.WORK_DUR, newMeasureBuilder().setVariation(0d).create(0L, "some data")},
+      {Metric.MetricType.FLOAT, newMeasureBuilder().create(1.25d, 2)},
+      {Metric.MetricType.FLOAT, newMeasureBuilder().setVariation(0.5d).create(-3.1d, 1, "some data")},
+      {Metric.MetricType.STRING, newMeasureBuilder().create("some value")},
+      {Metric.MetricType.DATA, newMeasureBuilder().setVariation(2d).create("some other value")},
+      {Metric.MetricType.LEVEL, newMeasureBuilder().create(Measure.Level.WARN)},
+      {Metric.MetricType.LEVEL, newMeasureBuilder().setQualityGateStatus(new QualityGateStatus(Measure.Level.ERROR, "some text")).create(Measure.Level.ERROR)},
+      {Metric.MetricType.INT, newMeasureBuilder().setQualityGateStatus(new QualityGateStatus(Measure.Level.OK)).create(1)},
+      {Metric.MetricType.INT, newMeasureBuilder().createNoValue()},
+      {Metric.MetricType.STRING, newMeasureBuilder().setVariation(1d).createNoValue()}
+    };
+  }
+
+  @Test
+  @UseDataProvider("measuresOfAllValueTypes")
+  public void getRawMeasure_returns_a_measure_with_the_same_attributes_as_the_one_added(Metric.MetricType metricType, Measure measure) {
+    Metric metric = new MetricImpl(10, "metric", "metric", metricType);
+
+    underTest.add(FILE_COMPONENT, metric, measure);
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, metric).get()).isEqualToComparingFieldByField(measure);
+    assertThat(underTest.getRawMeasure(OTHER_COMPONENT, metric)).isAbsent();
+  }
+
+  @Test
+  public void add_throws_NPE_if_Component_argument_is_null() {
+    expectedException.expect(NullPointerException.class);
+
+    underTest.add(null, intMetric, newMeasureBuilder().create(1));
+  }
+
+  @Test
+  public void add_throws_NPE_if_Metric_argument_is_null() {
+    expectedException.expect(NullPointerException.class);
+
+    underTest.add(FILE_COMPONENT, null, newMeasureBuilder().create(1));
+  }
+
+  @Test
+  public void add_throws_NPE_if_Measure_argument_is_null() {
+    expectedException.expect(NullPointerException.class);
+
+    underTest.add(FILE_COMPONENT, intMetric, null);
+  }
+
+  @Test
+  public void add_throws_IAE_if_valueType_of_Measure_is_not_the_same_as_the_Metric_valueType() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Measure's ValueType (STRING) is not consistent with the Metric's ValueType (INT)");
+
+    underTest.add(FILE_COMPONENT, intMetric, newMeasureBuilder().create("some value"));
+  }
+
+  @Test
+  public void add_throws_UOE_if_measure_already_exists() {
+    underTest.add(FILE_COMPONENT, intMetric, newMeasureBuilder().create(1));
+
+    expectedException.expect(UnsupportedOperationException.class);
+    expectedException.expectMessage("a measure can be set only once for a specific Component (key=file cpt key), Metric (key=int metric). Use update method");
+
+    underTest.add(FILE_COMPONENT, intMetric, newMeasureBuilder().create(2));
+  }
+
+  @Test
+  public void add_throws_IAE_if_index_of_component_is_negative() {
+    ColumnarRawMeasureRepository underTest = new ColumnarRawMeasureRepository(component -> -1);
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Index of component file cpt key must be positive: -1");
+
+    underTest.add(FILE_COMPONENT, intMetric, newMeasureBuilder().create(1));
+  }
+
+  @Test
+  public void add_with_DO_NOT_OVERRIDE_policy_keeps_existing_measure() {
+    underTest.add(FILE_COMPONENT, intMetric, newMeasureBuilder().create(1));
+    underTest.add(FILE_COMPONENT, intMetric, newMeasureBuilder().create(2), OverridePolicy.DO_NOT_OVERRIDE);
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, intMetric).get().getIntValue()).isEqualTo(1);
+
+    underTest.add(FILE_COMPONENT, intMetric, newMeasureBuilder().create(3), OverridePolicy.OVERRIDE);
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, intMetric).get().getIntValue()).isEqualTo(3);
+  }
+
+  @Test
+  public void update_throws_UOE_if_measure_does_not_exist() {
+    expectedException.expect(UnsupportedOperationException.class);
+    expectedException.expectMessage("a measure can be updated only if one already exists for a specific Component (key=file cpt key), Metric (key=int metric). Use add method");
+
+    underTest.update(FILE_COMPONENT, intMetric, newMeasureBuilder().create(1));
+  }
+
+  @Test
+  public void update_replaces_all_the_attributes_of_the_stored_measure() {
+    underTest.add(FILE_COMPONENT, intMetric, newMeasureBuilder()
+      .setVariation(2d)
+      .setQualityGateStatus(new QualityGateStatus(Measure.Level.WARN))
+      .create(1, "some data"));
+    Measure newMeasure = newMeasureBuilder().create(5);
+
+    underTest.update(FILE_COMPONENT, intMetric, newMeasure);
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, intMetric).get()).isEqualToComparingFieldByField(newMeasure);
+  }
+
+  @Test
+  public void measures_of_components_with_high_index_are_stored() {
+    underTest.add(FILE_COMPONENT, intMetric, newMeasureBuilder().create(1));
+    underTest.add(FAR_COMPONENT, intMetric, newMeasureBuilder().setVariation(1d).create(2, "some data"));
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, intMetric).get().getIntValue()).isEqualTo(1);
+    assertThat(underTest.getRawMeasure(FAR_COMPONENT, intMetric).get().getIntValue()).isEqualTo(2);
+    assertThat(underTest.getRawMeasure(FAR_COMPONENT, intMetric).get().getData()).isEqualTo("some data");
+    assertThat(underTest.getRawMeasure(OTHER_COMPONENT, intMetric)).isAbsent();
+  }
+
+  @Test
+  public void getRawMeasures_returns_measures_of_all_metrics_of_the_component() {
+    underTest.add(FILE_COMPONENT, intMetric, newMeasureBuilder().create(1));
+    underTest.add(FILE_COMPONENT, stringMetric, newMeasureBuilder().create("some value"));
+    underTest.add(OTHER_COMPONENT, intMetric, newMeasureBuilder().create(2));
+
+    SetMultimap<String, Measure> rawMeasures = underTest.getRawMeasures(FILE_COMPONENT);
+
+    assertThat(rawMeasures.keySet()).containsOnly("int metric", "string metric");
+    assertThat(rawMeasures.get("int metric").iterator().next().getIntValue()).isEqualTo(1);
+    assertThat(rawMeasures.get("string metric").iterator().next().getStringValue()).isEqualTo("some value");
+    assertThat(underTest.getRawMeasures(FAR_COMPONENT).isEmpty()).isTrue();
+  }
+
+  @Test
+  public void getRawMeasures_for_metric_returns_empty_if_repository_is_empty() {
+    assertThat(underTest.getRawMeasures(FILE_COMPONENT, intMetric)).isEmpty();
+  }
+
+  @Test
+  public void developer_measures_are_stored_along_with_the_measure_of_the_component() {
+    Measure devMeasure = newMeasureBuilder().forDeveloper(SOME_DEVELOPER).create(3);
+    underTest.add(FILE_COMPONENT, intMetric, newMeasureBuilder().create(1));
+    underTest.add(FILE_COMPONENT, intMetric, devMeasure);
+
+    Set<Measure> measures = underTest.getRawMeasures(FILE_COMPONENT, intMetric);
+
+    assertThat(measures).hasSize(2);
+    assertThat(measures).contains(devMeasure);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, intMetric).get().getIntValue()).isEqualTo(1);
+    assertThat(underTest.getRawMeasures(FILE_COMPONENT).get("int metric")).hasSize(2);
+  }
+
+  @Test
+  public void numeric_measures_of_many_files_are_stored_in_arrays_of_bounded_capacity() {
+    int files = 10_000;
+    Metric otherIntMetric = new MetricImpl(3, "other int metric", "other int metric", Metric.MetricType.INT);
+    for (int ref = 1; ref <= files; ref++) {
+      ReportComponent file = ReportComponent.builder(Component.Type.FILE, ref).build();
+      underTest.add(file, intMetric, newMeasureBuilder().create(ref));
+      underTest.add(file, otherIntMetric, newMeasureBuilder().create(-ref));
+    }
+
+    for (Metric metric : asList(intMetric, otherIntMetric)) {
+      // arrays grow by 50%
+      assertThat(underTest.capacity(metric)).isBetween(files + 1, (files + 1) * 3 / 2);
+      assertThat(underTest.hasSideTables(metric)).isFalse();
+    }
+    assertThat(underTest.getRawMeasure(ReportComponent.builder(Component.Type.FILE, files).build(), otherIntMetric).get().getIntValue()).isEqualTo(-files);
+  }
+
+  @Test
+  public void side_tables_are_allocated_only_when_needed() {
+    underTest.add(FILE_COMPONENT, intMetric, newMeasureBuilder().create(1));
+    underTest.add(FILE_COMPONENT, stringMetric, newMeasureBuilder().create("some value"));
+
+    assertThat(underTest.capacity(stringMetric)).isPositive();
+    assertThat(underTest.hasSideTables(intMetric)).isFalse();
+    assertThat(underTest.hasSideTables(stringMetric)).isTrue();
+    assertThat(underTest.capacity(new MetricImpl(3, "no measures", "no measures", Metric.MetricType.INT))).isZero();
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.measure;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.metric.Metric;
+import org.sonar.server.computation.task.projectanalysis.metric.MetricImpl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the heap retained by {@link MapBasedRawMeasureRepository} and {@link ColumnarRawMeasureRepository} when
+ * storing the numeric measures of a synthetic project of {@link #FILES} files and {@link #METRICS} metrics.
+ * Heap is measured after garbage collections, so results are approximate.
+ * Not executed by unit tests, run it with {@code mvn test -Dbenchmark}.
+ */
+public class RawMeasureRepositoryMemoryBenchmark {
+  private static final Logger LOGGER = Loggers.get(RawMeasureRepositoryMemoryBenchmark.class);
+  private static final int FILES = 10_000;
+  private static final int METRICS = 60;
+
+  private final List<Component> files = createFiles();
+  private final List<Metric> metrics = createMetrics();
+
+  @Test
+  public void columnar_repository_retains_much_less_memory_than_map_based_repository() {
+    long mapBasedBytes = retainedBytes(new MapBasedRawMeasureRepository<>(component -> component.getReportAttributes().getRef()));
+    long columnarBytes = retainedBytes(new ColumnarRawMeasureRepository(component -> component.getReportAttributes().getRef()));
+
+    LOGGER.info("{} measures retain {} KB in MapBasedRawMeasureRepository and {} KB in ColumnarRawMeasureRepository",
+      FILES * METRICS, mapBasedBytes / 1024, columnarBytes / 1024);
+    assertThat(columnarBytes * 4).isLessThan(mapBasedBytes);
+  }
+
+  private long retainedBytes(MeasureRepository repository) {
+    long before = usedHeap();
+    for (Component file : files) {
+      int ref = file.getReportAttributes().getRef();
+      for (Metric metric : metrics) {
+        repository.add(file, metric, Measure.newMeasureBuilder().create(ref + metric.getId()));
+      }
+    }
+    long after = usedHeap();
+
+    // keep the repository reachable until heap has been measured
+    assertThat(repository.getRawMeasure(files.get(FILES - 1), metrics.get(METRICS - 1)).get().getIntValue()).isEqualTo(FILES + METRICS - 1);
+    return after - before;
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static List<Component> createFiles() {
+    List<Component> res = new ArrayList<>(FILES);
+    for (int ref = 1; ref <= FILES; ref++) {
+      res.add(ReportComponent.builder(Component.Type.FILE, ref).build());
+    }
+    return res;
+  }
+
+  private static List<Metric> createMetrics() {
+    List<Metric> res = new ArrayList<>(METRICS);
+    for (int id = 0; id < METRICS; id++) {
+      res.add(new MetricImpl(id, "metric_" + id, "Metric " + id, Metric.MetricType.INT));
+    }
+    return res;
+  }
+}
@@ -22,7 +22,11 @@ package org.sonar.server.computation.task.projectanalysis.step;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.ZipFile;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -70,21 +74,45 @@ public class ExtractReportStepTest {
   }
 
   @Test
-  public void unzip_report() throws Exception {
-    File reportFile = generateReport();
-    try (InputStream input = FileUtils.openInputStream(reportFile)) {
-      dbTester.getDbClient().ceTaskInputDao().insert(dbTester.getSession(), TASK_UUID, input);
+  public void copy_report_zip_file_without_extracting_it() throws Exception {
+    insertReport(generateReport());
+
+    underTest.execute();
+
+    // zip file is read directly, it contains only metadata.pb in this test
+    File zipFile = reportDirectoryHolder.getZipFile().get();
+    assertThat(zipFile).isFile().exists();
+    try (ZipFile zip = new ZipFile(zipFile)) {
+      assertThat(zip.size()).isEqualTo(1);
+      assertThat(IOUtils.toString(zip.getInputStream(zip.getEntry("metadata.pb")), StandardCharsets.UTF_8)).isEqualTo("{metadata}");
     }
-    dbTester.getSession().commit();
-    dbTester.getSession().close();
+  }
+
+  @Test
+  public void unzip_report_if_it_can_not_be_read_as_zip_file() throws Exception {
+    File reportFile = generateReport();
+    // remove the end of central directory record, so that entries can be read only sequentially
+    byte[] bytes = FileUtils.readFileToByteArray(reportFile);
+    FileUtils.writeByteArrayToFile(reportFile, Arrays.copyOf(bytes, bytes.length - 22));
+    insertReport(reportFile);
 
     underTest.execute();
 
     // directory contains the uncompressed report (which contains only metadata.pb in this test)
+    assertThat(reportDirectoryHolder.getZipFile()).isEmpty();
     File unzippedDir = reportDirectoryHolder.getDirectory();
     assertThat(unzippedDir).isDirectory().exists();
     assertThat(unzippedDir.listFiles()).hasSize(1);
     assertThat(new File(unzippedDir, "metadata.pb")).hasContent("{metadata}");
+    assertThat(logTester.logs(LoggerLevel.WARN)).containsOnly("Report 1 can not be read as a zip file, it will be extracted");
+  }
+
+  private void insertReport(File reportFile) throws IOException {
+    try (InputStream input = FileUtils.openInputStream(reportFile)) {
+      dbTester.getDbClient().ceTaskInputDao().insert(dbTester.getSession(), TASK_UUID, input);
+    }
+    dbTester.getSession().commit();
+    dbTester.getSession().close();
   }
 
   private File generateReport() throws IOException {
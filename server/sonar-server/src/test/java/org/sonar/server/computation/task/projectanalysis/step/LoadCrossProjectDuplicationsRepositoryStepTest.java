@@ -58,6 +58,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.FILE;
@@ -325,6 +326,91 @@ public class LoadCrossProjectDuplicationsRepositoryStepTest {
     verifyZeroInteractions(integrateCrossProjectDuplications);
   }
 
+  @Test
+  public void call_compute_cpd_on_files_of_several_batches() throws Exception {
+    when(crossProjectDuplicationStatusHolder.isEnabled()).thenReturn(true);
+    analysisMetadataHolder.setBaseAnalysis(baseProjectAnalysis);
+    Component file1 = ReportComponent.builder(FILE, 3).setKey("FILE_1").setFileAttributes(new FileAttributes(false, XOO_LANGUAGE, 1)).build();
+    Component file2 = ReportComponent.builder(FILE, 4).setKey("FILE_2").setFileAttributes(new FileAttributes(false, XOO_LANGUAGE, 1)).build();
+    Component file3 = ReportComponent.builder(FILE, 5).setKey("FILE_3").setFileAttributes(new FileAttributes(false, XOO_LANGUAGE, 1)).build();
+    treeRootHolder.setRoot(ReportComponent.builder(PROJECT, PROJECT_REF).addChildren(file1, file2, file3).build());
+
+    ComponentDto otherProject = createProject("OTHER_PROJECT_KEY");
+    SnapshotDto otherProjectSnapshot = createProjectSnapshot(otherProject);
+    ComponentDto otherFile = createFile("OTHER_FILE_KEY", otherProject);
+    DuplicationUnitDto duplicate1 = insertDuplicate("a8998353e96320ec", 0, otherProjectSnapshot, otherFile);
+    DuplicationUnitDto duplicate2 = insertDuplicate("b1234353e96320ff", 1, otherProjectSnapshot, otherFile);
+
+    ScannerReport.CpdTextBlock block1 = newCpdTextBlock(duplicate1.getHash());
+    ScannerReport.CpdTextBlock block2 = newCpdTextBlock(duplicate2.getHash());
+    ScannerReport.CpdTextBlock notDuplicatedBlock = newCpdTextBlock("c1234353e96320aa");
+    batchReportReader.putDuplicationBlocks(3, asList(block1, block2));
+    batchReportReader.putDuplicationBlocks(4, asList(notDuplicatedBlock));
+    batchReportReader.putDuplicationBlocks(5, asList(notDuplicatedBlock, block2));
+
+    new LoadCrossProjectDuplicationsRepositoryStep(treeRootHolder, batchReportReader, analysisMetadataHolder, crossProjectDuplicationStatusHolder,
+      integrateCrossProjectDuplications, dbClient, 2).execute();
+
+    verify(integrateCrossProjectDuplications).computeCpd(file1,
+      asList(toBlock("FILE_1", block1, 0), toBlock("FILE_1", block2, 1)),
+      asList(toBlock(otherFile, duplicate1), toBlock(otherFile, duplicate2)));
+    verify(integrateCrossProjectDuplications).computeCpd(file3,
+      asList(toBlock("FILE_3", notDuplicatedBlock, 0), toBlock("FILE_3", block2, 1)),
+      asList(toBlock(otherFile, duplicate2)));
+    verifyNoMoreInteractions(integrateCrossProjectDuplications);
+  }
+
+  @Test
+  public void fail_if_batch_size_is_not_positive() {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Batch size must be positive: 0");
+
+    new LoadCrossProjectDuplicationsRepositoryStep(treeRootHolder, batchReportReader, analysisMetadataHolder, crossProjectDuplicationStatusHolder,
+      integrateCrossProjectDuplications, dbClient, 0);
+  }
+
+  private DuplicationUnitDto insertDuplicate(String hash, int indexInFile, SnapshotDto snapshot, ComponentDto file) {
+    DuplicationUnitDto duplicate = new DuplicationUnitDto()
+      .setHash(hash)
+      .setStartLine(40 + indexInFile)
+      .setEndLine(55 + indexInFile)
+      .setIndexInFile(indexInFile)
+      .setAnalysisUuid(snapshot.getUuid())
+      .setComponentUuid(file.uuid());
+    dbClient.duplicationDao().insert(dbSession, duplicate);
+    dbSession.commit();
+    return duplicate;
+  }
+
+  private static ScannerReport.CpdTextBlock newCpdTextBlock(String hash) {
+    return ScannerReport.CpdTextBlock.newBuilder()
+      .setHash(hash)
+      .setStartLine(30)
+      .setEndLine(45)
+      .setStartTokenIndex(0)
+      .setEndTokenIndex(10)
+      .build();
+  }
+
+  private static Block toBlock(String fileKey, ScannerReport.CpdTextBlock cpdTextBlock, int indexInFile) {
+    return new Block.Builder()
+      .setResourceId(fileKey)
+      .setBlockHash(new ByteArray(cpdTextBlock.getHash()))
+      .setIndexInFile(indexInFile)
+      .setLines(cpdTextBlock.getStartLine(), cpdTextBlock.getEndLine())
+      .setUnit(cpdTextBlock.getStartTokenIndex(), cpdTextBlock.getEndTokenIndex())
+      .build();
+  }
+
+  private static Block toBlock(ComponentDto file, DuplicationUnitDto duplicate) {
+    return new Block.Builder()
+      .setResourceId(file.getDbKey())
+      .setBlockHash(new ByteArray(duplicate.getHash()))
+      .setIndexInFile(duplicate.getIndexInFile())
+      .setLines(duplicate.getStartLine(), duplicate.getEndLine())
+      .build();
+  }
+
   private ComponentDto createProject(String projectKey) {
     ComponentDto project = ComponentTesting.newPrivateProjectDto(dbTester.organizations().insert()).setDbKey(projectKey);
     dbClient.componentDao().insert(dbSession, project);
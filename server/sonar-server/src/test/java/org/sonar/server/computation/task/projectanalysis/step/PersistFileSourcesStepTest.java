@@ -280,18 +280,37 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
 
   @Test
   public void not_update_sources_when_nothing_has_changed() {
-    // Existing sources
+    initBasicReport(1);
+    underTest.execute();
+    FileSourceDto persistedDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE1_UUID);
+
+    // Same sources in the next analysis
+    when(system2.now()).thenReturn(NOW + 1_000L);
+    underTest.execute();
+
+    assertThat(dbTester.countRowsOfTable("file_sources")).isEqualTo(1);
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE1_UUID);
+    assertThat(fileSourceDto.getSrcHash()).isEqualTo(persistedDto.getSrcHash());
+    assertThat(fileSourceDto.getLineHashes()).isEqualTo(persistedDto.getLineHashes());
+    assertThat(fileSourceDto.getDataHash()).isEqualTo(persistedDto.getDataHash());
+    assertThat(fileSourceDto.getCreatedAt()).isEqualTo(NOW);
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(NOW);
+  }
+
+  @Test
+  public void update_sources_stored_in_a_single_block_by_previous_versions() {
+    // Existing sources, which data hash is the one of the data before it was split in chunks
     long past = 150000L;
     String srcHash = "137f72c3708c6bd0de00a0e5a69c699b";
     String lineHashes = "137f72c3708c6bd0de00a0e5a69c699b";
-    String dataHash = "29f25900140c94db38035128cb6de6a2";
+    String singleBlockDataHash = "29f25900140c94db38035128cb6de6a2";
 
     dbClient.fileSourceDao().insert(dbTester.getSession(), new FileSourceDto()
       .setProjectUuid(PROJECT_UUID)
       .setFileUuid(FILE1_UUID)
       .setSrcHash(srcHash)
       .setLineHashes(lineHashes)
-      .setDataHash(dataHash)
+      .setDataHash(singleBlockDataHash)
       .setSourceData(DbFileSources.Data.newBuilder()
         .addLines(DbFileSources.Line.newBuilder()
           .setLine(1)
@@ -310,10 +329,10 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     assertThat(dbTester.countRowsOfTable("file_sources")).isEqualTo(1);
     FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE1_UUID);
     assertThat(fileSourceDto.getSrcHash()).isEqualTo(srcHash);
-    assertThat(fileSourceDto.getLineHashes()).isEqualTo(lineHashes);
-    assertThat(fileSourceDto.getDataHash()).isEqualTo(dataHash);
+    assertThat(fileSourceDto.getDataHash()).isNotEqualTo(singleBlockDataHash);
     assertThat(fileSourceDto.getCreatedAt()).isEqualTo(past);
-    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(past);
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(NOW);
+    assertThat(fileSourceDto.getSourceLines(1, 1)).extracting(DbFileSources.Line::getSource).containsExactly("line1");
   }
 
   @Test
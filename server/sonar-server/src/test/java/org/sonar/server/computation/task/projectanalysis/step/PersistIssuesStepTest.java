@@ -25,6 +25,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.api.issue.Issue;
 import org.sonar.api.rule.RuleKey;
@@ -51,6 +52,7 @@ import org.sonar.server.computation.task.projectanalysis.issue.IssueCache;
 import org.sonar.server.computation.task.projectanalysis.issue.RuleRepositoryImpl;
 import org.sonar.server.computation.task.projectanalysis.issue.UpdateConflictResolver;
 import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.util.cache.DiskCache;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -63,6 +65,8 @@ public class PersistIssuesStepTest extends BaseStepTest {
   @Rule
   public TemporaryFolder temp = new TemporaryFolder();
   @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
   public DbTester dbTester = DbTester.create(System2.INSTANCE);
   @Rule
   public BatchReportReaderRule reportReader = new BatchReportReaderRule();
@@ -304,4 +308,77 @@ public class PersistIssuesStepTest extends BaseStepTest {
     dbTester.assertDbUnit(getClass(), "add_change-result.xml", new String[] {"id", "created_at", "updated_at"}, "issue_changes");
   }
 
+  @Test
+  public void resolve_conflict_with_changes_made_by_user_since_issue_was_loaded() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+
+    issueCache.newAppender().append(new DefaultIssue()
+      .setKey("ISSUE")
+      .setType(RuleType.CODE_SMELL)
+      .setRuleKey(RuleKey.of("xoo", "S01"))
+      .setComponentUuid("COMPONENT")
+      .setProjectUuid("PROJECT")
+      .setSeverity(Severity.BLOCKER)
+      .setStatus(Issue.STATUS_CLOSED)
+      .setResolution(Issue.RESOLUTION_FIXED)
+      .setMessage("new message")
+      // issue has been loaded before being updated by user (updated_at=1300000000000)
+      .setSelectedAt(1200000000000L)
+      .setNew(false)
+      .setChanged(true)).close();
+
+    step.execute();
+
+    IssueDto result = dbClient.issueDao().selectOrFailByKey(session, "ISSUE");
+    // status of database is kept, other fields are updated
+    assertThat(result.getStatus()).isEqualTo(Issue.STATUS_OPEN);
+    assertThat(result.getResolution()).isNull();
+    assertThat(result.getMessage()).isEqualTo("new message");
+  }
+
+  @Test
+  public void persist_issues_by_batches() {
+    RuleDefinitionDto rule = RuleTesting.newRule(RuleKey.of("xoo", "S01"));
+    dbTester.rules().insert(rule);
+    OrganizationDto organizationDto = dbTester.organizations().insert();
+    ComponentDto project = ComponentTesting.newPrivateProjectDto(organizationDto);
+    dbClient.componentDao().insert(session, project);
+    ComponentDto file = ComponentTesting.newFileDto(project, null);
+    dbClient.componentDao().insert(session, file);
+    session.commit();
+
+    DiskCache<DefaultIssue>.DiskAppender appender = issueCache.newAppender();
+    for (int i = 0; i < 7; i++) {
+      appender.append(new DefaultIssue()
+        .setKey("ISSUE_" + i)
+        .setType(RuleType.CODE_SMELL)
+        .setRuleKey(rule.getKey())
+        .setComponentUuid(file.uuid())
+        .setProjectUuid(project.uuid())
+        .setSeverity(Severity.BLOCKER)
+        .setStatus(Issue.STATUS_OPEN)
+        .addComment(new DefaultIssueComment()
+          .setKey("COMMENT_" + i)
+          .setIssueKey("ISSUE_" + i)
+          .setUserLogin("john")
+          .setMarkdownText("Some text")
+          .setNew(true))
+        .setNew(true));
+    }
+    appender.close();
+
+    new PersistIssuesStep(dbClient, system2, new UpdateConflictResolver(), new RuleRepositoryImpl(dbClient, analysisMetadataHolder), issueCache, 3).execute();
+
+    assertThat(dbTester.countRowsOfTable("issues")).isEqualTo(7);
+    assertThat(dbTester.countRowsOfTable("issue_changes")).isEqualTo(7);
+  }
+
+  @Test
+  public void fail_if_batch_size_is_greater_than_batch_size_of_session() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Batch size must be between 1 and 249: 250");
+
+    new PersistIssuesStep(dbClient, system2, new UpdateConflictResolver(), new RuleRepositoryImpl(dbClient, analysisMetadataHolder), issueCache, 250);
+  }
+
 }
@@ -19,11 +19,20 @@
  */
 package org.sonar.server.computation.task.step;
 
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.DisableOnDebug;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TestRule;
+import org.junit.rules.Timeout;
 import org.mockito.InOrder;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
@@ -32,9 +41,11 @@ import org.sonar.server.computation.task.ChangeLogLevel;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -44,6 +55,8 @@ public class ComputationStepExecutorTest {
   public LogTester logTester = new LogTester();
   @Rule
   public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public TestRule safeguardTimeout = new DisableOnDebug(Timeout.seconds(60));
 
   private final ComputationStepExecutor.Listener listener = mock(ComputationStepExecutor.Listener.class);
   private final ComputationStep computationStep1 = mockComputationStep("step1");
@@ -152,6 +165,146 @@ public class ComputationStepExecutorTest {
     new ComputationStepExecutor(mockComputationSteps(computationStep1), listener).execute();
   }
 
+  @Test
+  public void execute_runs_concurrently_ConcurrentComputationSteps_which_do_not_conflict() {
+    CountDownLatch bothStarted = new CountDownLatch(2);
+    // each step waits for the other one to be started, so they can not succeed unless executed concurrently
+    TestConcurrentStep step1 = new TestConcurrentStep("step1", ImmutableSet.of(String.class), Collections.emptySet(), () -> awaitCountDown(bothStarted));
+    TestConcurrentStep step2 = new TestConcurrentStep("step2", ImmutableSet.of(String.class), Collections.emptySet(), () -> awaitCountDown(bothStarted));
+
+    new ComputationStepExecutor(mockComputationSteps(step1, step2)).execute();
+
+    assertThat(step1.executed).isTrue();
+    assertThat(step2.executed).isTrue();
+  }
+
+  @Test
+  public void execute_runs_ConcurrentComputationSteps_in_order_when_one_writes_what_the_other_one_reads() {
+    List<String> executed = Collections.synchronizedList(new ArrayList<>());
+    TestConcurrentStep writer = new TestConcurrentStep("writer", Collections.emptySet(), ImmutableSet.of(String.class), () -> {
+      sleep();
+      executed.add("writer");
+    });
+    TestConcurrentStep independent = new TestConcurrentStep("independent", ImmutableSet.of(Integer.class), Collections.emptySet(), () -> executed.add("independent"));
+    TestConcurrentStep reader = new TestConcurrentStep("reader", ImmutableSet.of(String.class), Collections.emptySet(), () -> executed.add("reader"));
+
+    new ComputationStepExecutor(mockComputationSteps(writer, independent, reader)).execute();
+
+    assertThat(executed).containsOnly("writer", "independent", "reader");
+    assertThat(executed.indexOf("reader")).isGreaterThan(executed.indexOf("writer"));
+  }
+
+  @Test
+  public void execute_waits_for_ConcurrentComputationSteps_before_executing_other_steps() {
+    List<String> executed = Collections.synchronizedList(new ArrayList<>());
+    TestConcurrentStep step1 = new TestConcurrentStep("step1", Collections.emptySet(), Collections.emptySet(), () -> {
+      sleep();
+      executed.add("step1");
+    });
+    TestConcurrentStep step2 = new TestConcurrentStep("step2", Collections.emptySet(), Collections.emptySet(), () -> executed.add("step2"));
+    doAnswer(invocation -> executed.add("step3")).when(computationStep3).execute();
+
+    new ComputationStepExecutor(mockComputationSteps(step1, step2, computationStep3)).execute();
+
+    assertThat(executed).hasSize(3);
+    assertThat(executed.get(2)).isEqualTo("step3");
+  }
+
+  @Test
+  public void execute_let_exception_thrown_by_ConcurrentComputationStep_go_up_as_is() {
+    RuntimeException toBeThrown = new RuntimeException("simulating failing concurrent step");
+    TestConcurrentStep step1 = new TestConcurrentStep("step1", Collections.emptySet(), ImmutableSet.of(String.class), () -> {
+      throw toBeThrown;
+    });
+    TestConcurrentStep step2 = new TestConcurrentStep("step2", ImmutableSet.of(String.class), Collections.emptySet(), () -> {
+      // nothing to do
+    });
+
+    try {
+      new ComputationStepExecutor(mockComputationSteps(step1, step2, computationStep3), listener).execute();
+      fail("exception toBeThrown should have been raised");
+    } catch (RuntimeException e) {
+      assertThat(e).isSameAs(toBeThrown);
+      assertThat(step2.executed).isFalse();
+      verify(computationStep3, never()).execute();
+      verify(listener).finished(false);
+    }
+  }
+
+  @Test
+  public void execute_logs_end_timing_for_each_ConcurrentComputationStep_when_level_is_DEBUG() {
+    TestConcurrentStep step1 = new TestConcurrentStep("step1", Collections.emptySet(), Collections.emptySet(), () -> {
+      // nothing to do
+    });
+    TestConcurrentStep step2 = new TestConcurrentStep("step2", Collections.emptySet(), Collections.emptySet(), () -> {
+      // nothing to do
+    });
+
+    try (ChangeLogLevel executor = new ChangeLogLevel(ComputationStepExecutor.class, LoggerLevel.DEBUG)) {
+      new ComputationStepExecutor(mockComputationSteps(step1, step2)).execute();
+    }
+
+    List<String> debugLogs = logTester.logs(LoggerLevel.DEBUG);
+    assertThat(debugLogs).hasSize(2);
+    assertThat(debugLogs.stream().anyMatch(log -> log.contains("step1 | time="))).isTrue();
+    assertThat(debugLogs.stream().anyMatch(log -> log.contains("step2 | time="))).isTrue();
+  }
+
+  private static void awaitCountDown(CountDownLatch latch) {
+    latch.countDown();
+    try {
+      assertThat(latch.await(30, TimeUnit.SECONDS)).isTrue();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void sleep() {
+    try {
+      Thread.sleep(100L);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static class TestConcurrentStep implements ConcurrentComputationStep {
+    private final String description;
+    private final Set<Class<?>> readDependencies;
+    private final Set<Class<?>> writeDependencies;
+    private final Runnable runnable;
+    private volatile boolean executed = false;
+
+    private TestConcurrentStep(String description, Set<Class<?>> readDependencies, Set<Class<?>> writeDependencies, Runnable runnable) {
+      this.description = description;
+      this.readDependencies = readDependencies;
+      this.writeDependencies = writeDependencies;
+      this.runnable = runnable;
+    }
+
+    @Override
+    public void execute() {
+      runnable.run();
+      executed = true;
+    }
+
+    @Override
+    public Set<Class<?>> getReadDependencies() {
+      return readDependencies;
+    }
+
+    @Override
+    public Set<Class<?>> getWriteDependencies() {
+      return writeDependencies;
+    }
+
+    @Override
+    public String getDescription() {
+      return description;
+    }
+  }
+
   private static ComputationSteps mockComputationSteps(ComputationStep... computationSteps) {
     ComputationSteps steps = mock(ComputationSteps.class);
     when(steps.instances()).thenReturn(Arrays.asList(computationSteps));
@@ -23,6 +23,7 @@ import com.google.common.collect.Multimap;
 import java.io.InvalidClassException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import org.apache.commons.lang.RandomStringUtils;
@@ -50,6 +51,7 @@ import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.only;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
@@ -105,24 +107,46 @@ public class DefaultNotificationManagerTest {
     List<NotificationQueueDto> dtos = Arrays.asList(dto);
     when(notificationQueueDao.selectOldest(1)).thenReturn(dtos);
 
-    assertThat(underTest.getFromQueue()).isNotNull();
+    assertThat(underTest.getFromQueue(1)).hasSize(1);
 
     InOrder inOrder = inOrder(notificationQueueDao);
     inOrder.verify(notificationQueueDao).selectOldest(1);
     inOrder.verify(notificationQueueDao).delete(dtos);
   }
 
+  @Test
+  public void getFromQueue_returns_a_batch_of_notifications() {
+    List<NotificationQueueDto> dtos = Arrays.asList(
+      NotificationQueueDto.toNotificationQueueDto(new Notification("test1")),
+      NotificationQueueDto.toNotificationQueueDto(new Notification("test2")));
+    when(notificationQueueDao.selectOldest(10)).thenReturn(dtos);
+
+    assertThat(underTest.getFromQueue(10)).extracting(Notification::getType).containsExactly("test1", "test2");
+
+    verify(notificationQueueDao).delete(dtos);
+  }
+
+  @Test
+  public void getFromQueue_returns_empty_list_if_queue_is_empty() {
+    when(notificationQueueDao.selectOldest(10)).thenReturn(Collections.emptyList());
+
+    assertThat(underTest.getFromQueue(10)).isEmpty();
+
+    verify(notificationQueueDao, never()).delete(any(List.class));
+  }
+
   // SONAR-4739
   @Test
   public void shouldNotFailWhenUnableToDeserialize() throws Exception {
     NotificationQueueDto dto1 = mock(NotificationQueueDto.class);
     when(dto1.toNotification()).thenThrow(new InvalidClassException("Pouet"));
-    List<NotificationQueueDto> dtos = Arrays.asList(dto1);
-    when(notificationQueueDao.selectOldest(1)).thenReturn(dtos);
+    NotificationQueueDto dto2 = NotificationQueueDto.toNotificationQueueDto(new Notification("test"));
+    List<NotificationQueueDto> dtos = Arrays.asList(dto1, dto2);
+    when(notificationQueueDao.selectOldest(2)).thenReturn(dtos);
 
     underTest = spy(underTest);
-    assertThat(underTest.getFromQueue()).isNull();
-    assertThat(underTest.getFromQueue()).isNull();
+    assertThat(underTest.getFromQueue(2)).extracting(Notification::getType).containsExactly("test");
+    assertThat(underTest.getFromQueue(2)).extracting(Notification::getType).containsExactly("test");
 
     verify(underTest, times(1)).logDeserializationIssue();
   }
@@ -20,8 +20,15 @@
 package org.sonar.server.notification;
 
 import com.google.common.collect.Sets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.mockito.ArgumentCaptor;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.sonar.api.config.PropertyDefinitions;
@@ -31,12 +38,19 @@ import org.sonar.api.notifications.Notification;
 import org.sonar.api.notifications.NotificationChannel;
 import org.sonar.db.DbClient;
 import org.sonar.db.property.PropertiesDao;
+import org.sonar.server.notification.email.EmailNotificationChannel;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
@@ -45,10 +59,14 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class NotificationDaemonTest {
+
   private static String CREATOR_SIMON = "simon";
   private static String CREATOR_EVGENY = "evgeny";
   private static String ASSIGNEE_SIMON = "simon";
 
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
   private DefaultNotificationManager manager = mock(DefaultNotificationManager.class);
   private Notification notification = mock(Notification.class);
   private NotificationChannel emailChannel = mock(NotificationChannel.class);
@@ -63,13 +81,15 @@ public class NotificationDaemonTest {
   private void setUpMocks() {
     when(emailChannel.getKey()).thenReturn("email");
     when(gtalkChannel.getKey()).thenReturn("gtalk");
+    doCallRealMethod().when(emailChannel).deliverAll(any(Map.class));
+    doCallRealMethod().when(gtalkChannel).deliverAll(any(Map.class));
     when(commentOnIssueAssignedToMe.getKey()).thenReturn("CommentOnIssueAssignedToMe");
     when(commentOnIssueAssignedToMe.getType()).thenReturn("issue-changes");
     when(commentOnIssueCreatedByMe.getKey()).thenReturn("CommentOnIssueCreatedByMe");
     when(commentOnIssueCreatedByMe.getType()).thenReturn("issue-changes");
     when(qualityGateChange.getKey()).thenReturn("QGateChange");
     when(qualityGateChange.getType()).thenReturn("qgate-changes");
-    when(manager.getFromQueue()).thenReturn(notification).thenReturn(null);
+    when(manager.getFromQueue(anyInt())).thenReturn(singletonList(notification)).thenReturn(emptyList());
 
     MapSettings settings = new MapSettings(new PropertyDefinitions(NotificationDaemon.class)).setProperty("sonar.notifications.delay", 1L);
 
@@ -175,7 +195,7 @@ public class NotificationDaemonTest {
   @Test
   public void shouldNotStopWhenException() {
     setUpMocks();
-    when(manager.getFromQueue()).thenThrow(new RuntimeException("Unexpected exception")).thenReturn(notification).thenReturn(null);
+    when(manager.getFromQueue(anyInt())).thenThrow(new RuntimeException("Unexpected exception")).thenReturn(singletonList(notification)).thenReturn(emptyList());
     doAnswer(addUser(ASSIGNEE_SIMON, emailChannel)).when(commentOnIssueAssignedToMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
     doAnswer(addUser(CREATOR_SIMON, emailChannel)).when(commentOnIssueCreatedByMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
 
@@ -217,7 +237,7 @@ public class NotificationDaemonTest {
   public void shouldLogEvery10Minutes() {
     setUpMocks();
     // Emulate 2 notifications in DB
-    when(manager.getFromQueue()).thenReturn(notification).thenReturn(notification).thenReturn(null);
+    when(manager.getFromQueue(anyInt())).thenReturn(singletonList(notification)).thenReturn(singletonList(notification)).thenReturn(emptyList());
     when(manager.count()).thenReturn(1L).thenReturn(0L);
     underTest = spy(underTest);
     // Emulate processing of each notification take 10 min to have a log each time
@@ -228,6 +248,99 @@ public class NotificationDaemonTest {
     underTest.stop();
   }
 
+  @Test
+  public void dequeue_notifications_by_batches() {
+    setUpMocks();
+    Notification otherNotification = mock(Notification.class);
+    when(manager.getFromQueue(100)).thenReturn(asList(notification, otherNotification)).thenReturn(emptyList());
+    doAnswer(addUser(ASSIGNEE_SIMON, emailChannel)).when(commentOnIssueAssignedToMe).dispatch(any(Notification.class), any(NotificationDispatcher.Context.class));
+
+    underTest.start();
+    verify(emailChannel, timeout(2000)).deliver(notification, ASSIGNEE_SIMON);
+    verify(emailChannel, timeout(2000)).deliver(otherNotification, ASSIGNEE_SIMON);
+    underTest.stop();
+
+    assertThat(underTest.getDeliveredCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void deliver_batch_in_parallel() {
+    MapSettings settings = new MapSettings(new PropertyDefinitions(NotificationDaemon.class))
+      .setProperty("sonar.notifications.delay", "1")
+      .setProperty("sonar.notifications.threads", "3");
+    underTest = new NotificationDaemon(settings.asConfig(), manager, service);
+    List<Notification> notifications = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      notifications.add(mock(Notification.class));
+    }
+    when(manager.getFromQueue(anyInt())).thenReturn(notifications).thenReturn(emptyList());
+    doAnswer(addUser(ASSIGNEE_SIMON, emailChannel)).when(commentOnIssueAssignedToMe).dispatch(any(Notification.class), any(NotificationDispatcher.Context.class));
+
+    underTest.start();
+    for (Notification n : notifications) {
+      verify(emailChannel, timeout(2000)).deliver(n, ASSIGNEE_SIMON);
+    }
+    underTest.stop();
+  }
+
+  @Test
+  public void deliver_batch_to_channel_at_once() {
+    setUpMocks();
+    EmailNotificationChannel batchEmailChannel = mock(EmailNotificationChannel.class);
+    Notification otherNotification = mock(Notification.class);
+    doAnswer(addUser(ASSIGNEE_SIMON, batchEmailChannel)).when(commentOnIssueAssignedToMe).dispatch(any(Notification.class), any(NotificationDispatcher.Context.class));
+    doAnswer(addUser(CREATOR_EVGENY, batchEmailChannel)).when(commentOnIssueCreatedByMe).dispatch(same(otherNotification), any(NotificationDispatcher.Context.class));
+    doAnswer(addUser(CREATOR_EVGENY, gtalkChannel)).when(qualityGateChange).dispatch(same(otherNotification), any(NotificationDispatcher.Context.class));
+
+    service.deliver(asList(notification, otherNotification));
+
+    ArgumentCaptor<Map> captor = ArgumentCaptor.forClass(Map.class);
+    verify(batchEmailChannel).deliverAll(captor.capture());
+    verify(batchEmailChannel, never()).deliver(any(Notification.class), anyString());
+    assertThat((Collection<Notification>) captor.getValue().get(ASSIGNEE_SIMON)).containsExactly(notification, otherNotification);
+    assertThat((Collection<Notification>) captor.getValue().get(CREATOR_EVGENY)).containsExactly(otherNotification);
+    verify(gtalkChannel).deliver(otherNotification, CREATOR_EVGENY);
+  }
+
+  @Test
+  public void fail_if_threads_is_not_strictly_positive() {
+    MapSettings settings = new MapSettings(new PropertyDefinitions(NotificationDaemon.class))
+      .setProperty("sonar.notifications.threads", "0");
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Property sonar.notifications.threads must be strictly positive. Got 0");
+
+    new NotificationDaemon(settings.asConfig(), manager, service);
+  }
+
+  @Test
+  public void queue_size_is_not_read_from_database() {
+    setUpMocks();
+    when(manager.count()).thenReturn(42L);
+
+    assertThat(underTest.getQueueSize()).isEqualTo(0L);
+    verify(manager, never()).count();
+  }
+
+  @Test
+  public void queue_size_is_the_count_of_last_status_report() {
+    setUpMocks();
+    when(manager.getFromQueue(anyInt())).thenReturn(singletonList(notification)).thenReturn(singletonList(notification)).thenReturn(emptyList());
+    when(manager.count()).thenReturn(5L).thenReturn(4L);
+    NotificationDaemon daemon = spy(underTest);
+    when(daemon.now()).thenReturn(0L).thenReturn(10 * 60 * 1000 + 1L).thenReturn(20 * 60 * 1000 + 2L);
+    List<Long> reportedQueueSizes = new ArrayList<>();
+    doAnswer(invocation -> reportedQueueSizes.add(daemon.getQueueSize())).when(daemon).log(anyLong(), anyLong(), anyLong());
+
+    daemon.start();
+    verify(daemon, timeout(2000).times(2)).log(anyLong(), anyLong(), anyLong());
+    daemon.stop();
+
+    assertThat(reportedQueueSizes).containsExactly(5L, 4L);
+    // the queue has been emptied
+    assertThat(daemon.getQueueSize()).isEqualTo(0L);
+  }
+
   @Test
   public void hasProjectSubscribersForType() {
     setUpMocks();
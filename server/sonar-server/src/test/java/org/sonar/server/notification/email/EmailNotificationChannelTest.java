@@ -19,6 +19,10 @@
  */
 package org.sonar.server.notification.email;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.Multimap;
+import java.util.ArrayList;
 import java.util.List;
 import javax.mail.internet.MimeMessage;
 import org.apache.commons.mail.EmailException;
@@ -28,13 +32,19 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.api.config.EmailSettings;
+import org.sonar.api.notifications.Notification;
+import org.sonar.api.user.UserFinder;
+import org.sonar.core.user.DefaultUser;
 import org.sonar.plugins.emailnotifications.api.EmailMessage;
+import org.sonar.plugins.emailnotifications.api.EmailTemplate;
 import org.subethamail.wiser.Wiser;
 import org.subethamail.wiser.WiserMessage;
 
 import static junit.framework.Assert.fail;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class EmailNotificationChannelTest {
@@ -185,6 +195,44 @@ public class EmailNotificationChannelTest {
     }
   }
 
+  @Test
+  public void deliverAll_sends_emails_of_all_users_and_loads_each_user_once() throws Exception {
+    configure();
+    UserFinder userFinder = mock(UserFinder.class);
+    when(userFinder.findByLogin("simon")).thenReturn(new DefaultUser().setLogin("simon").setEmail("simon@nowhere"));
+    when(userFinder.findByLogin("evgeny")).thenReturn(new DefaultUser().setLogin("evgeny").setEmail("evgeny@nowhere"));
+    when(userFinder.findByLogin("nomail")).thenReturn(new DefaultUser().setLogin("nomail"));
+    underTest = new EmailNotificationChannel(configuration, new EmailTemplate[] {new TypeAsSubjectTemplate()}, userFinder);
+    Multimap<String, Notification> notifications = ArrayListMultimap.create();
+    notifications.put("simon", new Notification("first"));
+    notifications.put("simon", new Notification("second"));
+    notifications.put("evgeny", new Notification("third"));
+    notifications.put("nomail", new Notification("fourth"));
+
+    underTest.deliverAll(notifications.asMap());
+
+    List<WiserMessage> messages = smtpServer.getMessages();
+    assertThat(messages).hasSize(3);
+    assertThat(messages).extracting(WiserMessage::getEnvelopeReceiver).containsOnly("simon@nowhere", "evgeny@nowhere");
+    List<String> subjects = new ArrayList<>();
+    for (WiserMessage message : messages) {
+      subjects.add(message.getMimeMessage().getHeader("Subject", null));
+    }
+    assertThat(subjects).containsOnly("[SONARQUBE] first", "[SONARQUBE] second", "[SONARQUBE] third");
+    verify(userFinder, times(1)).findByLogin("simon");
+  }
+
+  @Test
+  public void deliverAll_does_not_fail_when_unable_to_connect() {
+    configure();
+    smtpServer.stop();
+    UserFinder userFinder = mock(UserFinder.class);
+    when(userFinder.findByLogin("simon")).thenReturn(new DefaultUser().setLogin("simon").setEmail("simon@nowhere"));
+    underTest = new EmailNotificationChannel(configuration, new EmailTemplate[] {new TypeAsSubjectTemplate()}, userFinder);
+
+    underTest.deliverAll(ImmutableListMultimap.of("simon", new Notification("first")).asMap());
+  }
+
   private void configure() {
     when(configuration.getSmtpHost()).thenReturn("localhost");
     when(configuration.getSmtpPort()).thenReturn(smtpServer.getServer().getPort());
@@ -194,4 +242,10 @@ public class EmailNotificationChannelTest {
     when(configuration.getServerBaseURL()).thenReturn("http://nemo.sonarsource.org");
   }
 
+  private static class TypeAsSubjectTemplate extends EmailTemplate {
+    @Override
+    public EmailMessage format(Notification notification) {
+      return new EmailMessage().setSubject(notification.getType()).setMessage("Bar");
+    }
+  }
 }
@@ -48,6 +48,7 @@ import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.user.UserSessionCache;
 import org.sonar.server.user.index.UserIndex;
 import org.sonar.server.user.index.UserIndexDefinition;
 import org.sonar.server.user.index.UserIndexer;
@@ -60,6 +61,9 @@ import static java.net.HttpURLConnection.HTTP_NO_CONTENT;
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.groups.Tuple.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.sonar.api.CoreProperties.DEFAULT_ISSUE_ASSIGNEE;
 import static org.sonar.api.web.UserRole.CODEVIEWER;
 import static org.sonar.api.web.UserRole.USER;
@@ -84,7 +88,9 @@ public class RemoveMemberActionTest {
   private UserIndex userIndex = new UserIndex(es.client(), System2.INSTANCE);
   private UserIndexer userIndexer = new UserIndexer(dbClient, es.client());
 
-  private WsActionTester ws = new WsActionTester(new RemoveMemberAction(dbClient, userSession, userIndexer));
+  private UserSessionCache userSessionCache = mock(UserSessionCache.class);
+
+  private WsActionTester ws = new WsActionTester(new RemoveMemberAction(dbClient, userSession, userIndexer, userSessionCache));
 
   private OrganizationDto organization;
   private ComponentDto project;
@@ -138,6 +144,13 @@ public class RemoveMemberActionTest {
     assertNotAMember(organization.getUuid(), user);
   }
 
+  @Test
+  public void invalidate_cached_session_of_removed_member() {
+    call(organization.getKey(), user.getLogin());
+
+    verify(userSessionCache).invalidate(user.getLogin());
+  }
+
   @Test
   public void remove_organization_permissions() {
     UserDto anotherUser = db.users().insertUser();
@@ -290,6 +303,8 @@ public class RemoveMemberActionTest {
     call(organization.getKey(), user.getLogin());
 
     call(organization.getKey(), user.getLogin());
+
+    verify(userSessionCache, times(1)).invalidate(user.getLogin());
   }
 
   @Test
@@ -0,0 +1,66 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import org.junit.Test;
+import org.sonar.api.SonarQubeSide;
+import org.sonar.api.SonarRuntime;
+import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
+import org.sonar.server.webhook.WebhookDispatcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.sonar.server.platform.monitoring.SystemInfoTesting.assertThatAttributeIs;
+
+public class WebhooksSectionTest {
+
+  private WebhookDispatcher dispatcher = mock(WebhookDispatcher.class);
+  private SonarRuntime runtime = mock(SonarRuntime.class);
+  private WebhooksSection underTest = new WebhooksSection(dispatcher, runtime);
+
+  @Test
+  public void section_name_depends_on_runtime_side() {
+    when(runtime.getSonarQubeSide()).thenReturn(SonarQubeSide.COMPUTE_ENGINE);
+    assertThat(underTest.toProtobuf().getName()).isEqualTo("Compute Engine Webhooks");
+
+    when(runtime.getSonarQubeSide()).thenReturn(SonarQubeSide.SERVER);
+    assertThat(underTest.toProtobuf().getName()).isEqualTo("Web Webhooks");
+  }
+
+  @Test
+  public void counters_of_dispatcher() {
+    when(dispatcher.getPending()).thenReturn(4);
+    when(dispatcher.getDeliveries()).thenReturn(120L);
+    when(dispatcher.getFailures()).thenReturn(3L);
+    when(dispatcher.getRetries()).thenReturn(7L);
+    when(dispatcher.getAverageLatencyMs()).thenReturn(250L);
+    when(dispatcher.getMaxLatencyMs()).thenReturn(30_000L);
+
+    ProtobufSystemInfo.Section section = underTest.toProtobuf();
+
+    assertThatAttributeIs(section, "Pending Deliveries", 4L);
+    assertThatAttributeIs(section, "Deliveries", 120L);
+    assertThatAttributeIs(section, "Failed Deliveries", 3L);
+    assertThatAttributeIs(section, "Retries", 7L);
+    assertThatAttributeIs(section, "Average Delivery Time (ms)", 250L);
+    assertThatAttributeIs(section, "Max Delivery Time (ms)", 30_000L);
+  }
+}
@@ -58,6 +58,7 @@ import org.sonar.server.organization.BillingValidationsProxy;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
 import org.sonar.server.permission.index.FooIndexDefinition;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.user.UserSessionCache;
 import org.sonar.server.ws.TestRequest;
 import org.sonar.server.ws.WsActionTester;
 
@@ -69,6 +70,8 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.sonar.db.component.ComponentTesting.newProjectCopy;
 import static org.sonar.db.organization.OrganizationTesting.newOrganizationDto;
 
@@ -98,7 +101,9 @@ public class UpdateVisibilityActionTest {
   private BillingValidationsProxy billingValidations = mock(BillingValidationsProxy.class);
 
   private ProjectsWsSupport wsSupport = new ProjectsWsSupport(dbClient, TestDefaultOrganizationProvider.from(dbTester), billingValidations);
-  private UpdateVisibilityAction underTest = new UpdateVisibilityAction(dbClient, TestComponentFinder.from(dbTester), userSessionRule, projectIndexers, wsSupport);
+  private UserSessionCache userSessionCache = mock(UserSessionCache.class);
+  private UpdateVisibilityAction underTest = new UpdateVisibilityAction(dbClient, TestComponentFinder.from(dbTester), userSessionRule, projectIndexers, wsSupport,
+    userSessionCache);
   private WsActionTester ws = new WsActionTester(underTest);
 
   private final Random random = new Random();
@@ -444,6 +449,30 @@ public class UpdateVisibilityActionTest {
     assertThat(projectIndexers.hasBeenCalled(project.uuid())).isFalse();
   }
 
+  @Test
+  public void execute_invalidates_cached_user_sessions_when_changing_visibility() {
+    ComponentDto project = randomPublicOrPrivateProject();
+    userSessionRule.addProjectPermission(UserRole.ADMIN, project);
+
+    request.setParam(PARAM_PROJECT, project.getDbKey())
+      .setParam(PARAM_VISIBILITY, project.isPrivate() ? PUBLIC : PRIVATE)
+      .execute();
+
+    verify(userSessionCache).invalidateAll();
+  }
+
+  @Test
+  public void execute_does_not_invalidate_cached_user_sessions_if_already_has_specified_visibility() {
+    ComponentDto project = randomPublicOrPrivateProject();
+    userSessionRule.addProjectPermission(UserRole.ADMIN, project);
+
+    request.setParam(PARAM_PROJECT, project.getDbKey())
+      .setParam(PARAM_VISIBILITY, project.isPrivate() ? PRIVATE : PUBLIC)
+      .execute();
+
+    verifyZeroInteractions(userSessionCache);
+  }
+
   @Test
   public void execute_grants_USER_and_CODEVIEWER_permissions_to_any_user_with_at_least_one_permission_when_making_project_private() {
     OrganizationDto organization = dbTester.organizations().insert();
@@ -33,10 +33,14 @@ import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.user.UserSessionCache;
 import org.sonar.server.ws.TestRequest;
 import org.sonar.server.ws.WsActionTester;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.sonar.db.user.UserTesting.newUserDto;
 
 public class UnsetRootActionTest {
@@ -51,7 +55,8 @@ public class UnsetRootActionTest {
 
   private UserDao userDao = dbTester.getDbClient().userDao();
   private DbSession dbSession = dbTester.getSession();
-  private UnsetRootAction underTest = new UnsetRootAction(userSessionRule, dbTester.getDbClient());
+  private UserSessionCache userSessionCache = mock(UserSessionCache.class);
+  private UnsetRootAction underTest = new UnsetRootAction(userSessionRule, dbTester.getDbClient(), userSessionCache);
   private WsActionTester wsTester = new WsActionTester(underTest);
 
   @Test
@@ -114,6 +119,7 @@ public class UnsetRootActionTest {
 
     assertThat(userDao.selectByLogin(dbSession, SOME_LOGIN).isRoot()).isFalse();
     assertThat(userDao.selectByLogin(dbSession, otherUser.getLogin()).isRoot()).isTrue();
+    verify(userSessionCache).invalidate(SOME_LOGIN);
   }
 
   @Test
@@ -126,6 +132,7 @@ public class UnsetRootActionTest {
 
     assertThat(userDao.selectByLogin(dbSession, SOME_LOGIN).isRoot()).isFalse();
     assertThat(userDao.selectByLogin(dbSession, otherUser.getLogin()).isRoot()).isTrue();
+    verifyZeroInteractions(userSessionCache);
   }
 
   @Test
@@ -0,0 +1,117 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.setting;
+
+import com.hazelcast.core.ITopic;
+import com.hazelcast.core.Message;
+import com.hazelcast.core.MessageListener;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.sonar.db.DbClient;
+import org.sonar.db.property.PropertiesDao;
+import org.sonar.db.property.PropertiesWriteListener;
+import org.sonar.process.cluster.hz.HazelcastMember;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sonar.process.cluster.hz.HazelcastObjects.SETTINGS_CHANGED;
+
+public class ClusterSettingsCacheInvalidatorTest {
+
+  private static final String LOCAL_UUID = "local";
+
+  private HazelcastMember hazelcastMember = mock(HazelcastMember.class);
+  private ITopic<String> topic = mock(ITopic.class);
+  private DbClient dbClient = mock(DbClient.class);
+  private PropertiesDao propertiesDao = mock(PropertiesDao.class);
+  private GlobalSettingsCache cache = mock(GlobalSettingsCache.class);
+  private ClusterSettingsCacheInvalidator underTest = new ClusterSettingsCacheInvalidator(hazelcastMember, dbClient, cache);
+
+  @Before
+  public void setUp() {
+    when(hazelcastMember.getUuid()).thenReturn(LOCAL_UUID);
+    when(hazelcastMember.<String>getTopic(SETTINGS_CHANGED)).thenReturn(topic);
+    when(topic.addMessageListener(any(MessageListener.class))).thenReturn("registration");
+    when(dbClient.propertiesDao()).thenReturn(propertiesDao);
+  }
+
+  @Test
+  public void publish_message_when_properties_are_written() {
+    underTest.start();
+
+    captureWriteListener().onWrite();
+
+    verify(topic).publish(LOCAL_UUID);
+  }
+
+  @Test
+  public void failure_to_publish_is_ignored() {
+    doThrow(new IllegalStateException("network")).when(topic).publish(any());
+    underTest.start();
+
+    captureWriteListener().onWrite();
+  }
+
+  @Test
+  public void invalidate_cache_when_properties_are_written_by_other_node() {
+    underTest.start();
+    MessageListener<String> listener = captureMessageListener();
+
+    listener.onMessage(new Message<>(SETTINGS_CHANGED, "other", 0L, null));
+    verify(cache).invalidate();
+  }
+
+  @Test
+  public void ignore_messages_published_by_local_node() {
+    underTest.start();
+    MessageListener<String> listener = captureMessageListener();
+
+    listener.onMessage(new Message<>(SETTINGS_CHANGED, LOCAL_UUID, 0L, null));
+    verify(cache, never()).invalidate();
+  }
+
+  @Test
+  public void unregister_listeners_on_stop() {
+    underTest.start();
+    PropertiesWriteListener writeListener = captureWriteListener();
+
+    underTest.stop();
+
+    verify(topic).removeMessageListener("registration");
+    verify(propertiesDao).removeWriteListener(writeListener);
+  }
+
+  private PropertiesWriteListener captureWriteListener() {
+    ArgumentCaptor<PropertiesWriteListener> captor = ArgumentCaptor.forClass(PropertiesWriteListener.class);
+    verify(propertiesDao).addWriteListener(captor.capture());
+    return captor.getValue();
+  }
+
+  private MessageListener<String> captureMessageListener() {
+    ArgumentCaptor<MessageListener> captor = ArgumentCaptor.forClass(MessageListener.class);
+    verify(topic).addMessageListener(captor.capture());
+    return captor.getValue();
+  }
+}
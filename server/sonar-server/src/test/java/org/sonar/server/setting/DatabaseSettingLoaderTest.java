@@ -36,7 +36,7 @@ public class DatabaseSettingLoaderTest {
   @Rule
   public DbTester dbTester = DbTester.create(System2.INSTANCE);
 
-  private DatabaseSettingLoader underTest = new DatabaseSettingLoader(dbTester.getDbClient());
+  private DatabaseSettingLoader underTest = new DatabaseSettingLoader(new GlobalSettingsCache(dbTester.getDbClient(), System2.INSTANCE));
 
   @Test
   public void test_load() {
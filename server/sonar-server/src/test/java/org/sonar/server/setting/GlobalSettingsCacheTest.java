@@ -0,0 +1,142 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.setting;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.db.DbTester;
+import org.sonar.db.property.PropertiesDao;
+import org.sonar.db.property.PropertyDto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.data.MapEntry.entry;
+
+public class GlobalSettingsCacheTest {
+
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+
+  private TestSystem2 system2 = new TestSystem2().setNow(1_000L);
+  private GlobalSettingsCache underTest = new GlobalSettingsCache(dbTester.getDbClient(), system2);
+
+  @After
+  public void tearDown() {
+    underTest.stop();
+  }
+
+  @Test
+  public void load_all_global_properties_once() {
+    insertProperty("foo", "1");
+    insertProperty("bar", null);
+
+    assertThat(underTest.get("foo")).isEqualTo("1");
+    assertThat(underTest.get("bar")).isEqualTo("");
+    assertThat(underTest.get("missing")).isNull();
+    assertThat(underTest.getAll()).containsOnly(entry("foo", "1"), entry("bar", ""));
+    assertThat(underTest.getMisses()).isEqualTo(1);
+    assertThat(underTest.getHits()).isEqualTo(3);
+  }
+
+  @Test
+  public void properties_of_projects_are_ignored() {
+    insertProperty("foo", "1");
+    dbTester.getDbClient().propertiesDao().saveProperty(new PropertyDto().setKey("foo").setValue("2").setResourceId(10L));
+
+    assertThat(underTest.get("foo")).isEqualTo("1");
+  }
+
+  @Test
+  public void writes_of_properties_invalidate_cache_when_started() {
+    underTest.start();
+    insertProperty("foo", "1");
+    assertThat(underTest.get("foo")).isEqualTo("1");
+
+    insertProperty("foo", "2");
+
+    assertThat(underTest.get("foo")).isEqualTo("2");
+    assertThat(underTest.getMisses()).isEqualTo(2);
+    assertThat(underTest.getInvalidations()).isGreaterThan(0);
+  }
+
+  @Test
+  public void writes_are_ignored_when_stopped() {
+    underTest.start();
+    underTest.stop();
+    insertProperty("foo", "1");
+    assertThat(underTest.get("foo")).isEqualTo("1");
+
+    insertProperty("foo", "2");
+
+    assertThat(underTest.get("foo")).isEqualTo("1");
+    assertThat(underTest.getInvalidations()).isEqualTo(0);
+  }
+
+  @Test
+  public void invalidate_cache() {
+    insertProperty("foo", "1");
+    assertThat(underTest.get("foo")).isEqualTo("1");
+    insertProperty("foo", "2");
+    assertThat(underTest.get("foo")).isEqualTo("1");
+
+    underTest.invalidate();
+
+    assertThat(underTest.get("foo")).isEqualTo("2");
+    assertThat(underTest.getInvalidations()).isEqualTo(1);
+  }
+
+  @Test
+  public void cache_expires() {
+    insertProperty("foo", "1");
+    assertThat(underTest.get("foo")).isEqualTo("1");
+    insertProperty("foo", "2");
+
+    system2.setNow(1_000L + GlobalSettingsCache.TTL_MS - 1);
+    assertThat(underTest.get("foo")).isEqualTo("1");
+
+    system2.setNow(1_000L + GlobalSettingsCache.TTL_MS);
+    assertThat(underTest.get("foo")).isEqualTo("2");
+    assertThat(underTest.getMisses()).isEqualTo(2);
+  }
+
+  @Test
+  public void writes_of_other_processes_are_visible_once_cache_expires() {
+    // on a standalone instance, web server and Compute Engine do not share the same PropertiesDao
+    PropertiesDao daoOfOtherProcess = new PropertiesDao(dbTester.myBatis(), system2);
+    underTest.start();
+    insertProperty("foo", "1");
+    assertThat(underTest.get("foo")).isEqualTo("1");
+
+    daoOfOtherProcess.saveProperty(new PropertyDto().setKey("foo").setValue("2"));
+
+    system2.setNow(1_000L + GlobalSettingsCache.TTL_MS - 1);
+    assertThat(underTest.get("foo")).isEqualTo("1");
+    assertThat(underTest.getInvalidations()).isEqualTo(1);
+
+    system2.setNow(1_000L + GlobalSettingsCache.TTL_MS);
+    assertThat(underTest.get("foo")).isEqualTo("2");
+  }
+
+  private void insertProperty(String key, String value) {
+    dbTester.getDbClient().propertiesDao().saveProperty(new PropertyDto().setKey(key).setValue(value));
+  }
+}
@@ -91,6 +91,19 @@ public class SourceServiceTest {
     assertThat(lines).containsExactly("HTML_5", "HTML_6", "HTML_7");
   }
 
+  @Test
+  public void get_range_of_lines_of_big_file() throws Exception {
+    FileSourceDto dto = new FileSourceDto();
+    dto.setFileUuid("BIG_FILE_UUID").setProjectUuid("PROJECT_UUID");
+    dto.setSourceData(FileSourceTesting.newFakeData(1_000).build());
+    dbTester.getDbClient().fileSourceDao().insert(dbTester.getSession(), dto);
+    dbTester.commit();
+
+    Optional<Iterable<String>> linesOpt = underTest.getLinesAsRawText(dbTester.getSession(), "BIG_FILE_UUID", 198, 202);
+    assertThat(linesOpt.isPresent()).isTrue();
+    assertThat(Lists.newArrayList(linesOpt.get())).containsExactly("SOURCE_198", "SOURCE_199", "SOURCE_200", "SOURCE_201", "SOURCE_202");
+  }
+
   @Test
   public void getLines_fails_if_range_starts_at_zero() {
     expectedException.expect(IllegalArgumentException.class);
@@ -0,0 +1,143 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import com.hazelcast.core.ITopic;
+import com.hazelcast.core.Member;
+import com.hazelcast.core.Message;
+import com.hazelcast.core.MessageListener;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.sonar.process.cluster.hz.HazelcastMember;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.sonar.process.cluster.hz.HazelcastObjects.USER_SESSIONS_CHANGED;
+
+public class ClusterUserSessionCacheInvalidatorTest {
+
+  private static final String LOCAL_UUID = "local";
+
+  private HazelcastMember hazelcastMember = mock(HazelcastMember.class);
+  private ITopic<String> topic = mock(ITopic.class);
+  private UserSessionCache cache = mock(UserSessionCache.class);
+  private ClusterUserSessionCacheInvalidator underTest = new ClusterUserSessionCacheInvalidator(hazelcastMember, cache);
+
+  @Before
+  public void setUp() {
+    when(cache.isEnabled()).thenReturn(true);
+    when(hazelcastMember.getUuid()).thenReturn(LOCAL_UUID);
+    when(hazelcastMember.<String>getTopic(USER_SESSIONS_CHANGED)).thenReturn(topic);
+    when(topic.addMessageListener(any(MessageListener.class))).thenReturn("registration");
+  }
+
+  @Test
+  public void publish_login_of_invalidated_user() {
+    underTest.start();
+
+    captureInvalidationListener().onInvalidate("john");
+
+    verify(topic).publish("john");
+  }
+
+  @Test
+  public void publish_empty_login_when_all_users_are_invalidated() {
+    underTest.start();
+
+    captureInvalidationListener().onInvalidate(null);
+
+    verify(topic).publish("");
+  }
+
+  @Test
+  public void failure_to_publish_is_ignored() {
+    doThrow(new IllegalStateException("network")).when(topic).publish(any());
+    underTest.start();
+
+    captureInvalidationListener().onInvalidate("john");
+  }
+
+  @Test
+  public void invalidate_local_cache_when_other_node_invalidates_users() {
+    underTest.start();
+    MessageListener<String> listener = captureMessageListener();
+
+    listener.onMessage(newMessage("other", "john"));
+    verify(cache).invalidateLocally("john");
+
+    listener.onMessage(newMessage("other", ""));
+    verify(cache).invalidateLocally(null);
+  }
+
+  @Test
+  public void ignore_messages_published_by_local_node() {
+    underTest.start();
+    MessageListener<String> listener = captureMessageListener();
+
+    listener.onMessage(newMessage(LOCAL_UUID, "john"));
+
+    verify(cache, never()).invalidateLocally(any());
+  }
+
+  @Test
+  public void do_nothing_if_cache_is_disabled() {
+    when(cache.isEnabled()).thenReturn(false);
+
+    underTest.start();
+
+    verifyZeroInteractions(topic);
+    verify(cache, never()).addInvalidationListener(any());
+  }
+
+  @Test
+  public void unregister_listeners_on_stop() {
+    underTest.start();
+    UserSessionCache.InvalidationListener invalidationListener = captureInvalidationListener();
+
+    underTest.stop();
+
+    verify(topic).removeMessageListener("registration");
+    verify(cache).removeInvalidationListener(invalidationListener);
+  }
+
+  private Message<String> newMessage(String memberUuid, String login) {
+    Member member = mock(Member.class);
+    when(member.getUuid()).thenReturn(memberUuid);
+    return new Message<>(USER_SESSIONS_CHANGED, login, 0L, member);
+  }
+
+  private UserSessionCache.InvalidationListener captureInvalidationListener() {
+    ArgumentCaptor<UserSessionCache.InvalidationListener> captor = ArgumentCaptor.forClass(UserSessionCache.InvalidationListener.class);
+    verify(cache).addInvalidationListener(captor.capture());
+    return captor.getValue();
+  }
+
+  private MessageListener<String> captureMessageListener() {
+    ArgumentCaptor<MessageListener> captor = ArgumentCaptor.forClass(MessageListener.class);
+    verify(topic).addMessageListener(captor.capture());
+    return captor.getValue();
+  }
+}
@@ -0,0 +1,206 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import com.google.common.base.Ticker;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbTester;
+import org.sonar.db.user.UserDto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.sonar.server.user.UserSessionCache.TTL_IN_SECONDS_PROPERTY;
+
+public class UserSessionCacheTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
+  private AtomicLong nanos = new AtomicLong();
+  private Ticker ticker = new Ticker() {
+    @Override
+    public long read() {
+      return nanos.get();
+    }
+  };
+  private MapSettings settings = new MapSettings().setProperty(TTL_IN_SECONDS_PROPERTY, "60");
+  private UserSessionCache underTest = new UserSessionCache(db.getDbClient(), settings.asConfig(), ticker);
+
+  @Test
+  public void cache_is_disabled_by_default() {
+    UserSessionCache disabled = new UserSessionCache(db.getDbClient(), new MapSettings().asConfig());
+    UserDto user = db.users().insertUser();
+
+    assertThat(disabled.isEnabled()).isFalse();
+    assertThat(disabled.getActiveUser(user.getLogin()).getLogin()).isEqualTo(user.getLogin());
+    deactivate(user);
+    assertThat(disabled.getActiveUser(user.getLogin())).isNull();
+    assertThat(disabled.getPermissions(user.getLogin())).isNotSameAs(disabled.getPermissions(user.getLogin()));
+  }
+
+  @Test
+  public void fail_if_ttl_is_negative() {
+    settings.setProperty(TTL_IN_SECONDS_PROPERTY, -1);
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Property sonar.web.userSessionCache.ttlInSeconds must be positive. Got -1");
+
+    new UserSessionCache(db.getDbClient(), settings.asConfig());
+  }
+
+  @Test
+  public void active_user_is_loaded_once() {
+    UserDto user = db.users().insertUser();
+
+    assertThat(underTest.isEnabled()).isTrue();
+    assertThat(underTest.getActiveUser(user.getLogin()).getLogin()).isEqualTo(user.getLogin());
+    deactivate(user);
+
+    assertThat(underTest.getActiveUser(user.getLogin()).getLogin()).isEqualTo(user.getLogin());
+  }
+
+  @Test
+  public void missing_users_are_not_cached() {
+    assertThat(underTest.getActiveUser("missing")).isNull();
+
+    db.users().insertUser("missing");
+
+    assertThat(underTest.getActiveUser("missing")).isNotNull();
+  }
+
+  @Test
+  public void active_user_is_reloaded_after_invalidation() {
+    UserDto user = db.users().insertUser();
+    underTest.getActiveUser(user.getLogin());
+    deactivate(user);
+
+    underTest.invalidate(user.getLogin());
+
+    assertThat(underTest.getActiveUser(user.getLogin())).isNull();
+  }
+
+  @Test
+  public void active_user_is_reloaded_after_expiration() {
+    UserDto user = db.users().insertUser();
+    underTest.getActiveUser(user.getLogin());
+    deactivate(user);
+
+    nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+
+    assertThat(underTest.getActiveUser(user.getLogin())).isNull();
+  }
+
+  @Test
+  public void login_of_token_is_loaded_once_and_invalidated_with_the_user() {
+    AtomicInteger calls = new AtomicInteger();
+    Supplier<Optional<String>> loader = () -> {
+      calls.incrementAndGet();
+      return Optional.of("john");
+    };
+
+    assertThat(underTest.getLoginOfToken("hash", loader)).contains("john");
+    assertThat(underTest.getLoginOfToken("hash", loader)).contains("john");
+    assertThat(calls.get()).isEqualTo(1);
+
+    underTest.invalidate("other");
+    assertThat(underTest.getLoginOfToken("hash", loader)).contains("john");
+    assertThat(calls.get()).isEqualTo(1);
+
+    underTest.invalidate("john");
+    assertThat(underTest.getLoginOfToken("hash", loader)).contains("john");
+    assertThat(calls.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void missing_tokens_are_not_cached() {
+    AtomicInteger calls = new AtomicInteger();
+    Supplier<Optional<String>> loader = () -> {
+      calls.incrementAndGet();
+      return Optional.empty();
+    };
+
+    assertThat(underTest.getLoginOfToken("hash", loader)).isEmpty();
+    assertThat(underTest.getLoginOfToken("hash", loader)).isEmpty();
+    assertThat(calls.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void permissions_are_shared_by_the_sessions_of_a_user() {
+    SessionPermissions permissions = underTest.getPermissions("john");
+
+    assertThat(underTest.getPermissions("john")).isSameAs(permissions);
+    assertThat(underTest.getPermissions("other")).isNotSameAs(permissions);
+    assertThat(underTest.getPermissions(null)).isSameAs(underTest.getPermissions(null)).isNotSameAs(permissions);
+  }
+
+  @Test
+  public void invalidate_all_users() {
+    SessionPermissions john = underTest.getPermissions("john");
+    SessionPermissions anonymous = underTest.getPermissions(null);
+
+    underTest.invalidateAll();
+
+    assertThat(underTest.getPermissions("john")).isNotSameAs(john);
+    assertThat(underTest.getPermissions(null)).isNotSameAs(anonymous);
+  }
+
+  @Test
+  public void notify_listeners_of_invalidations() {
+    UserSessionCache.InvalidationListener listener = mock(UserSessionCache.InvalidationListener.class);
+    underTest.addInvalidationListener(listener);
+
+    underTest.invalidate("john");
+    underTest.invalidateAll();
+
+    verify(listener).onInvalidate("john");
+    verify(listener).onInvalidate(null);
+  }
+
+  @Test
+  public void do_not_notify_listeners_of_local_invalidations() {
+    UserSessionCache.InvalidationListener listener = mock(UserSessionCache.InvalidationListener.class);
+    underTest.addInvalidationListener(listener);
+
+    underTest.invalidateLocally("john");
+    underTest.invalidateLocally(null);
+    underTest.removeInvalidationListener(listener);
+    underTest.invalidateAll();
+
+    verifyZeroInteractions(listener);
+  }
+
+  private void deactivate(UserDto user) {
+    db.getDbClient().userDao().deactivateUser(db.getSession(), user);
+    db.commit();
+  }
+}
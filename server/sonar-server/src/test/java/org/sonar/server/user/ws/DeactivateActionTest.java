@@ -46,6 +46,7 @@ import org.sonar.server.exceptions.UnauthorizedException;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.user.UserSessionCache;
 import org.sonar.server.user.index.UserIndex;
 import org.sonar.server.user.index.UserIndexDefinition;
 import org.sonar.server.user.index.UserIndexer;
@@ -54,6 +55,8 @@ import org.sonar.server.ws.WsActionTester;
 
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.sonar.api.web.UserRole.CODEVIEWER;
 import static org.sonar.api.web.UserRole.USER;
 import static org.sonar.core.permission.GlobalPermissions.SYSTEM_ADMIN;
@@ -88,8 +91,9 @@ public class DeactivateActionTest {
   private UserIndexer userIndexer = new UserIndexer(dbClient, esTester.client());
   private DbSession dbSession = db.getSession();
 
+  private UserSessionCache userSessionCache = mock(UserSessionCache.class);
   private WsActionTester ws = new WsActionTester(new DeactivateAction(
-    dbClient, userIndexer, userSession, new UserJsonWriter(userSession), defaultOrganizationProvider));
+    dbClient, userIndexer, userSession, new UserJsonWriter(userSession), defaultOrganizationProvider, userSessionCache));
 
   @Test
   public void deactivate_user_and_delete_his_related_data() {
@@ -106,6 +110,16 @@ public class DeactivateActionTest {
     assertThat(index.getNullableByLogin(user.getLogin()).active()).isFalse();
   }
 
+  @Test
+  public void deactivate_user_invalidates_his_cached_sessions() {
+    UserDto user = insertUser(newUserDto());
+    logInAsSystemAdministrator();
+
+    deactivate(user.getLogin()).getInput();
+
+    verify(userSessionCache).invalidate(user.getLogin());
+  }
+
   @Test
   public void deactivate_user_deletes_his_group_membership() {
     logInAsSystemAdministrator();
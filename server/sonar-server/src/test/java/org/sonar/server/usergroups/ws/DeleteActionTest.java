@@ -37,12 +37,15 @@ import org.sonar.db.user.UserDto;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.user.UserSessionCache;
 import org.sonar.server.usergroups.DefaultGroupFinder;
 import org.sonar.server.ws.TestRequest;
 import org.sonar.server.ws.TestResponse;
 import org.sonar.server.ws.WsActionTester;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.sonar.core.permission.GlobalPermissions.SYSTEM_ADMIN;
 import static org.sonar.db.permission.OrganizationPermission.ADMINISTER;
 import static org.sonar.server.usergroups.ws.GroupWsSupport.PARAM_GROUP_ID;
@@ -60,7 +63,8 @@ public class DeleteActionTest {
 
   private ComponentDbTester componentTester = new ComponentDbTester(db);
   private TestDefaultOrganizationProvider defaultOrganizationProvider = TestDefaultOrganizationProvider.from(db);
-  private WsActionTester ws = new WsActionTester(new DeleteAction(db.getDbClient(), userSession, newGroupWsSupport()));
+  private UserSessionCache userSessionCache = mock(UserSessionCache.class);
+  private WsActionTester ws = new WsActionTester(new DeleteAction(db.getDbClient(), userSession, newGroupWsSupport(), userSessionCache));
 
   @Test
   public void response_has_no_content() throws Exception {
@@ -151,6 +155,21 @@ public class DeleteActionTest {
     assertThat(db.countRowsOfTable("groups_users")).isEqualTo(0);
   }
 
+  @Test
+  public void invalidate_cached_sessions_of_all_users() throws Exception {
+    addAdminToDefaultOrganization();
+    insertDefaultGroupOnDefaultOrganization();
+    GroupDto group = db.users().insertGroup();
+    db.users().insertMember(group, db.users().insertUser());
+    loginAsAdminOnDefaultOrganization();
+
+    newRequest()
+      .setParam("id", group.getId().toString())
+      .execute();
+
+    verify(userSessionCache).invalidateAll();
+  }
+
   @Test
   public void delete_permissions() throws Exception {
     addAdminToDefaultOrganization();
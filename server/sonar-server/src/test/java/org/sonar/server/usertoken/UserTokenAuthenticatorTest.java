@@ -28,10 +28,12 @@ import java.util.Optional;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
+import org.sonar.server.user.UserSessionCache;
 
 public class UserTokenAuthenticatorTest {
   static final String GRACE_HOPPER = "grace.hopper";
@@ -46,7 +48,7 @@ public class UserTokenAuthenticatorTest {
   DbSession dbSession = db.getSession();
   TokenGenerator tokenGenerator = mock(TokenGenerator.class);
 
-  UserTokenAuthenticator underTest = new UserTokenAuthenticator(tokenGenerator, db.getDbClient());
+  UserTokenAuthenticator underTest = new UserTokenAuthenticator(tokenGenerator, db.getDbClient(), new UserSessionCache(db.getDbClient(), new MapSettings().asConfig()));
 
   @Test
   public void return_login_when_token_hash_found_in_db() {
@@ -32,10 +32,12 @@ import org.sonar.db.user.UserTokenDto;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.exceptions.UnauthorizedException;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.user.UserSessionCache;
 import org.sonar.server.ws.TestRequest;
 import org.sonar.server.ws.WsActionTester;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 import static org.sonar.db.user.UserTokenTesting.newUserToken;
 import static org.sonarqube.ws.client.usertoken.UserTokensWsParameters.PARAM_LOGIN;
 import static org.sonarqube.ws.client.usertoken.UserTokensWsParameters.PARAM_NAME;
@@ -60,7 +62,7 @@ public class RevokeActionTest {
   @Before
   public void setUp() {
     ws = new WsActionTester(
-      new RevokeAction(dbClient, userSession));
+      new RevokeAction(dbClient, userSession, mock(UserSessionCache.class)));
   }
 
   @Test
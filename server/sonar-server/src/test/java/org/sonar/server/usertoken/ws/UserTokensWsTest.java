@@ -25,6 +25,7 @@ import org.sonar.api.server.ws.WebService;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbClient;
 import org.sonar.server.user.UserSession;
+import org.sonar.server.user.UserSessionCache;
 import org.sonar.server.usertoken.TokenGenerator;
 import org.sonar.server.ws.WsTester;
 
@@ -45,7 +46,7 @@ public class UserTokensWsTest {
 
     ws = new WsTester(new UserTokensWs(
       new GenerateAction(dbClient, userSession, system, tokenGenerator),
-      new RevokeAction(dbClient, userSession),
+      new RevokeAction(dbClient, userSession, mock(UserSessionCache.class)),
       new SearchAction(dbClient, userSession)));
   }
 
@@ -25,6 +25,9 @@ import org.junit.rules.TemporaryFolder;
 import org.sonar.api.utils.System2;
 import org.sonar.core.util.CloseableIterator;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
@@ -52,6 +55,22 @@ public class DiskCacheTest {
     }
   }
 
+  @Test
+  public void write_and_read_with_custom_codec() throws Exception {
+    DiskCache<String> cache = new DiskCache<>(temp.newFile(), System2.INSTANCE, new UpperCaseCodec());
+
+    cache.newAppender()
+      .append("foo")
+      .append("bar")
+      .close();
+    cache.newAppender()
+      .append("baz")
+      .close();
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      assertThat(traverse).containsExactly("FOO", "BAR", "BAZ");
+    }
+  }
+
   @Test
   public void fail_if_file_is_not_writable() throws Exception {
     try {
@@ -77,4 +96,16 @@ public class DiskCacheTest {
       assertThat(e).hasMessage("expected error");
     }
   }
+
+  private static class UpperCaseCodec implements RecordCodec<String> {
+    @Override
+    public void write(String object, DataOutputStream output) throws IOException {
+      output.writeUTF(object.toUpperCase());
+    }
+
+    @Override
+    public String read(DataInputStream input) throws IOException {
+      return input.readUTF();
+    }
+  }
 }
@@ -0,0 +1,103 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.util.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.utils.System2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MappedRecordIteratorTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private IntCodec codec = new IntCodec();
+
+  @Test
+  public void read_records_spanning_several_windows() throws Exception {
+    File file = temp.newFile();
+    DiskCache<Integer> cache = new DiskCache<>(file, System2.INSTANCE, codec);
+    try (DiskCache<Integer>.DiskAppender appender = cache.newAppender()) {
+      for (int i = 0; i < 1_000; i++) {
+        appender.append(i);
+      }
+    }
+
+    // each record is 8 bytes long (length prefix + int), so windows of 13 bytes never contain
+    // an integral number of records
+    List<Integer> values = new ArrayList<>();
+    try (MappedRecordIterator<Integer> underTest = new MappedRecordIterator<>(file, codec, 13L)) {
+      underTest.forEachRemaining(values::add);
+    }
+
+    assertThat(values).hasSize(1_000);
+    for (int i = 0; i < 1_000; i++) {
+      assertThat(values.get(i)).isEqualTo(i);
+    }
+  }
+
+  @Test
+  public void read_empty_file() throws Exception {
+    try (MappedRecordIterator<Integer> underTest = new MappedRecordIterator<>(temp.newFile(), codec)) {
+      assertThat(underTest.hasNext()).isFalse();
+    }
+  }
+
+  @Test
+  public void fail_if_record_is_truncated() throws Exception {
+    File file = temp.newFile();
+    try (DataOutputStream output = new DataOutputStream(new FileOutputStream(file))) {
+      output.writeInt(100);
+      output.writeInt(42);
+    }
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Corrupted record at offset 0 of file " + file);
+
+    try (MappedRecordIterator<Integer> underTest = new MappedRecordIterator<>(file, codec)) {
+      underTest.next();
+    }
+  }
+
+  private static class IntCodec implements RecordCodec<Integer> {
+    @Override
+    public void write(Integer object, DataOutputStream output) throws IOException {
+      output.writeInt(object);
+    }
+
+    @Override
+    public Integer read(DataInputStream input) throws IOException {
+      return input.readInt();
+    }
+  }
+}
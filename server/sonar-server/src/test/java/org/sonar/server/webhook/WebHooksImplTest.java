@@ -25,6 +25,7 @@ import java.util.stream.IntStream;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.utils.System2;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 
@@ -47,7 +48,9 @@ public class WebHooksImplTest {
   private final TestWebhookCaller caller = new TestWebhookCaller();
   private final WebhookDeliveryStorage deliveryStorage = mock(WebhookDeliveryStorage.class);
   private final WebhookPayload mock = mock(WebhookPayload.class);
-  private final WebHooksImpl underTest = new WebHooksImpl(caller, deliveryStorage);
+  private final WebhookDispatcher dispatcher = new WebhookDispatcher(caller, deliveryStorage,
+    new MapSettings().setProperty(WebhookDispatcher.THREADS_PROPERTY, "0").asConfig(), System2.INSTANCE);
+  private final WebHooksImpl underTest = new WebHooksImpl(dispatcher, deliveryStorage);
 
   @Test
   public void isEnabled_returns_false_if_no_webHoolds() {
@@ -20,6 +20,7 @@
 package org.sonar.server.webhook;
 
 import java.io.IOException;
+import java.util.List;
 import org.apache.commons.lang.RandomStringUtils;
 import org.junit.Rule;
 import org.junit.Test;
@@ -28,6 +29,7 @@ import org.sonar.core.util.UuidFactory;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
 import org.sonar.db.webhook.WebhookDeliveryDto;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -86,6 +88,70 @@ public class WebhookDeliveryStorageTest {
     assertThat(dto.getErrorStacktrace()).contains("java.io.IOException", "fail to connect");
   }
 
+  @Test
+  public void persist_delivery_to_send_again() {
+    when(uuidFactory.create()).thenReturn(DELIVERY_UUID);
+
+    String uuid = underTest.persistWithRetry(newBuilderTemplate().build(), NOW);
+
+    assertThat(uuid).isEqualTo(DELIVERY_UUID);
+    WebhookDeliveryDto dto = dbClient.webhookDeliveryDao().selectByUuid(dbSession, DELIVERY_UUID).get();
+    assertThat(dto.getNextAttemptAt()).isEqualTo(NOW);
+  }
+
+  @Test
+  public void persist_does_not_send_delivery_again() {
+    when(uuidFactory.create()).thenReturn(DELIVERY_UUID);
+
+    underTest.persist(newBuilderTemplate().build());
+
+    WebhookDeliveryDto dto = dbClient.webhookDeliveryDao().selectByUuid(dbSession, DELIVERY_UUID).get();
+    assertThat(dto.getNextAttemptAt()).isNull();
+    assertThat(underTest.loadRetries()).isEmpty();
+  }
+
+  @Test
+  public void retry_can_be_claimed_only_once() {
+    when(uuidFactory.create()).thenReturn(DELIVERY_UUID);
+    underTest.persistWithRetry(newBuilderTemplate().build(), NOW);
+
+    assertThat(underTest.claimRetry(DELIVERY_UUID)).isTrue();
+    assertThat(underTest.claimRetry(DELIVERY_UUID)).isFalse();
+    assertThat(underTest.loadRetries()).isEmpty();
+  }
+
+  @Test
+  public void load_retries_not_claimed_yet() {
+    ComponentDto project = dbTester.components().insertPrivateProject(dbTester.organizations().insert());
+    Webhook webhook = new Webhook(project.uuid(), "TASK1", "ANALYSIS1", "Jenkins", "http://jenkins");
+    when(uuidFactory.create()).thenReturn("D1", "D2");
+    underTest.persistWithRetry(newBuilderTemplate().setWebhook(webhook).build(), NOW);
+    underTest.persistWithRetry(newBuilderTemplate().setWebhook(webhook).build(), NOW);
+    underTest.claimRetry("D2");
+
+    List<WebhookDeliveryStorage.Retry> retries = underTest.loadRetries();
+
+    assertThat(retries).extracting(WebhookDeliveryStorage.Retry::getDeliveryUuid).containsExactly("D1");
+    WebhookDeliveryStorage.Retry retry = retries.get(0);
+    assertThat(retry.getNextAttemptAt()).isEqualTo(NOW);
+    assertThat(retry.getWebhook().getComponentUuid()).isEqualTo(project.uuid());
+    assertThat(retry.getWebhook().getCeTaskUuid()).contains("TASK1");
+    assertThat(retry.getWebhook().getAnalysisUuid()).contains("ANALYSIS1");
+    assertThat(retry.getWebhook().getName()).isEqualTo("Jenkins");
+    assertThat(retry.getWebhook().getUrl()).isEqualTo("http://jenkins");
+    assertThat(retry.getPayload().getProjectKey()).isEqualTo(project.getKey());
+    assertThat(retry.getPayload().getJson()).isEqualTo("{json}");
+  }
+
+  @Test
+  public void drop_retries_of_deleted_components() {
+    when(uuidFactory.create()).thenReturn(DELIVERY_UUID);
+    underTest.persistWithRetry(newBuilderTemplate().build(), NOW);
+
+    assertThat(underTest.loadRetries()).isEmpty();
+    assertThat(dbClient.webhookDeliveryDao().selectByUuid(dbSession, DELIVERY_UUID).get().getNextAttemptAt()).isNull();
+  }
+
   @Test
   public void purge_deletes_records_older_than_one_month_on_the_project() {
     when(system.now()).thenReturn(NOW);
@@ -0,0 +1,311 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.webhook;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.utils.System2;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sonar.server.webhook.WebhookDispatcher.MAX_ATTEMPTS_PROPERTY;
+import static org.sonar.server.webhook.WebhookDispatcher.MAX_CALLS_PER_HOST_PROPERTY;
+import static org.sonar.server.webhook.WebhookDispatcher.MAX_PENDING_PROPERTY;
+import static org.sonar.server.webhook.WebhookDispatcher.RETRY_DELAY_PROPERTY;
+import static org.sonar.server.webhook.WebhookDispatcher.THREADS_PROPERTY;
+
+public class WebhookDispatcherTest {
+
+  private static final WebhookPayload PAYLOAD = new WebhookPayload("P1", "{}");
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private MapSettings settings = new MapSettings()
+    .setProperty(THREADS_PROPERTY, "4")
+    .setProperty(RETRY_DELAY_PROPERTY, "1");
+  private WebhookDeliveryStorage deliveryStorage = mock(WebhookDeliveryStorage.class);
+  private WebhookDispatcher underTest;
+
+  @After
+  public void tearDown() {
+    if (underTest != null) {
+      underTest.stop();
+    }
+  }
+
+  @Test
+  public void deliver_synchronously_if_no_threads() {
+    settings.setProperty(THREADS_PROPERTY, "0");
+    AtomicInteger calls = new AtomicInteger();
+    start(webhook -> {
+      calls.incrementAndGet();
+      return 200;
+    });
+
+    underTest.dispatch(newWebhook("http://host1/a"), PAYLOAD);
+
+    assertThat(underTest.isAsync()).isFalse();
+    assertThat(calls.get()).isEqualTo(1);
+    verify(deliveryStorage).persist(any(WebhookDelivery.class));
+    assertThat(underTest.getDeliveries()).isEqualTo(1);
+  }
+
+  @Test
+  public void deliver_in_background() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    start(webhook -> {
+      await(release);
+      return 200;
+    });
+
+    underTest.dispatch(newWebhook("http://host1/a"), PAYLOAD);
+
+    assertThat(underTest.isAsync()).isTrue();
+    release.countDown();
+    verify(deliveryStorage, timeout(5_000)).persist(any(WebhookDelivery.class));
+  }
+
+  @Test
+  public void slow_host_does_not_delay_other_hosts() throws Exception {
+    settings.setProperty(MAX_CALLS_PER_HOST_PROPERTY, "1");
+    CountDownLatch release = new CountDownLatch(1);
+    Map<String, AtomicInteger> runningByHost = new ConcurrentHashMap<>();
+    AtomicInteger maxRunningOnSlowHost = new AtomicInteger();
+    start(webhook -> {
+      AtomicInteger running = runningByHost.computeIfAbsent(webhook.getUrl(), u -> new AtomicInteger());
+      int count = running.incrementAndGet();
+      if (webhook.getUrl().contains("slow")) {
+        maxRunningOnSlowHost.accumulateAndGet(count, Math::max);
+        await(release);
+      }
+      running.decrementAndGet();
+      return 200;
+    });
+
+    underTest.dispatch(newWebhook("http://slow/a"), PAYLOAD);
+    underTest.dispatch(newWebhook("http://slow/a"), PAYLOAD);
+    underTest.dispatch(newWebhook("http://slow/a"), PAYLOAD);
+    underTest.dispatch(newWebhook("http://fast/a"), PAYLOAD);
+
+    // the call to the fast host is not queued behind the calls to the slow host
+    verify(deliveryStorage, timeout(5_000)).persist(any(WebhookDelivery.class));
+
+    release.countDown();
+    verify(deliveryStorage, timeout(5_000).times(4)).persist(any(WebhookDelivery.class));
+    assertThat(maxRunningOnSlowHost.get()).isEqualTo(1);
+    assertThat(underTest.getPending()).isEqualTo(0);
+  }
+
+  @Test
+  public void retry_on_server_error() {
+    AtomicInteger calls = new AtomicInteger();
+    start(webhook -> calls.incrementAndGet() == 1 ? 503 : 200);
+
+    underTest.dispatch(newWebhook("http://host1/a"), PAYLOAD);
+
+    verify(deliveryStorage, timeout(5_000)).persist(any(WebhookDelivery.class));
+    verify(deliveryStorage).persistWithRetry(any(WebhookDelivery.class), anyLong());
+    assertThat(calls.get()).isEqualTo(2);
+    assertThat(underTest.getRetries()).isEqualTo(1);
+    assertThat(underTest.getFailures()).isEqualTo(0);
+  }
+
+  @Test
+  public void retry_is_claimed_before_being_sent() {
+    when(deliveryStorage.persistWithRetry(any(WebhookDelivery.class), anyLong())).thenReturn("D1");
+    when(deliveryStorage.claimRetry("D1")).thenReturn(true);
+    AtomicInteger calls = new AtomicInteger();
+    start(webhook -> calls.incrementAndGet() == 1 ? 503 : 200);
+
+    underTest.dispatch(newWebhook("http://host1/a"), PAYLOAD);
+
+    verify(deliveryStorage, timeout(5_000)).persist(any(WebhookDelivery.class));
+    verify(deliveryStorage).claimRetry("D1");
+    assertThat(calls.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void retry_is_not_sent_if_claimed_by_another_process() {
+    when(deliveryStorage.persistWithRetry(any(WebhookDelivery.class), anyLong())).thenReturn("D1");
+    when(deliveryStorage.claimRetry("D1")).thenReturn(false);
+    AtomicInteger calls = new AtomicInteger();
+    start(webhook -> {
+      calls.incrementAndGet();
+      return 503;
+    });
+
+    underTest.dispatch(newWebhook("http://host1/a"), PAYLOAD);
+
+    verify(deliveryStorage, timeout(5_000)).claimRetry("D1");
+    assertThat(calls.get()).isEqualTo(1);
+    verify(deliveryStorage, never()).persist(any(WebhookDelivery.class));
+  }
+
+  @Test
+  public void resume_persisted_retries_at_startup() {
+    Webhook webhook = newWebhook("http://host1/a");
+    when(deliveryStorage.loadRetries()).thenReturn(singletonList(new WebhookDeliveryStorage.Retry("D1", webhook, PAYLOAD, 0L)));
+    when(deliveryStorage.claimRetry("D1")).thenReturn(true);
+    AtomicInteger calls = new AtomicInteger();
+    start(w -> {
+      calls.incrementAndGet();
+      return 503;
+    });
+
+    // the number of previous attempts is unknown, the delivery is attempted only once
+    verify(deliveryStorage, timeout(5_000)).persist(any(WebhookDelivery.class));
+    verify(deliveryStorage).claimRetry("D1");
+    verify(deliveryStorage, never()).persistWithRetry(any(WebhookDelivery.class), anyLong());
+    assertThat(calls.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void persisted_retries_are_not_resumed_if_no_threads() {
+    settings.setProperty(THREADS_PROPERTY, "0");
+    start(webhook -> 200);
+
+    verify(deliveryStorage, never()).loadRetries();
+    verify(deliveryStorage, never()).claimRetry(anyString());
+  }
+
+  @Test
+  public void retry_on_network_error_up_to_max_attempts() throws Exception {
+    settings.setProperty(MAX_ATTEMPTS_PROPERTY, "3");
+    AtomicInteger calls = new AtomicInteger();
+    start(webhook -> {
+      calls.incrementAndGet();
+      return null;
+    });
+
+    underTest.dispatch(newWebhook("http://host1/a"), PAYLOAD);
+
+    verify(deliveryStorage, timeout(5_000)).persist(any(WebhookDelivery.class));
+    verify(deliveryStorage, times(2)).persistWithRetry(any(WebhookDelivery.class), anyLong());
+    waitForDeliveries(1);
+    assertThat(calls.get()).isEqualTo(3);
+    assertThat(underTest.getRetries()).isEqualTo(2);
+    assertThat(underTest.getFailures()).isEqualTo(1);
+  }
+
+  @Test
+  public void do_not_retry_on_client_error() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    start(webhook -> {
+      calls.incrementAndGet();
+      return 404;
+    });
+
+    underTest.dispatch(newWebhook("http://host1/a"), PAYLOAD);
+
+    waitForDeliveries(1);
+    verify(deliveryStorage, times(1)).persist(any(WebhookDelivery.class));
+    assertThat(calls.get()).isEqualTo(1);
+    assertThat(underTest.getRetries()).isEqualTo(0);
+    assertThat(underTest.getFailures()).isEqualTo(1);
+  }
+
+  @Test
+  public void deliver_synchronously_if_too_many_pending_deliveries() {
+    settings.setProperty(MAX_PENDING_PROPERTY, "0");
+    Thread caller = Thread.currentThread();
+    AtomicInteger callsInCallerThread = new AtomicInteger();
+    start(webhook -> {
+      if (Thread.currentThread() == caller) {
+        callsInCallerThread.incrementAndGet();
+      }
+      return 200;
+    });
+
+    underTest.dispatch(newWebhook("http://host1/a"), PAYLOAD);
+
+    assertThat(callsInCallerThread.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void fail_if_property_is_negative() {
+    settings.setProperty(THREADS_PROPERTY, "-1");
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Property sonar.webhooks.dispatcher.threads must be positive. Got -1");
+
+    new WebhookDispatcher(mock(WebhookCaller.class), deliveryStorage, settings.asConfig(), System2.INSTANCE);
+  }
+
+  /**
+   * @param httpStatusByWebhook returns the HTTP status of the call, or null for a network error
+   */
+  private void start(Function<Webhook, Integer> httpStatusByWebhook) {
+    WebhookCaller caller = (webhook, payload) -> {
+      WebhookDelivery.Builder builder = new WebhookDelivery.Builder()
+        .setAt(System2.INSTANCE.now())
+        .setWebhook(webhook)
+        .setPayload(payload);
+      Integer status = httpStatusByWebhook.apply(webhook);
+      if (status == null) {
+        builder.setError(new IOException("Fail to connect"));
+      } else {
+        builder.setHttpStatus(status).setDurationInMs(10);
+      }
+      return builder.build();
+    };
+    underTest = new WebhookDispatcher(caller, deliveryStorage, settings.asConfig(), System2.INSTANCE);
+    underTest.start();
+  }
+
+  private void waitForDeliveries(long expected) throws InterruptedException {
+    long timeout = System.currentTimeMillis() + 5_000L;
+    while (underTest.getDeliveries() < expected && System.currentTimeMillis() < timeout) {
+      Thread.sleep(10L);
+    }
+    assertThat(underTest.getDeliveries()).isEqualTo(expected);
+  }
+
+  private static Webhook newWebhook(String url) {
+    return new Webhook("P1_UUID", "TASK_UUID", "ANALYSIS_UUID", "First", url);
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
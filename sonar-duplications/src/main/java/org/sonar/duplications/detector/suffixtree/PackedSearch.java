@@ -0,0 +1,173 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.detector.suffixtree;
+
+/**
+ * Same as {@link Search}, on a {@link PackedSuffixTree}.
+ */
+final class PackedSearch {
+
+  private final PackedSuffixTree tree;
+  private final TextSet text;
+  private final Search.Collector reporter;
+
+  // number of symbols from the root to each node, see Node#depth
+  private final int[] depth;
+  private final int[] startSize;
+  private final int[] endSize;
+  // depths of leaves, in the order of the DFS
+  private final int[] list;
+  private int listSize;
+  private int[] innerNodes;
+  private int innerNodesSize;
+
+  private PackedSearch(PackedSuffixTree tree, TextSet text, Search.Collector reporter) {
+    this.tree = tree;
+    this.text = text;
+    this.reporter = reporter;
+    int nodes = tree.nodes();
+    this.depth = new int[nodes];
+    this.startSize = new int[nodes];
+    this.endSize = new int[nodes];
+    this.list = new int[nodes];
+    this.innerNodes = new int[nodes];
+  }
+
+  static void perform(TextSet text, Search.Collector reporter) {
+    new PackedSearch(PackedSuffixTree.create(text), text, reporter).compute();
+  }
+
+  private void compute() {
+    // O(N)
+    dfs();
+
+    // O(N)
+    sortInnerNodesByDecreasingDepth();
+
+    // O(N)
+    visitInnerNodes();
+  }
+
+  /**
+   * Depth-first search (DFS).
+   */
+  private void dfs() {
+    int nodes = tree.nodes();
+    // children of each node, in the order of creation
+    int[] firstChild = new int[nodes + 1];
+    for (int node = 1; node < nodes; node++) {
+      firstChild[tree.parent(node) + 1]++;
+    }
+    for (int node = 0; node < nodes; node++) {
+      firstChild[node + 1] += firstChild[node];
+    }
+    int[] children = new int[Math.max(0, nodes - 1)];
+    int[] next = new int[nodes];
+    System.arraycopy(firstChild, 0, next, 0, nodes);
+    for (int node = 1; node < nodes; node++) {
+      children[next[tree.parent(node)]++] = node;
+    }
+
+    int[] stack = new int[nodes];
+    int stackSize = 0;
+    stack[stackSize++] = PackedSuffixTree.ROOT;
+    while (stackSize > 0) {
+      int node = stack[--stackSize];
+      startSize[node] = listSize;
+      if (firstChild[node] == firstChild[node + 1]) {
+        // leaf
+        list[listSize++] = depth[node];
+        endSize[node] = listSize;
+      } else {
+        if (node != PackedSuffixTree.ROOT) {
+          // inner node = not leaf and not root
+          innerNodes[innerNodesSize++] = node;
+        }
+        for (int i = firstChild[node]; i < firstChild[node + 1]; i++) {
+          int child = children[i];
+          depth[child] = depth[node] + tree.span(child) + 1;
+          stack[stackSize++] = child;
+        }
+      }
+    }
+    // At this point all inner nodes are ordered by the time of entering, so we visit them from last to first
+    for (int i = innerNodesSize - 1; i >= 0; i--) {
+      int node = innerNodes[i];
+      int max = -1;
+      for (int j = firstChild[node]; j < firstChild[node + 1]; j++) {
+        max = Math.max(endSize[children[j]], max);
+      }
+      endSize[node] = max;
+    }
+  }
+
+  /**
+   * Stable counting sort, as depths are lower than the length of the text
+   */
+  private void sortInnerNodesByDecreasingDepth() {
+    int maxDepth = tree.length();
+    int[] counts = new int[maxDepth + 2];
+    for (int i = 0; i < innerNodesSize; i++) {
+      counts[maxDepth - depth[innerNodes[i]] + 1]++;
+    }
+    for (int i = 1; i < counts.length; i++) {
+      counts[i] += counts[i - 1];
+    }
+    int[] sorted = new int[innerNodesSize];
+    for (int i = 0; i < innerNodesSize; i++) {
+      int node = innerNodes[i];
+      sorted[counts[maxDepth - depth[node]]++] = node;
+    }
+    innerNodes = sorted;
+  }
+
+  /**
+   * Each inner-node represents prefix of some suffixes, thus substring of text.
+   */
+  private void visitInnerNodes() {
+    for (int i = 0; i < innerNodesSize; i++) {
+      int node = innerNodes[i];
+      if (containsOrigin(node)) {
+        report(node);
+      }
+    }
+  }
+
+  private boolean containsOrigin(int node) {
+    for (int i = startSize[node]; i < endSize[node]; i++) {
+      int start = tree.length() - list[i];
+      int end = start + depth[node];
+      if (text.isInsideOrigin(end)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void report(int node) {
+    reporter.startOfGroup(endSize[node] - startSize[node], depth[node]);
+    for (int i = startSize[node]; i < endSize[node]; i++) {
+      int start = tree.length() - list[i];
+      int end = start + depth[node];
+      reporter.part(start, end);
+    }
+    reporter.endOfGroup();
+  }
+}
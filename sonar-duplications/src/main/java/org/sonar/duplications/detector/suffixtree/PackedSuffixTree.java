@@ -0,0 +1,282 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.detector.suffixtree;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Same algorithm as {@link SuffixTree}, but nodes and edges are stored in arrays of primitives instead of
+ * {@link Node} and {@link Edge} objects, which divides the memory used by the tree by about four.
+ * <p>
+ * Nodes are identified by their index in the arrays, the root being {@code 0}. As each node except the root has exactly
+ * one incoming edge, edges are identified by their end node. Symbols of the text are replaced by ints, so that
+ * edges can be looked up in a single hash table keyed by start node and first symbol.
+ * </p>
+ */
+final class PackedSuffixTree {
+
+  static final int ROOT = 0;
+  private static final int NONE = -1;
+
+  private final int[] symbols;
+
+  private int nodes;
+  private int[] suffixNode;
+  // incoming edge of each node
+  private int[] edgeBegin;
+  private int[] edgeEnd;
+  private int[] edgeStart;
+
+  private final EdgeTable edges;
+
+  // active point
+  private int activeNode = ROOT;
+  private int activeBegin = 0;
+  private int activeEnd = -1;
+
+  private PackedSuffixTree(Text text) {
+    this.symbols = symbolIds(text);
+    int capacity = 2 * symbols.length + 2;
+    this.suffixNode = new int[capacity];
+    this.edgeBegin = new int[capacity];
+    this.edgeEnd = new int[capacity];
+    this.edgeStart = new int[capacity];
+    this.edges = new EdgeTable(capacity);
+    newNode();
+  }
+
+  static PackedSuffixTree create(Text text) {
+    PackedSuffixTree tree = new PackedSuffixTree(text);
+    for (int i = 0; i < tree.symbols.length; i++) {
+      tree.addPrefix(i);
+    }
+    return tree;
+  }
+
+  private static int[] symbolIds(Text text) {
+    Map<Object, Integer> ids = new HashMap<>();
+    int[] res = new int[text.length()];
+    for (int i = 0; i < res.length; i++) {
+      Integer id = ids.get(text.symbolAt(i));
+      if (id == null) {
+        id = ids.size();
+        ids.put(text.symbolAt(i), id);
+      }
+      res[i] = id;
+    }
+    return res;
+  }
+
+  private void addPrefix(int endIndex) {
+    int lastParentNode = NONE;
+    int parentNode;
+
+    while (true) {
+      int edge;
+      parentNode = activeNode;
+
+      if (activeBegin > activeEnd) {
+        edge = edges.get(activeNode, symbols[endIndex]);
+        if (edge != NONE) {
+          break;
+        }
+      } else {
+        edge = edges.get(activeNode, symbols[activeBegin]);
+        int span = activeEnd - activeBegin;
+        if (symbols[edgeBegin[edge] + span + 1] == symbols[endIndex]) {
+          break;
+        }
+        parentNode = splitEdge(edge);
+      }
+
+      int leaf = newNode();
+      setEdge(leaf, parentNode, endIndex, symbols.length - 1);
+      updateSuffixNode(lastParentNode, parentNode);
+      lastParentNode = parentNode;
+
+      if (activeNode == ROOT) {
+        activeBegin++;
+      } else {
+        activeNode = suffixNode[activeNode];
+      }
+      canonize();
+    }
+    updateSuffixNode(lastParentNode, parentNode);
+    activeEnd++;
+    canonize();
+  }
+
+  /**
+   * Splits the edge at the active point, see {@link Edge#splitEdge(Suffix)}
+   *
+   * @return the new node
+   */
+  private int splitEdge(int edge) {
+    int span = activeEnd - activeBegin;
+    int node = newNode();
+    setEdge(node, activeNode, edgeBegin[edge], edgeBegin[edge] + span);
+    suffixNode[node] = activeNode;
+    setEdge(edge, node, edgeBegin[edge] + span + 1, edgeEnd[edge]);
+    return node;
+  }
+
+  private void canonize() {
+    if (activeBegin <= activeEnd) {
+      int edge = edges.get(activeNode, symbols[activeBegin]);
+      int edgeSpan = span(edge);
+      while (edgeSpan <= activeEnd - activeBegin) {
+        activeBegin += edgeSpan + 1;
+        activeNode = edge;
+        if (activeBegin <= activeEnd) {
+          edge = edges.get(edge, symbols[activeBegin]);
+          edgeSpan = span(edge);
+        }
+      }
+    }
+  }
+
+  private void updateSuffixNode(int node, int suffix) {
+    if (node != NONE && node != ROOT) {
+      suffixNode[node] = suffix;
+    }
+  }
+
+  private int newNode() {
+    if (nodes == suffixNode.length) {
+      int capacity = 2 * nodes;
+      suffixNode = Arrays.copyOf(suffixNode, capacity);
+      edgeBegin = Arrays.copyOf(edgeBegin, capacity);
+      edgeEnd = Arrays.copyOf(edgeEnd, capacity);
+      edgeStart = Arrays.copyOf(edgeStart, capacity);
+    }
+    suffixNode[nodes] = NONE;
+    nodes++;
+    return nodes - 1;
+  }
+
+  private void setEdge(int endNode, int startNode, int beginIndex, int endIndex) {
+    edgeStart[endNode] = startNode;
+    edgeBegin[endNode] = beginIndex;
+    edgeEnd[endNode] = endIndex;
+    edges.put(startNode, symbols[beginIndex], endNode);
+  }
+
+  int length() {
+    return symbols.length;
+  }
+
+  int nodes() {
+    return nodes;
+  }
+
+  /**
+   * Start node of the incoming edge of the node, which must not be the root
+   */
+  int parent(int node) {
+    return edgeStart[node];
+  }
+
+  /**
+   * Length minus one of the incoming edge of the node, which must not be the root, see {@link Edge#getSpan()}
+   */
+  int span(int node) {
+    return edgeEnd[node] - edgeBegin[node];
+  }
+
+  /**
+   * Open addressing hash table of edges, keyed by start node and first symbol, with linear probing.
+   * Edges are never removed: when an edge is split, the new edge replaces it.
+   */
+  private static final class EdgeTable {
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    private EdgeTable(int expectedSize) {
+      int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+      allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+      keys = new long[capacity];
+      values = new int[capacity];
+      Arrays.fill(values, NONE);
+      mask = capacity - 1;
+    }
+
+    int get(int node, int symbol) {
+      long key = key(node, symbol);
+      int i = slot(key);
+      while (values[i] != NONE) {
+        if (keys[i] == key) {
+          return values[i];
+        }
+        i = (i + 1) & mask;
+      }
+      return NONE;
+    }
+
+    void put(int node, int symbol, int edge) {
+      long key = key(node, symbol);
+      int i = slot(key);
+      while (values[i] != NONE) {
+        if (keys[i] == key) {
+          values[i] = edge;
+          return;
+        }
+        i = (i + 1) & mask;
+      }
+      keys[i] = key;
+      values[i] = edge;
+      size++;
+      if (2 * size > keys.length) {
+        rehash();
+      }
+    }
+
+    private void rehash() {
+      long[] oldKeys = keys;
+      int[] oldValues = values;
+      allocate(2 * oldKeys.length);
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldValues[i] != NONE) {
+          int j = slot(oldKeys[i]);
+          while (values[j] != NONE) {
+            j = (j + 1) & mask;
+          }
+          keys[j] = oldKeys[i];
+          values[j] = oldValues[i];
+        }
+      }
+    }
+
+    private int slot(long key) {
+      long h = key * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static long key(int node, int symbol) {
+      return ((long) node << 32) | (symbol & 0xFFFFFFFFL);
+    }
+  }
+}
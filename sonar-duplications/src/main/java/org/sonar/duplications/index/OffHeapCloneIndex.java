@@ -0,0 +1,333 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.index;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import javax.annotation.Nullable;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
+import org.sonar.duplications.utils.FastStringComparator;
+
+/**
+ * Same as {@link PackedMemoryCloneIndex}, but blocks are stored out of the Java heap, in chunks of direct
+ * buffers which are allocated when needed and never copied. Only resource ids are stored in the heap,
+ * once per resource.
+ * <p>
+ * Blocks are sorted by hash at the first query, so that they can be searched by hash with a binary search. Their
+ * positions are then grouped by resource, in order to search them by resource.
+ * </p>
+ * <p>
+ * Queries can be executed concurrently, as long as no block is inserted meanwhile.
+ * </p>
+ */
+public class OffHeapCloneIndex extends AbstractCloneIndex {
+
+  // resource, index in file, first line, last line, first unit, last unit
+  private static final int BLOCK_INTS = 6;
+
+  private final int hashInts;
+  private final int blockInts;
+  private final IntChunks blockData = new IntChunks();
+  private int size;
+
+  private final Map<String, Integer> resourceNumbers = new HashMap<>();
+  private final List<String> resourceIds = new ArrayList<>();
+
+  /**
+   * Indicates that index requires sorting to perform queries.
+   */
+  private volatile boolean sorted;
+  // positions of blocks, grouped by resource number
+  private IntChunks blocksByResource;
+  // for each resource number, index of its first block in blocksByResource
+  private int[] resourceStarts;
+  // resource numbers, sorted by resource id
+  private int[] sortedResources;
+
+  public OffHeapCloneIndex() {
+    this(8);
+  }
+
+  /**
+   * @param hashBytes size of hash in bytes
+   */
+  public OffHeapCloneIndex(int hashBytes) {
+    this.hashInts = hashBytes / 4;
+    this.blockInts = hashInts + BLOCK_INTS;
+  }
+
+  @Override
+  public void insert(Block block) {
+    int[] hash = block.getBlockHash().toIntArray();
+    if (hash.length != hashInts) {
+      throw new IllegalArgumentException("Expected " + hashInts + " ints in hash, but got " + hash.length);
+    }
+    sorted = false;
+    Integer resourceNumber = resourceNumbers.get(block.getResourceId());
+    if (resourceNumber == null) {
+      resourceNumber = resourceIds.size();
+      resourceNumbers.put(block.getResourceId(), resourceNumber);
+      resourceIds.add(block.getResourceId());
+    }
+
+    for (int h : hash) {
+      blockData.add(h);
+    }
+    blockData.add(resourceNumber);
+    blockData.add(block.getIndexInFile());
+    blockData.add(block.getStartLine());
+    blockData.add(block.getEndLine());
+    blockData.add(block.getStartUnit());
+    blockData.add(block.getEndUnit());
+    size++;
+  }
+
+  @Override
+  public Collection<Block> getBySequenceHash(ByteArray sequenceHash) {
+    ensureSorted();
+
+    int[] hash = sequenceHash.toIntArray();
+    if (hash.length != hashInts) {
+      throw new IllegalArgumentException("Expected " + hashInts + " ints in hash, but got " + hash.length);
+    }
+
+    int lower = 0;
+    int upper = size;
+    while (lower < upper) {
+      int mid = (lower + upper) >>> 1;
+      if (compareHash(mid, hash) < 0) {
+        lower = mid + 1;
+      } else {
+        upper = mid;
+      }
+    }
+
+    List<Block> result = new ArrayList<>();
+    for (int index = lower; index < size && compareHash(index, hash) == 0; index++) {
+      result.add(createBlock(index, sequenceHash));
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * <strong>Note that this implementation does not guarantee that blocks would be sorted by index.</strong>
+   * </p>
+   */
+  @Override
+  public Collection<Block> getByResourceId(String resourceId) {
+    ensureSorted();
+
+    Integer resourceNumber = resourceNumbers.get(resourceId);
+    if (resourceNumber == null) {
+      return new ArrayList<>();
+    }
+    return getByResourceNumber(resourceNumber);
+  }
+
+  private List<Block> getByResourceNumber(int resourceNumber) {
+    List<Block> result = new ArrayList<>(resourceStarts[resourceNumber + 1] - resourceStarts[resourceNumber]);
+    for (int i = resourceStarts[resourceNumber]; i < resourceStarts[resourceNumber + 1]; i++) {
+      result.add(createBlock(blocksByResource.get(i), null));
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Resources are iterated in the same order as {@link PackedMemoryCloneIndex#iterator()}.
+   * </p>
+   */
+  @Override
+  public Iterator<ResourceBlocks> iterator() {
+    ensureSorted();
+    return new Iterator<ResourceBlocks>() {
+      private int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return index < sortedResources.length;
+      }
+
+      @Override
+      public ResourceBlocks next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        int resourceNumber = sortedResources[index];
+        index++;
+        return new ResourceBlocks(resourceIds.get(resourceNumber), getByResourceNumber(resourceNumber));
+      }
+    };
+  }
+
+  @Override
+  public int noResources() {
+    return resourceIds.size();
+  }
+
+  private Block createBlock(int index, @Nullable ByteArray hash) {
+    long offset = (long) index * blockInts;
+    ByteArray blockHash = hash;
+    if (blockHash == null) {
+      int[] ints = new int[hashInts];
+      for (int i = 0; i < hashInts; i++) {
+        ints[i] = blockData.get(offset + i);
+      }
+      blockHash = new ByteArray(ints);
+    }
+    offset += hashInts;
+    return Block.builder()
+      .setResourceId(resourceIds.get(blockData.get(offset)))
+      .setBlockHash(blockHash)
+      .setIndexInFile(blockData.get(offset + 1))
+      .setLines(blockData.get(offset + 2), blockData.get(offset + 3))
+      .setUnit(blockData.get(offset + 4), blockData.get(offset + 5))
+      .build();
+  }
+
+  private int compareHash(int index, int[] hash) {
+    long offset = (long) index * blockInts;
+    for (int i = 0; i < hashInts; i++) {
+      int value = blockData.get(offset + i);
+      if (value != hash[i]) {
+        return value < hash[i] ? -1 : 1;
+      }
+    }
+    return 0;
+  }
+
+  private void ensureSorted() {
+    if (sorted) {
+      return;
+    }
+    synchronized (this) {
+      if (sorted) {
+        return;
+      }
+      DataUtils.sort(byBlockHash);
+      groupByResource();
+      sorted = true;
+    }
+  }
+
+  /**
+   * Counting sort of the positions of blocks by resource number, which keeps the order by hash
+   */
+  private void groupByResource() {
+    int resources = resourceIds.size();
+    resourceStarts = new int[resources + 1];
+    for (int index = 0; index < size; index++) {
+      resourceStarts[resourceNumber(index) + 1]++;
+    }
+    for (int r = 0; r < resources; r++) {
+      resourceStarts[r + 1] += resourceStarts[r];
+    }
+    int[] next = new int[resources];
+    System.arraycopy(resourceStarts, 0, next, 0, resources);
+    blocksByResource = new IntChunks();
+    for (int index = 0; index < size; index++) {
+      blocksByResource.add(0);
+    }
+    for (int index = 0; index < size; index++) {
+      blocksByResource.set(next[resourceNumber(index)]++, index);
+    }
+
+    sortedResources = resourceNumbers.entrySet().stream()
+      .sorted((e1, e2) -> FastStringComparator.INSTANCE.compare(e1.getKey(), e2.getKey()))
+      .mapToInt(Map.Entry::getValue)
+      .toArray();
+  }
+
+  private int resourceNumber(int index) {
+    return blockData.get((long) index * blockInts + hashInts);
+  }
+
+  private final DataUtils.Sortable byBlockHash = new DataUtils.Sortable() {
+    @Override
+    public void swap(int i, int j) {
+      long i2 = (long) i * blockInts;
+      long j2 = (long) j * blockInts;
+      for (int k = 0; k < blockInts; k++) {
+        int x = blockData.get(i2 + k);
+        blockData.set(i2 + k, blockData.get(j2 + k));
+        blockData.set(j2 + k, x);
+      }
+    }
+
+    @Override
+    public boolean isLess(int i, int j) {
+      long i2 = (long) i * blockInts;
+      long j2 = (long) j * blockInts;
+      for (int k = 0; k < hashInts; k++) {
+        int x = blockData.get(i2 + k);
+        int y = blockData.get(j2 + k);
+        if (x != y) {
+          return x < y;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  };
+
+  /**
+   * Growable array of ints stored in direct buffers of {@link #CHUNK_INTS} ints. Growing never copies data.
+   */
+  private static final class IntChunks {
+    private static final int CHUNK_SHIFT = 20;
+    private static final int CHUNK_INTS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_INTS - 1;
+
+    private final List<IntBuffer> chunks = new ArrayList<>();
+    private long size;
+
+    void add(int value) {
+      if ((size & CHUNK_MASK) == 0) {
+        chunks.add(ByteBuffer.allocateDirect(CHUNK_INTS * 4).asIntBuffer());
+      }
+      set(size, value);
+      size++;
+    }
+
+    int get(long index) {
+      return chunks.get((int) (index >>> CHUNK_SHIFT)).get((int) (index & CHUNK_MASK));
+    }
+
+    void set(long index, int value) {
+      chunks.get((int) (index >>> CHUNK_SHIFT)).put((int) (index & CHUNK_MASK), value);
+    }
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.detector.suffixtree;
+
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.duplications.index.CloneGroup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.duplications.detector.suffixtree.PackedSearchTest.packedSearch;
+import static org.sonar.duplications.detector.suffixtree.PackedSearchTest.randomText;
+import static org.sonar.duplications.detector.suffixtree.PackedSearchTest.search;
+
+/**
+ * Compares durations of {@link Search} and {@link PackedSearch} on a large set of files.
+ * Not executed by unit tests, run it with {@code mvn test -Dbenchmark}.
+ */
+public class PackedSearchBenchmark {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PackedSearchBenchmark.class);
+
+  @Test
+  public void search_large_set_of_files() {
+    TextSet text = randomText(new Random(0), 50, 4_000, 3_000);
+    for (int i = 0; i < 3; i++) {
+      long start = System.currentTimeMillis();
+      List<CloneGroup> expected = search(text);
+      long searchTime = System.currentTimeMillis() - start;
+
+      start = System.currentTimeMillis();
+      List<CloneGroup> result = packedSearch(text);
+      long packedSearchTime = System.currentTimeMillis() - start;
+
+      LOGGER.info("Search: {} ms, PackedSearch: {} ms, clone groups: {}", searchTime, packedSearchTime, result.size());
+      assertThat(result).containsOnlyElementsOf(expected).hasSameSizeAs(expected);
+    }
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.detector.suffixtree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.CloneGroup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PackedSearchTest {
+
+  private final Random random = new Random(0);
+
+  /**
+   * Given: random texts, with small alphabets in order to have many duplications.
+   * Expected: same clone groups as {@link Search}, which may be reported in a different order.
+   */
+  @Test
+  public void should_find_same_clone_groups_as_search() {
+    for (int i = 0; i < 1_000; i++) {
+      TextSet text = randomText(random, 1 + random.nextInt(5), 1 + random.nextInt(40), 1 + random.nextInt(6));
+
+      assertThat(packedSearch(text)).containsOnlyElementsOf(search(text)).hasSameSizeAs(search(text));
+    }
+  }
+
+  static List<CloneGroup> search(TextSet text) {
+    DuplicationsCollector collector = new DuplicationsCollector(text);
+    Search.perform(text, collector);
+    return collector.getResult();
+  }
+
+  static List<CloneGroup> packedSearch(TextSet text) {
+    DuplicationsCollector collector = new DuplicationsCollector(text);
+    PackedSearch.perform(text, collector);
+    return collector.getResult();
+  }
+
+  static TextSet randomText(Random random, int files, int maxBlocksPerFile, int alphabet) {
+    TextSet.Builder builder = TextSet.builder();
+    for (int file = 0; file < files; file++) {
+      List<Block> blocks = new ArrayList<>();
+      int size = 1 + random.nextInt(maxBlocksPerFile);
+      for (int i = 0; i < size; i++) {
+        blocks.add(Block.builder()
+          .setResourceId("file" + file)
+          .setBlockHash(new ByteArray((long) random.nextInt(alphabet)))
+          .setIndexInFile(i)
+          .setLines(i, i + 1)
+          .setUnit(i, i)
+          .build());
+      }
+      builder.add(blocks);
+    }
+    return builder.build();
+  }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OffHeapCloneIndexTest {
+
+  private OffHeapCloneIndex index = new OffHeapCloneIndex();
+
+  @Test
+  public void test() {
+    index.insert(newBlock("a", 1));
+    index.insert(newBlock("a", 2));
+    index.insert(newBlock("b", 1));
+    index.insert(newBlock("c", 1));
+    index.insert(newBlock("d", 1));
+    index.insert(newBlock("e", 1));
+    index.insert(newBlock("e", 2));
+    index.insert(newBlock("e", 3));
+
+    assertThat(index.noResources()).isEqualTo(5);
+    assertThat(index.getBySequenceHash(new ByteArray(1L))).hasSize(5);
+    assertThat(index.getBySequenceHash(new ByteArray(2L))).hasSize(2);
+    assertThat(index.getBySequenceHash(new ByteArray(3L))).hasSize(1);
+    assertThat(index.getBySequenceHash(new ByteArray(4L))).isEmpty();
+    assertThat(index.getByResourceId("a")).hasSize(2);
+    assertThat(index.getByResourceId("b")).hasSize(1);
+    assertThat(index.getByResourceId("e")).hasSize(3);
+    assertThat(index.getByResourceId("does not exist")).isEmpty();
+  }
+
+  @Test
+  public void should_restore_all_fields_of_blocks() {
+    Block block = Block.builder()
+      .setResourceId("a")
+      .setBlockHash(new ByteArray(42L))
+      .setIndexInFile(3)
+      .setLines(10, 15)
+      .setUnit(20, 30)
+      .build();
+    index.insert(block);
+
+    Block byHash = index.getBySequenceHash(new ByteArray(42L)).iterator().next();
+    Block byResource = index.getByResourceId("a").iterator().next();
+    for (Block found : new Block[] {byHash, byResource}) {
+      assertThat(found).isEqualTo(block);
+      assertThat(found.getStartLine()).isEqualTo(10);
+      assertThat(found.getEndLine()).isEqualTo(15);
+      assertThat(found.getStartUnit()).isEqualTo(20);
+      assertThat(found.getEndUnit()).isEqualTo(30);
+    }
+  }
+
+  @Test
+  public void should_construct_blocks_with_normalized_hash() {
+    index.insert(newBlock("a", 1));
+    index.insert(newBlock("b", 1));
+    index.insert(newBlock("c", 1));
+    ByteArray requestedHash = new ByteArray(1L);
+    Collection<Block> blocks = index.getBySequenceHash(requestedHash);
+    assertThat(blocks).hasSize(3);
+    for (Block block : blocks) {
+      assertThat(block.getBlockHash()).isSameAs(requestedHash);
+    }
+  }
+
+  @Test
+  public void iterate() {
+    index.insert(newBlock("a", 1));
+    index.insert(newBlock("c", 1));
+    index.insert(newBlock("b", 1));
+    index.insert(newBlock("c", 2));
+    index.insert(newBlock("a", 2));
+
+    List<ResourceBlocks> resourcesBlocks = new ArrayList<>();
+    Iterator<ResourceBlocks> it = index.iterator();
+    while (it.hasNext()) {
+      resourcesBlocks.add(it.next());
+    }
+
+    assertThat(resourcesBlocks).extracting(ResourceBlocks::resourceId).containsExactly("a", "b", "c");
+    assertThat(resourcesBlocks.get(0).blocks()).hasSize(2);
+    assertThat(resourcesBlocks.get(1).blocks()).hasSize(1);
+    assertThat(resourcesBlocks.get(2).blocks()).hasSize(2);
+  }
+
+  @Test
+  public void should_accept_insertions_after_queries() {
+    index.insert(newBlock("a", 1));
+    assertThat(index.getBySequenceHash(new ByteArray(1L))).hasSize(1);
+
+    index.insert(newBlock("b", 1));
+    index.insert(newBlock("b", 2));
+
+    assertThat(index.getBySequenceHash(new ByteArray(1L))).hasSize(2);
+    assertThat(index.getByResourceId("b")).hasSize(2);
+  }
+
+  /**
+   * Given: index with more blocks than fit in a single chunk of memory.
+   * Expected: same results as {@link PackedMemoryCloneIndex}.
+   */
+  @Test
+  public void should_return_same_blocks_as_packed_memory_index() {
+    PackedMemoryCloneIndex reference = new PackedMemoryCloneIndex();
+    Random random = new Random(0);
+    for (int i = 0; i < 200_000; i++) {
+      Block block = newBlock("r" + random.nextInt(1_000), random.nextInt(50_000));
+      index.insert(block);
+      reference.insert(block);
+    }
+
+    assertThat(index.noResources()).isEqualTo(reference.noResources());
+    for (int hash = 0; hash < 50_000; hash += 7) {
+      assertThat(index.getBySequenceHash(new ByteArray((long) hash)))
+        .containsOnlyElementsOf(reference.getBySequenceHash(new ByteArray((long) hash)))
+        .hasSameSizeAs(reference.getBySequenceHash(new ByteArray((long) hash)));
+    }
+    Iterator<ResourceBlocks> it = index.iterator();
+    Iterator<ResourceBlocks> expected = reference.iterator();
+    while (expected.hasNext()) {
+      ResourceBlocks resourceBlocks = it.next();
+      ResourceBlocks expectedResourceBlocks = expected.next();
+      assertThat(resourceBlocks.resourceId()).isEqualTo(expectedResourceBlocks.resourceId());
+      assertThat(resourceBlocks.blocks()).containsOnlyElementsOf(expectedResourceBlocks.blocks()).hasSameSizeAs(expectedResourceBlocks.blocks());
+    }
+    assertThat(it.hasNext()).isFalse();
+  }
+
+  @Test
+  public void should_support_concurrent_queries() throws Exception {
+    for (int i = 0; i < 10_000; i++) {
+      index.insert(newBlock("r" + (i % 100), i % 500));
+    }
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int i = 0; i < 500; i++) {
+        long hash = i;
+        results.add(executorService.submit(() -> index.getBySequenceHash(new ByteArray(hash)).size() == 20
+          && index.getByResourceId("r" + (hash % 100)).size() == 100));
+      }
+      for (Future<Boolean> result : results) {
+        assertThat(result.get()).isTrue();
+      }
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void attempt_to_insert_hash_of_incorrect_size() {
+    new OffHeapCloneIndex(4).insert(newBlock("a", 1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void attempt_to_find_hash_of_incorrect_size() {
+    new OffHeapCloneIndex(4).getBySequenceHash(new ByteArray(1L));
+  }
+
+  private static Block newBlock(String resourceId, long hash) {
+    return Block.builder()
+      .setResourceId(resourceId)
+      .setBlockHash(new ByteArray(hash))
+      .setIndexInFile(1)
+      .setLines(1, 2)
+      .build();
+  }
+
+}
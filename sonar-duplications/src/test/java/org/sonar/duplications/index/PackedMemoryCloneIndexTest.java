@@ -28,6 +28,10 @@ import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.is;
@@ -122,6 +126,31 @@ public class PackedMemoryCloneIndexTest {
     assertThat(index.getByResourceId("a").size(), is(2));
   }
 
+  /**
+   * Given: index with blocks of many resources.
+   * Expected: queries executed concurrently return the same blocks as when executed sequentially.
+   */
+  @Test
+  public void should_support_concurrent_queries() throws Exception {
+    for (int i = 0; i < 10_000; i++) {
+      index.insert(newBlock("r" + (i % 100), i % 500));
+    }
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int i = 0; i < 500; i++) {
+        long hash = i;
+        results.add(executorService.submit(() -> index.getBySequenceHash(new ByteArray(hash)).size() == 20
+          && index.getByResourceId("r" + (hash % 100)).size() == 100));
+      }
+      for (Future<Boolean> result : results) {
+        assertThat(result.get(), is(true));
+      }
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
   /**
    * Given: index, which accepts blocks with 4-byte hash.
    * Expected: exception during insertion of block with 8-byte hash.
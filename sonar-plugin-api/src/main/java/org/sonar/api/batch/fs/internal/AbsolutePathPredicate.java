@@ -32,7 +32,7 @@ import java.util.Collections;
 /**
  * @since 4.2
  */
-class AbsolutePathPredicate extends AbstractFilePredicate {
+public class AbsolutePathPredicate extends AbstractFilePredicate {
 
   private final String path;
   private final Path baseDir;
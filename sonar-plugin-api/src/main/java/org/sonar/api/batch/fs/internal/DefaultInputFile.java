@@ -72,7 +72,10 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
     this.contents = contents;
   }
 
-  public void checkMetadata() {
+  /**
+   * Synchronized as sensors may read the same file concurrently
+   */
+  public synchronized void checkMetadata() {
     if (metadata == null) {
       metadataGenerator.accept(this);
     }
@@ -19,7 +19,6 @@
  */
 package org.sonar.api.batch.fs.internal;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -47,6 +46,7 @@ import org.sonar.api.batch.fs.internal.charhandler.LineOffsetCounter;
 public class FileMetadata {
   private static final char LINE_FEED = '\n';
   private static final char CARRIAGE_RETURN = '\r';
+  private static final int BUFFER_SIZE = 8192;
 
   /**
    * Compute hash of a file ignoring line ends differences.
@@ -91,51 +91,57 @@ public class FileMetadata {
   }
 
   public static void readFile(InputStream stream, Charset encoding, String filePath, CharHandler[] handlers) {
-    try (Reader reader = new BufferedReader(new InputStreamReader(stream, encoding))) {
+    try (Reader reader = new InputStreamReader(stream, encoding)) {
       read(reader, handlers);
     } catch (IOException e) {
       throw new IllegalStateException(String.format("Fail to read file '%s' with encoding '%s'", filePath, encoding), e);
     }
   }
 
+  /**
+   * Chars are decoded in a buffer. Handlers are notified of each end of line, and of each range of chars between
+   * ends of lines, so that the cost of dispatching to handlers does not depend on the length of lines.
+   */
   private static void read(Reader reader, CharHandler[] handlers) throws IOException {
-    char c;
-    int i = reader.read();
+    char[] buffer = new char[BUFFER_SIZE];
     boolean afterCR = false;
-    while (i != -1) {
-      c = (char) i;
-      if (afterCR) {
-        for (CharHandler handler : handlers) {
-          if (c == CARRIAGE_RETURN) {
-            handler.newLine();
-            handler.handleAll(c);
-          } else if (c == LINE_FEED) {
+    int length = reader.read(buffer);
+    while (length != -1) {
+      int i = 0;
+      while (i < length) {
+        char c = buffer[i];
+        if (c == LINE_FEED) {
+          for (CharHandler handler : handlers) {
             handler.handleAll(c);
             handler.newLine();
-          } else {
-            handler.newLine();
-            handler.handleIgnoreEoL(c);
+          }
+          afterCR = false;
+          i++;
+        } else if (c == CARRIAGE_RETURN) {
+          for (CharHandler handler : handlers) {
+            if (afterCR) {
+              handler.newLine();
+            }
             handler.handleAll(c);
           }
-        }
-        afterCR = c == CARRIAGE_RETURN;
-      } else if (c == LINE_FEED) {
-        for (CharHandler handler : handlers) {
-          handler.handleAll(c);
-          handler.newLine();
-        }
-      } else if (c == CARRIAGE_RETURN) {
-        afterCR = true;
-        for (CharHandler handler : handlers) {
-          handler.handleAll(c);
-        }
-      } else {
-        for (CharHandler handler : handlers) {
-          handler.handleIgnoreEoL(c);
-          handler.handleAll(c);
+          afterCR = true;
+          i++;
+        } else {
+          if (afterCR) {
+            for (CharHandler handler : handlers) {
+              handler.newLine();
+            }
+            afterCR = false;
+          }
+          int end = endOfRange(buffer, i + 1, length);
+          for (CharHandler handler : handlers) {
+            handler.handleIgnoreEoL(buffer, i, end - i);
+            handler.handleAll(buffer, i, end - i);
+          }
+          i = end;
         }
       }
-      i = reader.read();
+      length = reader.read(buffer);
     }
     for (CharHandler handler : handlers) {
       if (afterCR) {
@@ -145,6 +151,17 @@ public class FileMetadata {
     }
   }
 
+  /**
+   * Index of the first end of line of the buffer from {@code from}, or {@code length} if none
+   */
+  private static int endOfRange(char[] buffer, int from, int length) {
+    int i = from;
+    while (i < length && buffer[i] != LINE_FEED && buffer[i] != CARRIAGE_RETURN) {
+      i++;
+    }
+    return i;
+  }
+
   @FunctionalInterface
   public interface LineHashConsumer {
     void consume(int lineIdx, @Nullable byte[] hash);
@@ -26,7 +26,7 @@ package org.sonar.api.batch.fs.internal;
  */
 public class SensorStrategy {
 
-  private boolean global = false;
+  private volatile boolean global = false;
 
   public boolean isGlobal() {
     return global;
@@ -32,7 +32,7 @@ import org.sonar.api.scan.filesystem.PathResolver;
 /**
  * @since 6.6
  */
-class URIPredicate extends AbstractFilePredicate {
+public class URIPredicate extends AbstractFilePredicate {
 
   private final URI uri;
   private final Path baseDir;
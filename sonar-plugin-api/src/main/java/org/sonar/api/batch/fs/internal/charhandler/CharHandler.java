@@ -19,14 +19,38 @@
  */
 package org.sonar.api.batch.fs.internal.charhandler;
 
+/**
+ * Receives the chars of a file read by {@link org.sonar.api.batch.fs.internal.FileMetadata}. Chars which are not
+ * ends of lines are notified by ranges, which by default are dispatched char by char: handlers on the hot path
+ * should override the range methods.
+ */
 public abstract class CharHandler {
 
   public void handleAll(char c) {
   }
 
+  /**
+   * Called with a range of chars which contains no end of line, after {@link #handleIgnoreEoL(char[], int, int)}
+   * has been called with the same range.
+   */
+  public void handleAll(char[] chars, int offset, int length) {
+    for (int i = offset; i < offset + length; i++) {
+      handleAll(chars[i]);
+    }
+  }
+
   public void handleIgnoreEoL(char c) {
   }
 
+  /**
+   * Called with a range of chars which contains no end of line
+   */
+  public void handleIgnoreEoL(char[] chars, int offset, int length) {
+    for (int i = offset; i < offset + length; i++) {
+      handleIgnoreEoL(chars[i]);
+    }
+  }
+
   public void newLine() {
   }
 
@@ -19,12 +19,7 @@
  */
 package org.sonar.api.batch.fs.internal.charhandler;
 
-import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
 import java.nio.charset.CharacterCodingException;
-import java.nio.charset.CharsetEncoder;
-import java.nio.charset.CodingErrorAction;
-import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 
 import javax.annotation.CheckForNull;
@@ -38,13 +33,10 @@ public class FileHashComputer extends CharHandler {
   
   private MessageDigest globalMd5Digest = DigestUtils.getMd5Digest();
   private StringBuilder sb = new StringBuilder();
-  private final CharsetEncoder encoder;
+  private final Utf8Digester digester = new Utf8Digester();
   private final String filePath;
 
   public FileHashComputer(String filePath) {
-    encoder = StandardCharsets.UTF_8.newEncoder()
-      .onMalformedInput(CodingErrorAction.REPLACE)
-      .onUnmappableCharacter(CodingErrorAction.REPLACE);
     this.filePath = filePath;
   }
 
@@ -53,6 +45,11 @@ public class FileHashComputer extends CharHandler {
     sb.append(c);
   }
 
+  @Override
+  public void handleIgnoreEoL(char[] chars, int offset, int length) {
+    sb.append(chars, offset, length);
+  }
+
   @Override
   public void newLine() {
     sb.append(LINE_FEED);
@@ -70,8 +67,7 @@ public class FileHashComputer extends CharHandler {
   private void processBuffer() {
     try {
       if (sb.length() > 0) {
-        ByteBuffer encoded = encoder.encode(CharBuffer.wrap(sb));
-        globalMd5Digest.update(encoded.array(), 0, encoded.limit());
+        digester.update(globalMd5Digest, sb);
       }
     } catch (CharacterCodingException e) {
       throw new IllegalStateException("Error encoding line hash in file: " + filePath, e);
@@ -43,12 +43,29 @@ public class LineCounter extends CharHandler {
   @Override
   public void handleAll(char c) {
     if (!alreadyLoggedInvalidCharacter && c == '\ufffd') {
-      LOG.warn("Invalid character encountered in file {} at line {} for encoding {}. Please fix file content or configure the encoding to be used using property '{}'.", filePath,
-        lines, encoding, CoreProperties.ENCODING_PROPERTY);
-      alreadyLoggedInvalidCharacter = true;
+      logInvalidCharacter();
     }
   }
 
+  @Override
+  public void handleAll(char[] chars, int offset, int length) {
+    if (alreadyLoggedInvalidCharacter) {
+      return;
+    }
+    for (int i = offset; i < offset + length; i++) {
+      if (chars[i] == '\ufffd') {
+        logInvalidCharacter();
+        return;
+      }
+    }
+  }
+
+  private void logInvalidCharacter() {
+    LOG.warn("Invalid character encountered in file {} at line {} for encoding {}. Please fix file content or configure the encoding to be used using property '{}'.", filePath,
+      lines, encoding, CoreProperties.ENCODING_PROPERTY);
+    alreadyLoggedInvalidCharacter = true;
+  }
+
   @Override
   public void newLine() {
     lines++;
@@ -65,6 +82,15 @@ public class LineCounter extends CharHandler {
     }
   }
 
+  @Override
+  public void handleIgnoreEoL(char[] chars, int offset, int length) {
+    for (int i = offset; blankLine && i < offset + length; i++) {
+      if (!Character.isWhitespace(chars[i])) {
+        blankLine = false;
+      }
+    }
+  }
+
   @Override
   public void eof() {
     if (!blankLine) {
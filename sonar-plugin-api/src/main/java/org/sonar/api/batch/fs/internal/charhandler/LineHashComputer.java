@@ -20,12 +20,7 @@
 package org.sonar.api.batch.fs.internal.charhandler;
 
 import java.io.File;
-import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
 import java.nio.charset.CharacterCodingException;
-import java.nio.charset.CharsetEncoder;
-import java.nio.charset.CodingErrorAction;
-import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 
 import org.apache.commons.codec.digest.DigestUtils;
@@ -33,7 +28,7 @@ import org.sonar.api.batch.fs.internal.FileMetadata.LineHashConsumer;
 
 public class LineHashComputer extends CharHandler {
   private final MessageDigest lineMd5Digest = DigestUtils.getMd5Digest();
-  private final CharsetEncoder encoder;
+  private final Utf8Digester digester = new Utf8Digester();
   private final StringBuilder sb = new StringBuilder();
   private final LineHashConsumer consumer;
   private final File file;
@@ -42,9 +37,6 @@ public class LineHashComputer extends CharHandler {
   public LineHashComputer(LineHashConsumer consumer, File f) {
     this.consumer = consumer;
     this.file = f;
-    this.encoder = StandardCharsets.UTF_8.newEncoder()
-      .onMalformedInput(CodingErrorAction.REPLACE)
-      .onUnmappableCharacter(CodingErrorAction.REPLACE);
   }
 
   @Override
@@ -54,6 +46,16 @@ public class LineHashComputer extends CharHandler {
     }
   }
 
+  @Override
+  public void handleIgnoreEoL(char[] chars, int offset, int length) {
+    for (int i = offset; i < offset + length; i++) {
+      char c = chars[i];
+      if (!Character.isWhitespace(c)) {
+        sb.append(c);
+      }
+    }
+  }
+
   @Override
   public void newLine() {
     processBuffer();
@@ -71,8 +73,7 @@ public class LineHashComputer extends CharHandler {
   private void processBuffer() {
     try {
       if (sb.length() > 0) {
-        ByteBuffer encoded = encoder.encode(CharBuffer.wrap(sb));
-        lineMd5Digest.update(encoded.array(), 0, encoded.limit());
+        digester.update(lineMd5Digest, sb);
         consumer.consume(line, lineMd5Digest.digest());
       }
     } catch (CharacterCodingException e) {
@@ -0,0 +1,62 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.fs.internal.charhandler;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Updates a digest with the UTF-8 encoding of chars. Same as digesting the result of
+ * {@link CharsetEncoder#encode(CharBuffer)}, but the buffer of bytes is reused from one call to another.
+ */
+class Utf8Digester {
+  private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+    .onMalformedInput(CodingErrorAction.REPLACE)
+    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  private ByteBuffer bytes = ByteBuffer.allocate(1024);
+
+  void update(MessageDigest digest, CharSequence chars) throws CharacterCodingException {
+    CharBuffer in = CharBuffer.wrap(chars);
+    bytes.clear();
+    encoder.reset();
+    while (true) {
+      CoderResult result = encoder.encode(in, bytes, true);
+      if (result.isUnderflow()) {
+        result = encoder.flush(bytes);
+      }
+      if (result.isUnderflow()) {
+        break;
+      }
+      if (result.isOverflow()) {
+        bytes.flip();
+        bytes = ByteBuffer.allocate(2 * bytes.capacity()).put(bytes);
+      } else {
+        result.throwException();
+      }
+    }
+    digest.update(bytes.array(), 0, bytes.position());
+  }
+}
@@ -64,4 +64,15 @@ public abstract class ScmProvider {
   public Set<Path> branchChangedFiles(String targetBranchName, Path rootBaseDir) {
     return null;
   }
+
+  /**
+   * Identifier of the revision checked out in the provided directory, for example the commit of HEAD.
+   * Results of blame are cached by the scanner for this revision.
+   * @return null if SCM provider was not able to compute the revision. In this case results of blame are not cached.
+   * @since 7.0
+   */
+  @Nullable
+  public String revisionId(Path rootBaseDir) {
+    return null;
+  }
 }
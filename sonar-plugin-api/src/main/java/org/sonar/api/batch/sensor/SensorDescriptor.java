@@ -96,4 +96,11 @@ public interface SensorDescriptor {
    * @since 6.5
    */
   SensorDescriptor onlyWhenConfiguration(Predicate<Configuration> predicate);
+
+  /**
+   * This {@link Sensor} is thread-safe and does not depend on data saved by other sensors, so the platform may
+   * execute it concurrently with other thread-safe sensors. Sensors are executed sequentially by default.
+   * @since 7.0
+   */
+  SensorDescriptor threadSafe();
 }
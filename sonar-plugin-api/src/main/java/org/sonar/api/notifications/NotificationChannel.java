@@ -19,6 +19,8 @@
  */
 package org.sonar.api.notifications;
 
+import java.util.Collection;
+import java.util.Map;
 import org.sonar.api.ExtensionPoint;
 import org.sonar.api.ce.ComputeEngineSide;
 import org.sonar.api.server.ServerSide;
@@ -58,6 +60,36 @@ public abstract class NotificationChannel {
    */
   public abstract void deliver(Notification notification, String userlogin);
 
+  /**
+   * Implements the delivery of several notifications at once. By default each notification is delivered by
+   * {@link #deliver(Notification, String)}. Override this method to share the cost of the deliveries, for example
+   * a connection to a remote server.
+   * <p>
+   * All the notifications are delivered even if some deliveries fail. The first failure is then thrown.
+   *
+   * @param notificationsByUserLogin the notifications to deliver, by login of the user who should receive them
+   * @since 7.0
+   */
+  public void deliverAll(Map<String, ? extends Collection<Notification>> notificationsByUserLogin) {
+    RuntimeException failure = null;
+    for (Map.Entry<String, ? extends Collection<Notification>> entry : notificationsByUserLogin.entrySet()) {
+      for (Notification notification : entry.getValue()) {
+        try {
+          deliver(notification, entry.getKey());
+        } catch (RuntimeException e) {
+          if (failure == null) {
+            failure = e;
+          } else {
+            failure.addSuppressed(e);
+          }
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
   @Override
   public String toString() {
     return getKey();
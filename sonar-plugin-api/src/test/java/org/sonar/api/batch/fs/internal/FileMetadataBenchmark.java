@@ -0,0 +1,75 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.fs.internal;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.api.batch.fs.internal.FileMetadataTest.generate;
+import static org.sonar.api.batch.fs.internal.FileMetadataTest.readMetadata;
+
+/**
+ * Compares {@link FileMetadata}, which dispatches ranges of chars to handlers, with a reference implementation
+ * dispatching each char read from a {@link java.io.BufferedReader}, on synthetic ASCII, UTF-8 and CRLF files.
+ * Results must be identical. Durations are logged.
+ * Not executed by unit tests, run it with {@code mvn test -Dbenchmark}.
+ */
+public class FileMetadataBenchmark {
+  private static final Logger LOGGER = Loggers.get(FileMetadataBenchmark.class);
+  private static final int LINES = 50_000;
+  private static final int ITERATIONS = 5;
+
+  @Test
+  public void ascii_file() {
+    benchmark("ASCII", generate("abcdefghijklmnopqrstuvwxyz{}();=+ \t", "\n", LINES), StandardCharsets.US_ASCII);
+  }
+
+  @Test
+  public void utf_8_file() {
+    benchmark("UTF-8", generate("abcdéèàçñßøæ€ᴑ{}();= \t", "\n", LINES), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void crlf_file() {
+    benchmark("CRLF", generate("abcdef{}; \t\r", "\r\n", LINES), StandardCharsets.UTF_8);
+  }
+
+  private static void benchmark(String name, String content, Charset charset) {
+    byte[] bytes = content.getBytes(charset);
+    assertThat(readMetadata(bytes, charset, false)).isEqualTo(readMetadata(bytes, charset, true));
+
+    long referenceNanos = 0;
+    long nanos = 0;
+    for (int i = 0; i < ITERATIONS; i++) {
+      long start = System.nanoTime();
+      readMetadata(bytes, charset, true);
+      referenceNanos += System.nanoTime() - start;
+      start = System.nanoTime();
+      readMetadata(bytes, charset, false);
+      nanos += System.nanoTime() - start;
+    }
+    LOGGER.info("{} file of {} KB read in {} ms by char and in {} ms by range of chars", name, bytes.length / 1024,
+      referenceNanos / ITERATIONS / 1_000_000, nanos / ITERATIONS / 1_000_000);
+  }
+}
@@ -19,19 +19,34 @@
  */
 package org.sonar.api.batch.fs.internal;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
 import javax.annotation.Nullable;
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.api.batch.fs.internal.FileMetadata.LineHashConsumer;
+import org.sonar.api.batch.fs.internal.charhandler.CharHandler;
+import org.sonar.api.batch.fs.internal.charhandler.FileHashComputer;
+import org.sonar.api.batch.fs.internal.charhandler.LineCounter;
+import org.sonar.api.batch.fs.internal.charhandler.LineHashComputer;
+import org.sonar.api.batch.fs.internal.charhandler.LineOffsetCounter;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 
@@ -210,6 +225,47 @@ public class FileMetadataTest {
     assertThat(metadata.originalLineOffsets()).containsOnly(0, 1, 5, 10);
   }
 
+  @Test
+  public void end_of_line_split_across_read_buffers() throws Exception {
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, StringUtils.repeat("a", 8191) + "\r\n" + StringUtils.repeat("b", 20000) + "\r", StandardCharsets.UTF_8, true);
+
+    Metadata metadata = new FileMetadata().readMetadata(new FileInputStream(tempFile), StandardCharsets.UTF_8, tempFile.getName());
+    assertThat(metadata.lines()).isEqualTo(3);
+    assertThat(metadata.nonBlankLines()).isEqualTo(2);
+    assertThat(metadata.hash()).isEqualTo(md5Hex(StringUtils.repeat("a", 8191) + "\n" + StringUtils.repeat("b", 20000) + "\n"));
+    assertThat(metadata.originalLineOffsets()).containsOnly(0, 8193, 28194);
+    assertThat(metadata.lastValidOffset()).isEqualTo(28194);
+  }
+
+  @Test
+  public void handler_which_only_overrides_char_methods_receives_all_chars() throws Exception {
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, "foo\r\nbar\n\rbaz", StandardCharsets.UTF_8, true);
+    StringBuilder all = new StringBuilder();
+    StringBuilder ignoreEoL = new StringBuilder();
+
+    new FileMetadata().readMetadata(new FileInputStream(tempFile), StandardCharsets.UTF_8, tempFile.getName(), new CharHandler() {
+      @Override
+      public void handleAll(char c) {
+        all.append(c);
+      }
+
+      @Override
+      public void handleIgnoreEoL(char c) {
+        ignoreEoL.append(c);
+      }
+
+      @Override
+      public void newLine() {
+        ignoreEoL.append('|');
+      }
+    });
+
+    assertThat(all.toString()).isEqualTo("foo\r\nbar\n\rbaz");
+    assertThat(ignoreEoL.toString()).isEqualTo("foo|bar||baz");
+  }
+
   @Test
   public void ignore_whitespace_when_computing_line_hashes() throws Exception {
     File tempFile = temp.newFile();
@@ -299,4 +355,114 @@ public class FileMetadataTest {
       "glyphicons-halflings-regular.woff at line 1 for encoding UTF-8. Please fix file content or configure the encoding to be used using property 'sonar.sourceEncoding'.");
   }
 
+  @Test
+  public void dispatch_same_chars_as_when_reading_char_by_char_ascii_file() {
+    assertSameMetadataAsReadByChar(generate("abcdefghijklmnopqrstuvwxyz{}();=+ \t", "\n", 1_000), StandardCharsets.US_ASCII);
+  }
+
+  @Test
+  public void dispatch_same_chars_as_when_reading_char_by_char_utf_8_file() {
+    assertSameMetadataAsReadByChar(generate("abcdéèàçñßøæ€ᴑ{}();= \t", "\n", 1_000), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void dispatch_same_chars_as_when_reading_char_by_char_crlf_file() {
+    assertSameMetadataAsReadByChar(generate("abcdef{}; \t\r", "\r\n", 1_000), StandardCharsets.UTF_8);
+  }
+
+  private static void assertSameMetadataAsReadByChar(String content, Charset charset) {
+    byte[] bytes = content.getBytes(charset);
+    assertThat(readMetadata(bytes, charset, false)).isEqualTo(readMetadata(bytes, charset, true));
+  }
+
+  /**
+   * Metadata and line hashes of the file, as a string
+   */
+  static String readMetadata(byte[] bytes, Charset charset, boolean byChar) {
+    StringBuilder res = new StringBuilder();
+    LineCounter lineCounter = new LineCounter("file", charset);
+    FileHashComputer fileHashComputer = new FileHashComputer("file");
+    LineOffsetCounter lineOffsetCounter = new LineOffsetCounter();
+    LineHashComputer lineHashComputer = new LineHashComputer((line, hash) -> res.append(line).append('=').append(Hex.encodeHexString(hash)).append(','),
+      new File("file"));
+    CharHandler[] handlers = {lineCounter, fileHashComputer, lineOffsetCounter, lineHashComputer};
+    if (byChar) {
+      readByChar(bytes, charset, handlers);
+    } else {
+      FileMetadata.readFile(new ByteArrayInputStream(bytes), charset, "file", handlers);
+    }
+    return res.append(lineCounter.lines()).append(',').append(lineCounter.nonBlankLines()).append(',').append(fileHashComputer.getHash())
+      .append(',').append(lineOffsetCounter.getLastValidOffset()).append(',').append(Arrays.toString(lineOffsetCounter.getOriginalLineOffsets()))
+      .toString();
+  }
+
+  /**
+   * The implementation of {@link FileMetadata} before chars were dispatched by ranges
+   */
+  private static void readByChar(byte[] bytes, Charset charset, CharHandler[] handlers) {
+    try (Reader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(bytes), charset))) {
+      boolean afterCR = false;
+      int i = reader.read();
+      while (i != -1) {
+        char c = (char) i;
+        if (afterCR) {
+          for (CharHandler handler : handlers) {
+            if (c == '\r') {
+              handler.newLine();
+              handler.handleAll(c);
+            } else if (c == '\n') {
+              handler.handleAll(c);
+              handler.newLine();
+            } else {
+              handler.newLine();
+              handler.handleIgnoreEoL(c);
+              handler.handleAll(c);
+            }
+          }
+          afterCR = c == '\r';
+        } else if (c == '\n') {
+          for (CharHandler handler : handlers) {
+            handler.handleAll(c);
+            handler.newLine();
+          }
+        } else if (c == '\r') {
+          afterCR = true;
+          for (CharHandler handler : handlers) {
+            handler.handleAll(c);
+          }
+        } else {
+          for (CharHandler handler : handlers) {
+            handler.handleIgnoreEoL(c);
+            handler.handleAll(c);
+          }
+        }
+        i = reader.read();
+      }
+      for (CharHandler handler : handlers) {
+        if (afterCR) {
+          handler.newLine();
+        }
+        handler.eof();
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Lines of random lengths made of the specified chars, some of them being blank
+   */
+  static String generate(String chars, String endOfLine, int lineCount) {
+    Random random = new Random(42);
+    List<String> lines = new ArrayList<>(lineCount);
+    for (int i = 0; i < lineCount; i++) {
+      int length = random.nextInt(10) == 0 ? 0 : random.nextInt(120);
+      StringBuilder line = new StringBuilder(length);
+      for (int j = 0; j < length; j++) {
+        line.append(chars.charAt(random.nextInt(chars.length())));
+      }
+      lines.add(line.toString());
+    }
+    return String.join(endOfLine, lines);
+  }
 }
@@ -46,6 +46,15 @@ public class DefaultSensorDescriptorTest {
     settings.setProperty("sonar.foo.reportPath2", "foo");
     assertThat(descriptor.configurationPredicate().test(settings.asConfig())).isTrue();
     assertThat(descriptor.ruleRepositories()).containsOnly("squid-java");
+    assertThat(descriptor.isThreadSafe()).isFalse();
+  }
+
+  @Test
+  public void thread_safe() {
+    DefaultSensorDescriptor descriptor = new DefaultSensorDescriptor();
+    descriptor.threadSafe();
+
+    assertThat(descriptor.isThreadSafe()).isTrue();
   }
 
 }
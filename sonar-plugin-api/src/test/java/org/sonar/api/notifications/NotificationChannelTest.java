@@ -0,0 +1,80 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.notifications;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class NotificationChannelTest {
+
+  private Notification first = new Notification("first");
+  private Notification second = new Notification("second");
+  private Notification third = new Notification("third");
+
+  @Test
+  public void key_is_simple_name_of_class() {
+    assertThat(new RecordingChannel().getKey()).isEqualTo("RecordingChannel");
+  }
+
+  @Test
+  public void deliverAll_delivers_notifications_one_by_one() {
+    RecordingChannel underTest = new RecordingChannel();
+
+    underTest.deliverAll(ImmutableMap.of("simon", asList(first, second), "evgeny", singletonList(third)));
+
+    assertThat(underTest.deliveries).containsExactly("first to simon", "second to simon", "third to evgeny");
+  }
+
+  @Test
+  public void deliverAll_delivers_all_notifications_then_throws_first_failure() {
+    RecordingChannel underTest = new RecordingChannel();
+    underTest.failingNotifications.add(first);
+    underTest.failingNotifications.add(third);
+
+    try {
+      underTest.deliverAll(ImmutableMap.of("simon", asList(first, second), "evgeny", singletonList(third)));
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("fail to deliver first");
+      assertThat(e.getSuppressed()).extracting(Throwable::getMessage).containsExactly("fail to deliver third");
+    }
+    assertThat(underTest.deliveries).containsExactly("second to simon");
+  }
+
+  private static class RecordingChannel extends NotificationChannel {
+    private final List<Notification> failingNotifications = new ArrayList<>();
+    private final List<String> deliveries = new ArrayList<>();
+
+    @Override
+    public void deliver(Notification notification, String userlogin) {
+      if (failingNotifications.contains(notification)) {
+        throw new IllegalStateException("fail to deliver " + notification.getType());
+      }
+      deliveries.add(notification.getType() + " to " + userlogin);
+    }
+  }
+}
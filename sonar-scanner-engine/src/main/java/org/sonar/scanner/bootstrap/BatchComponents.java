@@ -31,6 +31,7 @@ import org.sonar.scanner.genericcoverage.GenericTestExecutionSensor;
 import org.sonar.scanner.issue.tracking.ServerIssueFromWs;
 import org.sonar.scanner.issue.tracking.TrackedIssue;
 import org.sonar.scanner.scan.report.JSONReport;
+import org.sonar.scanner.scm.ScmBlameCache;
 import org.sonar.scanner.scm.ScmConfiguration;
 import org.sonar.scanner.scm.ScmPublisher;
 import org.sonar.scanner.source.ZeroCoverageSensor;
@@ -58,6 +59,7 @@ public class BatchComponents {
       // SCM
       components.add(ScmConfiguration.class);
       components.add(ScmPublisher.class);
+      components.add(ScmBlameCache.class);
 
       components.add(ZeroCoverageSensor.class);
 
@@ -22,25 +22,34 @@ package org.sonar.scanner.cpd;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import javax.annotation.CheckForNull;
 import org.sonar.api.batch.fs.InputComponent;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputComponent;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
 import org.sonar.duplications.detector.suffixtree.SuffixTreeCloneDetectionAlgorithm;
 import org.sonar.duplications.index.CloneGroup;
 import org.sonar.duplications.index.ClonePart;
 import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
 import org.sonar.scanner.cpd.index.SonarCpdBlockIndex;
+import org.sonar.scanner.incremental.IncrementalCache;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReport.Duplicate;
 import org.sonar.scanner.protocol.output.ScannerReport.Duplication;
@@ -69,16 +78,18 @@ public class CpdExecutor {
   private final ProgressReport progressReport;
   private final CpdSettings settings;
   private final BranchConfiguration branchConfiguration;
+  private final IncrementalCache incrementalCache;
   private int count;
   private int total;
 
   public CpdExecutor(CpdSettings settings, SonarCpdBlockIndex index, ReportPublisher publisher, InputComponentStore inputComponentCache,
-    BranchConfiguration branchConfiguration) {
+    BranchConfiguration branchConfiguration, IncrementalCache incrementalCache) {
     this.settings = settings;
     this.index = index;
     this.publisher = publisher;
     this.componentStore = inputComponentCache;
     this.branchConfiguration = branchConfiguration;
+    this.incrementalCache = incrementalCache;
     this.progressReport = new ProgressReport("CPD computation", TimeUnit.SECONDS.toMillis(10));
   }
 
@@ -92,21 +103,35 @@ public class CpdExecutor {
 
   @VisibleForTesting
   void execute(long timeout) {
+    indexReusableFiles();
     total = index.noResources();
     int filesWithoutBlocks = index.noIndexedFiles() - total;
     if (filesWithoutBlocks > 0) {
       LOG.info("{} {} had no CPD blocks", filesWithoutBlocks, pluralize(filesWithoutBlocks));
     }
+    int threads = settings.getThreads();
     progressReport.start(String.format("Calculating CPD for %d %s", total, pluralize(total)));
-    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    ExecutorService executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("CPD-%d").setDaemon(true).build());
     try {
+      // at most one task per thread, so that tasks start when submitted and timeouts don't include waiting in the queue.
+      // Results are saved in the order of the index, so that the report does not depend on the scheduling of threads.
+      Deque<CpdTask> tasks = new ArrayDeque<>(threads);
       Iterator<ResourceBlocks> it = index.iterator();
 
       while (it.hasNext()) {
         ResourceBlocks resourceBlocks = it.next();
-        runCpdAnalysis(executorService, resourceBlocks.resourceId(), resourceBlocks.blocks(), timeout);
+        CpdTask task = submitCpdAnalysis(executorService, resourceBlocks.resourceId(), resourceBlocks.blocks(), timeout);
+        if (task != null) {
+          tasks.add(task);
+        }
+        if (tasks.size() == threads) {
+          saveCpdAnalysis(tasks.remove());
+        }
         count++;
       }
+      while (!tasks.isEmpty()) {
+        saveCpdAnalysis(tasks.remove());
+      }
       progressReport.stop("CPD calculation finished");
     } catch (Exception e) {
       progressReport.stop("");
@@ -116,29 +141,84 @@ public class CpdExecutor {
     }
   }
 
+  /**
+   * Files reused from the incremental cache were not indexed by sensors
+   */
+  private void indexReusableFiles() {
+    if (!incrementalCache.isEnabled()) {
+      return;
+    }
+    for (DefaultInputFile inputFile : componentStore.allFilesToPublish()) {
+      if (incrementalCache.isReusable(inputFile) && !index.isIndexed(inputFile)) {
+        index.insert(inputFile, incrementalCache.cpdBlocks(inputFile));
+      }
+    }
+  }
+
   private static String pluralize(int files) {
     return files == 1 ? "file" : "files";
   }
 
   @VisibleForTesting
   void runCpdAnalysis(ExecutorService executorService, String componentKey, final Collection<Block> fileBlocks, long timeout) {
+    CpdTask task = submitCpdAnalysis(executorService, componentKey, fileBlocks, timeout);
+    if (task != null) {
+      saveCpdAnalysis(task);
+    }
+  }
+
+  @CheckForNull
+  private CpdTask submitCpdAnalysis(ExecutorService executorService, String componentKey, Collection<Block> fileBlocks, long timeout) {
     DefaultInputComponent component = (DefaultInputComponent) componentStore.getByKey(componentKey);
     if (component == null) {
       LOG.error("Resource not found in component store: {}. Skipping CPD computation for it", componentKey);
-      return;
+      return null;
     }
 
     InputFile inputFile = (InputFile) component;
+    if (incrementalCache.isReusable((DefaultInputFile) inputFile) && !hasBlockInAnalyzedFile(fileBlocks)) {
+      List<Duplication> cachedDuplications = incrementalCache.duplications((DefaultInputFile) inputFile);
+      if (cachedDuplications != null) {
+        LOG.debug("Duplications of {} are reused from previous analysis", inputFile.absolutePath());
+        publisher.getWriter().writeComponentDuplications(component.batchId(), cachedDuplications);
+        return null;
+      }
+    }
     LOG.debug("Detection of duplications for {}", inputFile.absolutePath());
     progressReport.message(String.format("%d/%d - current file: %s", count, total, inputFile.absolutePath()));
 
-    List<CloneGroup> duplications;
     Future<List<CloneGroup>> futureResult = executorService.submit(() -> SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks));
+    return new CpdTask(component, futureResult, System.currentTimeMillis() + timeout);
+  }
+
+  /**
+   * Whether a block of the file is also in a file which is not reusable. The other file may duplicate the file
+   * since the previous analysis, so duplications must be detected again on both sides.
+   */
+  private boolean hasBlockInAnalyzedFile(Collection<Block> fileBlocks) {
+    Set<ByteArray> hashes = new HashSet<>();
+    for (Block block : fileBlocks) {
+      if (!hashes.add(block.getBlockHash())) {
+        continue;
+      }
+      for (Block other : index.getBySequenceHash(block.getBlockHash())) {
+        InputComponent otherFile = componentStore.getByKey(other.getResourceId());
+        if (!(otherFile instanceof DefaultInputFile) || !incrementalCache.isReusable((DefaultInputFile) otherFile)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private void saveCpdAnalysis(CpdTask task) {
+    InputFile inputFile = (InputFile) task.component;
+    List<CloneGroup> duplications;
     try {
-      duplications = futureResult.get(timeout, TimeUnit.MILLISECONDS);
+      duplications = task.futureResult.get(Math.max(0L, task.deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
     } catch (TimeoutException e) {
       LOG.warn("Timeout during detection of duplications for " + inputFile.absolutePath());
-      futureResult.cancel(true);
+      task.futureResult.cancel(true);
       return;
     } catch (Exception e) {
       throw new IllegalStateException("Fail during detection of duplication for " + inputFile.absolutePath(), e);
@@ -153,7 +233,7 @@ public class CpdExecutor {
       filtered = duplications;
     }
 
-    saveDuplications(component, filtered);
+    saveDuplications(task.component, filtered);
   }
 
   @VisibleForTesting
@@ -212,4 +292,17 @@ public class CpdExecutor {
     }
     return dupBuilder.build();
   }
+
+  private static class CpdTask {
+    private final DefaultInputComponent component;
+    private final Future<List<CloneGroup>> futureResult;
+    // time in ms at which detection is cancelled
+    private final long deadline;
+
+    private CpdTask(DefaultInputComponent component, Future<List<CloneGroup>> futureResult, long deadline) {
+      this.component = component;
+      this.futureResult = futureResult;
+      this.deadline = deadline;
+    }
+  }
 }
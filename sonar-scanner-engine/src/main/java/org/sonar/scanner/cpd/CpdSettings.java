@@ -26,6 +26,9 @@ import org.sonar.api.config.Configuration;
 import org.sonar.duplications.block.BlockChunker;
 
 public class CpdSettings {
+  static final String THREADS_PROPERTY = "sonar.cpd.threads";
+  static final String OFF_HEAP_INDEX_PROPERTY = "sonar.cpd.offHeapIndex";
+
   private final Configuration settings;
   private final String branch;
 
@@ -40,6 +43,14 @@ public class CpdSettings {
       && StringUtils.isBlank(branch);
   }
 
+  /**
+   * Whether blocks of all files are stored out of the Java heap during duplication detection, which lowers the memory
+   * required by large projects. Disabled by default.
+   */
+  public boolean isOffHeapIndexEnabled() {
+    return settings.getBoolean(OFF_HEAP_INDEX_PROPERTY).orElse(false);
+  }
+
   /**
    * Not applicable to Java, as the {@link BlockChunker} that it uses does not record start and end units of each block. 
    * Also, it uses statements instead of tokens. 
@@ -49,4 +60,15 @@ public class CpdSettings {
   int getMinimumTokens(String languageKey) {
     return settings.getInt("sonar.cpd." + languageKey + ".minimumTokens").orElse(100);
   }
+
+  /**
+   * Number of files in which duplications are detected concurrently. Defaults to the number of processors minus one.
+   */
+  int getThreads() {
+    int threads = settings.getInt(THREADS_PROPERTY).orElse(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    if (threads < 1) {
+      throw new IllegalArgumentException(String.format("Property '%s' must be a positive number: %d", THREADS_PROPERTY, threads));
+    }
+    return threads;
+  }
 }
@@ -33,6 +33,7 @@ import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.ByteArray;
 import org.sonar.duplications.index.AbstractCloneIndex;
 import org.sonar.duplications.index.CloneIndex;
+import org.sonar.duplications.index.OffHeapCloneIndex;
 import org.sonar.duplications.index.PackedMemoryCloneIndex;
 import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
 import org.sonar.scanner.cpd.CpdSettings;
@@ -42,7 +43,7 @@ import org.sonar.scanner.report.ReportPublisher;
 
 public class SonarCpdBlockIndex extends AbstractCloneIndex {
   private static final Logger LOG = Loggers.get(SonarCpdBlockIndex.class);
-  private final CloneIndex mem = new PackedMemoryCloneIndex();
+  private final CloneIndex mem;
   private final ReportPublisher publisher;
   // Files already tokenized
   private final Set<InputFile> indexedFiles = new HashSet<>();
@@ -51,9 +52,13 @@ public class SonarCpdBlockIndex extends AbstractCloneIndex {
   public SonarCpdBlockIndex(ReportPublisher publisher, CpdSettings settings) {
     this.publisher = publisher;
     this.settings = settings;
+    this.mem = settings.isOffHeapIndexEnabled() ? new OffHeapCloneIndex() : new PackedMemoryCloneIndex();
   }
 
-  public void insert(InputFile inputFile, Collection<Block> blocks) {
+  /**
+   * Synchronized, as sensors may be executed concurrently
+   */
+  public synchronized void insert(InputFile inputFile, Collection<Block> blocks) {
     if (settings.isCrossProjectDuplicationEnabled()) {
       int id = ((DefaultInputFile) inputFile).batchId();
       if (publisher.getWriter().hasComponentData(FileStructure.Domain.CPD_TEXT_BLOCKS, id)) {
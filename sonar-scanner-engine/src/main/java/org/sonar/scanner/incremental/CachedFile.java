@@ -0,0 +1,140 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.incremental;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.scanner.protocol.output.FileStructure;
+
+/**
+ * Data of a file, as published in the report of the analysis which stored it in {@link IncrementalCache}:
+ * <ul>
+ *   <li>hash of the file, so that data is reused only if the file did not change</li>
+ *   <li>serialized messages of the report, by domain</li>
+ *   <li>CPD blocks of the file</li>
+ *   <li>keys of the other components referenced by issues and duplications. Messages refer to them by their index in this
+ *   list plus one, as the refs of components change between analyses. Zero is the file itself.</li>
+ * </ul>
+ */
+class CachedFile {
+
+  private final String hash;
+  private final Map<FileStructure.Domain, byte[]> reportData;
+  private final List<Block> cpdBlocks;
+  private final List<String> referencedFiles;
+
+  CachedFile(String hash, Map<FileStructure.Domain, byte[]> reportData, Collection<Block> cpdBlocks, List<String> referencedFiles) {
+    this.hash = hash;
+    this.reportData = new EnumMap<>(FileStructure.Domain.class);
+    this.reportData.putAll(reportData);
+    this.cpdBlocks = new ArrayList<>(cpdBlocks);
+    this.referencedFiles = new ArrayList<>(referencedFiles);
+  }
+
+  String hash() {
+    return hash;
+  }
+
+  @CheckForNull
+  byte[] reportData(FileStructure.Domain domain) {
+    return reportData.get(domain);
+  }
+
+  List<Block> cpdBlocks() {
+    return Collections.unmodifiableList(cpdBlocks);
+  }
+
+  List<String> referencedFiles() {
+    return Collections.unmodifiableList(referencedFiles);
+  }
+
+  void writeTo(DataOutputStream output) throws IOException {
+    output.writeUTF(hash);
+    output.writeInt(reportData.size());
+    for (Map.Entry<FileStructure.Domain, byte[]> entry : reportData.entrySet()) {
+      output.writeUTF(entry.getKey().name());
+      output.writeInt(entry.getValue().length);
+      output.write(entry.getValue());
+    }
+    output.writeInt(cpdBlocks.size());
+    for (Block block : cpdBlocks) {
+      output.writeUTF(block.getBlockHash().toHexString());
+      output.writeInt(block.getIndexInFile());
+      output.writeInt(block.getStartLine());
+      output.writeInt(block.getEndLine());
+      output.writeInt(block.getStartUnit());
+      output.writeInt(block.getEndUnit());
+    }
+    output.writeInt(referencedFiles.size());
+    for (String key : referencedFiles) {
+      output.writeUTF(key);
+    }
+  }
+
+  /**
+   * Reads only the hash, which is written first
+   */
+  static String readHash(DataInputStream input) throws IOException {
+    return input.readUTF();
+  }
+
+  /**
+   * @param fileKey key of the file, which is the resource of its CPD blocks
+   */
+  static CachedFile readFrom(DataInputStream input, String fileKey) throws IOException {
+    String hash = input.readUTF();
+    Map<FileStructure.Domain, byte[]> reportData = new EnumMap<>(FileStructure.Domain.class);
+    int domains = input.readInt();
+    for (int i = 0; i < domains; i++) {
+      FileStructure.Domain domain = FileStructure.Domain.valueOf(input.readUTF());
+      byte[] bytes = new byte[input.readInt()];
+      input.readFully(bytes);
+      reportData.put(domain, bytes);
+    }
+    int blocks = input.readInt();
+    List<Block> cpdBlocks = new ArrayList<>(blocks);
+    Block.Builder builder = Block.builder().setResourceId(fileKey);
+    for (int i = 0; i < blocks; i++) {
+      builder.setBlockHash(new ByteArray(input.readUTF()))
+        .setIndexInFile(input.readInt());
+      int startLine = input.readInt();
+      builder.setLines(startLine, input.readInt());
+      int startUnit = input.readInt();
+      builder.setUnit(startUnit, input.readInt());
+      cpdBlocks.add(builder.build());
+    }
+    int files = input.readInt();
+    List<String> referencedFiles = new ArrayList<>(files);
+    for (int i = 0; i < files; i++) {
+      referencedFiles.add(input.readUTF());
+    }
+    return new CachedFile(hash, reportData, cpdBlocks, referencedFiles);
+  }
+}
@@ -0,0 +1,263 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.incremental;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.picocontainer.Startable;
+import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.batch.fs.InputComponent;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
+import org.sonar.api.batch.rule.ActiveRule;
+import org.sonar.api.batch.rule.ActiveRules;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.platform.PluginInfo;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.core.util.Protobuf;
+import org.sonar.duplications.block.Block;
+import org.sonar.home.cache.FileCache;
+import org.sonar.scanner.bootstrap.GlobalAnalysisMode;
+import org.sonar.scanner.bootstrap.ScannerPluginRepository;
+import org.sonar.scanner.protocol.output.FileStructure;
+import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.scanner.scan.branch.BranchConfiguration;
+import org.sonar.scanner.scan.filesystem.InputComponentStore;
+
+/**
+ * Stores in the user cache the data published for each file, so that the next analysis can reuse it
+ * instead of analyzing the file again. Enabled by property {@link #ENABLED_PROPERTY}, except for short living
+ * branches and issues mode.
+ * <p>
+ * The data of a file is reused when the file is {@link InputFile.Status#SAME} according to the hashes of the server,
+ * and when its hash did not change since it was cached. Both conditions are required: data cached by an analysis
+ * which was not processed by the server is never reused. Coverage and measures of tests are not cached, as they
+ * depend on the imported reports.
+ * </p>
+ * <p>
+ * The whole cache is dropped when active rules or plugins change. Changes of other settings are not detected.
+ * </p>
+ */
+@ScannerSide
+public class IncrementalCache implements Startable {
+
+  private static final Logger LOG = Loggers.get(IncrementalCache.class);
+
+  public static final String ENABLED_PROPERTY = "sonar.scanner.incremental";
+  // to be incremented when the format of cached files changes
+  private static final int FORMAT_VERSION = 2;
+  private static final String FINGERPRINT_FILE_NAME = "fingerprint";
+  private static final String ENTRY_SUFFIX = ".dat";
+
+  private final boolean enabled;
+  private final Path dir;
+  private final ActiveRules activeRules;
+  private final ScannerPluginRepository pluginRepository;
+  private final InputComponentStore componentStore;
+  private final Map<String, Boolean> reusableByKey = new ConcurrentHashMap<>();
+
+  public IncrementalCache(Configuration settings, GlobalAnalysisMode analysisMode, BranchConfiguration branchConfiguration, InputModuleHierarchy moduleHierarchy,
+    FileCache fileCache, ActiveRules activeRules, ScannerPluginRepository pluginRepository, InputComponentStore componentStore) {
+    this.enabled = settings.getBoolean(ENABLED_PROPERTY).orElse(false) && analysisMode.isPublish() && !branchConfiguration.isShortLivingBranch();
+    String project = moduleHierarchy.root().getKeyWithBranch() + ":" + branchConfiguration.branchName();
+    this.dir = fileCache.getDir().toPath().resolve("incremental").resolve(DigestUtils.sha1Hex(project));
+    this.activeRules = activeRules;
+    this.pluginRepository = pluginRepository;
+    this.componentStore = componentStore;
+  }
+
+  @Override
+  public void start() {
+    if (!enabled) {
+      return;
+    }
+    String fingerprint = fingerprint();
+    try {
+      Path fingerprintFile = dir.resolve(FINGERPRINT_FILE_NAME);
+      if (Files.exists(fingerprintFile) && fingerprint.equals(new String(Files.readAllBytes(fingerprintFile), StandardCharsets.UTF_8))) {
+        LOG.info("Incremental analysis, data of unchanged files is loaded from {}", dir);
+        return;
+      }
+      LOG.info("Incremental analysis, but rules or plugins changed since the previous analysis. All files are analyzed.");
+      FileUtils.deleteDirectory(dir.toFile());
+      Files.createDirectories(dir);
+      Files.write(fingerprintFile, fingerprint.getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to initialize cache of incremental analysis: " + dir, e);
+    }
+  }
+
+  @Override
+  public void stop() {
+    // nothing to do
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Whether the data cached for the file can be published instead of analyzing the file
+   */
+  public boolean isReusable(DefaultInputFile inputFile) {
+    if (!enabled) {
+      return false;
+    }
+    return reusableByKey.computeIfAbsent(inputFile.key(), k -> inputFile.status() == InputFile.Status.SAME && inputFile.hash().equals(readHash(inputFile)));
+  }
+
+  @CheckForNull
+  private String readHash(DefaultInputFile inputFile) {
+    File file = entry(inputFile.key());
+    if (!file.exists()) {
+      return null;
+    }
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      return CachedFile.readHash(input);
+    } catch (IOException e) {
+      LOG.debug("Fail to read cache of incremental analysis: " + file, e);
+      return null;
+    }
+  }
+
+  /**
+   * @throws IllegalStateException if the file is not {@link #isReusable(DefaultInputFile) reusable}
+   */
+  CachedFile load(DefaultInputFile inputFile) {
+    if (!isReusable(inputFile)) {
+      throw new IllegalStateException("Data of file is not reusable: " + inputFile);
+    }
+    File file = entry(inputFile.key());
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      return CachedFile.readFrom(input, inputFile.key());
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read cache of incremental analysis: " + file, e);
+    }
+  }
+
+  void save(DefaultInputFile inputFile, CachedFile data) {
+    File file = entry(inputFile.key());
+    try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      data.writeTo(output);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to write cache of incremental analysis: " + file, e);
+    }
+  }
+
+  /**
+   * Deletes data of the files which are not part of the current analysis
+   */
+  void retainOnly(Collection<String> fileKeys) {
+    Set<String> entries = fileKeys.stream().map(key -> entry(key).getName()).collect(Collectors.toSet());
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + ENTRY_SUFFIX)) {
+      for (Path path : stream) {
+        if (!entries.contains(path.getFileName().toString())) {
+          Files.delete(path);
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to clean cache of incremental analysis: " + dir, e);
+    }
+  }
+
+  /**
+   * CPD blocks of a {@link #isReusable(DefaultInputFile) reusable} file
+   */
+  public List<Block> cpdBlocks(DefaultInputFile inputFile) {
+    return load(inputFile).cpdBlocks();
+  }
+
+  /**
+   * Duplications of a {@link #isReusable(DefaultInputFile) reusable} file, which refer to the components of the
+   * current analysis.
+   * @return null if one of the duplicated files is not reusable, so duplications of the file must be detected again
+   */
+  @CheckForNull
+  public List<ScannerReport.Duplication> duplications(DefaultInputFile inputFile) {
+    CachedFile data = load(inputFile);
+    byte[] bytes = data.reportData(FileStructure.Domain.DUPLICATIONS);
+    if (bytes == null) {
+      return Collections.emptyList();
+    }
+    List<ScannerReport.Duplication> duplications = new ArrayList<>();
+    try (CloseableIterator<ScannerReport.Duplication> it = Protobuf.readStream(new ByteArrayInputStream(bytes), ScannerReport.Duplication.parser())) {
+      while (it.hasNext()) {
+        ScannerReport.Duplication.Builder duplication = it.next().toBuilder();
+        for (ScannerReport.Duplicate.Builder duplicate : duplication.getDuplicateBuilderList()) {
+          if (duplicate.getOtherFileRef() != 0) {
+            String key = data.referencedFiles().get(duplicate.getOtherFileRef() - 1);
+            InputComponent duplicatedFile = componentStore.getByKey(key);
+            if (!(duplicatedFile instanceof DefaultInputFile) || !isReusable((DefaultInputFile) duplicatedFile)) {
+              return null;
+            }
+            duplicate.setOtherFileRef(((DefaultInputFile) duplicatedFile).batchId());
+          }
+        }
+        duplications.add(duplication.build());
+      }
+    }
+    return duplications;
+  }
+
+  private File entry(String fileKey) {
+    return dir.resolve(DigestUtils.sha1Hex(fileKey) + ENTRY_SUFFIX).toFile();
+  }
+
+  @VisibleForTesting
+  String fingerprint() {
+    List<String> lines = new ArrayList<>();
+    lines.add("format=" + FORMAT_VERSION);
+    for (PluginInfo plugin : pluginRepository.getPluginInfos()) {
+      lines.add("plugin=" + plugin.getKey() + ":" + plugin.getVersion());
+    }
+    for (ActiveRule rule : activeRules.findAll()) {
+      lines.add("rule=" + rule.ruleKey() + ":" + rule.severity() + ":" + new TreeMap<>(rule.params()));
+    }
+    lines.sort(String::compareTo);
+    return DigestUtils.sha1Hex(String.join("\n", lines));
+  }
+}
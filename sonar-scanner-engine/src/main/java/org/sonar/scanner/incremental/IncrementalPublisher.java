@@ -0,0 +1,240 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.incremental;
+
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Collectors;
+import org.sonar.api.batch.fs.InputComponent;
+import org.sonar.api.batch.fs.internal.DefaultInputComponent;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.core.util.Protobuf;
+import org.sonar.scanner.cpd.index.SonarCpdBlockIndex;
+import org.sonar.scanner.protocol.output.FileStructure.Domain;
+import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.scanner.protocol.output.ScannerReportReader;
+import org.sonar.scanner.protocol.output.ScannerReportWriter;
+import org.sonar.scanner.report.ReportPublisherStep;
+import org.sonar.scanner.scan.filesystem.InputComponentStore;
+
+/**
+ * Must be executed after the other publishers. Restores in the report the data of the files which
+ * were not analyzed because they are reusable, then saves in {@link IncrementalCache} the data of the other files.
+ * Duplications of reusable files are restored by {@link org.sonar.scanner.cpd.CpdExecutor}, as they may have to be
+ * detected again. Sources and components are published for all files by the other publishers.
+ * <p>
+ * Coverage and measures of tests depend on the reports imported by sensors, not on the source of the file, so they
+ * are never cached. They are published as imported by the current analysis, as reusable files are still visible
+ * to sensors which look for a file by its path.
+ * </p>
+ */
+public class IncrementalPublisher implements ReportPublisherStep {
+
+  private static final Logger LOG = Loggers.get(IncrementalPublisher.class);
+
+  private static final Set<String> NOT_REUSABLE_METRICS = CoreMetrics.getMetrics().stream()
+    .filter(metric -> metric != null && CoreMetrics.DOMAIN_COVERAGE.equals(metric.getDomain()))
+    .map(Metric::getKey)
+    // executable lines are computed from the source of the file
+    .filter(key -> !CoreMetrics.EXECUTABLE_LINES_DATA_KEY.equals(key))
+    .collect(Collectors.toSet());
+
+  private final IncrementalCache cache;
+  private final InputComponentStore componentStore;
+  private final SonarCpdBlockIndex index;
+
+  public IncrementalPublisher(IncrementalCache cache, InputComponentStore componentStore, SonarCpdBlockIndex index) {
+    this.cache = cache;
+    this.componentStore = componentStore;
+    this.index = index;
+  }
+
+  @Override
+  public void publish(ScannerReportWriter writer) {
+    if (!cache.isEnabled()) {
+      return;
+    }
+    Map<Integer, String> keysByRef = new HashMap<>();
+    for (InputComponent component : componentStore.all()) {
+      keysByRef.put(((DefaultInputComponent) component).batchId(), component.key());
+    }
+
+    ScannerReportReader reader = new ScannerReportReader(writer.getFileStructure().root());
+    List<String> fileKeys = new ArrayList<>();
+    int reused = 0;
+    for (DefaultInputFile file : componentStore.allFilesToPublish()) {
+      fileKeys.add(file.key());
+      if (cache.isReusable(file)) {
+        restore(writer, reader, file, cache.load(file));
+        reused++;
+      } else {
+        cache.save(file, toCachedFile(reader, file, keysByRef));
+      }
+    }
+    cache.retainOnly(fileKeys);
+    LOG.info("Incremental analysis, {}/{} files reused from previous analysis", reused, fileKeys.size());
+  }
+
+  private CachedFile toCachedFile(ScannerReportReader reader, DefaultInputFile file, Map<Integer, String> keysByRef) {
+    // keys of referenced components, by their index in the cached file
+    Map<String, Integer> referencedFiles = new LinkedHashMap<>();
+    IntUnaryOperator toIndex = otherRef -> {
+      if (otherRef == file.batchId() || otherRef == 0) {
+        return 0;
+      }
+      String key = keysByRef.get(otherRef);
+      return key == null ? -1 : referencedFiles.computeIfAbsent(key, k -> referencedFiles.size() + 1);
+    };
+
+    Map<Domain, byte[]> reportData = new EnumMap<>(Domain.class);
+    int ref = file.batchId();
+    List<ScannerReport.Issue> issues = new ArrayList<>();
+    try (CloseableIterator<ScannerReport.Issue> it = reader.readComponentIssues(ref)) {
+      it.forEachRemaining(issue -> issues.add(mapIssueRefs(issue, toIndex)));
+    }
+    put(reportData, Domain.ISSUES, issues);
+    List<ScannerReport.Measure> measures = new ArrayList<>();
+    try (CloseableIterator<ScannerReport.Measure> it = reader.readComponentMeasures(ref)) {
+      it.forEachRemaining(measure -> {
+        if (!NOT_REUSABLE_METRICS.contains(measure.getMetricKey())) {
+          measures.add(measure);
+        }
+      });
+    }
+    put(reportData, Domain.MEASURES, measures);
+    put(reportData, Domain.SYNTAX_HIGHLIGHTINGS, reader.readComponentSyntaxHighlighting(ref));
+    put(reportData, Domain.SYMBOLS, reader.readComponentSymbols(ref));
+    List<ScannerReport.Duplication> duplications = new ArrayList<>();
+    try (CloseableIterator<ScannerReport.Duplication> it = reader.readComponentDuplications(ref)) {
+      it.forEachRemaining(duplication -> {
+        ScannerReport.Duplication.Builder builder = duplication.toBuilder();
+        builder.getDuplicateBuilderList().forEach(d -> d.setOtherFileRef(toIndex.applyAsInt(d.getOtherFileRef())));
+        duplications.add(builder.build());
+      });
+    }
+    put(reportData, Domain.DUPLICATIONS, duplications);
+
+    return new CachedFile(file.hash(), reportData, index.getByInputFile(file.key()), new ArrayList<>(referencedFiles.keySet()));
+  }
+
+  private void restore(ScannerReportWriter writer, ScannerReportReader reader, DefaultInputFile file, CachedFile data) {
+    int ref = file.batchId();
+    List<String> referencedFiles = data.referencedFiles();
+    IntUnaryOperator toRef = i -> {
+      if (i == 0) {
+        return ref;
+      }
+      InputComponent component = componentStore.getByKey(referencedFiles.get(i - 1));
+      // the component is not part of this analysis anymore
+      return component == null ? -1 : ((DefaultInputComponent) component).batchId();
+    };
+
+    List<ScannerReport.Issue> issues = new ArrayList<>();
+    read(data, Domain.ISSUES, ScannerReport.Issue.parser()).forEach(issue -> issues.add(mapIssueRefs(issue, toRef)));
+    writer.writeComponentIssues(ref, issues);
+    // measures published by the current analysis, like the ones of coverage, are kept
+    List<ScannerReport.Measure> measures = new ArrayList<>();
+    try (CloseableIterator<ScannerReport.Measure> it = reader.readComponentMeasures(ref)) {
+      it.forEachRemaining(measures::add);
+    }
+    Set<String> publishedMetrics = measures.stream().map(ScannerReport.Measure::getMetricKey).collect(Collectors.toSet());
+    read(data, Domain.MEASURES, ScannerReport.Measure.parser()).stream()
+      .filter(measure -> !publishedMetrics.contains(measure.getMetricKey()))
+      .forEach(measures::add);
+    writer.writeComponentMeasures(ref, measures);
+    if (data.reportData(Domain.SYNTAX_HIGHLIGHTINGS) != null) {
+      writer.writeComponentSyntaxHighlighting(ref, read(data, Domain.SYNTAX_HIGHLIGHTINGS, ScannerReport.SyntaxHighlightingRule.parser()));
+    }
+    if (data.reportData(Domain.SYMBOLS) != null) {
+      writer.writeComponentSymbols(ref, read(data, Domain.SYMBOLS, ScannerReport.Symbol.parser()));
+    }
+  }
+
+  /**
+   * Locations which refer to a component which does not exist anymore (mapped to a negative ref) are dropped
+   */
+  private static ScannerReport.Issue mapIssueRefs(ScannerReport.Issue issue, IntUnaryOperator mapping) {
+    if (issue.getFlowCount() == 0) {
+      return issue;
+    }
+    ScannerReport.Issue.Builder builder = issue.toBuilder();
+    for (ScannerReport.Flow.Builder flow : builder.getFlowBuilderList()) {
+      List<ScannerReport.IssueLocation> locations = new ArrayList<>();
+      for (ScannerReport.IssueLocation location : flow.getLocationList()) {
+        int ref = mapping.applyAsInt(location.getComponentRef());
+        if (ref >= 0) {
+          locations.add(location.toBuilder().setComponentRef(ref).build());
+        }
+      }
+      flow.clearLocation().addAllLocation(locations);
+    }
+    return builder.build();
+  }
+
+  private static <M extends Message> List<M> read(CachedFile data, Domain domain, Parser<M> parser) {
+    List<M> messages = new ArrayList<>();
+    byte[] bytes = data.reportData(domain);
+    if (bytes != null) {
+      try (CloseableIterator<M> it = Protobuf.readStream(new ByteArrayInputStream(bytes), parser)) {
+        it.forEachRemaining(messages::add);
+      }
+    }
+    return messages;
+  }
+
+  private static <M extends Message> void put(Map<Domain, byte[]> reportData, Domain domain, CloseableIterator<M> messages) {
+    List<M> list = new ArrayList<>();
+    try (CloseableIterator<M> it = messages) {
+      it.forEachRemaining(list::add);
+    }
+    put(reportData, domain, list);
+  }
+
+  private static <M extends Message> void put(Map<Domain, byte[]> reportData, Domain domain, List<M> messages) {
+    if (messages.isEmpty()) {
+      return;
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      for (M message : messages) {
+        message.writeDelimitedTo(out);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to write message", e);
+    }
+    reportData.put(domain, out.toByteArray());
+  }
+}
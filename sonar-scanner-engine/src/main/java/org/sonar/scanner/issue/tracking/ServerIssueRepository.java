@@ -19,22 +19,40 @@
  */
 package org.sonar.scanner.issue.tracking;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 import org.sonar.api.batch.InstantiationStrategy;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.fs.InputComponent;
+import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.InputModule;
 import org.sonar.api.batch.fs.internal.DefaultInputComponent;
+import org.sonar.api.batch.fs.internal.DefaultInputDir;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.batch.fs.internal.InputComponentTree;
+import org.sonar.api.config.Configuration;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.api.utils.log.Profiler;
 import org.sonar.core.component.ComponentKeys;
+import org.sonar.scanner.analysis.DefaultAnalysisMode;
 import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
 import org.sonar.scanner.repository.ServerIssuesLoader;
 import org.sonar.scanner.scan.filesystem.InputComponentStore;
 import org.sonar.scanner.storage.Storage;
 import org.sonar.scanner.storage.Storages;
 
+/**
+ * Open issues of the server, used to track the issues raised by the analysis.
+ * <p>
+ * By default all the issues of the project are loaded at startup. When property {@link #LAZY_LOADING_PROPERTY} is
+ * enabled and only changed files are analyzed, issues are loaded on demand, one directory at a time, and
+ * only for the directories containing changed files. Added files have no issues on the server, so they don't
+ * trigger any loading. Issues of unchanged files, of modules, of directories and of files deleted from other
+ * directories are then not loaded.
+ * </p>
+ */
 @InstantiationStrategy(InstantiationStrategy.PER_BATCH)
 @ScannerSide
 public class ServerIssueRepository {
@@ -42,30 +60,58 @@ public class ServerIssueRepository {
   private static final Logger LOG = Loggers.get(ServerIssueRepository.class);
   private static final String LOG_MSG = "Load server issues";
 
+  public static final String LAZY_LOADING_PROPERTY = "sonar.issuesMode.lazyServerIssues";
+
   private final Storages caches;
   private Storage<ServerIssue> issuesCache;
   private final ServerIssuesLoader previousIssuesLoader;
   private final InputComponentStore componentStore;
+  private final InputComponentTree componentTree;
+  private final boolean lazy;
+  // keys of the directories whose issues are loaded, when lazy
+  private final Set<String> loadedDirectories = new HashSet<>();
 
-  public ServerIssueRepository(Storages caches, ServerIssuesLoader previousIssuesLoader, InputComponentStore componentStore) {
+  public ServerIssueRepository(Storages caches, ServerIssuesLoader previousIssuesLoader, InputComponentStore componentStore, InputComponentTree componentTree,
+    DefaultAnalysisMode analysisMode, Configuration settings) {
     this.caches = caches;
     this.previousIssuesLoader = previousIssuesLoader;
     this.componentStore = componentStore;
+    this.componentTree = componentTree;
+    this.lazy = !analysisMode.scanAllFiles() && settings.getBoolean(LAZY_LOADING_PROPERTY).orElse(false);
   }
 
   public void load() {
-    Profiler profiler = Profiler.create(LOG).startInfo(LOG_MSG);
     this.issuesCache = caches.createCache("previousIssues");
     caches.registerValueCoder(ServerIssue.class, new ServerIssueValueCoder());
+    if (lazy) {
+      LOG.info("Server issues are loaded for changed files only");
+      return;
+    }
+    Profiler profiler = Profiler.create(LOG).startInfo(LOG_MSG);
     DefaultInputModule root = (DefaultInputModule) componentStore.root();
     previousIssuesLoader.load(root.getKeyWithBranch(), this::store);
     profiler.stopInfo();
   }
 
   public Iterable<ServerIssue> byComponent(InputComponent component) {
+    if (lazy) {
+      if (!component.isFile() || ((InputFile) component).status() != InputFile.Status.CHANGED) {
+        return Collections.emptyList();
+      }
+      loadDirectory((DefaultInputDir) componentTree.getParent(component));
+    }
     return issuesCache.values(((DefaultInputComponent) component).batchId());
   }
 
+  private synchronized void loadDirectory(DefaultInputDir dir) {
+    if (loadedDirectories.add(dir.key())) {
+      DefaultInputModule module = (DefaultInputModule) componentTree.getParent(dir);
+      String dirKeyWithBranch = ComponentKeys.createEffectiveKey(module.getKeyWithBranch(), dir.relativePath());
+      LOG.debug("Load server issues of directory {}", dir.relativePath());
+      previousIssuesLoader.load(dirKeyWithBranch, this::store);
+    }
+  }
+
   private void store(ServerIssue issue) {
     String moduleKeyWithBranch = issue.getModuleKey();
     InputModule module = componentStore.getModule(moduleKeyWithBranch);
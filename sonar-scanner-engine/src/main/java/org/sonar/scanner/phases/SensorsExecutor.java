@@ -20,33 +20,54 @@
 package org.sonar.scanner.phases;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
 import org.sonar.api.batch.fs.internal.SensorStrategy;
+import org.sonar.api.config.Configuration;
 import org.sonar.api.resources.Project;
 import org.sonar.scanner.bootstrap.ScannerExtensionDictionnary;
 import org.sonar.scanner.events.EventBus;
+import org.sonar.scanner.sensor.SensorWrapper;
 
+/**
+ * Executes sensors in the order defined by their dependencies. When property {@link #THREADS_PROPERTY} is greater
+ * than 1, the consecutive sensors which declare to be thread-safe (see {@link org.sonar.api.batch.sensor.SensorDescriptor#threadSafe()})
+ * are executed concurrently. Other sensors are executed alone, once all the previous sensors are done.
+ */
 @ScannerSide
 public class SensorsExecutor {
+  static final String THREADS_PROPERTY = "sonar.scanner.sensorThreads";
+
   private final ScannerExtensionDictionnary selector;
   private final DefaultInputModule module;
   private final EventBus eventBus;
   private final SensorStrategy strategy;
   private final boolean isRoot;
+  private final int threads;
 
-  public SensorsExecutor(ScannerExtensionDictionnary selector, DefaultInputModule module, InputModuleHierarchy hierarchy, EventBus eventBus, SensorStrategy strategy) {
+  public SensorsExecutor(ScannerExtensionDictionnary selector, DefaultInputModule module, InputModuleHierarchy hierarchy, EventBus eventBus, SensorStrategy strategy,
+    Configuration settings) {
     this.selector = selector;
     this.module = module;
     this.eventBus = eventBus;
     this.strategy = strategy;
     this.isRoot = hierarchy.isRoot(module);
+    this.threads = settings.getInt(THREADS_PROPERTY).orElse(1);
+    if (threads < 1) {
+      throw new IllegalArgumentException(String.format("Property '%s' must be a positive number: %d", THREADS_PROPERTY, threads));
+    }
   }
 
   public void execute(SensorContext context) {
@@ -78,9 +99,56 @@ public class SensorsExecutor {
   }
 
   private void execute(SensorContext context, Collection<Sensor> sensors) {
-    for (Sensor sensor : sensors) {
-      executeSensor(context, sensor);
+    if (threads == 1) {
+      for (Sensor sensor : sensors) {
+        executeSensor(context, sensor);
+      }
+      return;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setNameFormat("Sensor-%d")
+      .setDaemon(true)
+      .build());
+    try {
+      List<Future<?>> running = new ArrayList<>();
+      for (Sensor sensor : sensors) {
+        if (isThreadSafe(sensor)) {
+          running.add(executor.submit(() -> executeSensor(context, sensor)));
+        } else {
+          waitFor(running);
+          executeSensor(context, sensor);
+        }
+      }
+      waitFor(running);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static boolean isThreadSafe(Sensor sensor) {
+    return sensor instanceof SensorWrapper && ((SensorWrapper) sensor).isThreadSafe();
+  }
+
+  private static void waitFor(List<Future<?>> running) {
+    try {
+      for (Future<?> future : running) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while executing sensors", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException("Fail to execute sensor", cause);
     }
+    running.clear();
   }
 
   private void executeSensor(SensorContext context, Sensor sensor) {
@@ -21,7 +21,7 @@ package org.sonar.scanner.profiling;
 
 public enum Phase {
 
-  INIT("Initializers"), SENSOR("Sensors"), DECORATOR("Decorators"), PERSISTER("Persisters"), POSTJOB("Post-Jobs");
+  INIT("Initializers"), INDEXING("File indexing"), SENSOR("Sensors"), DECORATOR("Decorators"), PERSISTER("Persisters"), POSTJOB("Post-Jobs");
 
   private final String label;
 
@@ -19,17 +19,18 @@
  */
 package org.sonar.scanner.profiling;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import org.sonar.api.utils.System2;
 
 public class PhaseProfiling extends AbstractTimeProfiling {
 
   private final Phase phase;
 
-  private Map<String, ItemProfiling> profilingPerItem = new HashMap<>();
+  // items of the sensor phase may be profiled concurrently
+  private Map<String, ItemProfiling> profilingPerItem = new ConcurrentHashMap<>();
 
   PhaseProfiling(System2 system, Phase phase) {
     super(system);
@@ -42,13 +42,15 @@ import org.sonar.api.utils.System2;
 import org.sonar.api.utils.TimeUtils;
 import org.sonar.scanner.bootstrap.GlobalProperties;
 import org.sonar.scanner.events.BatchStepHandler;
+import org.sonar.scanner.events.FileIndexingHandler;
 import org.sonar.scanner.util.ScannerUtils;
 
 import static org.sonar.scanner.profiling.AbstractTimeProfiling.sortByDescendingTotalTime;
 import static org.sonar.scanner.profiling.AbstractTimeProfiling.truncate;
 
 public class PhasesSumUpTimeProfiler implements ProjectAnalysisHandler, SensorExecutionHandler, PostJobExecutionHandler,
-  SensorsPhaseHandler, PostJobsPhaseHandler, InitializersPhaseHandler, InitializerExecutionHandler, BatchStepHandler {
+  SensorsPhaseHandler, PostJobsPhaseHandler, InitializersPhaseHandler, InitializerExecutionHandler, BatchStepHandler,
+  FileIndexingHandler {
 
   static final Logger LOG = LoggerFactory.getLogger(PhasesSumUpTimeProfiler.class);
   private static final int TEXT_RIGHT_PAD = 60;
@@ -201,6 +203,20 @@ public class PhasesSumUpTimeProfiler implements ProjectAnalysisHandler, SensorEx
     }
   }
 
+  /**
+   * Stages are executed concurrently, so the sum of their times may exceed the time of the indexing
+   */
+  @Override
+  public void onFileIndexing(FileIndexingEvent event) {
+    currentModuleProfiling.addPhaseProfiling(Phase.INDEXING);
+    PhaseProfiling profiling = currentModuleProfiling.getProfilingPerPhase(Phase.INDEXING);
+    profiling.setTotalTime(event.totalTime());
+    for (Map.Entry<String, Long> stage : event.timePerStage().entrySet()) {
+      profiling.newItemProfiling(stage.getKey());
+      profiling.getProfilingPerItem(stage.getKey()).setTotalTime(stage.getValue());
+    }
+  }
+
   @Override
   public void onBatchStep(BatchStepEvent event) {
     if (event.isStart()) {
@@ -21,6 +21,7 @@ package org.sonar.scanner.report;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -31,6 +32,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.annotation.Nullable;
 import okhttp3.HttpUrl;
 import org.apache.commons.io.FileUtils;
@@ -41,11 +46,13 @@ import org.sonar.api.config.Configuration;
 import org.sonar.api.platform.Server;
 import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.TempFolder;
+import org.sonar.api.utils.Version;
 import org.sonar.api.utils.ZipUtils;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.scanner.bootstrap.GlobalAnalysisMode;
 import org.sonar.scanner.bootstrap.ScannerWsClient;
+import org.sonar.scanner.protocol.output.FileStructure;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.scan.branch.BranchConfiguration;
 import org.sonarqube.ws.MediaTypes;
@@ -54,6 +61,7 @@ import org.sonarqube.ws.client.HttpException;
 import org.sonarqube.ws.client.PostRequest;
 import org.sonarqube.ws.client.WsResponse;
 
+import static org.apache.commons.io.IOUtils.closeQuietly;
 import static org.sonar.core.config.ScannerProperties.BRANCH_NAME;
 import static org.sonar.core.config.ScannerProperties.ORGANIZATION;
 import static org.sonar.core.util.FileUtils.deleteQuietly;
@@ -64,9 +72,19 @@ public class ReportPublisher implements Startable {
   private static final Logger LOG = Loggers.get(ReportPublisher.class);
 
   public static final String KEEP_REPORT_PROP_KEY = "sonar.scanner.keepReport";
+  /**
+   * When enabled, the report is compressed and uploaded while it is being generated, instead of being
+   * compressed into a temporary zip file which is uploaded once complete.
+   * @since 7.0
+   */
+  public static final String STREAM_REPORT_PROP_KEY = "sonar.scanner.streamReport";
   public static final String VERBOSE_KEY = "sonar.verbose";
   public static final String METADATA_DUMP_FILENAME = "report-task.txt";
   private static final String CHARACTERISTIC = "characteristic";
+  /**
+   * First version of server able to read the report container
+   */
+  private static final Version CONTAINER_MIN_SERVER_VERSION = Version.create(7, 0);
 
   private final Configuration settings;
   private final ScannerWsClient wsClient;
@@ -97,7 +115,7 @@ public class ReportPublisher implements Startable {
   @Override
   public void start() {
     reportDir = moduleHierarchy.root().getWorkDir().resolve("scanner-report");
-    writer = new ScannerReportWriter(reportDir.toFile());
+    writer = new ScannerReportWriter(reportDir.toFile(), serverSupportsContainer());
     contextPublisher.init(writer);
 
     if (!analysisMode.isIssues() && !analysisMode.isMediumTest()) {
@@ -110,11 +128,32 @@ public class ReportPublisher implements Startable {
 
   @Override
   public void stop() {
+    closeWriter();
     if (!shouldKeepReport()) {
       deleteQuietly(reportDir);
     }
   }
 
+  private boolean serverSupportsContainer() {
+    String serverVersion = server.getVersion();
+    if (serverVersion == null) {
+      return false;
+    }
+    Version version = Version.parse(serverVersion);
+    return Version.create(version.major(), version.minor()).compareTo(CONTAINER_MIN_SERVER_VERSION) >= 0;
+  }
+
+  private void closeWriter() {
+    if (writer == null) {
+      return;
+    }
+    try {
+      writer.close();
+    } catch (IOException e) {
+      LOG.debug("Fail to close analysis report", e);
+    }
+  }
+
   public Path getReportDir() {
     return reportDir;
   }
@@ -127,27 +166,99 @@ public class ReportPublisher implements Startable {
     // If this is a issues mode analysis then we should not upload reports
     String taskId = null;
     if (!analysisMode.isIssues()) {
-      File report = generateReportFile();
-      if (shouldKeepReport()) {
-        LOG.info("Analysis report generated in " + reportDir);
-      }
-      if (!analysisMode.isMediumTest()) {
-        taskId = upload(report);
+      if (!analysisMode.isMediumTest() && settings.getBoolean(STREAM_REPORT_PROP_KEY).orElse(false)) {
+        taskId = streamReport();
+        logKeptReport();
+      } else {
+        File report = generateReportFile();
+        logKeptReport();
+        if (!analysisMode.isMediumTest()) {
+          taskId = upload(report);
+        }
       }
     }
     logSuccess(taskId);
   }
 
+  private void logKeptReport() {
+    if (shouldKeepReport()) {
+      LOG.info("Analysis report generated in " + reportDir);
+    }
+  }
+
   private boolean shouldKeepReport() {
     return settings.getBoolean(KEEP_REPORT_PROP_KEY).orElse(false) || settings.getBoolean(VERBOSE_KEY).orElse(false);
   }
 
+  /**
+   * Generates the report while uploading it. Files are compressed as soon as they are final, and
+   * the zip is sent in chunks as it is produced.
+   *
+   * @return the task id
+   */
+  private String streamReport() {
+    ExecutorService executorService = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("report-upload").setDaemon(true).build());
+    try (ReportStreamer streamer = new ReportStreamer(reportDir)) {
+      Future<String> upload = executorService.submit(() -> {
+        try {
+          return upload(new PostRequest.Part(MediaTypes.ZIP, "scanner-report.zip", streamer.content()));
+        } finally {
+          // stops the compression if the upload failed
+          closeQuietly(streamer.content());
+        }
+      });
+
+      long startTime = System.currentTimeMillis();
+      for (ReportPublisherStep publisher : publishers) {
+        publisher.publish(writer);
+        streamer.addFiles(ReportPublisher::isFinal);
+      }
+      writer.close();
+      LOG.info("Analysis report generated in {}ms", System.currentTimeMillis() - startTime);
+
+      try {
+        streamer.finish();
+      } catch (RuntimeException e) {
+        // compression is stopped by the failure of the upload, which is then the relevant error
+        waitFor(upload);
+        throw e;
+      }
+      return waitFor(upload);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to prepare analysis report", e);
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  /**
+   * Files of the domains which are not indexed in the container (sources, tests and coverage details) are written
+   * once, by a single step. Other files can be rewritten by a later step, or are completed when the writer is closed.
+   */
+  private static boolean isFinal(Path file) {
+    FileStructure.Domain domain = FileStructure.domainOf(file.getFileName().toString());
+    return domain != null && !domain.isIndexed();
+  }
+
+  private static String waitFor(Future<String> upload) {
+    try {
+      return upload.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while uploading analysis report", e);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause());
+      throw new IllegalStateException("Fail to upload analysis report", e.getCause());
+    }
+  }
+
   private File generateReportFile() {
     try {
       long startTime = System.currentTimeMillis();
       for (ReportPublisherStep publisher : publishers) {
         publisher.publish(writer);
       }
+      writer.close();
       long stopTime = System.currentTimeMillis();
       LOG.info("Analysis report generated in {}ms, dir size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOfDirectory(reportDir.toFile())));
 
@@ -167,9 +278,12 @@ public class ReportPublisher implements Startable {
    */
   @VisibleForTesting
   String upload(File report) {
+    return upload(new PostRequest.Part(MediaTypes.ZIP, report));
+  }
+
+  private String upload(PostRequest.Part filePart) {
     LOG.debug("Upload report");
     long startTime = System.currentTimeMillis();
-    PostRequest.Part filePart = new PostRequest.Part(MediaTypes.ZIP, report);
     PostRequest post = new PostRequest("api/ce/submit")
       .setMediaType(MediaTypes.PROTOBUF)
       .setParam("organization", settings.get(ORGANIZATION).orElse(null))
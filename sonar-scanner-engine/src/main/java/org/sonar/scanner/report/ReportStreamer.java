@@ -0,0 +1,294 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.report;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.sonar.scanner.util.ProgressReport;
+
+import static org.apache.commons.io.FileUtils.byteCountToDisplaySize;
+
+/**
+ * Compresses the files of the analysis report into a zip stream, while the report is still being generated.
+ * Files are compressed by a dedicated thread, in the order they are added, and the zip is read
+ * from {@link #content()}, typically by the upload of the report. At most {@link #MAX_PENDING_CHUNKS} chunks
+ * of the zip are kept in memory, so a slow reader blocks the compression rather than buffering the whole zip.
+ * <p/>
+ * Files must not be modified once added. Methods, except {@link #content()}, must be called by a single thread.
+ */
+class ReportStreamer implements Closeable {
+
+  private static final int CHUNK_SIZE = 64 * 1024;
+  private static final int MAX_PENDING_CHUNKS = 16;
+  private static final Path END_OF_FILES = Paths.get("");
+  private static final byte[] END_OF_ZIP = new byte[0];
+
+  private final Path reportDir;
+  private final Set<Path> addedFiles = new HashSet<>();
+  private final BlockingQueue<Path> files = new LinkedBlockingQueue<>();
+  private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(MAX_PENDING_CHUNKS);
+  private final ContentStream content = new ContentStream();
+  private final ExecutorService executorService;
+  private final Future<Void> compression;
+  private final ProgressReport progressReport = new ProgressReport("Report about progress of report upload", TimeUnit.SECONDS.toMillis(10));
+  private final AtomicLong uncompressedSize = new AtomicLong();
+  private final long startTime;
+  private volatile Exception failure;
+
+  ReportStreamer(Path reportDir) {
+    this.reportDir = reportDir;
+    this.startTime = System.currentTimeMillis();
+    progressReport.start("Stream analysis report");
+    this.executorService = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("report-compressor").setDaemon(true).build());
+    this.compression = executorService.submit(this::compress);
+  }
+
+  /**
+   * The zip. Reaching its end fails if the compression failed, so that a truncated zip is never considered as complete.
+   * Closing it stops the compression.
+   */
+  InputStream content() {
+    return content;
+  }
+
+  /**
+   * Adds the files of the report directory which are accepted by the filter and were not added yet
+   */
+  void addFiles(Predicate<Path> filter) {
+    try (Stream<Path> list = Files.list(reportDir)) {
+      list
+        .filter(Files::isRegularFile)
+        .filter(filter)
+        .filter(addedFiles::add)
+        .forEach(files::add);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to list files of analysis report " + reportDir, e);
+    }
+  }
+
+  /**
+   * Adds all the remaining files and waits until they are compressed. The end of the zip may not be read yet.
+   */
+  void finish() {
+    addFiles(f -> true);
+    files.add(END_OF_FILES);
+    try {
+      compression.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while compressing analysis report", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Fail to compress analysis report", e.getCause());
+    }
+  }
+
+  long compressedSize() {
+    return content.readBytes.get();
+  }
+
+  long uncompressedSize() {
+    return uncompressedSize.get();
+  }
+
+  /**
+   * Stops the compression, if still running. The zip can't be read anymore.
+   */
+  @Override
+  public void close() {
+    content.close();
+    executorService.shutdownNow();
+    long duration = Math.max(1L, System.currentTimeMillis() - startTime);
+    progressReport.stop(String.format("Analysis report streamed: %s compressed to %s in %dms (%s/s)", byteCountToDisplaySize(uncompressedSize()),
+      byteCountToDisplaySize(compressedSize()), duration, byteCountToDisplaySize(compressedSize() * 1000 / duration)));
+  }
+
+  private Void compress() throws Exception {
+    ChunkOutputStream output = new ChunkOutputStream();
+    try (ZipOutputStream zip = new ZipOutputStream(output)) {
+      int count = 0;
+      Path file;
+      while ((file = files.take()) != END_OF_FILES) {
+        zip.putNextEntry(new ZipEntry(reportDir.relativize(file).toString()));
+        uncompressedSize.addAndGet(Files.copy(file, zip));
+        zip.closeEntry();
+        count++;
+        progressReport.message(String.format("%d files of analysis report compressed, %s uploaded", count, byteCountToDisplaySize(compressedSize())));
+      }
+    } catch (Exception e) {
+      failure = e;
+      output.close();
+      throw e;
+    }
+    return null;
+  }
+
+  /**
+   * Cuts the zip into chunks. Closing it adds the end of the zip, even if the compression failed.
+   */
+  private class ChunkOutputStream extends OutputStream {
+    private byte[] chunk = new byte[CHUNK_SIZE];
+    private int position = 0;
+    private boolean closed = false;
+
+    @Override
+    public void write(int b) throws IOException {
+      if (position == chunk.length) {
+        flushChunk();
+      }
+      chunk[position] = (byte) b;
+      position++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      int offset = off;
+      int remaining = len;
+      while (remaining > 0) {
+        if (position == chunk.length) {
+          flushChunk();
+        }
+        int n = Math.min(remaining, chunk.length - position);
+        System.arraycopy(b, offset, chunk, position, n);
+        position += n;
+        offset += n;
+        remaining -= n;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!closed) {
+        closed = true;
+        if (position > 0) {
+          flushChunk();
+        }
+        put(END_OF_ZIP);
+      }
+    }
+
+    private void flushChunk() throws IOException {
+      put(position == chunk.length ? chunk : Arrays.copyOf(chunk, position));
+      chunk = new byte[CHUNK_SIZE];
+      position = 0;
+    }
+
+    private void put(byte[] bytes) throws IOException {
+      try {
+        while (!chunks.offer(bytes, 100, TimeUnit.MILLISECONDS)) {
+          if (content.closed) {
+            throw new IOException("Analysis report is not read anymore");
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while compressing analysis report");
+      }
+    }
+  }
+
+  private class ContentStream extends InputStream {
+    private final AtomicLong readBytes = new AtomicLong();
+    private volatile boolean closed = false;
+    private byte[] chunk = new byte[0];
+    private int position = 0;
+    private boolean end = false;
+
+    @Override
+    public int read() throws IOException {
+      if (!nextChunkIfNeeded()) {
+        return -1;
+      }
+      readBytes.incrementAndGet();
+      int b = chunk[position] & 0xFF;
+      position++;
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (!nextChunkIfNeeded()) {
+        return -1;
+      }
+      int n = Math.min(len, chunk.length - position);
+      System.arraycopy(chunk, position, b, off, n);
+      position += n;
+      readBytes.addAndGet(n);
+      return n;
+    }
+
+    /**
+     * @return false if the end of the zip is reached
+     */
+    private boolean nextChunkIfNeeded() throws IOException {
+      if (closed) {
+        throw new IOException("Stream of analysis report is closed");
+      }
+      while (!end && position == chunk.length) {
+        try {
+          chunk = chunks.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while reading analysis report");
+        }
+        position = 0;
+        end = chunk == END_OF_ZIP;
+      }
+      if (end) {
+        if (failure != null) {
+          throw new IOException("Fail to compress analysis report", failure);
+        }
+        return false;
+      }
+      return true;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+      chunks.clear();
+    }
+  }
+}
@@ -21,15 +21,21 @@ package org.sonar.scanner.repository;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.util.function.Consumer;
 import org.apache.commons.io.IOUtils;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.scanner.bootstrap.ScannerWsClient;
 import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
 import org.sonar.scanner.util.ScannerUtils;
 import org.sonarqube.ws.client.GetRequest;
+import org.sonarqube.ws.client.HttpException;
 
 public class DefaultServerIssuesLoader implements ServerIssuesLoader {
 
+  private static final Logger LOG = Loggers.get(DefaultServerIssuesLoader.class);
+
   private final ScannerWsClient wsClient;
 
   public DefaultServerIssuesLoader(ScannerWsClient wsClient) {
@@ -39,7 +45,17 @@ public class DefaultServerIssuesLoader implements ServerIssuesLoader {
   @Override
   public void load(String componentKey, Consumer<ServerIssue> consumer) {
     GetRequest getRequest = new GetRequest("/batch/issues.protobuf?key=" + ScannerUtils.encodeForUrl(componentKey));
-    InputStream is = wsClient.call(getRequest).contentStream();
+    InputStream is;
+    try {
+      is = wsClient.call(getRequest).contentStream();
+    } catch (HttpException e) {
+      if (e.code() != HttpURLConnection.HTTP_NOT_FOUND) {
+        throw e;
+      }
+      // the component does not exist on server, so it has no issues
+      LOG.debug("Component {} not found on server, no issues are loaded", componentKey);
+      return;
+    }
     parseIssues(is, consumer);
   }
 
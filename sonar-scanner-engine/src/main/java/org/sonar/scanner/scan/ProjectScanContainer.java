@@ -49,6 +49,8 @@ import org.sonar.scanner.cpd.index.SonarCpdBlockIndex;
 import org.sonar.scanner.deprecated.test.TestPlanBuilder;
 import org.sonar.scanner.deprecated.test.TestableBuilder;
 import org.sonar.scanner.events.EventBus;
+import org.sonar.scanner.incremental.IncrementalCache;
+import org.sonar.scanner.incremental.IncrementalPublisher;
 import org.sonar.scanner.index.DefaultIndex;
 import org.sonar.scanner.issue.DefaultProjectIssues;
 import org.sonar.scanner.issue.IssueCache;
@@ -204,12 +206,17 @@ public class ProjectScanContainer extends ComponentContainer {
       CoveragePublisher.class,
       SourcePublisher.class,
       TestExecutionAndCoveragePublisher.class,
+      // must be the last publisher
+      IncrementalPublisher.class,
 
       // Cpd
       CpdExecutor.class,
       CpdSettings.class,
       SonarCpdBlockIndex.class,
 
+      // Incremental analysis
+      IncrementalCache.class,
+
       ScanTaskObservers.class);
 
     addIfMissing(DefaultRulesLoader.class, RulesLoader.class);
@@ -29,15 +29,17 @@ import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.ScannerSide;
@@ -49,16 +51,28 @@ import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.scan.filesystem.PathResolver;
 import org.sonar.api.utils.MessageException;
+import org.sonar.scanner.events.EventBus;
+import org.sonar.scanner.events.FileIndexingEvent;
 import org.sonar.scanner.scan.DefaultComponentTree;
 import org.sonar.scanner.util.ProgressReport;
 
 /**
  * Index input files into {@link InputComponentStore}.
+ * <p/>
+ * Indexing is a pipeline of stages: the directories are walked by the calling thread, then each file is filtered,
+ * its language detected and indexed by the threads of a first stage, then its metadata is computed by the
+ * threads of a second stage. The number of files pending in each stage is bounded, so that walking blocks rather
+ * than loading all the files of large projects in memory. The time spent by each stage is sent to the profiling.
  */
 @ScannerSide
 public class FileIndexer {
 
   private static final Logger LOG = LoggerFactory.getLogger(FileIndexer.class);
+  private static final int MAX_PENDING_FILES_PER_THREAD = 64;
+  private static final String WALK_STAGE = "Walk directories";
+  private static final String FILTER_STAGE = "Filter files and detect languages";
+  private static final String METADATA_STAGE = "Compute metadata of files";
+
   private final InputFileFilter[] filters;
   private final ExclusionFilters exclusionFilters;
   private final InputFileBuilder inputFileBuilder;
@@ -67,17 +81,18 @@ public class FileIndexer {
   private final BatchIdGenerator batchIdGenerator;
   private final InputComponentStore componentStore;
   private final ModuleFileSystemInitializer moduleFileSystemInitializer;
-  private ExecutorService executorService;
-  private final List<Future<Void>> tasks;
   private final DefaultModuleFileSystem defaultModuleFileSystem;
   private final LanguageDetection langDetection;
+  private final EventBus eventBus;
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+  private Stage filterStage;
+  private Stage metadataStage;
 
   private ProgressReport progressReport;
 
   public FileIndexer(BatchIdGenerator batchIdGenerator, InputComponentStore componentStore, DefaultInputModule module, ExclusionFilters exclusionFilters,
     DefaultComponentTree componentTree, InputFileBuilder inputFileBuilder, ModuleFileSystemInitializer initializer, DefaultModuleFileSystem defaultModuleFileSystem,
-    LanguageDetection languageDetection,
-    InputFileFilter[] filters) {
+    LanguageDetection languageDetection, EventBus eventBus, InputFileFilter[] filters) {
     this.batchIdGenerator = batchIdGenerator;
     this.componentStore = componentStore;
     this.module = module;
@@ -88,19 +103,21 @@ public class FileIndexer {
     this.langDetection = languageDetection;
     this.filters = filters;
     this.exclusionFilters = exclusionFilters;
-    this.tasks = new ArrayList<>();
+    this.eventBus = eventBus;
   }
 
   public FileIndexer(BatchIdGenerator batchIdGenerator, InputComponentStore componentStore, DefaultInputModule module, ExclusionFilters exclusionFilters,
     DefaultComponentTree componentTree, InputFileBuilder inputFileBuilder, ModuleFileSystemInitializer initializer, DefaultModuleFileSystem defaultModuleFileSystem,
-    LanguageDetection languageDetection) {
+    LanguageDetection languageDetection, EventBus eventBus) {
     this(batchIdGenerator, componentStore, module, exclusionFilters, componentTree, inputFileBuilder, initializer, defaultModuleFileSystem, languageDetection,
-      new InputFileFilter[0]);
+      eventBus, new InputFileFilter[0]);
   }
 
   public void index() {
+    long startTime = System.currentTimeMillis();
     int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
-    this.executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("FileIndexer-%d").build());
+    this.filterStage = new Stage("FileIndexer-%d", threads);
+    this.metadataStage = new Stage("FileIndexer-metadata-%d", threads);
 
     progressReport = new ProgressReport("Report about progress of file indexation", TimeUnit.SECONDS.toMillis(10));
     progressReport.start("Index files");
@@ -108,32 +125,50 @@ public class FileIndexer {
 
     Progress progress = new Progress();
 
-    indexFiles(moduleFileSystemInitializer.sources(), InputFile.Type.MAIN, progress);
-    indexFiles(moduleFileSystemInitializer.tests(), InputFile.Type.TEST, progress);
-
-    waitForTasksToComplete();
+    long walkTime;
+    try {
+      long walkStart = System.nanoTime();
+      indexFiles(moduleFileSystemInitializer.sources(), InputFile.Type.MAIN, progress);
+      indexFiles(moduleFileSystemInitializer.tests(), InputFile.Type.TEST, progress);
+      walkTime = System.nanoTime() - walkStart - filterStage.blockedTime.sum();
+      filterStage.awaitCompletion();
+      metadataStage.awaitCompletion();
+    } finally {
+      filterStage.shutdownNow();
+      metadataStage.shutdownNow();
+    }
+    throwFailureIfAny();
 
     progressReport.stop(progress.count() + " " + pluralizeFiles(progress.count()) + " indexed");
+    fireStagesTime(System.currentTimeMillis() - startTime, walkTime);
 
     if (exclusionFilters.hasPattern()) {
       LOG.info("{} {} ignored because of inclusion/exclusion patterns", progress.excludedByPatternsCount(), pluralizeFiles(progress.excludedByPatternsCount()));
     }
   }
 
-  private void waitForTasksToComplete() {
-    executorService.shutdown();
-    for (Future<Void> task : tasks) {
-      try {
-        task.get();
-      } catch (ExecutionException e) {
-        // Unwrap ExecutionException
-        throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
-      } catch (InterruptedException e) {
-        throw new IllegalStateException(e);
-      }
+  private void throwFailureIfAny() {
+    Throwable t = failure.get();
+    if (t instanceof Error) {
+      throw (Error) t;
+    }
+    if (t != null) {
+      throw t instanceof RuntimeException ? (RuntimeException) t : new IllegalStateException(t);
     }
   }
 
+  /**
+   * Time spent by each stage, excluding the time blocked on the next stage. Times of the threads of a stage are cumulated.
+   */
+  private void fireStagesTime(long totalTime, long walkTime) {
+    Map<String, Long> timePerStage = new LinkedHashMap<>();
+    timePerStage.put(WALK_STAGE, TimeUnit.NANOSECONDS.toMillis(walkTime));
+    timePerStage.put(FILTER_STAGE, TimeUnit.NANOSECONDS.toMillis(filterStage.time.sum() - metadataStage.blockedTime.sum()));
+    timePerStage.put(METADATA_STAGE, TimeUnit.NANOSECONDS.toMillis(metadataStage.time.sum()));
+    LOG.debug("Time spent by stages of file indexing: {}", timePerStage);
+    eventBus.fireEvent(new FileIndexingEvent(totalTime, timePerStage));
+  }
+
   private static String pluralizeFiles(int count) {
     return count == 1 ? "file" : "files";
   }
@@ -144,7 +179,7 @@ public class FileIndexer {
         if (dirOrFile.toFile().isDirectory()) {
           indexDirectory(dirOrFile, type, progress);
         } else {
-          tasks.add(executorService.submit(() -> indexFile(dirOrFile, type, progress)));
+          filterStage.submit(() -> indexFile(dirOrFile, type, progress));
         }
       }
     } catch (IOException e) {
@@ -157,27 +192,27 @@ public class FileIndexer {
       new IndexFileVisitor(type, progress));
   }
 
-  private Void indexFile(Path sourceFile, InputFile.Type type, Progress progress) throws IOException {
+  private void indexFile(Path sourceFile, InputFile.Type type, Progress progress) throws IOException {
     // get case of real file without resolving link
     Path realAbsoluteFile = sourceFile.toRealPath(LinkOption.NOFOLLOW_LINKS).toAbsolutePath().normalize();
     if (!realAbsoluteFile.startsWith(module.getBaseDir())) {
       LOG.warn("File '{}' is ignored. It is not located in module basedir '{}'.", realAbsoluteFile.toAbsolutePath(), module.getBaseDir());
-      return null;
+      return;
     }
     Path relativePath = module.getBaseDir().relativize(realAbsoluteFile);
     if (!exclusionFilters.accept(realAbsoluteFile, relativePath, type)) {
       progress.increaseExcludedByPatternsCount();
-      return null;
+      return;
     }
     String language = langDetection.language(realAbsoluteFile, relativePath);
     if (language == null && langDetection.getForcedLanguage() != null) {
       LOG.warn("File '{}' is ignored because it doesn't belong to the forced language '{}'", realAbsoluteFile.toAbsolutePath(), langDetection.getForcedLanguage());
-      return null;
+      return;
     }
     DefaultInputFile inputFile = inputFileBuilder.create(type, realAbsoluteFile, language);
     if (!accept(inputFile)) {
       progress.increaseExcludedByPatternsCount();
-      return null;
+      return;
     }
     String parentRelativePath = getParentRelativePath(realAbsoluteFile);
     synchronized (this) {
@@ -185,8 +220,7 @@ public class FileIndexer {
       indexFileAndParentDir(inputFile, parentRelativePath);
     }
     LOG.debug("'{}' indexed {}with language '{}'", relativePath, type == Type.TEST ? "as test " : "", inputFile.language());
-    inputFileBuilder.checkMetadata(inputFile);
-    return null;
+    metadataStage.submit(() -> inputFileBuilder.checkMetadata(inputFile));
   }
 
   private String getParentRelativePath(Path filePath) {
@@ -229,6 +263,9 @@ public class FileIndexer {
 
     @Override
     public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+      if (failure.get() != null) {
+        return FileVisitResult.TERMINATE;
+      }
       Path fileName = dir.getFileName();
 
       if (fileName != null && fileName.toString().length() > 1 && fileName.toString().charAt(0) == '.') {
@@ -243,9 +280,9 @@ public class FileIndexer {
     @Override
     public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
       if (!Files.isHidden(file)) {
-        tasks.add(executorService.submit(() -> indexFile(file, type, status)));
+        filterStage.submit(() -> indexFile(file, type, status));
       }
-      return FileVisitResult.CONTINUE;
+      return failure.get() == null ? FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
     }
 
     @Override
@@ -264,6 +301,66 @@ public class FileIndexer {
     }
   }
 
+  @FunctionalInterface
+  private interface IndexingTask {
+    void run() throws IOException;
+  }
+
+  /**
+   * Threads executing a stage of the indexing. Submitting a task blocks while too many tasks are pending.
+   * The first failure is kept and the following tasks are skipped.
+   */
+  private class Stage {
+    private final ExecutorService executorService;
+    private final Semaphore pendingTasks;
+    private final LongAdder time = new LongAdder();
+    private final LongAdder blockedTime = new LongAdder();
+
+    Stage(String threadNameFormat, int threads) {
+      this.executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat(threadNameFormat).build());
+      this.pendingTasks = new Semaphore(threads * MAX_PENDING_FILES_PER_THREAD);
+    }
+
+    void submit(IndexingTask task) {
+      long submitStart = System.nanoTime();
+      try {
+        pendingTasks.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while indexing files", e);
+      } finally {
+        blockedTime.add(System.nanoTime() - submitStart);
+      }
+      executorService.execute(() -> {
+        long start = System.nanoTime();
+        try {
+          if (failure.get() == null) {
+            task.run();
+          }
+        } catch (Exception | Error e) {
+          failure.compareAndSet(null, e);
+        } finally {
+          time.add(System.nanoTime() - start);
+          pendingTasks.release();
+        }
+      });
+    }
+
+    void awaitCompletion() {
+      executorService.shutdown();
+      try {
+        executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while indexing files", e);
+      }
+    }
+
+    void shutdownNow() {
+      executorService.shutdownNow();
+    }
+  }
+
   private class Progress {
     private AtomicInteger indexedCount = new AtomicInteger(0);
     private AtomicInteger excludedByPatternsCount = new AtomicInteger(0);
@@ -0,0 +1,67 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.filesystem;
+
+import java.util.function.Predicate;
+import org.sonar.api.batch.fs.FilePredicate;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.AbsolutePathPredicate;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.OperatorPredicate;
+import org.sonar.api.batch.fs.internal.RelativePathPredicate;
+import org.sonar.api.batch.fs.internal.URIPredicate;
+import org.sonar.scanner.incremental.IncrementalCache;
+
+/**
+ * Hides from sensors the files whose data is reused from the {@link IncrementalCache}. Files looked for by their path
+ * are not hidden, so that sensors importing reports, like the ones of coverage and tests, still find them.
+ */
+public class ReusableInputFilePredicate implements Predicate<InputFile> {
+  private final IncrementalCache cache;
+  private final FilePredicate currentPredicate;
+
+  public ReusableInputFilePredicate(FilePredicate currentPredicate, IncrementalCache cache) {
+    this.currentPredicate = currentPredicate;
+    this.cache = cache;
+  }
+
+  @Override
+  public boolean test(InputFile inputFile) {
+    if (SameInputFilePredicate.hasExplicitFilterOnStatus(currentPredicate)) {
+      // If user explicitly requested a given status, don't change the result
+      return true;
+    }
+    if (hasFilterOnPath(currentPredicate)) {
+      return true;
+    }
+    return !cache.isReusable((DefaultInputFile) inputFile);
+  }
+
+  static boolean hasFilterOnPath(FilePredicate predicate) {
+    if (predicate instanceof AbsolutePathPredicate || predicate instanceof RelativePathPredicate || predicate instanceof URIPredicate) {
+      return true;
+    }
+    if (predicate instanceof OperatorPredicate) {
+      return ((OperatorPredicate) predicate).operands().stream().anyMatch(ReusableInputFilePredicate::hasFilterOnPath);
+    }
+    return false;
+  }
+
+}
@@ -30,6 +30,7 @@ import org.sonar.scanner.storage.Storages;
 
 /**
  * Cache of all measures. This cache is shared amongst all project modules.
+ * Lookups and insertions are synchronized, as sensors may be executed concurrently. Iterations are not.
  */
 @ScannerSide
 public class MeasureCache {
@@ -54,18 +55,18 @@ public class MeasureCache {
   }
 
   @CheckForNull
-  public DefaultMeasure<?> byMetric(String componentKey, String metricKey) {
+  public synchronized DefaultMeasure<?> byMetric(String componentKey, String metricKey) {
     return cache.get(componentKey, metricKey);
   }
 
-  public MeasureCache put(String componentKey, String metricKey, DefaultMeasure<?> measure) {
+  public synchronized MeasureCache put(String componentKey, String metricKey, DefaultMeasure<?> measure) {
     Preconditions.checkNotNull(componentKey);
     Preconditions.checkNotNull(metricKey);
     cache.put(componentKey, metricKey, measure);
     return this;
   }
 
-  public boolean contains(String componentKey, String metricKey) {
+  public synchronized boolean contains(String componentKey, String metricKey) {
     Preconditions.checkNotNull(componentKey);
     Preconditions.checkNotNull(metricKey);
     return cache.containsKey(componentKey, metricKey);
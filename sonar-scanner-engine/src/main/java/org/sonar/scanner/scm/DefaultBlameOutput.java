@@ -20,6 +20,7 @@
 package org.sonar.scanner.scm;
 
 import com.google.common.base.Preconditions;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -27,6 +28,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.batch.fs.InputFile;
@@ -45,29 +47,36 @@ class DefaultBlameOutput implements BlameOutput {
   private static final Logger LOG = Loggers.get(DefaultBlameOutput.class);
 
   private final ScannerReportWriter writer;
-  private final Set<InputFile> allFilesToBlame = new LinkedHashSet<>();
+  // results may be reported concurrently when blame is executed by several threads
+  private final Set<InputFile> allFilesToBlame = Collections.synchronizedSet(new LinkedHashSet<>());
+  private final AtomicInteger count = new AtomicInteger();
   private ProgressReport progressReport;
-  private int count;
   private int total;
 
   DefaultBlameOutput(ScannerReportWriter writer, List<InputFile> filesToBlame) {
     this.writer = writer;
     this.allFilesToBlame.addAll(filesToBlame);
-    count = 0;
     total = filesToBlame.size();
     progressReport = new ProgressReport("Report about progress of SCM blame", TimeUnit.SECONDS.toMillis(10));
     progressReport.start(total + " files to be analyzed");
   }
 
   @Override
-  public synchronized void blameResult(InputFile file, List<BlameLine> lines) {
+  public void blameResult(InputFile file, List<BlameLine> lines) {
+    accept(file, lines);
+  }
+
+  /**
+   * @return true if the result is written to the report, false if it is ignored
+   */
+  boolean accept(InputFile file, List<BlameLine> lines) {
     Preconditions.checkNotNull(file);
     Preconditions.checkNotNull(lines);
     Preconditions.checkArgument(allFilesToBlame.contains(file), "It was not expected to blame file %s", file);
 
     if (lines.size() != file.lines()) {
       LOG.debug("Ignoring blame result since provider returned {} blame lines but file {} has {} lines", lines.size(), file, file.lines());
-      return;
+      return false;
     }
 
     Builder scmBuilder = ScannerReport.Changesets.newBuilder();
@@ -89,8 +98,8 @@ class DefaultBlameOutput implements BlameOutput {
     }
     writer.writeComponentChangesets(scmBuilder.build());
     allFilesToBlame.remove(file);
-    count++;
-    progressReport.message(count + "/" + total + " files analyzed");
+    progressReport.message(count.incrementAndGet() + "/" + total + " files analyzed");
+    return true;
   }
 
   private static void validateLine(BlameLine line, int lineId, InputFile file) {
@@ -117,11 +126,13 @@ class DefaultBlameOutput implements BlameOutput {
   }
 
   public void finish(boolean success) {
-    progressReport.stop(count + "/" + total + " files analyzed");
+    progressReport.stop(count.get() + "/" + total + " files analyzed");
     if (success && !allFilesToBlame.isEmpty()) {
       LOG.warn("Missing blame information for the following files:");
-      for (InputFile f : allFilesToBlame) {
-        LOG.warn("  * " + f);
+      synchronized (allFilesToBlame) {
+        for (InputFile f : allFilesToBlame) {
+          LOG.warn("  * " + f);
+        }
       }
       LOG.warn("This may lead to missing/broken features in SonarQube");
     }
@@ -0,0 +1,133 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scm;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.sonar.api.batch.InstantiationStrategy;
+import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
+import org.sonar.api.batch.scm.BlameLine;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.home.cache.FileCache;
+
+/**
+ * Results of blame stored in the user cache, so that files are not blamed again by the next analyses of the
+ * same revision. A result is identified by the revision checked out, the key of the file and its hash.
+ * Only the results of the latest revision are kept.
+ */
+@InstantiationStrategy(InstantiationStrategy.PER_PROJECT)
+@ScannerSide
+public class ScmBlameCache {
+
+  private static final Logger LOG = Loggers.get(ScmBlameCache.class);
+
+  private final File projectDir;
+
+  public ScmBlameCache(FileCache fileCache, InputModuleHierarchy moduleHierarchy) {
+    this.projectDir = new File(fileCache.getDir(), "scm-blame/" + DigestUtils.sha1Hex(moduleHierarchy.root().key()));
+  }
+
+  /**
+   * Deletes the results of other revisions
+   */
+  void retainOnly(String revision) {
+    File[] revisionDirs = projectDir.listFiles();
+    if (revisionDirs == null) {
+      return;
+    }
+    String revisionDirName = revisionDir(revision).getName();
+    for (File revisionDir : revisionDirs) {
+      if (!revisionDir.getName().equals(revisionDirName)) {
+        FileUtils.deleteQuietly(revisionDir);
+      }
+    }
+  }
+
+  /**
+   * @return null if the file was not blamed for this revision, or if its content changed since
+   */
+  @CheckForNull
+  List<BlameLine> load(String revision, DefaultInputFile inputFile) {
+    File file = entry(revision, inputFile);
+    if (!file.exists()) {
+      return null;
+    }
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      int count = input.readInt();
+      List<BlameLine> lines = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        BlameLine line = new BlameLine().revision(input.readUTF()).date(new Date(input.readLong()));
+        if (input.readBoolean()) {
+          line.author(input.readUTF());
+        }
+        lines.add(line);
+      }
+      return lines;
+    } catch (IOException e) {
+      LOG.debug("Fail to read blame result from cache: " + file, e);
+      return null;
+    }
+  }
+
+  void save(String revision, DefaultInputFile inputFile, List<BlameLine> lines) {
+    File file = entry(revision, inputFile);
+    try {
+      FileUtils.forceMkdir(file.getParentFile());
+      try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+        output.writeInt(lines.size());
+        for (BlameLine line : lines) {
+          output.writeUTF(line.revision());
+          output.writeLong(line.date().getTime());
+          output.writeBoolean(line.author() != null);
+          if (line.author() != null) {
+            output.writeUTF(line.author());
+          }
+        }
+      }
+    } catch (IOException e) {
+      // the cache is an optimization only
+      LOG.debug("Fail to write blame result to cache: " + file, e);
+      FileUtils.deleteQuietly(file);
+    }
+  }
+
+  private File revisionDir(String revision) {
+    return new File(projectDir, DigestUtils.sha1Hex(revision));
+  }
+
+  private File entry(String revision, DefaultInputFile inputFile) {
+    return new File(revisionDir(revision), DigestUtils.sha1Hex(inputFile.key() + ":" + inputFile.hash()));
+  }
+}
@@ -38,6 +38,8 @@ import org.sonar.api.config.Configuration;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 @Properties({
   @Property(
     key = ScmConfiguration.FORCE_RELOAD_KEY,
@@ -48,7 +50,17 @@ import org.sonar.api.utils.log.Loggers;
     project = false,
     module = false,
     global = false,
-    type = PropertyType.BOOLEAN)
+    type = PropertyType.BOOLEAN),
+  @Property(
+    key = ScmConfiguration.BLAME_THREADS_KEY,
+    defaultValue = "1",
+    name = "Number of threads executing blame",
+    description = "Files to blame are split between this number of threads. Must be 1 if the SCM provider does not support concurrent blame commands.",
+    category = CoreProperties.CATEGORY_SCM,
+    project = false,
+    module = false,
+    global = false,
+    type = PropertyType.INTEGER)
 })
 @InstantiationStrategy(InstantiationStrategy.PER_BATCH)
 @ScannerSide
@@ -56,6 +68,7 @@ public class ScmConfiguration implements Startable {
   private static final Logger LOG = Loggers.get(ScmConfiguration.class);
 
   public static final String FORCE_RELOAD_KEY = "sonar.scm.forceReloadAll";
+  public static final String BLAME_THREADS_KEY = "sonar.scm.blameThreads";
 
   private final Configuration settings;
   private final Map<String, ScmProvider> providerPerKey = new LinkedHashMap<>();
@@ -147,6 +160,12 @@ public class ScmConfiguration implements Startable {
     return settings.getBoolean(FORCE_RELOAD_KEY).orElse(false);
   }
 
+  public int blameThreads() {
+    int threads = settings.getInt(BLAME_THREADS_KEY).orElse(1);
+    checkArgument(threads > 0, "Property '%s' must be a positive number: %d", BLAME_THREADS_KEY, threads);
+    return threads;
+  }
+
   @Override
   public void stop() {
     // Nothing to do
@@ -19,8 +19,14 @@
  */
 package org.sonar.scanner.scm;
 
-import java.util.LinkedList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.InstantiationStrategy;
@@ -29,6 +35,10 @@ import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.InputFile.Status;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.batch.scm.BlameCommand;
+import org.sonar.api.batch.scm.BlameCommand.BlameOutput;
+import org.sonar.api.batch.scm.BlameLine;
+import org.sonar.api.batch.scm.ScmProvider;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.scanner.protocol.output.ScannerReport;
@@ -54,15 +64,18 @@ public final class ScmPublisher {
   private final DefaultModuleFileSystem fs;
   private final ScannerReportWriter writer;
   private final BranchConfiguration branchConfiguration;
+  private final ScmBlameCache blameCache;
 
   public ScmPublisher(DefaultInputModule inputModule, ScmConfiguration configuration, ProjectRepositories projectRepositories,
-    ModuleInputComponentStore componentStore, DefaultModuleFileSystem fs, ReportPublisher reportPublisher, BranchConfiguration branchConfiguration) {
+    ModuleInputComponentStore componentStore, DefaultModuleFileSystem fs, ReportPublisher reportPublisher, BranchConfiguration branchConfiguration,
+    ScmBlameCache blameCache) {
     this.inputModule = inputModule;
     this.configuration = configuration;
     this.projectRepositories = projectRepositories;
     this.componentStore = componentStore;
     this.fs = fs;
     this.branchConfiguration = branchConfiguration;
+    this.blameCache = blameCache;
     this.writer = reportPublisher.getWriter();
   }
 
@@ -78,11 +91,24 @@ public final class ScmPublisher {
 
     List<InputFile> filesToBlame = collectFilesToBlame(writer);
     if (!filesToBlame.isEmpty()) {
-      String key = configuration.provider().key();
-      LOG.info("SCM provider for this project is: " + key);
+      ScmProvider provider = configuration.provider();
+      LOG.info("SCM provider for this project is: " + provider.key());
       DefaultBlameOutput output = new DefaultBlameOutput(writer, filesToBlame);
       try {
-        configuration.provider().blameCommand().blame(new DefaultBlameInput(fs, filesToBlame), output);
+        String revision = provider.revisionId(inputModule.getBaseDir());
+        BlameOutput providerOutput = output;
+        if (revision != null) {
+          blameCache.retainOnly(revision);
+          if (!configuration.forceReloadAll()) {
+            filesToBlame = loadFromCache(revision, filesToBlame, output);
+          }
+          providerOutput = (file, lines) -> {
+            if (output.accept(file, lines)) {
+              blameCache.save(revision, (DefaultInputFile) file, lines);
+            }
+          };
+        }
+        blame(provider.blameCommand(), filesToBlame, providerOutput);
       } catch (Exception e) {
         output.finish(false);
         throw e;
@@ -91,11 +117,66 @@ public final class ScmPublisher {
     }
   }
 
+  /**
+   * @return the files which were not blamed yet for this revision
+   */
+  private List<InputFile> loadFromCache(String revision, List<InputFile> filesToBlame, DefaultBlameOutput output) {
+    List<InputFile> notCached = new ArrayList<>();
+    for (InputFile f : filesToBlame) {
+      List<BlameLine> lines = blameCache.load(revision, (DefaultInputFile) f);
+      if (lines == null || !output.accept(f, lines)) {
+        notCached.add(f);
+      }
+    }
+    int cached = filesToBlame.size() - notCached.size();
+    if (cached > 0) {
+      LOG.info("Blame of {} files loaded from cache", cached);
+    }
+    return notCached;
+  }
+
+  /**
+   * Files are split between {@link ScmConfiguration#blameThreads()} threads, each of them executing
+   * the blame command on its own files.
+   */
+  private void blame(BlameCommand blameCommand, List<InputFile> filesToBlame, BlameOutput output) {
+    if (filesToBlame.isEmpty()) {
+      return;
+    }
+    int threads = Math.min(configuration.blameThreads(), filesToBlame.size());
+    if (threads == 1) {
+      blameCommand.blame(new DefaultBlameInput(fs, filesToBlame), output);
+      return;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("SCM-blame-%d").setDaemon(true).build());
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      int partitionSize = (filesToBlame.size() + threads - 1) / threads;
+      for (List<InputFile> partition : Lists.partition(filesToBlame, partitionSize)) {
+        futures.add(executor.submit(() -> blameCommand.blame(new DefaultBlameInput(fs, partition), output)));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted during SCM blame", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException("Fail to execute SCM blame", cause);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   private List<InputFile> collectFilesToBlame(ScannerReportWriter writer) {
     if (configuration.forceReloadAll()) {
       LOG.warn("Forced reloading of SCM data for all files.");
     }
-    List<InputFile> filesToBlame = new LinkedList<>();
+    List<InputFile> filesToBlame = new ArrayList<>();
     for (InputFile f : componentStore.inputFiles()) {
       DefaultInputFile inputFile = (DefaultInputFile) f;
       if (!inputFile.isPublished()) {
@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.sonar.api.batch.fs.InputComponent;
@@ -151,7 +152,7 @@ public class DefaultSensorStorage implements SensorStorage {
   private final Map<Metric<?>, Metric<?>> deprecatedCoverageMetricMapping = new HashMap<>();
   private final Set<Metric<?>> coverageMetrics = new HashSet<>();
   private final Set<Metric<?>> byLineMetrics = new HashSet<>();
-  private final Set<String> alreadyLogged = new HashSet<>();
+  private final Set<String> alreadyLogged = ConcurrentHashMap.newKeySet();
 
   public DefaultSensorStorage(MetricFinder metricFinder, ModuleIssues moduleIssues, Configuration settings,
     ReportPublisher reportPublisher, MeasureCache measureCache, SonarCpdBlockIndex index,
@@ -264,23 +265,28 @@ public class DefaultSensorStorage implements SensorStorage {
       }
       saveCoverageMetricInternal((InputFile) component, metric, measureToSave);
     } else {
-      if (measureCache.contains(component.key(), metric.key())) {
-        throw new UnsupportedOperationException("Can not add the same measure twice on " + component + ": " + measure);
+      // sensors may be executed concurrently
+      synchronized (measureCache) {
+        if (measureCache.contains(component.key(), metric.key())) {
+          throw new UnsupportedOperationException("Can not add the same measure twice on " + component + ": " + measure);
+        }
+        measureCache.put(component.key(), metric.key(), measureToSave);
       }
-      measureCache.put(component.key(), metric.key(), measureToSave);
     }
   }
 
   private void saveCoverageMetricInternal(InputFile file, Metric<?> metric, DefaultMeasure<?> measure) {
     if (isLineMetrics(metric)) {
       validateCoverageMeasure((String) measure.value(), file);
-      DefaultMeasure<?> previousMeasure = measureCache.byMetric(file.key(), metric.key());
-      if (previousMeasure != null) {
-        measureCache.put(file.key(), metric.key(), new DefaultMeasure<String>()
-          .forMetric((Metric<String>) metric)
-          .withValue(mergeCoverageLineMetric(metric, (String) previousMeasure.value(), (String) measure.value())));
-      } else {
-        measureCache.put(file.key(), metric.key(), measure);
+      synchronized (measureCache) {
+        DefaultMeasure<?> previousMeasure = measureCache.byMetric(file.key(), metric.key());
+        if (previousMeasure != null) {
+          measureCache.put(file.key(), metric.key(), new DefaultMeasure<String>()
+            .forMetric((Metric<String>) metric)
+            .withValue(mergeCoverageLineMetric(metric, (String) previousMeasure.value(), (String) measure.value())));
+        } else {
+          measureCache.put(file.key(), metric.key(), measure);
+        }
       }
     } else {
       // Other coverage metrics are all integer values. Just erase value, it will be recomputed at the end anyway
@@ -0,0 +1,118 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Key of an element of {@link Storage}, made of one or several parts. Keys are sorted part by part,
+ * so the descendants of a key are contiguous and follow it.
+ */
+final class StorageKey implements Comparable<StorageKey> {
+
+  /**
+   * Greater than any other part, used as the upper bound of the descendants of a key
+   */
+  private static final Object AFTER = new Object();
+
+  private final Object[] parts;
+
+  private StorageKey(Object[] parts) {
+    this.parts = parts;
+  }
+
+  static StorageKey of(Object... parts) {
+    for (Object part : parts) {
+      checkArgument(part instanceof Comparable, "Part of key must be comparable: %s", part);
+    }
+    return new StorageKey(parts.clone());
+  }
+
+  int depth() {
+    return parts.length;
+  }
+
+  Object part(int index) {
+    return parts[index];
+  }
+
+  Object[] parts() {
+    return parts.clone();
+  }
+
+  StorageKey append(Object part) {
+    Object[] array = Arrays.copyOf(parts, parts.length + 1);
+    array[parts.length] = part;
+    return new StorageKey(array);
+  }
+
+  /**
+   * Key greater than this key and all its descendants, but lower than the next key of same depth
+   */
+  StorageKey after() {
+    return append(AFTER);
+  }
+
+  @Override
+  public int compareTo(StorageKey other) {
+    int length = Math.min(parts.length, other.parts.length);
+    for (int i = 0; i < length; i++) {
+      int cmp = compareParts(parts[i], other.parts[i]);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return Integer.compare(parts.length, other.parts.length);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static int compareParts(Object part, Object otherPart) {
+    if (part == otherPart) {
+      return 0;
+    }
+    if (part == AFTER) {
+      return 1;
+    }
+    if (otherPart == AFTER) {
+      return -1;
+    }
+    if (part.getClass() == otherPart.getClass()) {
+      return ((Comparable) part).compareTo(otherPart);
+    }
+    return part.getClass().getName().compareTo(otherPart.getClass().getName());
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return this == o || (o instanceof StorageKey && Arrays.equals(parts, ((StorageKey) o).parts));
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(parts);
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(parts);
+  }
+}
@@ -19,29 +19,37 @@
  */
 package org.sonar.scanner.storage;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
-import com.persistit.Exchange;
-import com.persistit.Persistit;
-import com.persistit.Value;
-import com.persistit.Volume;
-import com.persistit.encoding.CoderManager;
-import com.persistit.encoding.ValueCoder;
-import com.persistit.exception.PersistitException;
-import java.util.HashMap;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import org.picocontainer.Startable;
 import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.config.Configuration;
+
+import static com.google.common.base.Preconditions.checkArgument;
 
 @ScannerSide
 public class Storages implements Startable {
-  private final Map<String, Exchange> cacheMap = new HashMap<>();
-  private Persistit persistit;
-  private Volume volume;
 
-  public Storages(StoragesManager storagesManager) {
-    persistit = storagesManager.persistit();
-    doStart();
+  /**
+   * Size in MB of the values that are kept on heap. Beyond, values are stored in memory-mapped files.
+   * @since 7.0
+   */
+  public static final String MEMORY_BUDGET_PROPERTY = "sonar.scanner.storageMemoryBudget";
+  static final int DEFAULT_MEMORY_BUDGET = 64;
+
+  private final Map<String, Storage<?>> storageMap = new ConcurrentHashMap<>();
+  private final ValueCodec codec = new ValueCodec();
+  private ValueStore valueStore;
+
+  public Storages(StoragesManager storagesManager, Configuration settings) {
+    int memoryBudget = settings.getInt(MEMORY_BUDGET_PROPERTY).orElse(DEFAULT_MEMORY_BUDGET);
+    checkArgument(memoryBudget >= 0, "Property '%s' must not be negative: %d", MEMORY_BUDGET_PROPERTY, memoryBudget);
+    doStart(storagesManager, memoryBudget * 1024L * 1024L);
   }
 
   @Override
@@ -49,50 +57,41 @@ public class Storages implements Startable {
     // done in constructor
   }
 
-  private void doStart() {
+  private void doStart(StoragesManager storagesManager, long memoryBudget) {
     try {
-      persistit.flush();
-      volume = persistit.createTemporaryVolume();
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to create a cache volume", e);
+      File dir = Files.createTempDirectory(storagesManager.tempDir().toPath(), "storages").toFile();
+      valueStore = new ValueStore(dir, memoryBudget);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to create the directory of storages", e);
     }
   }
 
+  /**
+   * Values of the given class are serialized with the coder instead of {@link Values}.
+   * The coder must be registered before the first value is put.
+   */
   public void registerValueCoder(Class<?> clazz, ValueCoder coder) {
-    CoderManager cm = persistit.getCoderManager();
-    cm.registerValueCoder(clazz, coder);
+    codec.register(clazz, coder);
   }
 
   public <V> Storage<V> createCache(String cacheName) {
-    Preconditions.checkState(volume != null && volume.isOpened(), "Caches are not initialized");
-    Preconditions.checkState(!cacheMap.containsKey(cacheName), "Cache is already created: %s", cacheName);
-    try {
-      Exchange exchange = persistit.getExchange(volume, cacheName, true);
-      exchange.setMaximumValueSize(Value.MAXIMUM_SIZE);
-      Storage<V> cache = new Storage<>(cacheName, exchange);
-      cacheMap.put(cacheName, exchange);
-      return cache;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to create cache: " + cacheName, e);
-    }
+    Preconditions.checkState(valueStore != null, "Caches are not initialized");
+    Storage<V> cache = new Storage<>(cacheName, codec, valueStore);
+    Preconditions.checkState(storageMap.putIfAbsent(cacheName, cache) == null, "Cache is already created: %s", cacheName);
+    return cache;
+  }
+
+  @VisibleForTesting
+  ValueStore valueStore() {
+    return valueStore;
   }
 
   @Override
   public void stop() {
-    for (Entry<String, Exchange> e : cacheMap.entrySet()) {
-      persistit.releaseExchange(e.getValue());
-    }
-
-    cacheMap.clear();
-
-    if (volume != null) {
-      try {
-        volume.close();
-        volume.delete();
-      } catch (PersistitException e) {
-        throw new IllegalStateException("Fail to close caches", e);
-      }
-      volume = null;
+    storageMap.clear();
+    if (valueStore != null) {
+      valueStore.close();
+      valueStore = null;
     }
   }
 }
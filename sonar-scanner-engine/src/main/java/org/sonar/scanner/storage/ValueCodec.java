@@ -0,0 +1,78 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Converts values to bytes, with the {@link ValueCoder} registered for their class if any, or else with {@link Values}.
+ */
+class ValueCodec {
+
+  private static final int NO_CODER = -1;
+
+  private final List<ValueCoder> coders = new CopyOnWriteArrayList<>();
+  private final Map<Class<?>, Integer> coderIds = new ConcurrentHashMap<>();
+
+  synchronized void register(Class<?> clazz, ValueCoder coder) {
+    Integer id = coderIds.get(clazz);
+    if (id == null) {
+      coders.add(coder);
+      coderIds.put(clazz, coders.size() - 1);
+    } else {
+      coders.set(id, coder);
+    }
+  }
+
+  byte[] encode(@Nullable Object value) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    Integer coderId = value == null ? null : coderIds.get(value.getClass());
+    if (coderId == null) {
+      output.writeInt(NO_CODER);
+      Values.writeObject(output, value);
+    } else {
+      output.writeInt(coderId);
+      coders.get(coderId).put(output, value);
+    }
+    output.flush();
+    return bytes.toByteArray();
+  }
+
+  @CheckForNull
+  Object decode(byte[] bytes) throws IOException {
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+    int coderId = input.readInt();
+    if (coderId == NO_CODER) {
+      return Values.readObject(input);
+    }
+    return coders.get(coderId).get(input);
+  }
+}
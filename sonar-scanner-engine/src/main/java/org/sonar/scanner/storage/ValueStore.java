@@ -0,0 +1,143 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.sonar.core.util.FileUtils.deleteQuietly;
+
+/**
+ * Holds the serialized values of the storages. Values are kept on heap as long as their total size
+ * does not exceed the memory budget. Beyond, they are appended to segment files that are mapped in memory,
+ * so that the operating system decides which pages stay in RAM.
+ * <p/>
+ * Space of segments is never reclaimed when values are removed or replaced, as storages only live
+ * for the duration of the analysis.
+ * <p/>
+ * References returned by {@link #store(byte[])} are either the array itself or a {@link Pointer} to a segment.
+ */
+class ValueStore {
+
+  static final int SEGMENT_SIZE = 32 * 1024 * 1024;
+
+  private final File dir;
+  private final long memoryBudget;
+  private final AtomicLong heapSize = new AtomicLong();
+  private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+  private MappedByteBuffer currentSegment;
+  private int currentPosition;
+
+  ValueStore(File dir, long memoryBudget) {
+    this.dir = dir;
+    this.memoryBudget = memoryBudget;
+  }
+
+  Object store(byte[] value) {
+    if (heapSize.addAndGet(value.length) <= memoryBudget) {
+      return value;
+    }
+    heapSize.addAndGet(-value.length);
+    Pointer pointer = allocate(value.length);
+    ByteBuffer buffer = segments.get(pointer.segment).duplicate();
+    buffer.position(pointer.offset);
+    buffer.put(value);
+    return pointer;
+  }
+
+  byte[] load(Object ref) {
+    if (ref instanceof byte[]) {
+      return (byte[]) ref;
+    }
+    Pointer pointer = (Pointer) ref;
+    ByteBuffer buffer = segments.get(pointer.segment).duplicate();
+    buffer.position(pointer.offset);
+    byte[] value = new byte[pointer.length];
+    buffer.get(value);
+    return value;
+  }
+
+  /**
+   * Must be called when the reference is not used anymore by the storage
+   */
+  void release(Object ref) {
+    if (ref instanceof byte[]) {
+      heapSize.addAndGet(-((byte[]) ref).length);
+    }
+  }
+
+  long heapSize() {
+    return heapSize.get();
+  }
+
+  int segmentCount() {
+    return segments.size();
+  }
+
+  /**
+   * Only the space is allocated under lock. Bytes are copied concurrently, as allocated regions never overlap.
+   */
+  private synchronized Pointer allocate(int length) {
+    if (currentSegment == null || currentPosition + length > currentSegment.capacity()) {
+      currentSegment = createSegment(Math.max(SEGMENT_SIZE, length));
+      segments.add(currentSegment);
+      currentPosition = 0;
+    }
+    Pointer pointer = new Pointer(segments.size() - 1, currentPosition, length);
+    currentPosition += length;
+    return pointer;
+  }
+
+  private MappedByteBuffer createSegment(int size) {
+    File file = new File(dir, "segment-" + segments.size());
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw"); FileChannel channel = randomAccessFile.getChannel()) {
+      // mapping remains valid after the channel is closed
+      return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to create storage segment " + file, e);
+    }
+  }
+
+  synchronized void close() {
+    segments.clear();
+    currentSegment = null;
+    heapSize.set(0L);
+    deleteQuietly(dir);
+  }
+
+  static final class Pointer {
+    private final int segment;
+    private final int offset;
+    private final int length;
+
+    private Pointer(int segment, int offset, int length) {
+      this.segment = segment;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Serialization of the values of storages. Strings, boxed primitives and byte arrays have a compact
+ * encoding, other {@link Serializable} objects fall back to Java serialization.
+ *
+ * @since 7.0
+ */
+public final class Values {
+
+  private static final byte NULL = 0;
+  private static final byte STRING = 1;
+  private static final byte INTEGER = 2;
+  private static final byte LONG = 3;
+  private static final byte DOUBLE = 4;
+  private static final byte BOOLEAN = 5;
+  private static final byte BYTES = 6;
+  private static final byte SERIALIZABLE = 7;
+
+  private Values() {
+    // only static methods
+  }
+
+  public static void writeObject(DataOutput output, @Nullable Object object) throws IOException {
+    if (object == null) {
+      output.writeByte(NULL);
+    } else if (object instanceof String) {
+      output.writeByte(STRING);
+      writeBytes(output, ((String) object).getBytes(UTF_8));
+    } else if (object instanceof Integer) {
+      output.writeByte(INTEGER);
+      output.writeInt((Integer) object);
+    } else if (object instanceof Long) {
+      output.writeByte(LONG);
+      output.writeLong((Long) object);
+    } else if (object instanceof Double) {
+      output.writeByte(DOUBLE);
+      output.writeDouble((Double) object);
+    } else if (object instanceof Boolean) {
+      output.writeByte(BOOLEAN);
+      output.writeBoolean((Boolean) object);
+    } else if (object instanceof byte[]) {
+      output.writeByte(BYTES);
+      writeBytes(output, (byte[]) object);
+    } else if (object instanceof Serializable) {
+      output.writeByte(SERIALIZABLE);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream objectOutput = new ObjectOutputStream(bytes)) {
+        objectOutput.writeObject(object);
+      }
+      writeBytes(output, bytes.toByteArray());
+    } else {
+      throw new IllegalArgumentException("Value of class " + object.getClass().getName() + " is not serializable and has no registered coder");
+    }
+  }
+
+  @CheckForNull
+  public static Object readObject(DataInput input) throws IOException {
+    byte type = input.readByte();
+    switch (type) {
+      case NULL:
+        return null;
+      case STRING:
+        return new String(readBytes(input), UTF_8);
+      case INTEGER:
+        return input.readInt();
+      case LONG:
+        return input.readLong();
+      case DOUBLE:
+        return input.readDouble();
+      case BOOLEAN:
+        return input.readBoolean();
+      case BYTES:
+        return readBytes(input);
+      case SERIALIZABLE:
+        try (ObjectInputStream objectInput = new ObjectInputStream(new ByteArrayInputStream(readBytes(input)))) {
+          return objectInput.readObject();
+        } catch (ClassNotFoundException e) {
+          throw new IllegalStateException("Fail to deserialize value", e);
+        }
+      default:
+        throw new IllegalStateException("Unknown type of value: " + type);
+    }
+  }
+
+  private static void writeBytes(DataOutput output, byte[] bytes) throws IOException {
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  private static byte[] readBytes(DataInput input) throws IOException {
+    byte[] bytes = new byte[input.readInt()];
+    input.readFully(bytes);
+    return bytes;
+  }
+}
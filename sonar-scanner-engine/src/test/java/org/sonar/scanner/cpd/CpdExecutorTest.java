@@ -19,6 +19,7 @@
  */
 package org.sonar.scanner.cpd;
 
+import com.google.common.collect.Lists;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -42,8 +43,10 @@ import org.sonar.duplications.block.ByteArray;
 import org.sonar.duplications.index.CloneGroup;
 import org.sonar.duplications.index.ClonePart;
 import org.sonar.scanner.cpd.index.SonarCpdBlockIndex;
+import org.sonar.scanner.incremental.IncrementalCache;
 import org.sonar.scanner.protocol.output.ScannerReport.Duplicate;
 import org.sonar.scanner.protocol.output.ScannerReport.Duplication;
+import org.sonar.scanner.protocol.output.ScannerReport.TextRange;
 import org.sonar.scanner.protocol.output.ScannerReportReader;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.report.ReportPublisher;
@@ -76,6 +79,7 @@ public class CpdExecutorTest {
   private DefaultInputFile batchComponent3;
   private File baseDir;
   private InputComponentStore componentStore;
+  private IncrementalCache incrementalCache;
 
   @Before
   public void setUp() throws IOException {
@@ -83,14 +87,16 @@ public class CpdExecutorTest {
     baseDir = temp.newFolder();
 
     branchConfig = mock(BranchConfiguration.class);
+    incrementalCache = mock(IncrementalCache.class);
     settings = mock(CpdSettings.class);
+    when(settings.getThreads()).thenReturn(1);
     publisher = mock(ReportPublisher.class);
     when(publisher.getWriter()).thenReturn(new ScannerReportWriter(outputDir));
 
     index = new SonarCpdBlockIndex(publisher, settings);
     DefaultInputModule inputModule = TestInputFileBuilder.newDefaultInputModule("foo", baseDir);
     componentStore = new InputComponentStore(inputModule, mock(BranchConfiguration.class));
-    executor = new CpdExecutor(settings, index, publisher, componentStore, branchConfig);
+    executor = new CpdExecutor(settings, index, publisher, componentStore, branchConfig, incrementalCache);
     reader = new ScannerReportReader(outputDir);
 
     batchComponent1 = createComponent("src/Foo.php", 5);
@@ -102,13 +108,65 @@ public class CpdExecutorTest {
   public void skipIfShortBranch() {
     when(branchConfig.isShortLivingBranch()).thenReturn(true);
     index = mock(SonarCpdBlockIndex.class);
-    executor = new CpdExecutor(settings, index, publisher, componentStore, branchConfig);
+    executor = new CpdExecutor(settings, index, publisher, componentStore, branchConfig, incrementalCache);
 
     executor.execute();
 
     verifyZeroInteractions(index);
   }
 
+  @Test
+  public void reuse_duplications_of_unchanged_files() {
+    Duplication duplication = Duplication.newBuilder()
+      .setOriginPosition(TextRange.newBuilder().setStartLine(1).setEndLine(3))
+      .addDuplicate(Duplicate.newBuilder().setOtherFileRef(batchComponent2.batchId()).setRange(TextRange.newBuilder().setStartLine(2).setEndLine(4)))
+      .build();
+    Block block = Block.builder().setResourceId(batchComponent1.key()).setBlockHash(new ByteArray("AAAABBBBCCCC")).setIndexInFile(0).setLines(1, 3).setUnit(0, 5).build();
+    when(incrementalCache.isEnabled()).thenReturn(true);
+    when(incrementalCache.isReusable(batchComponent1)).thenReturn(true);
+    when(incrementalCache.cpdBlocks(batchComponent1)).thenReturn(Collections.singletonList(block));
+    when(incrementalCache.duplications(batchComponent1)).thenReturn(Collections.singletonList(duplication));
+
+    executor.execute(60_000);
+
+    assertThat(index.isIndexed(batchComponent1)).isTrue();
+    assertThat(readDuplications(1)[0]).isEqualTo(duplication);
+  }
+
+  @Test
+  public void detect_again_duplications_of_unchanged_file_copied_by_new_file() {
+    when(incrementalCache.isEnabled()).thenReturn(true);
+    when(incrementalCache.isReusable(batchComponent1)).thenReturn(true);
+    when(incrementalCache.cpdBlocks(batchComponent1)).thenReturn(blocks(batchComponent1, "AAAA", "BBBB", "CCCC"));
+    // was not duplicated in previous analysis
+    when(incrementalCache.duplications(batchComponent1)).thenReturn(Collections.emptyList());
+    // new file, which copies the unchanged one
+    index.insert(batchComponent2, blocks(batchComponent2, "AAAA", "BBBB", "CCCC"));
+
+    executor.execute(60_000);
+
+    Duplication[] dups = readDuplications(1);
+    assertDuplication(dups[0], 1, 3, 1);
+    assertDuplicate(dups[0].getDuplicate(0), batchComponent2.batchId(), 1, 3);
+    try (CloseableIterator<Duplication> it = reader.readComponentDuplications(batchComponent2.batchId())) {
+      assertThat(Lists.newArrayList(it)).extracting(d -> d.getDuplicate(0).getOtherFileRef()).containsExactly(batchComponent1.batchId());
+    }
+  }
+
+  private static List<Block> blocks(DefaultInputFile file, String... hashes) {
+    List<Block> blocks = new ArrayList<>();
+    for (int i = 0; i < hashes.length; i++) {
+      blocks.add(Block.builder()
+        .setResourceId(file.key())
+        .setIndexInFile(i)
+        .setLines(i + 1, i + 1)
+        .setUnit(i, i + 1)
+        .setBlockHash(new ByteArray(hashes[i].getBytes()))
+        .build());
+    }
+    return blocks;
+  }
+
   private DefaultInputFile createComponent(String relativePath, int lines) {
     DefaultInputFile file = new TestInputFileBuilder("foo", relativePath)
       .setModuleBaseDir(baseDir.toPath())
@@ -235,6 +293,51 @@ public class CpdExecutorTest {
         "Timeout during detection of duplications for .*Foo2.php");
   }
 
+  @Test
+  public void detect_duplications_in_parallel_with_same_result_as_sequentially() throws IOException {
+    List<DefaultInputFile> files = new ArrayList<>();
+    for (int i = 1; i <= 20; i++) {
+      DefaultInputFile component = createComponent("src/Dup" + i + ".php", 100);
+      List<Block> blocks = new ArrayList<>();
+      for (int j = 1; j <= 50; j++) {
+        blocks.add(Block.builder()
+          .setResourceId(component.key())
+          .setIndexInFile(j)
+          .setLines(j, j + 1)
+          .setUnit(j, j + 1)
+          // files share sequences of blocks with some of the other files
+          .setBlockHash(new ByteArray(String.format("%04d%04d", i % 3, j / 10).getBytes()))
+          .build());
+      }
+      index.insert((InputFile) component, blocks);
+      files.add(component);
+    }
+
+    List<List<Duplication>> sequentialDuplications = detectDuplications(1, files);
+    List<List<Duplication>> parallelDuplications = detectDuplications(4, files);
+
+    for (List<Duplication> duplications : sequentialDuplications) {
+      assertThat(duplications).isNotEmpty();
+    }
+    assertThat(parallelDuplications).isEqualTo(sequentialDuplications);
+  }
+
+  private List<List<Duplication>> detectDuplications(int threads, List<DefaultInputFile> files) throws IOException {
+    File outputDir = temp.newFolder();
+    when(publisher.getWriter()).thenReturn(new ScannerReportWriter(outputDir));
+    when(settings.getThreads()).thenReturn(threads);
+    new CpdExecutor(settings, index, publisher, componentStore, branchConfig, incrementalCache).execute(60_000);
+
+    ScannerReportReader outputReader = new ScannerReportReader(outputDir);
+    List<List<Duplication>> res = new ArrayList<>();
+    for (DefaultInputFile file : files) {
+      try (CloseableIterator<Duplication> it = outputReader.readComponentDuplications(file.batchId())) {
+        res.add(Lists.newArrayList(it));
+      }
+    }
+    return res;
+  }
+
   private Duplication[] readDuplications(int expected) {
     assertThat(reader.readComponentDuplications(batchComponent1.batchId())).hasSize(expected);
     Duplication[] duplications = new Duplication[expected];
@@ -21,7 +21,9 @@ package org.sonar.scanner.cpd;
 
 import java.util.Optional;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
 import org.sonar.api.config.Configuration;
@@ -32,6 +34,9 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 public class CpdSettingsTest {
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
   private CpdSettings cpdSettings;
   private Configuration configuration;
   private DefaultInputModule module;
@@ -59,4 +64,35 @@ public class CpdSettingsTest {
     assertThat(cpdSettings.getMinimumTokens("java")).isEqualTo(42);
     assertThat(cpdSettings.getMinimumTokens("php")).isEqualTo(33);
   }
+
+  @Test
+  public void threads() {
+    when(configuration.getInt("sonar.cpd.threads")).thenReturn(Optional.of(3));
+    assertThat(cpdSettings.getThreads()).isEqualTo(3);
+  }
+
+  @Test
+  public void default_threads() {
+    when(configuration.getInt("sonar.cpd.threads")).thenReturn(Optional.empty());
+    assertThat(cpdSettings.getThreads()).isGreaterThanOrEqualTo(1);
+  }
+
+  @Test
+  public void fail_if_threads_is_not_positive() {
+    when(configuration.getInt("sonar.cpd.threads")).thenReturn(Optional.of(0));
+
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Property 'sonar.cpd.threads' must be a positive number: 0");
+
+    cpdSettings.getThreads();
+  }
+
+  @Test
+  public void off_heap_index_is_disabled_by_default() {
+    when(configuration.getBoolean("sonar.cpd.offHeapIndex")).thenReturn(Optional.empty());
+    assertThat(cpdSettings.isOffHeapIndexEnabled()).isFalse();
+
+    when(configuration.getBoolean("sonar.cpd.offHeapIndex")).thenReturn(Optional.of(true));
+    assertThat(cpdSettings.isOffHeapIndexEnabled()).isTrue();
+  }
 }
@@ -0,0 +1,81 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.incremental;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import org.junit.Test;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.scanner.protocol.output.FileStructure.Domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CachedFileTest {
+
+  @Test
+  public void write_and_read() throws IOException {
+    Map<Domain, byte[]> reportData = new EnumMap<>(Domain.class);
+    reportData.put(Domain.ISSUES, new byte[] {1, 2, 3});
+    reportData.put(Domain.MEASURES, new byte[0]);
+    Block block1 = Block.builder().setResourceId("foo:src/Foo.java").setBlockHash(new ByteArray("0011223344556677")).setIndexInFile(0).setLines(1, 5).setUnit(0, 10).build();
+    Block block2 = Block.builder().setResourceId("foo:src/Foo.java").setBlockHash(new ByteArray("8899aabbccddeeff")).setIndexInFile(1).setLines(2, 7).setUnit(3, 14).build();
+    CachedFile file = new CachedFile("abcdef", reportData, Arrays.asList(block1, block2), Arrays.asList("foo:src/Bar.java", "foo:src/Baz.java"));
+
+    byte[] bytes = write(file);
+
+    assertThat(CachedFile.readHash(new DataInputStream(new ByteArrayInputStream(bytes)))).isEqualTo("abcdef");
+    CachedFile read = CachedFile.readFrom(new DataInputStream(new ByteArrayInputStream(bytes)), "foo:src/Foo.java");
+    assertThat(read.hash()).isEqualTo("abcdef");
+    assertThat(read.reportData(Domain.ISSUES)).containsExactly(1, 2, 3);
+    assertThat(read.reportData(Domain.MEASURES)).isEmpty();
+    assertThat(read.reportData(Domain.SYMBOLS)).isNull();
+    assertThat(read.cpdBlocks()).containsExactly(block1, block2);
+    assertThat(read.cpdBlocks().get(1).getStartUnit()).isEqualTo(3);
+    assertThat(read.cpdBlocks().get(1).getEndUnit()).isEqualTo(14);
+    assertThat(read.referencedFiles()).containsExactly("foo:src/Bar.java", "foo:src/Baz.java");
+  }
+
+  @Test
+  public void write_and_read_empty_file() throws IOException {
+    CachedFile file = new CachedFile("abcdef", Collections.emptyMap(), Collections.emptyList(), Collections.emptyList());
+
+    CachedFile read = CachedFile.readFrom(new DataInputStream(new ByteArrayInputStream(write(file))), "foo:src/Foo.java");
+
+    assertThat(read.hash()).isEqualTo("abcdef");
+    assertThat(read.cpdBlocks()).isEmpty();
+    assertThat(read.referencedFiles()).isEmpty();
+  }
+
+  private static byte[] write(CachedFile file) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(out)) {
+      file.writeTo(output);
+    }
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,231 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.incremental;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.rule.ActiveRules;
+import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.home.cache.FileCache;
+import org.sonar.scanner.bootstrap.GlobalAnalysisMode;
+import org.sonar.scanner.bootstrap.ScannerPluginRepository;
+import org.sonar.scanner.protocol.output.FileStructure.Domain;
+import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.scanner.scan.branch.BranchConfiguration;
+import org.sonar.scanner.scan.filesystem.InputComponentStore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class IncrementalCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private MapSettings settings = new MapSettings();
+  private GlobalAnalysisMode analysisMode = mock(GlobalAnalysisMode.class);
+  private BranchConfiguration branchConfiguration = mock(BranchConfiguration.class);
+  private InputModuleHierarchy moduleHierarchy = mock(InputModuleHierarchy.class);
+  private FileCache fileCache = mock(FileCache.class);
+  private ScannerPluginRepository pluginRepository = mock(ScannerPluginRepository.class);
+  private File baseDir;
+  private InputComponentStore componentStore;
+
+  @Before
+  public void setUp() throws IOException {
+    baseDir = temp.newFolder();
+    DefaultInputModule root = TestInputFileBuilder.newDefaultInputModule("foo", baseDir);
+    when(moduleHierarchy.root()).thenReturn(root);
+    when(fileCache.getDir()).thenReturn(temp.newFolder());
+    when(analysisMode.isPublish()).thenReturn(true);
+    componentStore = new InputComponentStore(root, branchConfiguration);
+    settings.setProperty(IncrementalCache.ENABLED_PROPERTY, true);
+  }
+
+  @Test
+  public void disabled_by_default() {
+    settings.removeProperty(IncrementalCache.ENABLED_PROPERTY);
+    IncrementalCache cache = newCache(rules("S1"));
+    cache.start();
+
+    assertThat(cache.isEnabled()).isFalse();
+    assertThat(cache.isReusable(file("src/Foo.java", InputFile.Status.SAME, "h1"))).isFalse();
+  }
+
+  @Test
+  public void disabled_on_short_living_branches_and_in_issues_mode() {
+    when(branchConfiguration.isShortLivingBranch()).thenReturn(true);
+    assertThat(newCache(rules("S1")).isEnabled()).isFalse();
+
+    when(branchConfiguration.isShortLivingBranch()).thenReturn(false);
+    when(analysisMode.isPublish()).thenReturn(false);
+    assertThat(newCache(rules("S1")).isEnabled()).isFalse();
+  }
+
+  @Test
+  public void reuse_files_which_did_not_change() {
+    IncrementalCache cache = newCache(rules("S1"));
+    cache.start();
+    for (String path : Arrays.asList("src/Same.java", "src/Changed.java", "src/Modified.java")) {
+      cache.save(file(path, InputFile.Status.ADDED, "h1"), cachedFile("h1"));
+    }
+
+    IncrementalCache next = newCache(rules("S1"));
+    next.start();
+    DefaultInputFile same = file("src/Same.java", InputFile.Status.SAME, "h1");
+    assertThat(next.isReusable(same)).isTrue();
+    assertThat(next.load(same).hash()).isEqualTo("h1");
+    assertThat(next.isReusable(file("src/Changed.java", InputFile.Status.CHANGED, "h2"))).isFalse();
+    // hash of the server does not match the hash of the cache: previous analysis was not processed
+    assertThat(next.isReusable(file("src/Modified.java", InputFile.Status.SAME, "h2"))).isFalse();
+    assertThat(next.isReusable(file("src/New.java", InputFile.Status.SAME, "h1"))).isFalse();
+  }
+
+  @Test
+  public void drop_cache_when_rules_change() {
+    IncrementalCache cache = newCache(rules("S1"));
+    cache.start();
+    cache.save(file("src/Foo.java", InputFile.Status.ADDED, "h1"), cachedFile("h1"));
+
+    IncrementalCache next = newCache(rules("S1", "S2"));
+    next.start();
+
+    assertThat(next.isReusable(file("src/Foo.java", InputFile.Status.SAME, "h1"))).isFalse();
+  }
+
+  @Test
+  public void fingerprint_depends_on_rules_and_plugins() {
+    IncrementalCache cache = newCache(rules("S1"));
+
+    assertThat(cache.fingerprint()).isEqualTo(newCache(rules("S1")).fingerprint());
+    assertThat(cache.fingerprint()).isNotEqualTo(newCache(rules("S2")).fingerprint());
+  }
+
+  @Test
+  public void retain_only_files_of_analysis() {
+    IncrementalCache cache = newCache(rules("S1"));
+    cache.start();
+    cache.save(file("src/Foo.java", InputFile.Status.ADDED, "h1"), cachedFile("h1"));
+    cache.save(file("src/Bar.java", InputFile.Status.ADDED, "h1"), cachedFile("h1"));
+
+    cache.retainOnly(Collections.singletonList("foo:src/Foo.java"));
+
+    IncrementalCache next = newCache(rules("S1"));
+    next.start();
+    assertThat(next.isReusable(file("src/Foo.java", InputFile.Status.SAME, "h1"))).isTrue();
+    assertThat(next.isReusable(file("src/Bar.java", InputFile.Status.SAME, "h1"))).isFalse();
+  }
+
+  @Test
+  public void map_duplications_to_refs_of_analysis() throws IOException {
+    IncrementalCache cache = newCache(rules("S1"));
+    cache.start();
+    DefaultInputFile foo = file("src/Foo.java", InputFile.Status.ADDED, "h1");
+    DefaultInputFile bar = file("src/Bar.java", InputFile.Status.ADDED, "h1");
+    ScannerReport.Duplication duplication = ScannerReport.Duplication.newBuilder()
+      .setOriginPosition(ScannerReport.TextRange.newBuilder().setStartLine(1).setEndLine(3))
+      .addDuplicate(ScannerReport.Duplicate.newBuilder().setOtherFileRef(1).setRange(ScannerReport.TextRange.newBuilder().setStartLine(4).setEndLine(6)))
+      .addDuplicate(ScannerReport.Duplicate.newBuilder().setRange(ScannerReport.TextRange.newBuilder().setStartLine(7).setEndLine(9)))
+      .build();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    duplication.writeDelimitedTo(out);
+    Map<Domain, byte[]> reportData = new EnumMap<>(Domain.class);
+    reportData.put(Domain.DUPLICATIONS, out.toByteArray());
+    cache.save(foo, new CachedFile("h1", reportData, Collections.emptyList(), Collections.singletonList("foo:src/Bar.java")));
+    cache.save(bar, cachedFile("h1"));
+
+    IncrementalCache next = newCache(rules("S1"));
+    next.start();
+    DefaultInputFile sameFoo = file("src/Foo.java", InputFile.Status.SAME, "h1");
+    DefaultInputFile sameBar = file("src/Bar.java", InputFile.Status.SAME, "h1");
+
+    List<ScannerReport.Duplication> duplications = next.duplications(sameFoo);
+    assertThat(duplications).hasSize(1);
+    assertThat(duplications.get(0).getDuplicate(0).getOtherFileRef()).isEqualTo(sameBar.batchId());
+    assertThat(duplications.get(0).getDuplicate(1).getOtherFileRef()).isZero();
+    assertThat(duplications.get(0).getDuplicate(1).getRange().getStartLine()).isEqualTo(7);
+    assertThat(next.duplications(sameBar)).isEmpty();
+  }
+
+  @Test
+  public void detect_duplications_again_if_duplicated_file_changed() throws IOException {
+    IncrementalCache cache = newCache(rules("S1"));
+    cache.start();
+    ScannerReport.Duplication duplication = ScannerReport.Duplication.newBuilder()
+      .addDuplicate(ScannerReport.Duplicate.newBuilder().setOtherFileRef(1))
+      .build();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    duplication.writeDelimitedTo(out);
+    Map<Domain, byte[]> reportData = new EnumMap<>(Domain.class);
+    reportData.put(Domain.DUPLICATIONS, out.toByteArray());
+    cache.save(file("src/Foo.java", InputFile.Status.ADDED, "h1"), new CachedFile("h1", reportData, Collections.emptyList(), Collections.singletonList("foo:src/Bar.java")));
+
+    IncrementalCache next = newCache(rules("S1"));
+    next.start();
+    DefaultInputFile foo = file("src/Foo.java", InputFile.Status.SAME, "h1");
+    file("src/Bar.java", InputFile.Status.CHANGED, "h2");
+
+    assertThat(next.duplications(foo)).isNull();
+  }
+
+  private IncrementalCache newCache(ActiveRules activeRules) {
+    return new IncrementalCache(settings.asConfig(), analysisMode, branchConfiguration, moduleHierarchy, fileCache, activeRules, pluginRepository, componentStore);
+  }
+
+  private static ActiveRules rules(String... ruleKeys) {
+    ActiveRulesBuilder builder = new ActiveRulesBuilder();
+    for (String ruleKey : ruleKeys) {
+      builder.create(RuleKey.of("java", ruleKey)).setSeverity("MAJOR").activate();
+    }
+    return builder.build();
+  }
+
+  private DefaultInputFile file(String relativePath, InputFile.Status status, String hash) {
+    DefaultInputFile file = new TestInputFileBuilder("foo", relativePath)
+      .setModuleBaseDir(baseDir.toPath())
+      .setStatus(status)
+      .setHash(hash)
+      .build();
+    componentStore.put(file);
+    return file;
+  }
+
+  private static CachedFile cachedFile(String hash) {
+    return new CachedFile(hash, Collections.emptyMap(), Collections.emptyList(), Collections.emptyList());
+  }
+}
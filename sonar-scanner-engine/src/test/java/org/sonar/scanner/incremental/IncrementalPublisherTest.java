@@ -0,0 +1,280 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.incremental;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.home.cache.FileCache;
+import org.sonar.scanner.bootstrap.GlobalAnalysisMode;
+import org.sonar.scanner.bootstrap.ScannerPluginRepository;
+import org.sonar.scanner.cpd.index.SonarCpdBlockIndex;
+import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.scanner.protocol.output.ScannerReportReader;
+import org.sonar.scanner.protocol.output.ScannerReportWriter;
+import org.sonar.scanner.scan.branch.BranchConfiguration;
+import org.sonar.scanner.scan.filesystem.InputComponentStore;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class IncrementalPublisherTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private MapSettings settings = new MapSettings();
+  private GlobalAnalysisMode analysisMode = mock(GlobalAnalysisMode.class);
+  private BranchConfiguration branchConfiguration = mock(BranchConfiguration.class);
+  private InputModuleHierarchy moduleHierarchy = mock(InputModuleHierarchy.class);
+  private FileCache fileCache = mock(FileCache.class);
+  private SonarCpdBlockIndex index = mock(SonarCpdBlockIndex.class);
+  private File baseDir;
+  private DefaultInputModule root;
+
+  // state of the current analysis
+  private InputComponentStore componentStore;
+  private IncrementalCache cache;
+  private File outputDir;
+  private ScannerReportWriter writer;
+
+  @Before
+  public void setUp() throws IOException {
+    baseDir = temp.newFolder();
+    root = TestInputFileBuilder.newDefaultInputModule("foo", baseDir);
+    when(moduleHierarchy.root()).thenReturn(root);
+    when(fileCache.getDir()).thenReturn(temp.newFolder());
+    when(analysisMode.isPublish()).thenReturn(true);
+    settings.setProperty(IncrementalCache.ENABLED_PROPERTY, true);
+  }
+
+  @Test
+  public void restore_data_of_files_which_did_not_change() {
+    newAnalysis();
+    DefaultInputFile foo = file("src/Foo.java", InputFile.Status.ADDED, "h1");
+    DefaultInputFile bar = file("src/Bar.java", InputFile.Status.ADDED, "h1");
+    writer.writeComponentIssues(foo.batchId(), singletonList(issue(foo.batchId(), bar.batchId())));
+    writer.writeComponentMeasures(foo.batchId(), singletonList(measure("ncloc", 10)));
+    writer.writeComponentSyntaxHighlighting(foo.batchId(), singletonList(ScannerReport.SyntaxHighlightingRule.newBuilder()
+      .setRange(range(1, 2))
+      .setType(ScannerReport.SyntaxHighlightingRule.HighlightingType.KEYWORD)
+      .build()));
+    Block block = Block.builder().setResourceId(foo.key()).setBlockHash(new ByteArray("abcd")).setIndexInFile(0).setLines(1, 3).setUnit(0, 5).build();
+    when(index.getByInputFile(foo.key())).thenReturn(singletonList(block));
+    publish();
+
+    // refs of components change between analyses
+    newAnalysis();
+    DefaultInputFile newBar = file("src/Bar.java", InputFile.Status.SAME, "h1");
+    DefaultInputFile newFoo = file("src/Foo.java", InputFile.Status.SAME, "h1");
+    publish();
+
+    ScannerReportReader reader = new ScannerReportReader(outputDir);
+    List<ScannerReport.Issue> issues = read(reader.readComponentIssues(newFoo.batchId()));
+    assertThat(issues).hasSize(1);
+    assertThat(issues.get(0).getRuleKey()).isEqualTo("S1");
+    assertThat(issues.get(0).getFlow(0).getLocationList()).extracting(ScannerReport.IssueLocation::getComponentRef)
+      .containsExactly(newFoo.batchId(), newBar.batchId());
+    assertThat(read(reader.readComponentMeasures(newFoo.batchId()))).containsExactly(measure("ncloc", 10));
+    assertThat(reader.hasSyntaxHighlighting(newFoo.batchId())).isTrue();
+    assertThat(read(reader.readComponentSymbols(newFoo.batchId()))).isEmpty();
+    assertThat(reader.hasCoverage(newFoo.batchId())).isFalse();
+    assertThat(cache.cpdBlocks(newFoo)).extracting(Block::getBlockHash).containsExactly(new ByteArray("abcd"));
+    assertThat(read(reader.readComponentIssues(newBar.batchId()))).isEmpty();
+  }
+
+  @Test
+  public void do_not_reuse_coverage_nor_measures_of_tests_when_only_coverage_report_changed() {
+    newAnalysis();
+    DefaultInputFile foo = file("src/Foo.java", InputFile.Status.ADDED, "h1");
+    writer.writeComponentMeasures(foo.batchId(), asList(measure("ncloc", 10), measure("tests", 3), measure("lines_to_cover", 2)));
+    writer.writeComponentCoverage(foo.batchId(), asList(coverage(1, true), coverage(2, true)));
+    publish();
+
+    // the source did not change, but the coverage report did
+    newAnalysis();
+    DefaultInputFile newFoo = file("src/Foo.java", InputFile.Status.SAME, "h1");
+    writer.writeComponentMeasures(newFoo.batchId(), asList(measure("tests", 4), measure("lines_to_cover", 2)));
+    writer.writeComponentCoverage(newFoo.batchId(), asList(coverage(1, true), coverage(2, false)));
+    publish();
+
+    ScannerReportReader reader = new ScannerReportReader(outputDir);
+    assertThat(read(reader.readComponentMeasures(newFoo.batchId())))
+      .containsOnly(measure("ncloc", 10), measure("tests", 4), measure("lines_to_cover", 2));
+    assertThat(read(reader.readComponentCoverage(newFoo.batchId()))).containsExactly(coverage(1, true), coverage(2, false));
+
+    // the coverage report is not imported anymore
+    newAnalysis();
+    DefaultInputFile sameFoo = file("src/Foo.java", InputFile.Status.SAME, "h1");
+    publish();
+
+    reader = new ScannerReportReader(outputDir);
+    assertThat(read(reader.readComponentMeasures(sameFoo.batchId()))).containsExactly(measure("ncloc", 10));
+    assertThat(reader.hasCoverage(sameFoo.batchId())).isFalse();
+  }
+
+  @Test
+  public void drop_locations_in_files_which_are_not_part_of_analysis_anymore() {
+    newAnalysis();
+    DefaultInputFile foo = file("src/Foo.java", InputFile.Status.ADDED, "h1");
+    DefaultInputFile bar = file("src/Bar.java", InputFile.Status.ADDED, "h1");
+    writer.writeComponentIssues(foo.batchId(), singletonList(issue(bar.batchId(), foo.batchId())));
+    publish();
+
+    newAnalysis();
+    DefaultInputFile newFoo = file("src/Foo.java", InputFile.Status.SAME, "h1");
+    publish();
+
+    List<ScannerReport.Issue> issues = read(new ScannerReportReader(outputDir).readComponentIssues(newFoo.batchId()));
+    assertThat(issues.get(0).getFlow(0).getLocationList()).extracting(ScannerReport.IssueLocation::getComponentRef)
+      .containsExactly(newFoo.batchId());
+  }
+
+  @Test
+  public void save_data_of_files_which_changed() {
+    newAnalysis();
+    DefaultInputFile foo = file("src/Foo.java", InputFile.Status.ADDED, "h1");
+    writer.writeComponentMeasures(foo.batchId(), singletonList(measure("ncloc", 10)));
+    publish();
+
+    newAnalysis();
+    DefaultInputFile changedFoo = file("src/Foo.java", InputFile.Status.CHANGED, "h2");
+    writer.writeComponentMeasures(changedFoo.batchId(), singletonList(measure("ncloc", 20)));
+    publish();
+    assertThat(cache.isReusable(changedFoo)).isFalse();
+
+    newAnalysis();
+    DefaultInputFile sameFoo = file("src/Foo.java", InputFile.Status.SAME, "h2");
+    publish();
+
+    assertThat(read(new ScannerReportReader(outputDir).readComponentMeasures(sameFoo.batchId()))).containsExactly(measure("ncloc", 20));
+  }
+
+  @Test
+  public void delete_data_of_files_which_are_not_part_of_analysis_anymore() {
+    newAnalysis();
+    file("src/Foo.java", InputFile.Status.ADDED, "h1");
+    file("src/Bar.java", InputFile.Status.ADDED, "h1");
+    publish();
+
+    newAnalysis();
+    file("src/Foo.java", InputFile.Status.SAME, "h1");
+    publish();
+
+    newAnalysis();
+    assertThat(cache.isReusable(file("src/Foo.java", InputFile.Status.SAME, "h1"))).isTrue();
+    assertThat(cache.isReusable(file("src/Bar.java", InputFile.Status.SAME, "h1"))).isFalse();
+  }
+
+  @Test
+  public void do_nothing_when_disabled() {
+    settings.removeProperty(IncrementalCache.ENABLED_PROPERTY);
+    newAnalysis();
+    DefaultInputFile foo = file("src/Foo.java", InputFile.Status.ADDED, "h1");
+    writer.writeComponentMeasures(foo.batchId(), singletonList(measure("ncloc", 10)));
+    publish();
+
+    settings.setProperty(IncrementalCache.ENABLED_PROPERTY, true);
+    newAnalysis();
+    assertThat(cache.isReusable(file("src/Foo.java", InputFile.Status.SAME, "h1"))).isFalse();
+  }
+
+  private void newAnalysis() {
+    componentStore = new InputComponentStore(root, branchConfiguration);
+    cache = new IncrementalCache(settings.asConfig(), analysisMode, branchConfiguration, moduleHierarchy, fileCache,
+      new ActiveRulesBuilder().build(), mock(ScannerPluginRepository.class), componentStore);
+    cache.start();
+    try {
+      outputDir = temp.newFolder();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    writer = new ScannerReportWriter(outputDir);
+  }
+
+  private void publish() {
+    new IncrementalPublisher(cache, componentStore, index).publish(writer);
+  }
+
+  private DefaultInputFile file(String relativePath, InputFile.Status status, String hash) {
+    DefaultInputFile file = new TestInputFileBuilder("foo", relativePath)
+      .setModuleBaseDir(baseDir.toPath())
+      .setStatus(status)
+      .setHash(hash)
+      .setPublish(true)
+      .build();
+    componentStore.put(file);
+    return file;
+  }
+
+  private static ScannerReport.Issue issue(int... locationRefs) {
+    ScannerReport.Flow.Builder flow = ScannerReport.Flow.newBuilder();
+    for (int ref : locationRefs) {
+      flow.addLocation(ScannerReport.IssueLocation.newBuilder().setComponentRef(ref).setTextRange(range(1, 2)));
+    }
+    return ScannerReport.Issue.newBuilder()
+      .setRuleRepository("java")
+      .setRuleKey("S1")
+      .setMsg("message")
+      .addFlow(flow)
+      .build();
+  }
+
+  private static ScannerReport.Measure measure(String metricKey, int value) {
+    return ScannerReport.Measure.newBuilder()
+      .setMetricKey(metricKey)
+      .setIntValue(ScannerReport.Measure.IntValue.newBuilder().setValue(value))
+      .build();
+  }
+
+  private static ScannerReport.LineCoverage coverage(int line, boolean hits) {
+    return ScannerReport.LineCoverage.newBuilder().setLine(line).setHits(hits).build();
+  }
+
+  private static ScannerReport.TextRange range(int startLine, int endLine) {
+    return ScannerReport.TextRange.newBuilder().setStartLine(startLine).setEndLine(endLine).build();
+  }
+
+  private static <T> List<T> read(CloseableIterator<T> iterator) {
+    List<T> list = new ArrayList<>();
+    try (CloseableIterator<T> it = iterator) {
+      it.forEachRemaining(list::add);
+    }
+    return list;
+  }
+}
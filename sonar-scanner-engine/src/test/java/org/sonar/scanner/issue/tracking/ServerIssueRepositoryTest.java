@@ -0,0 +1,170 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.issue.tracking;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.function.Consumer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputDir;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.scanner.analysis.DefaultAnalysisMode;
+import org.sonar.scanner.bootstrap.GlobalAnalysisMode;
+import org.sonar.scanner.bootstrap.GlobalProperties;
+import org.sonar.scanner.bootstrap.ScannerWsClient;
+import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
+import org.sonar.scanner.repository.DefaultServerIssuesLoader;
+import org.sonar.scanner.repository.ServerIssuesLoader;
+import org.sonar.scanner.scan.DefaultComponentTree;
+import org.sonar.scanner.scan.branch.BranchConfiguration;
+import org.sonar.scanner.scan.filesystem.InputComponentStore;
+import org.sonar.scanner.storage.Storage;
+import org.sonar.scanner.storage.Storages;
+import org.sonarqube.ws.client.MockWsResponse;
+import org.sonarqube.ws.client.WsClient;
+import org.sonarqube.ws.client.WsRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+public class ServerIssueRepositoryTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private Storages storages = mock(Storages.class);
+  private Storage<ServerIssue> storage = mock(Storage.class);
+  private ServerIssuesLoader loader = mock(ServerIssuesLoader.class);
+  private DefaultAnalysisMode analysisMode = mock(DefaultAnalysisMode.class);
+  private MapSettings settings = new MapSettings();
+  private DefaultComponentTree componentTree = new DefaultComponentTree();
+  private InputComponentStore componentStore;
+  private DefaultInputModule root;
+  private DefaultInputDir dir;
+
+  @Before
+  public void setUp() throws IOException {
+    when(storages.<ServerIssue>createCache(anyString())).thenReturn(storage);
+    root = TestInputFileBuilder.newDefaultInputModule("foo", temp.newFolder());
+    componentStore = new InputComponentStore(root, mock(BranchConfiguration.class));
+    dir = new DefaultInputDir("foo", "src");
+    componentTree.index(dir, root);
+  }
+
+  @Test
+  public void load_issues_of_project_at_startup() {
+    ServerIssueRepository underTest = newRepository();
+
+    underTest.load();
+
+    verify(loader).load(eq("foo"), any(Consumer.class));
+  }
+
+  @Test
+  public void load_issues_of_directories_of_changed_files_when_lazy() {
+    settings.setProperty(ServerIssueRepository.LAZY_LOADING_PROPERTY, true);
+    DefaultInputFile changed1 = file("src/Changed1.xoo", InputFile.Status.CHANGED);
+    DefaultInputFile changed2 = file("src/Changed2.xoo", InputFile.Status.CHANGED);
+    DefaultInputFile same = file("src/Same.xoo", InputFile.Status.SAME);
+    ServerIssueRepository underTest = newRepository();
+
+    underTest.load();
+    verifyNoMoreInteractions(loader);
+
+    assertThat(underTest.byComponent(same)).isEmpty();
+    assertThat(underTest.byComponent(root)).isEmpty();
+    verifyNoMoreInteractions(loader);
+
+    underTest.byComponent(changed1);
+    underTest.byComponent(changed2);
+    verify(loader, times(1)).load(eq("foo:src"), any(Consumer.class));
+    verify(storage).values(changed1.batchId());
+    verify(storage).values(changed2.batchId());
+  }
+
+  @Test
+  public void do_not_load_issues_of_added_files_when_lazy() {
+    settings.setProperty(ServerIssueRepository.LAZY_LOADING_PROPERTY, true);
+    DefaultInputFile added = file("src/Added.xoo", InputFile.Status.ADDED);
+    ServerIssueRepository underTest = newRepository();
+
+    underTest.load();
+
+    assertThat(underTest.byComponent(added)).isEmpty();
+    verifyNoMoreInteractions(loader);
+  }
+
+  @Test
+  public void directory_unknown_on_server_has_no_issues_when_lazy() {
+    settings.setProperty(ServerIssueRepository.LAZY_LOADING_PROPERTY, true);
+    DefaultInputFile changed = file("src/Changed.xoo", InputFile.Status.CHANGED);
+    when(storage.values(changed.batchId())).thenReturn(Collections.emptyList());
+    WsClient wsClient = mock(WsClient.class, Mockito.RETURNS_DEEP_STUBS);
+    MockWsResponse notFound = new MockWsResponse()
+      .setCode(404)
+      .setRequestUrl("https://local/batch/issues.protobuf?key=foo:src")
+      .setContent("{\"errors\":[{\"msg\":\"Component key 'foo:src' not found\"}]}");
+    when(wsClient.wsConnector().call(any(WsRequest.class))).thenReturn(notFound);
+    loader = new DefaultServerIssuesLoader(new ScannerWsClient(wsClient, false, new GlobalAnalysisMode(new GlobalProperties(Collections.emptyMap()))));
+    ServerIssueRepository underTest = newRepository();
+
+    underTest.load();
+
+    assertThat(underTest.byComponent(changed)).isEmpty();
+    verify(wsClient.wsConnector()).call(any(WsRequest.class));
+  }
+
+  @Test
+  public void lazy_loading_is_ignored_when_all_files_are_analyzed() {
+    settings.setProperty(ServerIssueRepository.LAZY_LOADING_PROPERTY, true);
+    when(analysisMode.scanAllFiles()).thenReturn(true);
+    ServerIssueRepository underTest = newRepository();
+
+    underTest.load();
+
+    verify(loader).load(eq("foo"), any(Consumer.class));
+  }
+
+  private ServerIssueRepository newRepository() {
+    return new ServerIssueRepository(storages, loader, componentStore, componentTree, analysisMode, settings.asConfig());
+  }
+
+  private DefaultInputFile file(String relativePath, InputFile.Status status) {
+    DefaultInputFile file = new TestInputFileBuilder("foo", relativePath).setStatus(status).build();
+    componentStore.put(file);
+    componentTree.index(file, dir);
+    return file;
+  }
+}
@@ -20,10 +20,16 @@
 package org.sonar.scanner.phases;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
@@ -32,9 +38,13 @@ import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
 import org.sonar.api.batch.fs.internal.SensorStrategy;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.resources.Project;
 import org.sonar.scanner.bootstrap.ScannerExtensionDictionnary;
 import org.sonar.scanner.events.EventBus;
+import org.sonar.scanner.sensor.SensorOptimizer;
+import org.sonar.scanner.sensor.SensorWrapper;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
@@ -45,10 +55,15 @@ import static org.mockito.Mockito.when;
 public class SensorsExecutorTest {
   @Rule
   public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
 
   private SensorsExecutor rootModuleExecutor;
   private SensorsExecutor subModuleExecutor;
   private SensorContext context;
+  private ScannerExtensionDictionnary selector;
+  private DefaultInputModule rootModule;
+  private InputModuleHierarchy hierarchy;
 
   private SensorStrategy strategy = new SensorStrategy();
 
@@ -81,21 +96,21 @@ public class SensorsExecutorTest {
   public void setUp() throws IOException {
     context = mock(SensorContext.class);
 
-    ScannerExtensionDictionnary selector = mock(ScannerExtensionDictionnary.class);
+    selector = mock(ScannerExtensionDictionnary.class);
     when(selector.selectSensors(any(DefaultInputModule.class), eq(false))).thenReturn(Collections.singleton(perModuleSensor));
     when(selector.selectSensors(any(DefaultInputModule.class), eq(true))).thenReturn(Collections.singleton(globalSensor));
 
     ProjectDefinition childDef = ProjectDefinition.create().setKey("sub").setBaseDir(temp.newFolder()).setWorkDir(temp.newFolder());
     ProjectDefinition rootDef = ProjectDefinition.create().setKey("root").setBaseDir(temp.newFolder()).setWorkDir(temp.newFolder());
 
-    DefaultInputModule rootModule = TestInputFileBuilder.newDefaultInputModule(rootDef);
+    rootModule = TestInputFileBuilder.newDefaultInputModule(rootDef);
     DefaultInputModule subModule = TestInputFileBuilder.newDefaultInputModule(childDef);
 
-    InputModuleHierarchy hierarchy = mock(InputModuleHierarchy.class);
+    hierarchy = mock(InputModuleHierarchy.class);
     when(hierarchy.isRoot(rootModule)).thenReturn(true);
 
-    rootModuleExecutor = new SensorsExecutor(selector, rootModule, hierarchy, mock(EventBus.class), strategy);
-    subModuleExecutor = new SensorsExecutor(selector, subModule, hierarchy, mock(EventBus.class), strategy);
+    rootModuleExecutor = new SensorsExecutor(selector, rootModule, hierarchy, mock(EventBus.class), strategy, new MapSettings().asConfig());
+    subModuleExecutor = new SensorsExecutor(selector, subModule, hierarchy, mock(EventBus.class), strategy, new MapSettings().asConfig());
   }
 
   @Test
@@ -116,4 +131,105 @@ public class SensorsExecutorTest {
     assertThat(globalSensor.called).isTrue();
     assertThat(globalSensor.global).isTrue();
   }
+
+  @Test
+  public void should_execute_thread_safe_sensors_concurrently() {
+    CountDownLatch latch = new CountDownLatch(2);
+    List<String> executed = new CopyOnWriteArrayList<>();
+    ConcurrentSensor first = new ConcurrentSensor("first", true, latch, executed);
+    ConcurrentSensor second = new ConcurrentSensor("second", true, latch, executed);
+    ConcurrentSensor last = new ConcurrentSensor("last", false, null, executed);
+    when(selector.selectSensors(any(DefaultInputModule.class), eq(false))).thenReturn(Arrays.asList(wrap(first), wrap(second), wrap(last)));
+
+    newExecutor(2).execute(context);
+
+    // each thread-safe sensor waits for the other one, so both ran at the same time
+    assertThat(first.concurrent).isTrue();
+    assertThat(second.concurrent).isTrue();
+    // sensors which are not thread-safe are executed once the previous ones are done
+    assertThat(executed).hasSize(3).endsWith("last");
+  }
+
+  @Test
+  public void should_execute_sensors_sequentially_by_default() {
+    List<String> executed = new CopyOnWriteArrayList<>();
+    ConcurrentSensor first = new ConcurrentSensor("first", true, new CountDownLatch(2), executed);
+    ConcurrentSensor second = new ConcurrentSensor("second", true, null, executed);
+    when(selector.selectSensors(any(DefaultInputModule.class), eq(false))).thenReturn(Arrays.asList(wrap(first), wrap(second)));
+
+    rootModuleExecutor.execute(context);
+
+    assertThat(first.concurrent).isFalse();
+    assertThat(executed).containsExactly("first", "second");
+  }
+
+  @Test
+  public void should_propagate_failure_of_concurrent_sensor() {
+    ConcurrentSensor failing = new ConcurrentSensor("failing", true, null, new CopyOnWriteArrayList<>()) {
+      @Override
+      public void execute(org.sonar.api.batch.sensor.SensorContext context) {
+        throw new IllegalStateException("Boom");
+      }
+    };
+    when(selector.selectSensors(any(DefaultInputModule.class), eq(false))).thenReturn(Collections.singletonList(wrap(failing)));
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Boom");
+
+    newExecutor(2).execute(context);
+  }
+
+  @Test
+  public void fail_if_threads_is_not_positive() {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Property 'sonar.scanner.sensorThreads' must be a positive number: 0");
+
+    newExecutor(0);
+  }
+
+  private SensorsExecutor newExecutor(int threads) {
+    MapSettings settings = new MapSettings();
+    settings.setProperty("sonar.scanner.sensorThreads", threads);
+    return new SensorsExecutor(selector, rootModule, hierarchy, mock(EventBus.class), strategy, settings.asConfig());
+  }
+
+  private static Sensor wrap(org.sonar.api.batch.sensor.Sensor sensor) {
+    return new SensorWrapper(sensor, mock(org.sonar.api.batch.sensor.SensorContext.class), mock(SensorOptimizer.class));
+  }
+
+  static class ConcurrentSensor implements org.sonar.api.batch.sensor.Sensor {
+    private final String name;
+    private final boolean threadSafe;
+    private final CountDownLatch latch;
+    private final List<String> executed;
+    boolean concurrent;
+
+    ConcurrentSensor(String name, boolean threadSafe, CountDownLatch latch, List<String> executed) {
+      this.name = name;
+      this.threadSafe = threadSafe;
+      this.latch = latch;
+      this.executed = executed;
+    }
+
+    @Override
+    public void describe(SensorDescriptor descriptor) {
+      descriptor.name(name);
+      if (threadSafe) {
+        descriptor.threadSafe();
+      }
+    }
+
+    @Override
+    public void execute(org.sonar.api.batch.sensor.SensorContext context) {
+      if (latch != null) {
+        latch.countDown();
+        try {
+          concurrent = latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      executed.add(name);
+    }
+  }
 }
@@ -19,6 +19,7 @@
  */
 package org.sonar.scanner.profiling;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import java.io.IOException;
 import java.util.List;
@@ -48,6 +49,7 @@ import org.sonar.api.resources.Project;
 import org.sonar.api.utils.System2;
 import org.sonar.scanner.bootstrap.GlobalProperties;
 import org.sonar.scanner.events.BatchStepEvent;
+import org.sonar.scanner.events.FileIndexingEvent;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -80,6 +82,21 @@ public class PhasesSumUpTimeProfilerTest {
     assertThat(profiler.currentModuleProfiling.getProfilingPerBatchStep("Free memory").totalTime()).isEqualTo(9L);
   }
 
+  @Test
+  public void testFileIndexingStages() throws Exception {
+    Project project = mockProject("my:project", true);
+
+    profiler.onProjectAnalysis(projectEvent(project, true));
+    clock.sleep(50);
+    profiler.onFileIndexing(new FileIndexingEvent(50L, ImmutableMap.of("Walk directories", 20L, "Compute metadata of files", 120L)));
+    profiler.onProjectAnalysis(projectEvent(project, false));
+
+    PhaseProfiling indexing = profiler.currentModuleProfiling.getProfilingPerPhase(Phase.INDEXING);
+    assertThat(indexing.totalTime()).isEqualTo(50L);
+    assertThat(indexing.getProfilingPerItem("Walk directories").totalTime()).isEqualTo(20L);
+    assertThat(indexing.getProfilingPerItem("Compute metadata of files").totalTime()).isEqualTo(120L);
+  }
+
   @Test
   public void testMultimoduleProject() throws Exception {
     final Project project = mockProject("project root", true);
@@ -19,12 +19,21 @@
  */
 package org.sonar.scanner.report;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.RandomStringUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -46,9 +55,14 @@ import org.sonar.core.config.CorePropertyDefinitions;
 import org.sonar.core.config.ScannerProperties;
 import org.sonar.scanner.bootstrap.GlobalAnalysisMode;
 import org.sonar.scanner.bootstrap.ScannerWsClient;
+import org.sonar.scanner.protocol.output.FileStructure;
+import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.scanner.protocol.output.ScannerReportReader;
+import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.scan.branch.BranchConfiguration;
 import org.sonarqube.ws.WsCe;
 import org.sonarqube.ws.client.HttpException;
+import org.sonarqube.ws.client.PostRequest;
 import org.sonarqube.ws.client.WsRequest;
 import org.sonarqube.ws.client.WsResponse;
 
@@ -202,6 +216,34 @@ public class ReportPublisherTest {
     assertThat(reportDir).doesNotExist();
   }
 
+  @Test
+  public void write_report_in_container_if_server_supports_it() {
+    when(server.getVersion()).thenReturn("7.0-SNAPSHOT");
+    ReportPublisher underTest = new ReportPublisher(settings.asConfig(), wsClient, server, contextPublisher, moduleHierarchy, mode, mock(TempFolder.class),
+      new ReportPublisherStep[0], branchConfiguration);
+
+    underTest.start();
+    underTest.getWriter().writeComponent(ScannerReport.Component.newBuilder().setRef(1).build());
+
+    FileStructure fileStructure = underTest.getWriter().getFileStructure();
+    assertThat(fileStructure.containerIndex()).isFile();
+    assertThat(fileStructure.fileFor(FileStructure.Domain.COMPONENT, 1)).doesNotExist();
+    assertThat(new ScannerReportReader(fileStructure.root()).readComponent(1).getRef()).isEqualTo(1);
+  }
+
+  @Test
+  public void write_one_file_per_component_if_server_does_not_support_container() {
+    ReportPublisher underTest = new ReportPublisher(settings.asConfig(), wsClient, server, contextPublisher, moduleHierarchy, mode, mock(TempFolder.class),
+      new ReportPublisherStep[0], branchConfiguration);
+
+    underTest.start();
+    underTest.getWriter().writeComponent(ScannerReport.Component.newBuilder().setRef(1).build());
+
+    FileStructure fileStructure = underTest.getWriter().getFileStructure();
+    assertThat(fileStructure.containerIndex()).doesNotExist();
+    assertThat(fileStructure.fileFor(FileStructure.Domain.COMPONENT, 1)).isFile();
+  }
+
   @Test
   public void test_ws_parameters() throws Exception {
     ReportPublisher underTest = new ReportPublisher(settings.asConfig(), wsClient, server, contextPublisher, moduleHierarchy, mode, mock(TempFolder.class),
@@ -267,4 +309,60 @@ public class ReportPublisherTest {
       .containsExactlyInAnyOrder("branch=" + branchName, "branchType=" + SHORT.name());
   }
 
+
+  @Test
+  public void stream_report_while_it_is_generated() throws Exception {
+    settings.setProperty(ReportPublisher.STREAM_REPORT_PROP_KEY, true);
+    ReportPublisherStep componentStep = writer -> writer.writeComponent(ScannerReport.Component.newBuilder().setRef(1).build());
+    ReportPublisherStep sourceStep = writer -> writeSource(writer, 2, "source of file 2");
+    ReportPublisher underTest = new ReportPublisher(settings.asConfig(), wsClient, server, contextPublisher, moduleHierarchy, mode, mock(TempFolder.class),
+      new ReportPublisherStep[] {componentStep, sourceStep}, branchConfiguration);
+    Map<String, String> uploadedFiles = new HashMap<>();
+    WsResponse response = mock(WsResponse.class);
+    when(response.failIfNotSuccessful()).thenReturn(response);
+    when(response.contentStream()).thenReturn(new ByteArrayInputStream(WsCe.SubmitResponse.newBuilder().setTaskId("TASK-1").build().toByteArray()));
+    when(wsClient.call(any(WsRequest.class))).thenAnswer(invocation -> {
+      PostRequest request = (PostRequest) invocation.getArguments()[0];
+      // the whole body is read, as done by the HTTP client
+      byte[] zip = IOUtils.toByteArray(request.getParts().get("report").getContent());
+      try (ZipInputStream zipInput = new ZipInputStream(new ByteArrayInputStream(zip))) {
+        ZipEntry entry;
+        while ((entry = zipInput.getNextEntry()) != null) {
+          uploadedFiles.put(entry.getName(), IOUtils.toString(zipInput, StandardCharsets.UTF_8));
+        }
+      }
+      return response;
+    });
+
+    underTest.start();
+    underTest.execute();
+
+    assertThat(uploadedFiles).containsEntry("source-2.txt", "source of file 2").containsKey("component-1.pb");
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("More about the report processing at https://localhost/api/ce/task?id=TASK-1");
+  }
+
+  @Test
+  public void stop_streaming_report_if_upload_fails() throws Exception {
+    settings.setProperty(ReportPublisher.STREAM_REPORT_PROP_KEY, true);
+    // bigger than the pipe between compression and upload
+    ReportPublisherStep sourceStep = writer -> writeSource(writer, 2, RandomStringUtils.randomAlphanumeric(4_000_000));
+    ReportPublisher underTest = new ReportPublisher(settings.asConfig(), wsClient, server, contextPublisher, moduleHierarchy, mode, mock(TempFolder.class),
+      new ReportPublisherStep[] {sourceStep}, branchConfiguration);
+    WsResponse response = mock(WsResponse.class);
+    when(response.failIfNotSuccessful()).thenThrow(new HttpException("url", 403, "{\"errors\":[{\"msg\":\"Insufficient privileges\"}]}"));
+    when(wsClient.call(any(WsRequest.class))).thenReturn(response);
+
+    underTest.start();
+    exception.expect(MessageException.class);
+    exception.expectMessage("Failed to upload report - 403: Insufficient privileges");
+    underTest.execute();
+  }
+
+  private static void writeSource(ScannerReportWriter writer, int ref, String source) {
+    try {
+      FileUtils.write(writer.getSourceFile(ref), source, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
 }
@@ -31,6 +31,7 @@ import org.junit.Test;
 import org.sonar.scanner.WsTestUtil;
 import org.sonar.scanner.bootstrap.ScannerWsClient;
 import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
+import org.sonarqube.ws.client.HttpException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -66,6 +67,23 @@ public class DefaultServerIssuesLoaderTest {
     assertThat(result).extracting("key").containsExactly("ab1", "ab2");
   }
 
+  @Test
+  public void no_issues_when_component_is_not_found() {
+    WsTestUtil.mockException(wsClient, "/batch/issues.protobuf?key=foo", new HttpException("url", 404, "not found"));
+
+    final List<ServerIssue> result = new ArrayList<>();
+    loader.load("foo", result::add);
+
+    assertThat(result).isEmpty();
+  }
+
+  @Test(expected = HttpException.class)
+  public void fail_on_other_http_errors() {
+    WsTestUtil.mockException(wsClient, "/batch/issues.protobuf?key=foo", new HttpException("url", 500, "error"));
+
+    loader.load("foo", mock(Consumer.class));
+  }
+
   @Test(expected = IllegalStateException.class)
   public void testError() throws IOException {
     InputStream is = mock(InputStream.class);
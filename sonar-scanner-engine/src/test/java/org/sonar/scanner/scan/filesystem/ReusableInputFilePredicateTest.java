@@ -0,0 +1,78 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.filesystem;
+
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.FilePredicates;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultFilePredicates;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.scanner.incremental.IncrementalCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReusableInputFilePredicateTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private IncrementalCache cache = mock(IncrementalCache.class);
+  private DefaultInputFile reusable = new TestInputFileBuilder("foo", "src/Reusable.java").setStatus(InputFile.Status.SAME).build();
+  private DefaultInputFile other = new TestInputFileBuilder("foo", "src/Other.java").setStatus(InputFile.Status.SAME).build();
+  private FilePredicates predicates;
+
+  @Before
+  public void before() throws IOException {
+    predicates = new DefaultFilePredicates(temp.newFolder().toPath());
+    when(cache.isReusable(reusable)).thenReturn(true);
+  }
+
+  @Test
+  public void hide_reusable_files() {
+    ReusableInputFilePredicate underTest = new ReusableInputFilePredicate(predicates.all(), cache);
+
+    assertThat(underTest.test(reusable)).isFalse();
+    assertThat(underTest.test(other)).isTrue();
+  }
+
+  @Test
+  public void do_not_hide_reusable_files_when_filtering_explicitly_on_status() {
+    ReusableInputFilePredicate underTest = new ReusableInputFilePredicate(predicates.hasStatus(InputFile.Status.SAME), cache);
+
+    assertThat(underTest.test(reusable)).isTrue();
+    assertThat(underTest.test(other)).isTrue();
+  }
+
+  @Test
+  public void do_not_hide_reusable_files_when_filtering_on_path() {
+    assertThat(new ReusableInputFilePredicate(predicates.hasRelativePath("src/Reusable.java"), cache).test(reusable)).isTrue();
+    assertThat(new ReusableInputFilePredicate(predicates.hasAbsolutePath(temp.getRoot().getAbsolutePath() + "/src/Reusable.java"), cache).test(reusable)).isTrue();
+    assertThat(new ReusableInputFilePredicate(predicates.and(predicates.hasType(InputFile.Type.MAIN), predicates.hasPath("src/Reusable.java")), cache).test(reusable))
+      .isTrue();
+    assertThat(new ReusableInputFilePredicate(predicates.hasType(InputFile.Type.MAIN), cache).test(reusable)).isFalse();
+  }
+}
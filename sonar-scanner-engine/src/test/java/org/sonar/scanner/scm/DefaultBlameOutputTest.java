@@ -19,20 +19,35 @@
  */
 package org.sonar.scanner.scm;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.batch.scm.BlameLine;
+import org.sonar.scanner.protocol.output.ScannerReportReader;
+import org.sonar.scanner.protocol.output.ScannerReportWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 public class DefaultBlameOutputTest {
 
   @Rule
   public ExpectedException thrown = ExpectedException.none();
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   @Test
   public void shouldNotFailIfNotSameNumberOfLines() {
     InputFile file = new TestInputFileBuilder("foo", "src/main/java/Foo.java").setLines(10).build();
@@ -40,6 +55,40 @@ public class DefaultBlameOutputTest {
     new DefaultBlameOutput(null, Arrays.asList(file)).blameResult(file, Arrays.asList(new BlameLine().revision("1").author("guy")));
   }
 
+  @Test
+  public void shouldNotAcceptIfNotSameNumberOfLines() {
+    InputFile file = new TestInputFileBuilder("foo", "src/main/java/Foo.java").setLines(10).build();
+
+    assertThat(new DefaultBlameOutput(null, Arrays.asList(file)).accept(file, Arrays.asList(new BlameLine().revision("1").author("guy")))).isFalse();
+  }
+
+  @Test
+  public void shouldAcceptResultsOfSeveralThreads() throws Exception {
+    File reportDir = temp.newFolder();
+    ScannerReportWriter writer = new ScannerReportWriter(reportDir);
+    List<InputFile> files = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      files.add(new TestInputFileBuilder("foo", "src/main/java/Foo" + i + ".java").setLines(1).build());
+    }
+    DefaultBlameOutput output = new DefaultBlameOutput(writer, files);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<Boolean>> results = new ArrayList<>();
+    for (InputFile file : files) {
+      results.add(executor.submit(() -> output.accept(file, Arrays.asList(new BlameLine().revision("1").date(new Date()).author("guy")))));
+    }
+    for (Future<Boolean> result : results) {
+      assertThat(result.get()).isTrue();
+    }
+    executor.shutdown();
+    output.finish(true);
+
+    ScannerReportReader reader = new ScannerReportReader(reportDir);
+    for (InputFile file : files) {
+      assertThat(reader.readChangesets(((DefaultInputFile) file).batchId()).getChangesetIndexByLineList()).containsExactly(0);
+    }
+  }
+
   @Test
   public void shouldFailIfNotExpectedFile() {
     InputFile file = new TestInputFileBuilder("foo", "src/main/java/Foo.java").build();
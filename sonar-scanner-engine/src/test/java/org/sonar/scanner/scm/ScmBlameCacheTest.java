@@ -0,0 +1,89 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scm;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.scm.BlameLine;
+import org.sonar.home.cache.FileCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ScmBlameCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private ScmBlameCache cache;
+
+  @Before
+  public void setUp() throws IOException {
+    FileCache fileCache = mock(FileCache.class);
+    when(fileCache.getDir()).thenReturn(temp.newFolder());
+    InputModuleHierarchy moduleHierarchy = mock(InputModuleHierarchy.class);
+    when(moduleHierarchy.root()).thenReturn(TestInputFileBuilder.newDefaultInputModule("foo", temp.newFolder()));
+    cache = new ScmBlameCache(fileCache, moduleHierarchy);
+  }
+
+  @Test
+  public void save_and_load() {
+    List<BlameLine> lines = Arrays.asList(
+      new BlameLine().revision("r1").date(new Date(1000L)).author("john"),
+      new BlameLine().revision("r2").date(new Date(2000L)));
+    cache.save("head", file("src/Foo.java", "h1"), lines);
+
+    assertThat(cache.load("head", file("src/Foo.java", "h1"))).isEqualTo(lines);
+    assertThat(cache.load("head", file("src/Foo.java", "h2"))).isNull();
+    assertThat(cache.load("head", file("src/Bar.java", "h1"))).isNull();
+    assertThat(cache.load("other", file("src/Foo.java", "h1"))).isNull();
+  }
+
+  @Test
+  public void retain_only_results_of_revision() {
+    List<BlameLine> lines = Arrays.asList(new BlameLine().revision("r1").date(new Date(1000L)));
+    cache.save("head1", file("src/Foo.java", "h1"), lines);
+    cache.save("head2", file("src/Foo.java", "h1"), lines);
+
+    cache.retainOnly("head2");
+
+    assertThat(cache.load("head1", file("src/Foo.java", "h1"))).isNull();
+    assertThat(cache.load("head2", file("src/Foo.java", "h1"))).isEqualTo(lines);
+  }
+
+  @Test
+  public void retain_only_does_not_fail_if_cache_is_empty() {
+    cache.retainOnly("head");
+  }
+
+  private static DefaultInputFile file(String relativePath, String hash) {
+    return new TestInputFileBuilder("foo", relativePath).setHash(hash).build();
+  }
+}
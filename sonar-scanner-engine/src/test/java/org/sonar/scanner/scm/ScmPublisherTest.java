@@ -0,0 +1,206 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.scm.BlameCommand;
+import org.sonar.api.batch.scm.BlameLine;
+import org.sonar.api.batch.scm.ScmProvider;
+import org.sonar.home.cache.FileCache;
+import org.sonar.scanner.protocol.output.ScannerReportReader;
+import org.sonar.scanner.protocol.output.ScannerReportWriter;
+import org.sonar.scanner.report.ReportPublisher;
+import org.sonar.scanner.repository.ProjectRepositories;
+import org.sonar.scanner.scan.branch.BranchConfiguration;
+import org.sonar.scanner.scan.filesystem.DefaultModuleFileSystem;
+import org.sonar.scanner.scan.filesystem.ModuleInputComponentStore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ScmPublisherTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private DefaultInputModule inputModule;
+  private ScmConfiguration configuration = mock(ScmConfiguration.class);
+  private ScmProvider provider = mock(ScmProvider.class);
+  private RecordingBlameCommand blameCommand = new RecordingBlameCommand();
+  private ModuleInputComponentStore componentStore = mock(ModuleInputComponentStore.class);
+  private ReportPublisher reportPublisher = mock(ReportPublisher.class);
+  private ScmBlameCache blameCache;
+  private List<InputFile> files = new ArrayList<>();
+  private File outputDir;
+
+  @Before
+  public void setUp() throws IOException {
+    inputModule = TestInputFileBuilder.newDefaultInputModule("foo", temp.newFolder());
+    FileCache fileCache = mock(FileCache.class);
+    when(fileCache.getDir()).thenReturn(temp.newFolder());
+    InputModuleHierarchy moduleHierarchy = mock(InputModuleHierarchy.class);
+    when(moduleHierarchy.root()).thenReturn(inputModule);
+    blameCache = new ScmBlameCache(fileCache, moduleHierarchy);
+
+    when(configuration.provider()).thenReturn(provider);
+    when(configuration.blameThreads()).thenReturn(1);
+    when(provider.key()).thenReturn("xoo");
+    when(provider.blameCommand()).thenReturn(blameCommand);
+    when(componentStore.inputFiles()).thenReturn(files);
+    for (int i = 0; i < 10; i++) {
+      files.add(new TestInputFileBuilder("foo", "src/File" + i + ".java")
+        .setStatus(InputFile.Status.ADDED)
+        .setLines(2)
+        .setHash("h" + i)
+        .setPublish(true)
+        .build());
+    }
+  }
+
+  @Test
+  public void blame_all_files_in_calling_thread_by_default() {
+    publish();
+
+    assertThat(blameCommand.blamedFiles).hasSize(1);
+    assertThat(blameCommand.blamedFiles.get(0)).containsExactlyElementsOf(files);
+    assertThat(blameCommand.threadNames).containsOnly(Thread.currentThread().getName());
+    assertChangesetsOfAllFiles();
+  }
+
+  @Test
+  public void split_files_between_blame_threads() {
+    when(configuration.blameThreads()).thenReturn(3);
+
+    publish();
+
+    assertThat(blameCommand.blamedFiles).extracting(List::size).containsOnly(4, 2).hasSize(3);
+    Set<InputFile> blamed = new HashSet<>();
+    blameCommand.blamedFiles.forEach(blamed::addAll);
+    assertThat(blamed).containsOnlyElementsOf(files).hasSameSizeAs(files);
+    for (String threadName : blameCommand.threadNames) {
+      assertThat(threadName).startsWith("SCM-blame-");
+    }
+    assertChangesetsOfAllFiles();
+  }
+
+  @Test
+  public void load_blame_of_revision_from_cache() {
+    when(provider.revisionId(any(Path.class))).thenReturn("head");
+    publish();
+    blameCommand.blamedFiles.clear();
+
+    publish();
+
+    assertThat(blameCommand.blamedFiles).isEmpty();
+    assertChangesetsOfAllFiles();
+  }
+
+  @Test
+  public void blame_files_again_when_revision_changes() {
+    when(provider.revisionId(any(Path.class))).thenReturn("head1");
+    publish();
+    blameCommand.blamedFiles.clear();
+
+    when(provider.revisionId(any(Path.class))).thenReturn("head2");
+    publish();
+
+    assertThat(blameCommand.blamedFiles.get(0)).containsExactlyElementsOf(files);
+  }
+
+  @Test
+  public void do_not_cache_blame_when_revision_is_unknown() {
+    publish();
+    blameCommand.blamedFiles.clear();
+
+    publish();
+
+    assertThat(blameCommand.blamedFiles.get(0)).containsExactlyElementsOf(files);
+  }
+
+  @Test
+  public void ignore_cache_when_reload_of_all_files_is_forced() {
+    when(provider.revisionId(any(Path.class))).thenReturn("head");
+    publish();
+    blameCommand.blamedFiles.clear();
+
+    when(configuration.forceReloadAll()).thenReturn(true);
+    publish();
+
+    assertThat(blameCommand.blamedFiles.get(0)).containsExactlyElementsOf(files);
+    assertChangesetsOfAllFiles();
+  }
+
+  private void publish() {
+    try {
+      outputDir = temp.newFolder();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    when(reportPublisher.getWriter()).thenReturn(new ScannerReportWriter(outputDir));
+    new ScmPublisher(inputModule, configuration, mock(ProjectRepositories.class), componentStore, mock(DefaultModuleFileSystem.class), reportPublisher,
+      mock(BranchConfiguration.class), blameCache).publish();
+  }
+
+  private void assertChangesetsOfAllFiles() {
+    ScannerReportReader reader = new ScannerReportReader(outputDir);
+    for (InputFile file : files) {
+      assertThat(reader.readChangesets(((DefaultInputFile) file).batchId())).isNotNull();
+    }
+  }
+
+  private static class RecordingBlameCommand extends BlameCommand {
+    private final List<List<InputFile>> blamedFiles = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> threadNames = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public void blame(BlameInput input, BlameOutput output) {
+      List<InputFile> filesToBlame = new ArrayList<>();
+      input.filesToBlame().forEach(filesToBlame::add);
+      blamedFiles.add(filesToBlame);
+      threadNames.add(Thread.currentThread().getName());
+      for (InputFile file : filesToBlame) {
+        List<BlameLine> lines = new ArrayList<>();
+        for (int line = 0; line < file.lines(); line++) {
+          lines.add(new BlameLine().revision("r1").date(new Date(1000L)).author("john"));
+        }
+        output.blameResult(file, lines);
+      }
+    }
+  }
+}
@@ -0,0 +1,338 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import com.persistit.Exchange;
+import com.persistit.Key;
+import com.persistit.Persistit;
+import com.persistit.Value;
+import com.persistit.Volume;
+import com.persistit.encoding.CoderContext;
+import com.persistit.encoding.ValueCoder;
+import java.io.File;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.sonar.api.batch.measure.Metric;
+import org.sonar.api.batch.measure.MetricFinder;
+import org.sonar.api.batch.sensor.measure.internal.DefaultMeasure;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.scanner.index.AbstractCachesTest;
+import org.sonar.scanner.issue.tracking.TrackedIssue;
+import org.sonar.scanner.scan.measure.MeasureCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares {@link Storage} with the former Persistit-based implementation on the workloads of issues
+ * and measures: put all elements, get each of them, then iterate the elements of each component.
+ * Values are serialized as in an analysis: issues by default, measures by the coder registered by {@link MeasureCache}.
+ * Not executed by unit tests, run it with {@code mvn test -Dbenchmark}.
+ */
+public class StorageBenchmark extends AbstractCachesTest {
+
+  private static final Logger LOGGER = Loggers.get(StorageBenchmark.class);
+  private static final int COMPONENTS = 2_000;
+  private static final int ELEMENTS_PER_COMPONENT = 25;
+  private static final Set<org.sonar.api.measures.Metric.ValueType> MEASURE_TYPES = EnumSet.of(org.sonar.api.measures.Metric.ValueType.INT,
+    org.sonar.api.measures.Metric.ValueType.FLOAT, org.sonar.api.measures.Metric.ValueType.DATA);
+  private static final List<org.sonar.api.measures.Metric> METRICS = CoreMetrics.getMetrics().stream()
+    .filter(metric -> MEASURE_TYPES.contains(metric.getType()))
+    .limit(ELEMENTS_PER_COMPONENT)
+    .collect(Collectors.toList());
+
+  private final MetricFinder metricFinder = new CoreMetricFinder();
+
+  @Test
+  public void compare_with_persistit() throws Exception {
+    Persistit persistit = startPersistit(temp.newFolder());
+    try {
+      persistit.getCoderManager().registerValueCoder(DefaultMeasure.class, new PersistitMeasureValueCoder(metricFinder));
+      Volume volume = persistit.createTemporaryVolume();
+      run("issues", new StorageBackend(caches.createCache("issues")), new PersistitBackend(persistit.getExchange(volume, "issues", true)), new IssueWorkload());
+      run("measures", new MeasureCacheBackend(new MeasureCache(caches, metricFinder)), new PersistitBackend(persistit.getExchange(volume, "measures", true)),
+        new MeasureWorkload());
+    } finally {
+      persistit.close(false);
+    }
+  }
+
+  private static void run(String name, Backend storage, Backend persistit, Workload workload) throws Exception {
+    // warm-up of both implementations, on other components
+    runOnce(storage, workload, "warmup");
+    runOnce(persistit, workload, "warmup");
+
+    long[] storageTimes = runOnce(storage, workload, "project");
+    long[] persistitTimes = runOnce(persistit, workload, "project");
+    LOGGER.info("{} - Storage: put {} ms, get {} ms, iterate {} ms - Persistit: put {} ms, get {} ms, iterate {} ms",
+      name, storageTimes[0], storageTimes[1], storageTimes[2], persistitTimes[0], persistitTimes[1], persistitTimes[2]);
+  }
+
+  private static long[] runOnce(Backend backend, Workload workload, String projectKey) throws Exception {
+    long start = System.currentTimeMillis();
+    for (int c = 0; c < COMPONENTS; c++) {
+      String componentKey = componentKey(projectKey, c);
+      for (int i = 0; i < ELEMENTS_PER_COMPONENT; i++) {
+        backend.put(componentKey, workload.key(c, i), workload.value(componentKey, i));
+      }
+    }
+    long putTime = System.currentTimeMillis() - start;
+
+    start = System.currentTimeMillis();
+    for (int c = 0; c < COMPONENTS; c++) {
+      String componentKey = componentKey(projectKey, c);
+      for (int i = 0; i < ELEMENTS_PER_COMPONENT; i++) {
+        assertThat(backend.get(componentKey, workload.key(c, i))).isNotNull();
+      }
+    }
+    long getTime = System.currentTimeMillis() - start;
+
+    start = System.currentTimeMillis();
+    for (int c = 0; c < COMPONENTS; c++) {
+      assertThat(backend.count(componentKey(projectKey, c))).isEqualTo(ELEMENTS_PER_COMPONENT);
+    }
+    long iterateTime = System.currentTimeMillis() - start;
+    return new long[] {putTime, getTime, iterateTime};
+  }
+
+  private static String componentKey(String projectKey, int index) {
+    return projectKey + ":src/main/java/org/foo/File" + index + ".java";
+  }
+
+  private static Persistit startPersistit(File dir) throws Exception {
+    Persistit persistit = new Persistit();
+    Properties props = new Properties();
+    props.setProperty("datapath", dir.getAbsolutePath());
+    props.setProperty("logpath", "${datapath}/log");
+    props.setProperty("logfile", "${logpath}/persistit_${timestamp}.log");
+    props.setProperty("buffer.count.8192", "10");
+    props.setProperty("journalpath", "${datapath}/journal");
+    props.setProperty("tmpvoldir", "${datapath}");
+    props.setProperty("volume.1", "${datapath}/persistit,create,pageSize:8192,initialPages:10,extensionPages:100,maximumPages:25000");
+    props.setProperty("jmx", "false");
+    persistit.setProperties(props);
+    persistit.initialize();
+    return persistit;
+  }
+
+  private interface Workload {
+    String key(int component, int index);
+
+    Object value(String componentKey, int index);
+  }
+
+  private static class IssueWorkload implements Workload {
+    @Override
+    public String key(int component, int index) {
+      return "AV" + component + "-" + index;
+    }
+
+    @Override
+    public Object value(String componentKey, int index) {
+      return new TrackedIssue()
+        .setKey("AV" + index)
+        .setComponentKey(componentKey)
+        .setRuleKey(RuleKey.of("squid", "S" + index))
+        .setMessage("Remove this unused private field " + index)
+        .setSeverity("MAJOR")
+        .setStatus("OPEN")
+        .setStartLine(index + 1)
+        .setEndLine(index + 1)
+        .setStartLineOffset(4)
+        .setEndLineOffset(20)
+        .setGap(2.0)
+        .setCreationDate(new Date(1_500_000_000_000L));
+    }
+  }
+
+  private static class MeasureWorkload implements Workload {
+    @Override
+    public String key(int component, int index) {
+      return METRICS.get(index).key();
+    }
+
+    @Override
+    public Object value(String componentKey, int index) {
+      org.sonar.api.measures.Metric metric = METRICS.get(index);
+      Serializable value;
+      switch (metric.getType()) {
+        case INT:
+          value = index;
+          break;
+        case FLOAT:
+          value = index / 3.0;
+          break;
+        default:
+          value = "1=" + index + ";2=0;3=" + index;
+      }
+      return new DefaultMeasure().forMetric(metric).withValue(value);
+    }
+  }
+
+  private static class CoreMetricFinder implements MetricFinder {
+    @Override
+    public <G extends Serializable> Metric<G> findByKey(String key) {
+      return CoreMetrics.getMetric(key);
+    }
+
+    @Override
+    public Collection<Metric<Serializable>> findAll(List<String> metricKeys) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Collection<Metric<Serializable>> findAll() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private interface Backend {
+    void put(String componentKey, String key, Object value) throws Exception;
+
+    Object get(String componentKey, String key) throws Exception;
+
+    int count(String componentKey) throws Exception;
+  }
+
+  private static class StorageBackend implements Backend {
+    private final Storage<Object> storage;
+
+    private StorageBackend(Storage<Object> storage) {
+      this.storage = storage;
+    }
+
+    @Override
+    public void put(String componentKey, String key, Object value) {
+      storage.put(componentKey, key, value);
+    }
+
+    @Override
+    public Object get(String componentKey, String key) {
+      return storage.get(componentKey, key);
+    }
+
+    @Override
+    public int count(String componentKey) {
+      int count = 0;
+      for (Object value : storage.values(componentKey)) {
+        count += value == null ? 0 : 1;
+      }
+      return count;
+    }
+  }
+
+  private static class MeasureCacheBackend implements Backend {
+    private final MeasureCache measureCache;
+
+    private MeasureCacheBackend(MeasureCache measureCache) {
+      this.measureCache = measureCache;
+    }
+
+    @Override
+    public void put(String componentKey, String key, Object value) {
+      measureCache.put(componentKey, key, (DefaultMeasure<?>) value);
+    }
+
+    @Override
+    public Object get(String componentKey, String key) {
+      return measureCache.byMetric(componentKey, key);
+    }
+
+    @Override
+    public int count(String componentKey) {
+      int count = 0;
+      for (DefaultMeasure<?> measure : measureCache.byComponentKey(componentKey)) {
+        count += measure == null ? 0 : 1;
+      }
+      return count;
+    }
+  }
+
+  /**
+   * Same usage of {@link Exchange} as the former implementation of {@link Storage}
+   */
+  private static class PersistitBackend implements Backend {
+    private final Exchange exchange;
+
+    private PersistitBackend(Exchange exchange) {
+      this.exchange = exchange;
+      exchange.setMaximumValueSize(Value.MAXIMUM_SIZE);
+    }
+
+    @Override
+    public void put(String componentKey, String key, Object value) throws Exception {
+      exchange.clear().append(componentKey).append(key);
+      exchange.getValue().put(value);
+      exchange.store();
+    }
+
+    @Override
+    public Object get(String componentKey, String key) throws Exception {
+      exchange.clear().append(componentKey).append(key);
+      exchange.fetch();
+      return exchange.getValue().isDefined() ? exchange.getValue().get() : null;
+    }
+
+    @Override
+    public int count(String componentKey) throws Exception {
+      exchange.clear().append(componentKey).append(Key.BEFORE);
+      int count = 0;
+      while (exchange.next()) {
+        count += exchange.getValue().get() == null ? 0 : 1;
+      }
+      return count;
+    }
+  }
+
+  /**
+   * The former Persistit coder of measures
+   */
+  private static class PersistitMeasureValueCoder implements ValueCoder {
+    private final MetricFinder metricFinder;
+
+    private PersistitMeasureValueCoder(MetricFinder metricFinder) {
+      this.metricFinder = metricFinder;
+    }
+
+    @Override
+    public void put(Value value, Object object, CoderContext context) {
+      DefaultMeasure<?> m = (DefaultMeasure<?>) object;
+      value.putString(m.metric().key());
+      value.put(m.value());
+    }
+
+    @Override
+    public Object get(Value value, Class clazz, CoderContext context) {
+      Metric<?> metric = metricFinder.findByKey(value.getString());
+      return new DefaultMeasure()
+        .forMetric(metric)
+        .withValue((Serializable) value.get());
+    }
+  }
+}
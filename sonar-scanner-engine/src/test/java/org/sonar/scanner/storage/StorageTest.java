@@ -20,7 +20,14 @@
 package org.sonar.scanner.storage;
 
 import com.google.common.collect.Iterables;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.commons.lang.StringUtils;
 import org.junit.Test;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.scanner.index.AbstractCachesTest;
 import org.sonar.scanner.storage.Storage.Entry;
 
@@ -248,4 +255,70 @@ public class StorageTest extends AbstractCachesTest {
     cache.clear("foo", "bar", "baz");
     cache.clear();
   }
+
+  @Test
+  public void values_beyond_memory_budget_are_stored_in_segments() {
+    caches.stop();
+    caches = new Storages(cachesManager, new MapSettings().setProperty(Storages.MEMORY_BUDGET_PROPERTY, 1).asConfig());
+    Storage<String> cache = caches.createCache("big");
+    String value = StringUtils.repeat("a", 1_000);
+
+    for (int i = 0; i < 2_000; i++) {
+      cache.put("component", i, value + i);
+    }
+
+    assertThat(caches.valueStore().segmentCount()).isEqualTo(1);
+    assertThat(caches.valueStore().heapSize()).isPositive().isLessThanOrEqualTo(1024 * 1024);
+    for (int i = 0; i < 2_000; i++) {
+      assertThat(cache.get("component", i)).isEqualTo(value + i);
+    }
+    assertThat(cache.values("component")).hasSize(2_000);
+
+    cache.clear();
+    assertThat(caches.valueStore().heapSize()).isZero();
+  }
+
+  @Test
+  public void keys_of_different_types() {
+    Storage<String> cache = caches.createCache("mixed");
+
+    cache.put(2, "foo", "two");
+    cache.put(10, "foo", "ten");
+    cache.put("1", "foo", "one");
+
+    assertThat(cache.get(2, "foo")).isEqualTo("two");
+    assertThat(cache.get("2", "foo")).isNull();
+    assertThat(cache.keySet()).containsExactly(2, 10, "1");
+    assertThat(cache.values(10)).containsExactly("ten");
+  }
+
+  @Test
+  public void concurrent_access() throws Exception {
+    caches.stop();
+    caches = new Storages(cachesManager, new MapSettings().setProperty(Storages.MEMORY_BUDGET_PROPERTY, 0).asConfig());
+    Storage<String> cache = caches.createCache("concurrent");
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        String component = "component" + t;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 1_000; i++) {
+            cache.put(component, i, component + i);
+            assertThat(cache.get(component, i)).isEqualTo(component + i);
+            assertThat(cache.values()).isNotEmpty();
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(cache.keySet()).hasSize(8);
+    assertThat(cache.values()).hasSize(8_000);
+    assertThat(cache.get("component5", 999)).isEqualTo("component5999");
+  }
 }
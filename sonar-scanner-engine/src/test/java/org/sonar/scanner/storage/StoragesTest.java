@@ -19,9 +19,13 @@
  */
 package org.sonar.scanner.storage;
 
-import com.persistit.exception.PersistitException;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
 import org.junit.Test;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.scanner.index.AbstractCachesTest;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -55,15 +59,15 @@ public class StoragesTest extends AbstractCachesTest {
     caches.stop();
 
     // manager continues up
-    assertThat(cachesManager.persistit().isInitialized()).isTrue();
+    assertThat(cachesManager.tempDir()).isDirectory();
 
-    caches = new Storages(cachesManager);
+    caches = new Storages(cachesManager, new MapSettings().asConfig());
     caches.start();
     caches.createCache("test1");
   }
 
   @Test
-  public void leak_test() throws PersistitException {
+  public void leak_test() {
     caches.stop();
 
     int len = 1 * 1024 * 1024;
@@ -73,18 +77,54 @@ public class StoragesTest extends AbstractCachesTest {
     }
 
     for (int i = 0; i < 3; i++) {
-      caches = new Storages(cachesManager);
+      caches = new Storages(cachesManager, new MapSettings().setProperty(Storages.MEMORY_BUDGET_PROPERTY, 0).asConfig());
       caches.start();
       Storage<String> c = caches.<String>createCache("test" + i);
       c.put("key" + i, sb.toString());
-      cachesManager.persistit().flush();
+      assertThat(caches.valueStore().segmentCount()).isEqualTo(1);
+      File dir = cachesManager.tempDir();
 
       caches.stop();
+      assertThat(dir.listFiles()).isEmpty();
     }
   }
 
+  @Test
+  public void should_fail_if_memory_budget_is_negative() {
+    try {
+      new Storages(cachesManager, new MapSettings().setProperty(Storages.MEMORY_BUDGET_PROPERTY, -1).asConfig());
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("Property 'sonar.scanner.storageMemoryBudget' must not be negative: -1");
+    }
+  }
+
+  @Test
+  public void should_use_custom_value_coder() {
+    caches.registerValueCoder(Element.class, new ValueCoder() {
+      @Override
+      public void put(DataOutput output, Object object) throws IOException {
+        output.writeInt(((Element) object).value);
+      }
+
+      @Override
+      public Object get(DataInput input) throws IOException {
+        return new Element(input.readInt() + 1);
+      }
+    });
+    Storage<Element> cache = caches.createCache("foo");
+    cache.put("a", new Element(41));
+
+    assertThat(cache.get("a").value).isEqualTo(42);
+  }
+
   private static class Element implements Serializable {
     private static final long serialVersionUID = 1L;
 
+    private final int value;
+
+    private Element(int value) {
+      this.value = value;
+    }
   }
 }
@@ -0,0 +1,219 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.protocol.output;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.sonar.core.util.ContextException;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Reads the container written by {@link ContainerWriter}. The index is loaded in memory when the reader
+ * is created, chunks are read on demand with positional reads on the data file.
+ */
+public class ContainerReader {
+
+  private static final FileStructure.Domain[] DOMAINS = FileStructure.Domain.values();
+
+  private final File dataFile;
+  private final Map<FileStructure.Domain, DomainIndex> indexByDomain = new EnumMap<>(FileStructure.Domain.class);
+
+  public ContainerReader(File dataFile, File indexFile) {
+    this.dataFile = dataFile;
+    forEachRecord(indexFile, (domain, mode, componentRef, offset, length) -> indexByDomain
+      .computeIfAbsent(domain, d -> new DomainIndex())
+      .add(componentRef, offset, length, mode == ContainerWriter.MODE_APPEND));
+  }
+
+  public boolean has(FileStructure.Domain domain, int componentRef) {
+    DomainIndex domainIndex = indexByDomain.get(domain);
+    return domainIndex != null && domainIndex.has(componentRef);
+  }
+
+  /**
+   * Opens the data of the specified domain and component, or returns {@code null} if there
+   * is none. The returned stream must be closed.
+   */
+  @CheckForNull
+  public InputStream open(FileStructure.Domain domain, int componentRef) {
+    DomainIndex domainIndex = indexByDomain.get(domain);
+    if (domainIndex == null || !domainIndex.has(componentRef)) {
+      return null;
+    }
+    try {
+      FileChannel channel = FileChannel.open(dataFile.toPath(), READ);
+      return new BufferedInputStream(new ChunksInputStream(channel, domainIndex.chunksOf(componentRef)));
+    } catch (IOException e) {
+      throw ContextException.of("Unable to read report container", e).addContext("file", dataFile);
+    }
+  }
+
+  @FunctionalInterface
+  interface RecordConsumer {
+    void accept(FileStructure.Domain domain, byte mode, int componentRef, long offset, int length);
+  }
+
+  /**
+   * Iterates over the complete records of an index file. A truncated record at the end of file,
+   * for instance because of an interrupted write, is ignored.
+   */
+  static void forEachRecord(File indexFile, RecordConsumer consumer) {
+    if (indexFile.length() == 0L) {
+      return;
+    }
+    long recordCount = (indexFile.length() - ContainerWriter.HEADER_SIZE) / ContainerWriter.RECORD_SIZE;
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+      int magic = input.readInt();
+      if (magic != ContainerWriter.MAGIC) {
+        throw new IllegalStateException("File is not the index of a report container: " + indexFile);
+      }
+      int version = input.readInt();
+      if (version > ContainerWriter.FORMAT_VERSION) {
+        throw new IllegalStateException("Unsupported version of report container: " + version);
+      }
+      for (long i = 0; i < recordCount; i++) {
+        int domainOrdinal = input.readUnsignedByte();
+        byte mode = input.readByte();
+        int componentRef = input.readInt();
+        long offset = input.readLong();
+        int length = input.readInt();
+        if (domainOrdinal >= DOMAINS.length) {
+          throw new IllegalStateException("Unsupported domain in report container: " + domainOrdinal);
+        }
+        consumer.accept(DOMAINS[domainOrdinal], mode, componentRef, offset, length);
+      }
+    } catch (IOException e) {
+      throw ContextException.of("Unable to read index of report container", e).addContext("file", indexFile);
+    }
+  }
+
+  /**
+   * Location of the data of a domain, indexed by component ref. Most components have a single chunk,
+   * which is stored in primitive arrays. Components with appended chunks, like issues, are stored aside.
+   */
+  private static class DomainIndex {
+    private long[] offsets = new long[0];
+    private int[] lengths = new int[0];
+    private final Map<Integer, long[]> multipleChunks = new HashMap<>();
+
+    boolean has(int componentRef) {
+      return componentRef >= 0 && componentRef < lengths.length && lengths[componentRef] >= 0;
+    }
+
+    void add(int componentRef, long offset, int length, boolean append) {
+      if (componentRef < 0) {
+        throw new IllegalStateException("Invalid component ref in report container: " + componentRef);
+      }
+      if (!append || !has(componentRef)) {
+        ensureCapacity(componentRef);
+        offsets[componentRef] = offset;
+        lengths[componentRef] = length;
+        multipleChunks.remove(componentRef);
+        return;
+      }
+      long[] chunks = chunksOf(componentRef);
+      long[] newChunks = Arrays.copyOf(chunks, chunks.length + 2);
+      newChunks[chunks.length] = offset;
+      newChunks[chunks.length + 1] = length;
+      multipleChunks.put(componentRef, newChunks);
+    }
+
+    /**
+     * Pairs of offset and length
+     */
+    long[] chunksOf(int componentRef) {
+      long[] chunks = multipleChunks.get(componentRef);
+      if (chunks != null) {
+        return chunks;
+      }
+      return new long[] {offsets[componentRef], lengths[componentRef]};
+    }
+
+    private void ensureCapacity(int componentRef) {
+      if (componentRef >= lengths.length) {
+        int newLength = Math.max(componentRef + 1, lengths.length * 2);
+        offsets = Arrays.copyOf(offsets, newLength);
+        int oldLength = lengths.length;
+        lengths = Arrays.copyOf(lengths, newLength);
+        Arrays.fill(lengths, oldLength, newLength, -1);
+      }
+    }
+  }
+
+  private static class ChunksInputStream extends InputStream {
+    private final FileChannel channel;
+    private final long[] chunks;
+    private int nextChunk = 0;
+    private long position = 0L;
+    private long remaining = 0L;
+
+    private ChunksInputStream(FileChannel channel, long[] chunks) {
+      this.channel = channel;
+      this.chunks = chunks;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      int read = read(b, 0, 1);
+      return read < 0 ? -1 : (b[0] & 0xFF);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      while (remaining == 0L) {
+        if (nextChunk == chunks.length) {
+          return -1;
+        }
+        position = chunks[nextChunk];
+        remaining = chunks[nextChunk + 1];
+        nextChunk += 2;
+      }
+      int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), position);
+      if (read < 0) {
+        throw new EOFException("Unexpected end of report container");
+      }
+      position += read;
+      remaining -= read;
+      return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+}
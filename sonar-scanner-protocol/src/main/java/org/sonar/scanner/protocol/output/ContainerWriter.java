@@ -0,0 +1,135 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.protocol.output;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.Map;
+import org.sonar.core.util.ContextException;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Writes the data of the indexed domains (see {@link FileStructure.Domain#isIndexed()}) into two files
+ * instead of one file per component and domain:
+ * <ul>
+ *   <li>the data file, in which chunks of bytes are appended</li>
+ *   <li>the index file, a header ({@link #MAGIC} and {@link #FORMAT_VERSION}) followed by one fixed-size record
+ *   per chunk: domain, mode ({@link #MODE_REPLACE} or {@link #MODE_APPEND}), component ref, offset and length</li>
+ * </ul>
+ * A record is appended to the index only once its chunk is completely written, so the container can be read
+ * by {@link ContainerReader} at any time, even while it's still being written.
+ */
+class ContainerWriter implements Closeable {
+
+  static final int MAGIC = 0x53524358;
+  static final int FORMAT_VERSION = 1;
+  static final int HEADER_SIZE = 8;
+  static final int RECORD_SIZE = 18;
+  static final byte MODE_REPLACE = 0;
+  static final byte MODE_APPEND = 1;
+
+  private final File dataFile;
+  private final File indexFile;
+  private final Map<FileStructure.Domain, BitSet> componentsByDomain = new EnumMap<>(FileStructure.Domain.class);
+  private FileChannel data;
+  private FileChannel index;
+
+  ContainerWriter(File dataFile, File indexFile) {
+    this.dataFile = dataFile;
+    this.indexFile = indexFile;
+    if (indexFile.exists()) {
+      ContainerReader.forEachRecord(indexFile, (domain, mode, componentRef, offset, length) -> markAsWritten(domain, componentRef));
+    }
+  }
+
+  synchronized void write(FileStructure.Domain domain, int componentRef, byte[] bytes, boolean append) {
+    if (!domain.isIndexed()) {
+      throw new IllegalArgumentException("Domain " + domain + " is not stored in the report container");
+    }
+    try {
+      ensureOpen();
+      long offset = data.size();
+      writeFully(data, ByteBuffer.wrap(bytes));
+      ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+      record.put((byte) domain.ordinal())
+        .put(append ? MODE_APPEND : MODE_REPLACE)
+        .putInt(componentRef)
+        .putLong(offset)
+        .putInt(bytes.length);
+      record.flip();
+      writeFully(index, record);
+      markAsWritten(domain, componentRef);
+    } catch (IOException e) {
+      throw ContextException.of("Unable to write report container", e).addContext("file", dataFile);
+    }
+  }
+
+  synchronized boolean has(FileStructure.Domain domain, int componentRef) {
+    BitSet components = componentsByDomain.get(domain);
+    return components != null && components.get(componentRef);
+  }
+
+  private void markAsWritten(FileStructure.Domain domain, int componentRef) {
+    componentsByDomain.computeIfAbsent(domain, d -> new BitSet()).set(componentRef);
+  }
+
+  private void ensureOpen() throws IOException {
+    if (data == null) {
+      data = FileChannel.open(dataFile.toPath(), CREATE, WRITE, APPEND);
+      index = FileChannel.open(indexFile.toPath(), CREATE, WRITE, APPEND);
+      if (index.size() == 0L) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION);
+        header.flip();
+        writeFully(index, header);
+      }
+    }
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  /**
+   * Releases the files. The container can still be written afterwards, files are then re-opened.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (data != null) {
+      try {
+        data.close();
+      } finally {
+        index.close();
+        data = null;
+        index = null;
+      }
+    }
+  }
+}
@@ -20,7 +20,7 @@
 package org.sonar.scanner.protocol.output;
 
 import java.io.File;
-
+import javax.annotation.CheckForNull;
 import javax.annotation.concurrent.Immutable;
 
 /**
@@ -30,29 +30,49 @@ import javax.annotation.concurrent.Immutable;
 public class FileStructure {
 
   public enum Domain {
-    ISSUES("issues-", Domain.PB),
-    COMPONENT("component-", Domain.PB),
-    MEASURES("measures-", Domain.PB),
-    DUPLICATIONS("duplications-", Domain.PB),
-    CPD_TEXT_BLOCKS("cpd-text-block-", Domain.PB),
-    SYNTAX_HIGHLIGHTINGS("syntax-highlightings-", Domain.PB),
-    CHANGESETS("changesets-", Domain.PB),
-    SYMBOLS("symbols-", Domain.PB),
-    COVERAGES("coverages-", Domain.PB),
-    TESTS("tests-", Domain.PB),
-    COVERAGE_DETAILS("coverage-details-", Domain.PB),
-    SOURCE("source-", ".txt");
+    // the ordinal of indexed domains is stored in the index of the container, so new domains
+    // must be added at the end
+    ISSUES("issues-", Domain.PB, true),
+    COMPONENT("component-", Domain.PB, true),
+    MEASURES("measures-", Domain.PB, true),
+    DUPLICATIONS("duplications-", Domain.PB, true),
+    CPD_TEXT_BLOCKS("cpd-text-block-", Domain.PB, true),
+    SYNTAX_HIGHLIGHTINGS("syntax-highlightings-", Domain.PB, true),
+    CHANGESETS("changesets-", Domain.PB, true),
+    SYMBOLS("symbols-", Domain.PB, true),
+    COVERAGES("coverages-", Domain.PB, true),
+    TESTS("tests-", Domain.PB, false),
+    COVERAGE_DETAILS("coverage-details-", Domain.PB, false),
+    SOURCE("source-", ".txt", false);
 
     private static final String PB = ".pb";
     private final String filePrefix;
     private final String fileSuffix;
+    private final boolean indexed;
 
-    Domain(String filePrefix, String fileSuffix) {
+    Domain(String filePrefix, String fileSuffix, boolean indexed) {
       this.filePrefix = filePrefix;
       this.fileSuffix = fileSuffix;
+      this.indexed = indexed;
+    }
+
+    /**
+     * Whether the data of this domain is stored in the container ({@link #CONTAINER_DATA_FILE_NAME}
+     * and {@link #CONTAINER_INDEX_FILE_NAME}) when the report is written in container mode. Other domains
+     * are always stored in one file per component.
+     */
+    public boolean isIndexed() {
+      return indexed;
     }
   }
 
+  public static final String METADATA_FILE_NAME = "metadata.pb";
+  public static final String ANALYSIS_LOG_FILE_NAME = "analysis.log";
+  public static final String ACTIVE_RULES_FILE_NAME = "activerules.pb";
+  public static final String CONTEXT_PROPERTIES_FILE_NAME = "context-props.pb";
+  public static final String CONTAINER_DATA_FILE_NAME = "components.dat";
+  public static final String CONTAINER_INDEX_FILE_NAME = "components.idx";
+
   private final File dir;
 
   public FileStructure(File dir) {
@@ -63,25 +83,59 @@ public class FileStructure {
   }
 
   public File metadataFile() {
-    return new File(dir, "metadata.pb");
+    return new File(dir, METADATA_FILE_NAME);
   }
 
   public File analysisLog() {
-    return new File(dir, "analysis.log");
+    return new File(dir, ANALYSIS_LOG_FILE_NAME);
   }
 
   public File activeRules() {
-    return new File(dir, "activerules.pb");
+    return new File(dir, ACTIVE_RULES_FILE_NAME);
   }
 
   public File fileFor(Domain domain, int componentRef) {
-    return new File(dir, domain.filePrefix + componentRef + domain.fileSuffix);
+    return new File(dir, fileNameFor(domain, componentRef));
+  }
+
+  /**
+   * Name of the file of the specified domain and component, relative to the root of the report
+   */
+  public static String fileNameFor(Domain domain, int componentRef) {
+    return domain.filePrefix + componentRef + domain.fileSuffix;
+  }
+
+  /**
+   * Domain of a file of the report, or {@code null} if the file is not specific to a component
+   */
+  @CheckForNull
+  public static Domain domainOf(String fileName) {
+    for (Domain domain : Domain.values()) {
+      if (fileName.startsWith(domain.filePrefix) && fileName.endsWith(domain.fileSuffix)
+        && isComponentRef(fileName.substring(domain.filePrefix.length(), fileName.length() - domain.fileSuffix.length()))) {
+        return domain;
+      }
+    }
+    return null;
+  }
+
+  private static boolean isComponentRef(String s) {
+    return !s.isEmpty() && s.chars().allMatch(Character::isDigit);
   }
 
   public File contextProperties() {
-    return new File(dir, "context-props.pb");
+    return new File(dir, CONTEXT_PROPERTIES_FILE_NAME);
+  }
+
+  public File containerData() {
+    return new File(dir, CONTAINER_DATA_FILE_NAME);
   }
-  
+
+  public File containerIndex() {
+    return new File(dir, CONTAINER_INDEX_FILE_NAME);
+  }
+
+
   public File root() {
     return dir;
   }
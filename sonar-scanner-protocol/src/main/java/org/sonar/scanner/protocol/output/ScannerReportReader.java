@@ -19,7 +19,10 @@
  */
 package org.sonar.scanner.protocol.output;
 
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
 import java.io.File;
+import java.io.InputStream;
 import javax.annotation.CheckForNull;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.core.util.Protobuf;
@@ -29,9 +32,17 @@ import static org.sonar.core.util.CloseableIterator.emptyCloseableIterator;
 public class ScannerReportReader {
 
   private final FileStructure fileStructure;
+  @CheckForNull
+  private final ContainerReader container;
 
+  /**
+   * The format of the report (one file per component or container) is detected from the files
+   * of the directory.
+   */
   public ScannerReportReader(File dir) {
     this.fileStructure = new FileStructure(dir);
+    File containerIndex = fileStructure.containerIndex();
+    this.container = fileExists(containerIndex) ? new ContainerReader(fileStructure.containerData(), containerIndex) : null;
   }
 
   public ScannerReport.Metadata readMetadata() {
@@ -51,15 +62,15 @@ public class ScannerReportReader {
   }
 
   public CloseableIterator<ScannerReport.Measure> readComponentMeasures(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.MEASURES, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Measure.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(FileStructure.Domain.MEASURES, componentRef, ScannerReport.Measure.parser());
   }
 
   @CheckForNull
   public ScannerReport.Changesets readChangesets(int componentRef) {
+    if (container != null) {
+      InputStream input = container.open(FileStructure.Domain.CHANGESETS, componentRef);
+      return input == null ? null : Protobuf.read(input, ScannerReport.Changesets.parser());
+    }
     File file = fileStructure.fileFor(FileStructure.Domain.CHANGESETS, componentRef);
     if (fileExists(file)) {
       return Protobuf.read(file, ScannerReport.Changesets.parser());
@@ -68,6 +79,13 @@ public class ScannerReportReader {
   }
 
   public ScannerReport.Component readComponent(int componentRef) {
+    if (container != null) {
+      InputStream input = container.open(FileStructure.Domain.COMPONENT, componentRef);
+      if (input == null) {
+        throw new IllegalStateException("Unable to find report for component #" + componentRef + " in container: " + fileStructure.containerIndex());
+      }
+      return Protobuf.read(input, ScannerReport.Component.parser());
+    }
     File file = fileStructure.fileFor(FileStructure.Domain.COMPONENT, componentRef);
     if (!fileExists(file)) {
       throw new IllegalStateException("Unable to find report for component #" + componentRef + ". File does not exist: " + file);
@@ -76,61 +94,35 @@ public class ScannerReportReader {
   }
 
   public CloseableIterator<ScannerReport.Issue> readComponentIssues(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.ISSUES, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Issue.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(FileStructure.Domain.ISSUES, componentRef, ScannerReport.Issue.parser());
   }
 
   public CloseableIterator<ScannerReport.Duplication> readComponentDuplications(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.DUPLICATIONS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Duplication.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(FileStructure.Domain.DUPLICATIONS, componentRef, ScannerReport.Duplication.parser());
   }
 
   public CloseableIterator<ScannerReport.CpdTextBlock> readCpdTextBlocks(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.CpdTextBlock.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef, ScannerReport.CpdTextBlock.parser());
   }
 
   public CloseableIterator<ScannerReport.Symbol> readComponentSymbols(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYMBOLS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Symbol.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(FileStructure.Domain.SYMBOLS, componentRef, ScannerReport.Symbol.parser());
   }
 
   public boolean hasSyntaxHighlighting(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef);
-    return file.exists();
+    return hasComponentData(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef);
   }
 
   public CloseableIterator<ScannerReport.SyntaxHighlightingRule> readComponentSyntaxHighlighting(int fileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, fileRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.SyntaxHighlightingRule.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, fileRef, ScannerReport.SyntaxHighlightingRule.parser());
   }
 
   public boolean hasCoverage(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COVERAGES, componentRef);
-    return file.exists();
+    return hasComponentData(FileStructure.Domain.COVERAGES, componentRef);
   }
 
   public CloseableIterator<ScannerReport.LineCoverage> readComponentCoverage(int fileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COVERAGES, fileRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.LineCoverage.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(FileStructure.Domain.COVERAGES, fileRef, ScannerReport.LineCoverage.parser());
   }
 
   @CheckForNull
@@ -170,6 +162,25 @@ public class ScannerReportReader {
     return Protobuf.readStream(file, ScannerReport.ContextProperty.parser());
   }
 
+  private boolean hasComponentData(FileStructure.Domain domain, int componentRef) {
+    if (container != null) {
+      return container.has(domain, componentRef);
+    }
+    return fileStructure.fileFor(domain, componentRef).exists();
+  }
+
+  private <MSG extends Message> CloseableIterator<MSG> readStream(FileStructure.Domain domain, int componentRef, Parser<MSG> parser) {
+    if (container != null) {
+      InputStream input = container.open(domain, componentRef);
+      return input == null ? emptyCloseableIterator() : Protobuf.readStream(input, parser);
+    }
+    File file = fileStructure.fileFor(domain, componentRef);
+    if (fileExists(file)) {
+      return Protobuf.readStream(file, parser);
+    }
+    return emptyCloseableIterator();
+  }
+
   private static boolean fileExists(File file) {
     return file.exists() && file.isFile();
   }
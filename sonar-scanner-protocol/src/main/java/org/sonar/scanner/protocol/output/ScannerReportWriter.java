@@ -19,24 +19,39 @@
  */
 package org.sonar.scanner.protocol.output;
 
+import com.google.protobuf.Message;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
-import javax.annotation.concurrent.Immutable;
+import javax.annotation.CheckForNull;
 import org.sonar.core.util.ContextException;
 import org.sonar.core.util.Protobuf;
 
-@Immutable
-public class ScannerReportWriter {
+/**
+ * Writes the analysis report into a directory. By default each component has its own files. When the
+ * container is enabled, the data of indexed domains (see {@link FileStructure.Domain#isIndexed()}) is
+ * stored in two files only, which is much cheaper to write, zip and upload for large projects.
+ */
+public class ScannerReportWriter implements Closeable {
 
   private final FileStructure fileStructure;
+  @CheckForNull
+  private final ContainerWriter container;
 
   public ScannerReportWriter(File dir) {
+    this(dir, false);
+  }
+
+  public ScannerReportWriter(File dir, boolean useContainer) {
     if (!dir.exists() && !dir.mkdirs()) {
       throw new IllegalStateException("Unable to create directory: " + dir);
     }
     this.fileStructure = new FileStructure(dir);
+    this.container = useContainer ? new ContainerWriter(fileStructure.containerData(), fileStructure.containerIndex()) : null;
   }
 
   public FileStructure getFileStructure() {
@@ -44,6 +59,9 @@ public class ScannerReportWriter {
   }
 
   public boolean hasComponentData(FileStructure.Domain domain, int componentRef) {
+    if (container != null && domain.isIndexed()) {
+      return container.has(domain, componentRef);
+    }
     File file = fileStructure.fileFor(domain, componentRef);
     return file.exists() && file.isFile();
   }
@@ -62,19 +80,25 @@ public class ScannerReportWriter {
   }
 
   public File writeComponent(ScannerReport.Component component) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COMPONENT, component.getRef());
-    Protobuf.write(component, file);
-    return file;
+    return write(FileStructure.Domain.COMPONENT, component.getRef(), component);
   }
 
   public File writeComponentIssues(int componentRef, Iterable<ScannerReport.Issue> issues) {
-    File file = fileStructure.fileFor(FileStructure.Domain.ISSUES, componentRef);
-    Protobuf.writeStream(issues, file, false);
-    return file;
+    return writeStream(FileStructure.Domain.ISSUES, componentRef, issues);
   }
 
   public void appendComponentIssue(int componentRef, ScannerReport.Issue issue) {
-    File file = fileStructure.fileFor(FileStructure.Domain.ISSUES, componentRef);
+    if (container != null) {
+      container.write(FileStructure.Domain.ISSUES, componentRef, toDelimitedBytes(issue), true);
+      return;
+    }
+    appendToFile(fileStructure.fileFor(FileStructure.Domain.ISSUES, componentRef), issue);
+  }
+
+  /**
+   * Synchronized, as issues of the same component may be appended concurrently by several sensors
+   */
+  private synchronized void appendToFile(File file, ScannerReport.Issue issue) {
     try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file, true))) {
       issue.writeDelimitedTo(out);
     } catch (Exception e) {
@@ -83,57 +107,39 @@ public class ScannerReportWriter {
   }
 
   public File writeComponentMeasures(int componentRef, Iterable<ScannerReport.Measure> measures) {
-    File file = fileStructure.fileFor(FileStructure.Domain.MEASURES, componentRef);
-    Protobuf.writeStream(measures, file, false);
-    return file;
+    return writeStream(FileStructure.Domain.MEASURES, componentRef, measures);
   }
 
   public File writeComponentChangesets(ScannerReport.Changesets changesets) {
-    File file = fileStructure.fileFor(FileStructure.Domain.CHANGESETS, changesets.getComponentRef());
-    Protobuf.write(changesets, file);
-    return file;
+    return write(FileStructure.Domain.CHANGESETS, changesets.getComponentRef(), changesets);
   }
 
   public File writeComponentDuplications(int componentRef, Iterable<ScannerReport.Duplication> duplications) {
-    File file = fileStructure.fileFor(FileStructure.Domain.DUPLICATIONS, componentRef);
-    Protobuf.writeStream(duplications, file, false);
-    return file;
+    return writeStream(FileStructure.Domain.DUPLICATIONS, componentRef, duplications);
   }
 
   public File writeCpdTextBlocks(int componentRef, Iterable<ScannerReport.CpdTextBlock> blocks) {
-    File file = fileStructure.fileFor(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef);
-    Protobuf.writeStream(blocks, file, false);
-    return file;
+    return writeStream(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef, blocks);
   }
 
   public File writeComponentSymbols(int componentRef, Iterable<ScannerReport.Symbol> symbols) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYMBOLS, componentRef);
-    Protobuf.writeStream(symbols, file, false);
-    return file;
+    return writeStream(FileStructure.Domain.SYMBOLS, componentRef, symbols);
   }
 
   public File writeComponentSyntaxHighlighting(int componentRef, Iterable<ScannerReport.SyntaxHighlightingRule> syntaxHighlightingRules) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef);
-    Protobuf.writeStream(syntaxHighlightingRules, file, false);
-    return file;
+    return writeStream(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef, syntaxHighlightingRules);
   }
 
   public File writeComponentCoverage(int componentRef, Iterable<ScannerReport.LineCoverage> coverageList) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COVERAGES, componentRef);
-    Protobuf.writeStream(coverageList, file, false);
-    return file;
+    return writeStream(FileStructure.Domain.COVERAGES, componentRef, coverageList);
   }
 
   public File writeTests(int componentRef, Iterable<ScannerReport.Test> tests) {
-    File file = fileStructure.fileFor(FileStructure.Domain.TESTS, componentRef);
-    Protobuf.writeStream(tests, file, false);
-    return file;
+    return writeStream(FileStructure.Domain.TESTS, componentRef, tests);
   }
 
   public File writeCoverageDetails(int componentRef, Iterable<ScannerReport.CoverageDetail> tests) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COVERAGE_DETAILS, componentRef);
-    Protobuf.writeStream(tests, file, false);
-    return file;
+    return writeStream(FileStructure.Domain.COVERAGE_DETAILS, componentRef, tests);
   }
 
   public File writeContextProperties(Iterable<ScannerReport.ContextProperty> properties) {
@@ -146,4 +152,48 @@ public class ScannerReportWriter {
     return fileStructure.fileFor(FileStructure.Domain.SOURCE, componentRef);
   }
 
+  /**
+   * Releases the files of the container, if enabled. Writing again is still allowed.
+   */
+  @Override
+  public void close() throws IOException {
+    if (container != null) {
+      container.close();
+    }
+  }
+
+  /**
+   * @return the file containing the message: the data file of the container if the domain is indexed
+   */
+  private File write(FileStructure.Domain domain, int componentRef, Message message) {
+    if (container != null && domain.isIndexed()) {
+      container.write(domain, componentRef, message.toByteArray(), false);
+      return fileStructure.containerData();
+    }
+    File file = fileStructure.fileFor(domain, componentRef);
+    Protobuf.write(message, file);
+    return file;
+  }
+
+  private <MSG extends Message> File writeStream(FileStructure.Domain domain, int componentRef, Iterable<MSG> messages) {
+    if (container != null && domain.isIndexed()) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      Protobuf.writeStream(messages, out);
+      container.write(domain, componentRef, out.toByteArray(), false);
+      return fileStructure.containerData();
+    }
+    File file = fileStructure.fileFor(domain, componentRef);
+    Protobuf.writeStream(messages, file, false);
+    return file;
+  }
+
+  private static byte[] toDelimitedBytes(Message message) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      message.writeDelimitedTo(out);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to write message", e);
+    }
+    return out.toByteArray();
+  }
 }
@@ -0,0 +1,207 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.protocol.output;
+
+import com.google.common.collect.Iterators;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.core.util.CloseableIterator;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ContainerReaderTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private File dir;
+  private ScannerReportWriter writer;
+
+  @Before
+  public void setUp() throws Exception {
+    dir = temp.newFolder();
+    writer = new ScannerReportWriter(dir, true);
+  }
+
+  @Test
+  public void write_indexed_domains_in_container() {
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(1).addChildRef(2).build());
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(2).setPath("src/Foo.java").build());
+    writer.writeComponentMeasures(2, asList(ScannerReport.Measure.newBuilder().setMetricKey("ncloc").build()));
+    writer.writeComponentChangesets(ScannerReport.Changesets.newBuilder().setComponentRef(2).setCopyFromPrevious(true).build());
+
+    assertThat(dir.list()).containsOnly(FileStructure.CONTAINER_DATA_FILE_NAME, FileStructure.CONTAINER_INDEX_FILE_NAME);
+    assertThat(writer.hasComponentData(FileStructure.Domain.COMPONENT, 2)).isTrue();
+    assertThat(writer.hasComponentData(FileStructure.Domain.MEASURES, 1)).isFalse();
+
+    ScannerReportReader reader = new ScannerReportReader(dir);
+    assertThat(reader.readComponent(1).getChildRefList()).containsOnly(2);
+    assertThat(reader.readComponent(2).getPath()).isEqualTo("src/Foo.java");
+    assertThat(reader.readChangesets(2).getCopyFromPrevious()).isTrue();
+    assertThat(reader.readChangesets(1)).isNull();
+    try (CloseableIterator<ScannerReport.Measure> measures = reader.readComponentMeasures(2)) {
+      assertThat(measures.next().getMetricKey()).isEqualTo("ncloc");
+      assertThat(measures.hasNext()).isFalse();
+    }
+    try (CloseableIterator<ScannerReport.Measure> measures = reader.readComponentMeasures(1)) {
+      assertThat(measures.hasNext()).isFalse();
+    }
+  }
+
+  @Test
+  public void other_domains_are_written_in_files() {
+    writer.writeTests(1, asList(ScannerReport.Test.newBuilder().setName("test").build()));
+
+    assertThat(writer.getFileStructure().fileFor(FileStructure.Domain.TESTS, 1)).isFile();
+    assertThat(new ScannerReportReader(dir).readTests(1)).isFile();
+  }
+
+  @Test
+  public void appended_issues_are_read_in_order() {
+    writer.writeComponentIssues(1, asList(issue("first")));
+    writer.writeComponentMeasures(1, emptyList());
+    writer.appendComponentIssue(1, issue("second"));
+    writer.appendComponentIssue(2, issue("other"));
+    writer.appendComponentIssue(1, issue("third"));
+
+    ScannerReportReader reader = new ScannerReportReader(dir);
+    try (CloseableIterator<ScannerReport.Issue> issues = reader.readComponentIssues(1)) {
+      assertThat(issues.next().getMsg()).isEqualTo("first");
+      assertThat(issues.next().getMsg()).isEqualTo("second");
+      assertThat(issues.next().getMsg()).isEqualTo("third");
+      assertThat(issues.hasNext()).isFalse();
+    }
+    try (CloseableIterator<ScannerReport.Issue> issues = reader.readComponentIssues(2)) {
+      assertThat(Iterators.size(issues)).isEqualTo(1);
+    }
+  }
+
+  @Test
+  public void last_written_data_replaces_previous_one() {
+    writer.appendComponentIssue(1, issue("first"));
+    writer.writeComponentIssues(1, asList(issue("second")));
+
+    try (CloseableIterator<ScannerReport.Issue> issues = new ScannerReportReader(dir).readComponentIssues(1)) {
+      assertThat(issues.next().getMsg()).isEqualTo("second");
+      assertThat(issues.hasNext()).isFalse();
+    }
+  }
+
+  @Test
+  public void empty_data_is_considered_as_existing() {
+    writer.writeComponentCoverage(1, emptyList());
+
+    ScannerReportReader reader = new ScannerReportReader(dir);
+    assertThat(reader.hasCoverage(1)).isTrue();
+    assertThat(reader.hasCoverage(2)).isFalse();
+    try (CloseableIterator<ScannerReport.LineCoverage> coverage = reader.readComponentCoverage(1)) {
+      assertThat(coverage.hasNext()).isFalse();
+    }
+  }
+
+  @Test
+  public void container_can_be_written_after_being_closed() throws IOException {
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(1).build());
+    writer.close();
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(2).build());
+
+    ScannerReportReader reader = new ScannerReportReader(dir);
+    assertThat(reader.readComponent(1).getRef()).isEqualTo(1);
+    assertThat(reader.readComponent(2).getRef()).isEqualTo(2);
+  }
+
+  @Test
+  public void load_components_of_existing_container() {
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(1).build());
+
+    ScannerReportWriter newWriter = new ScannerReportWriter(dir, true);
+
+    assertThat(newWriter.hasComponentData(FileStructure.Domain.COMPONENT, 1)).isTrue();
+  }
+
+  @Test
+  public void ignore_truncated_record_at_end_of_index() throws IOException {
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(1).build());
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(2).build());
+    File index = writer.getFileStructure().containerIndex();
+    try (RandomAccessFile file = new RandomAccessFile(index, "rw")) {
+      file.setLength(file.length() - 3);
+    }
+
+    ContainerReader underTest = new ContainerReader(writer.getFileStructure().containerData(), index);
+
+    assertThat(underTest.has(FileStructure.Domain.COMPONENT, 1)).isTrue();
+    assertThat(underTest.has(FileStructure.Domain.COMPONENT, 2)).isFalse();
+  }
+
+  @Test
+  public void fail_if_version_of_container_is_not_supported() throws IOException {
+    File index = temp.newFile();
+    try (DataOutputStream output = new DataOutputStream(new FileOutputStream(index))) {
+      output.writeInt(ContainerWriter.MAGIC);
+      output.writeInt(ContainerWriter.FORMAT_VERSION + 1);
+    }
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Unsupported version of report container: " + (ContainerWriter.FORMAT_VERSION + 1));
+
+    new ContainerReader(temp.newFile(), index);
+  }
+
+  @Test
+  public void fail_if_file_is_not_an_index() throws IOException {
+    File index = temp.newFile();
+    try (DataOutputStream output = new DataOutputStream(new FileOutputStream(index))) {
+      output.writeInt(42);
+      output.writeInt(ContainerWriter.FORMAT_VERSION);
+    }
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("File is not the index of a report container: " + index);
+
+    new ContainerReader(temp.newFile(), index);
+  }
+
+  @Test
+  public void fail_to_write_domain_which_is_not_indexed() {
+    ContainerWriter underTest = new ContainerWriter(writer.getFileStructure().containerData(), writer.getFileStructure().containerIndex());
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Domain SOURCE is not stored in the report container");
+
+    underTest.write(FileStructure.Domain.SOURCE, 1, new byte[0], false);
+  }
+
+  private static ScannerReport.Issue issue(String msg) {
+    return ScannerReport.Issue.newBuilder().setMsg(msg).build();
+  }
+}
@@ -71,6 +71,18 @@ public class FileStructureTest {
     assertThat(structure.fileFor(FileStructure.Domain.ISSUES, 42)).doesNotExist();
   }
 
+  @Test
+  public void domain_of_file() {
+    assertThat(FileStructure.domainOf("issues-3.pb")).isEqualTo(FileStructure.Domain.ISSUES);
+    assertThat(FileStructure.domainOf("coverages-3.pb")).isEqualTo(FileStructure.Domain.COVERAGES);
+    assertThat(FileStructure.domainOf("coverage-details-3.pb")).isEqualTo(FileStructure.Domain.COVERAGE_DETAILS);
+    assertThat(FileStructure.domainOf("source-12.txt")).isEqualTo(FileStructure.Domain.SOURCE);
+    assertThat(FileStructure.domainOf("source-12.pb")).isNull();
+    assertThat(FileStructure.domainOf("source-.txt")).isNull();
+    assertThat(FileStructure.domainOf("metadata.pb")).isNull();
+    assertThat(FileStructure.domainOf("components.dat")).isNull();
+  }
+
   @Test
   public void contextProperties_file() throws Exception {
     File dir = temp.newFolder();
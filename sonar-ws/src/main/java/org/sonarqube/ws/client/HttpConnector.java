@@ -20,6 +20,7 @@
 package org.sonarqube.ws.client;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.Proxy;
 import java.util.Map;
 import javax.annotation.Nullable;
@@ -35,6 +36,9 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Strings.isNullOrEmpty;
@@ -64,6 +68,8 @@ public class HttpConnector implements WsConnector {
   private final String systemPassCode;
   private final OkHttpClient okHttpClient;
   private final OkHttpClient noRedirectOkHttpClient;
+  // streamed bodies can't be sent again when the connection fails
+  private final OkHttpClient noRetryOkHttpClient;
 
   private HttpConnector(Builder builder) {
     this.baseUrl = HttpUrl.parse(builder.url.endsWith("/") ? builder.url : format("%s/", builder.url));
@@ -87,6 +93,9 @@ public class HttpConnector implements WsConnector {
     okHttpClientBuilder.setTrustManager(builder.sslTrustManager);
     this.okHttpClient = okHttpClientBuilder.build();
     this.noRedirectOkHttpClient = newClientWithoutRedirect(this.okHttpClient);
+    this.noRetryOkHttpClient = this.noRedirectOkHttpClient.newBuilder()
+      .retryOnConnectionFailure(false)
+      .build();
   }
 
   private static OkHttpClient newClientWithoutRedirect(OkHttpClient client) {
@@ -129,6 +138,7 @@ public class HttpConnector implements WsConnector {
 
     RequestBody body;
     Map<String, PostRequest.Part> parts = postRequest.getParts();
+    boolean streamed = parts.values().stream().anyMatch(part -> part.getFile() == null);
     if (parts.isEmpty()) {
       // parameters are defined in the body (application/x-www-form-urlencoded)
       FormBody.Builder formBody = new FormBody.Builder();
@@ -144,19 +154,50 @@ public class HttpConnector implements WsConnector {
       MultipartBody.Builder bodyBuilder = new MultipartBody.Builder().setType(MultipartBody.FORM);
       parts.entrySet().forEach(param -> {
         PostRequest.Part part = param.getValue();
+        MediaType mediaType = MediaType.parse(part.getMediaType());
         bodyBuilder.addFormDataPart(
           param.getKey(),
-          part.getFile().getName(),
-          RequestBody.create(MediaType.parse(part.getMediaType()), part.getFile()));
+          part.getFileName(),
+          part.getFile() == null ? new StreamedRequestBody(mediaType, part.getContent()) : RequestBody.create(mediaType, part.getFile()));
       });
       body = bodyBuilder.build();
     }
     Request.Builder okRequestBuilder = prepareOkRequestBuilder(postRequest, urlBuilder).post(body);
-    Response response = doCall(noRedirectOkHttpClient, okRequestBuilder.build());
-    response = checkRedirect(response);
+    Response response = doCall(streamed ? noRetryOkHttpClient : noRedirectOkHttpClient, okRequestBuilder.build());
+    response = checkRedirect(response, streamed);
     return new OkHttpResponse(response);
   }
 
+  /**
+   * Body of unknown length, sent in chunks as it is read. It can be sent only once.
+   */
+  private static class StreamedRequestBody extends RequestBody {
+    private final MediaType mediaType;
+    private final InputStream content;
+    private boolean sent = false;
+
+    private StreamedRequestBody(@Nullable MediaType mediaType, InputStream content) {
+      this.mediaType = mediaType;
+      this.content = content;
+    }
+
+    @Override
+    public MediaType contentType() {
+      return mediaType;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+      if (sent) {
+        throw new IllegalStateException("Streamed content can't be sent twice");
+      }
+      sent = true;
+      try (Source source = Okio.source(content)) {
+        sink.writeAll(source);
+      }
+    }
+  }
+
   private HttpUrl.Builder prepareUrlBuilder(WsRequest wsRequest) {
     String path = wsRequest.getPath();
     return baseUrl
@@ -191,7 +232,7 @@ public class HttpConnector implements WsConnector {
     }
   }
 
-  private Response checkRedirect(Response response) {
+  private Response checkRedirect(Response response, boolean streamed) {
     switch (response.code()) {
       case HTTP_MOVED_PERM:
       case HTTP_MOVED_TEMP:
@@ -202,6 +243,11 @@ public class HttpConnector implements WsConnector {
         // See:
         // https://github.com/square/okhttp/blob/07309c1c7d9e296014268ebd155ebf7ef8679f6c/okhttp/src/main/java/okhttp3/internal/http/RetryAndFollowUpInterceptor.java#L316
         // https://github.com/square/okhttp/issues/936#issuecomment-266430151
+        if (streamed) {
+          response.body().close();
+          throw new IllegalStateException(format("Request to %s is redirected to %s, but its streamed content can't be sent twice. " +
+            "Please use the URL of the redirection", response.request().url(), response.header("Location")));
+        }
         return followPostRedirect(response);
       default:
         return response;
@@ -20,8 +20,10 @@
 package org.sonarqube.ws.client;
 
 import java.io.File;
+import java.io.InputStream;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import javax.annotation.CheckForNull;
 
 /**
  * @since 5.3
@@ -50,20 +52,58 @@ public class PostRequest extends BaseRequest<PostRequest> {
 
   public static class Part {
     private final String mediaType;
+    private final String fileName;
     private final File file;
+    private final InputStream content;
 
     public Part(String mediaType, File file) {
       this.mediaType = mediaType;
+      this.fileName = file.getName();
       this.file = file;
+      this.content = null;
+    }
+
+    /**
+     * Part whose content is streamed, for instance while it is still being produced. The request
+     * is sent with chunked transfer encoding. As the content can be read only once, the request
+     * can't be replayed, for example when it is redirected.
+     *
+     * @since 7.0
+     */
+    public Part(String mediaType, String fileName, InputStream content) {
+      this.mediaType = mediaType;
+      this.fileName = fileName;
+      this.file = null;
+      this.content = content;
     }
 
     public String getMediaType() {
       return mediaType;
     }
 
+    /**
+     * @since 7.0
+     */
+    public String getFileName() {
+      return fileName;
+    }
+
+    /**
+     * @return the file, or {@code null} if the content is streamed
+     */
+    @CheckForNull
     public File getFile() {
       return file;
     }
+
+    /**
+     * @return the streamed content, or {@code null} if the part is a file
+     * @since 7.0
+     */
+    @CheckForNull
+    public InputStream getContent() {
+      return content;
+    }
   }
 
 }
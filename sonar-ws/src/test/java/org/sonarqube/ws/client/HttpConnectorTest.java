@@ -19,6 +19,7 @@
  */
 package org.sonarqube.ws.client;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -31,6 +32,7 @@ import okhttp3.ConnectionSpec;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.RandomStringUtils;
@@ -380,6 +382,64 @@ public class HttpConnectorTest {
       .contains("the report content");
   }
 
+  @Test
+  public void upload_streamed_content() throws Exception {
+    answerHelloWorld();
+    PostRequest request = new PostRequest("api/report/upload")
+      .setParam("project", "theKey")
+      .setPart("report", new PostRequest.Part(MediaTypes.TXT, "report.txt", new ByteArrayInputStream("the report content".getBytes(UTF_8))))
+      .setMediaType(MediaTypes.PROTOBUF);
+
+    underTest = HttpConnector.newBuilder().url(serverUrl).build();
+    WsResponse response = underTest.call(request);
+
+    assertThat(response.hasContent()).isTrue();
+    RecordedRequest recordedRequest = server.takeRequest();
+    assertThat(recordedRequest.getHeader("Transfer-Encoding")).isEqualTo("chunked");
+    String body = IOUtils.toString(recordedRequest.getBody().inputStream());
+    assertThat(body)
+      .contains("Content-Disposition: form-data; name=\"report\"; filename=\"report.txt\"")
+      .contains("Content-Type: text/plain")
+      .contains("the report content");
+  }
+
+  @Test
+  public void fail_if_upload_of_streamed_content_is_redirected() throws Exception {
+    MockWebServer server2 = new MockWebServer();
+    server2.start();
+    server.enqueue(new MockResponse()
+      .setResponseCode(307)
+      .setHeader("Location", server2.url("").url().toString()));
+    PostRequest request = new PostRequest("api/report/upload")
+      .setPart("report", new PostRequest.Part(MediaTypes.TXT, "report.txt", new ByteArrayInputStream("the report content".getBytes(UTF_8))));
+    underTest = HttpConnector.newBuilder().url(serverUrl).build();
+
+    try {
+      underTest.call(request);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage())
+        .startsWith("Request to " + serverUrl + "api/report/upload is redirected to " + server2.url(""))
+        .endsWith("but its streamed content can't be sent twice. Please use the URL of the redirection");
+    }
+    assertThat(server2.getRequestCount()).isEqualTo(0);
+    server2.shutdown();
+  }
+
+  @Test
+  public void do_not_retry_upload_of_streamed_content_on_connection_failure() throws Exception {
+    server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+    answerHelloWorld();
+    PostRequest request = new PostRequest("api/report/upload")
+      .setPart("report", new PostRequest.Part(MediaTypes.TXT, "report.txt", new ByteArrayInputStream("the report content".getBytes(UTF_8))));
+    underTest = HttpConnector.newBuilder().url(serverUrl).build();
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Fail to request " + serverUrl + "api/report/upload");
+
+    underTest.call(request);
+  }
+
   @Test
   public void http_error() throws Exception {
     server.enqueue(new MockResponse().setResponseCode(404));
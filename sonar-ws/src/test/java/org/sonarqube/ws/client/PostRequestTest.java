@@ -19,8 +19,10 @@
  */
 package org.sonarqube.ws.client;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -57,4 +59,16 @@ public class PostRequestTest {
     assertThat(part.getMediaType()).isEqualTo(MediaTypes.JSON);
     assertThat(part.getFile()).isSameAs(reportFile);
   }
+
+  @Test
+  public void add_streamed_part() {
+    PostRequest request = new PostRequest("api/issues/search");
+    InputStream content = new ByteArrayInputStream(new byte[0]);
+    request.setPart("report", new PostRequest.Part(MediaTypes.ZIP, "report.zip", content));
+
+    PostRequest.Part part = request.getParts().get("report");
+    assertThat(part.getFileName()).isEqualTo("report.zip");
+    assertThat(part.getFile()).isNull();
+    assertThat(part.getContent()).isSameAs(content);
+  }
 }